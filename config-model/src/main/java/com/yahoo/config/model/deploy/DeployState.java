@@ -34,6 +34,7 @@ import com.yahoo.schema.Application;
 import com.yahoo.schema.ApplicationBuilder;
 import com.yahoo.schema.RankProfileRegistry;
 import com.yahoo.schema.Schema;
+import com.yahoo.schema.derived.RawRankProfileCache;
 import com.yahoo.search.query.profile.QueryProfileRegistry;
 import com.yahoo.vespa.config.ConfigDefinition;
 import com.yahoo.vespa.config.ConfigDefinitionBuilder;
@@ -91,6 +92,7 @@ public class DeployState implements ConfigDefinitionStore {
     private final Reindexing reindexing;
     private final ExecutorService executor;
     private final OnnxModelCost onnxModelCost;
+    private final RawRankProfileCache.Deployment rawRankProfileCache;
 
     public static DeployState createTestState() {
         return new Builder().build();
@@ -126,7 +128,8 @@ public class DeployState implements ConfigDefinitionStore {
                         Optional<DockerImage> wantedDockerImageRepo,
                         Reindexing reindexing,
                         Optional<ValidationOverrides> validationOverrides,
-                        OnnxModelCost onnxModelCost) {
+                        OnnxModelCost onnxModelCost,
+                        RawRankProfileCache rawRankProfileCache) {
         this.logger = deployLogger;
         this.fileRegistry = fileRegistry;
         this.executor = executor;
@@ -155,6 +158,7 @@ public class DeployState implements ConfigDefinitionStore {
         this.wantedDockerImageRepo = wantedDockerImageRepo;
         this.reindexing = reindexing;
         this.onnxModelCost = onnxModelCost;
+        this.rawRankProfileCache = rawRankProfileCache.newDeployment(applicationPackage, properties, importedModels);
     }
 
     public static HostProvisioner getDefaultModelHostProvisioner(ApplicationPackage applicationPackage) {
@@ -310,6 +314,9 @@ public class DeployState implements ConfigDefinitionStore {
 
     public OnnxModelCost onnxModelCost() { return onnxModelCost; }
 
+    /** Returns the cache of rank profiles derived by earlier deployments, as used by this deployment. */
+    public RawRankProfileCache.Deployment rawRankProfileCache() { return rawRankProfileCache; }
+
     public boolean isHostedTenantApplication(ApplicationType type) {
         boolean isTesterApplication = getProperties().applicationId().instance().isTester();
         return isHosted() && type == ApplicationType.DEFAULT && !isTesterApplication;
@@ -339,6 +346,7 @@ public class DeployState implements ConfigDefinitionStore {
         private Reindexing reindexing = null;
         private Optional<ValidationOverrides> validationOverrides = Optional.empty();
         private OnnxModelCost onnxModelCost = OnnxModelCost.disabled();
+        private RawRankProfileCache rawRankProfileCache = RawRankProfileCache.disabled();
 
         public Builder() {}
 
@@ -458,6 +466,8 @@ public class DeployState implements ConfigDefinitionStore {
 
         public Builder onnxModelCost(OnnxModelCost instance) { this.onnxModelCost = instance; return this; }
 
+        public Builder rawRankProfileCache(RawRankProfileCache cache) { this.rawRankProfileCache = cache; return this; }
+
         public DeployState build() {
             return build(new ValidationParameters());
         }
@@ -491,7 +501,8 @@ public class DeployState implements ConfigDefinitionStore {
                                    wantedDockerImageRepo,
                                    reindexing,
                                    validationOverrides,
-                                   onnxModelCost);
+                                   onnxModelCost,
+                                   rawRankProfileCache);
         }
 
     }
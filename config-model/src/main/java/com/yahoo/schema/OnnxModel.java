@@ -30,6 +30,7 @@ public class OnnxModel extends DistributableResource implements Cloneable {
 
     // Runtime options
     private OnnxModelOptions onnxModelOptions = OnnxModelOptions.empty();
+    private boolean statelessReuseBuffers = false;
 
     public OnnxModel(String name) {
         super(name);
@@ -162,6 +163,15 @@ public class OnnxModel extends DistributableResource implements Cloneable {
         return onnxModelOptions.intraOpThreads();
     }
 
+    /** Sets whether stateless evaluation should reuse the direct buffers of inputs and outputs in each thread */
+    public void setStatelessReuseBuffers(boolean reuseBuffers) {
+        this.statelessReuseBuffers = reuseBuffers;
+    }
+
+    public boolean getStatelessReuseBuffers() {
+        return statelessReuseBuffers;
+    }
+
     public void setGpuDevice(int deviceNumber, boolean required) {
         if (deviceNumber >= 0) {
             onnxModelOptions = onnxModelOptions.withGpuDevice(new OnnxModelOptions.GpuDevice(deviceNumber, required));
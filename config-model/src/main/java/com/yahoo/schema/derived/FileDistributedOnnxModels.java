@@ -59,6 +59,7 @@ public class FileDistributedOnnxModels {
             builder.stateless_interop_threads(model.getStatelessInterOpThreads().get());
         if (model.getStatelessIntraOpThreads().isPresent())
             builder.stateless_intraop_threads(model.getStatelessIntraOpThreads().get());
+        builder.stateless_reuse_buffers(model.getStatelessReuseBuffers());
         if (model.getGpuDevice().isPresent()) {
             builder.gpu_device(model.getGpuDevice().get().deviceNumber());
             builder.gpu_device_required(model.getGpuDevice().get().required());
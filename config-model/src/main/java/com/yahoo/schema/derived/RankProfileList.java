@@ -78,12 +78,15 @@ public class RankProfileList extends Derived {
                                                             DeployState deployState) {
         Map<String,  RawRankProfile> rawRankProfiles = new LinkedHashMap<>();
         if (schema != null) { // profiles belonging to a schema have a default profile
-            RawRankProfile rawRank = new RawRankProfile(deployState.rankProfileRegistry().get(schema, "default"),
-                                                        largeRankingExpressions,
-                                                        deployState.getQueryProfiles().getRegistry(),
-                                                        deployState.getImportedModels(),
-                                                        attributeFields,
-                                                        deployState.getProperties());
+            RankProfile defaultProfile = deployState.rankProfileRegistry().get(schema, "default");
+            RawRankProfile rawRank = deployState.rawRankProfileCache().computeIfAbsent(
+                    defaultProfile, schema.getName(), largeRankingExpressions,
+                    () -> new RawRankProfile(defaultProfile,
+                                             largeRankingExpressions,
+                                             deployState.getQueryProfiles().getRegistry(),
+                                             deployState.getImportedModels(),
+                                             attributeFields,
+                                             deployState.getProperties()));
             rawRankProfiles.put(rawRank.getName(), rawRank);
         }
 
@@ -97,26 +100,31 @@ public class RankProfileList extends Derived {
                     ready.add(profile);
             });
             rawRankProfiles.putAll(processRankProfiles(ready,
+                                                       schema == null ? "[global]" : schema.getName(),
                                                        deployState.getQueryProfiles().getRegistry(),
                                                        deployState.getImportedModels(),
                                                        attributeFields,
                                                        deployState.getProperties(),
-                                                       deployState.getExecutor()));
+                                                       deployState.getExecutor(),
+                                                       deployState.rawRankProfileCache()));
             ready.forEach(rank -> remaining.remove(rank.name()));
         }
         return rawRankProfiles;
     }
 
     private Map<String, RawRankProfile> processRankProfiles(List<RankProfile> profiles,
+                                                            String schemaName,
                                                             QueryProfileRegistry queryProfiles,
                                                             ImportedMlModels importedModels,
                                                             AttributeFields attributeFields,
                                                             ModelContext.Properties deployProperties,
-                                                            ExecutorService executor) {
+                                                            ExecutorService executor,
+                                                            RawRankProfileCache.Deployment cache) {
         Map<String, Future<RawRankProfile>> futureRawRankProfiles = new LinkedHashMap<>();
         for (RankProfile profile : profiles) {
-            futureRawRankProfiles.put(profile.name(), executor.submit(() -> new RawRankProfile(profile, largeRankingExpressions, queryProfiles, importedModels,
-                                                                                               attributeFields, deployProperties)));
+            futureRawRankProfiles.put(profile.name(), executor.submit(() -> cache.computeIfAbsent(profile, schemaName, largeRankingExpressions,
+                                                                                                  () -> new RawRankProfile(profile, largeRankingExpressions, queryProfiles, importedModels,
+                                                                                                                           attributeFields, deployProperties))));
         }
         try {
             Map<String,  RawRankProfile> rawRankProfiles = new LinkedHashMap<>();
@@ -61,6 +61,9 @@ public class RawRankProfile {
     private final Collection<RankProfile.Constant> constants;
     private final Collection<OnnxModel> onnxModels;
 
+    /** The expressions of this which are too large for config, and are distributed as files instead. */
+    private final List<RankingExpressionBody> largeExpressions;
+
     /** Creates a raw rank profile from the given rank profile. */
     public RawRankProfile(RankProfile rankProfile, LargeRankingExpressions largeExpressions,
                           QueryProfileRegistry queryProfiles, ImportedMlModels importedModels,
@@ -75,9 +78,39 @@ public class RawRankProfile {
         onnxModels = compiled.onnxModels().values();
         var deriver = new Deriver(compiled, attributeFields, deployProperties, queryProfiles);
         compressedProperties = compress(deriver.derive(largeExpressions));
+        this.largeExpressions = List.copyOf(deriver.largeExpressions);
         this.featureNormalizers = compiled.getFeatureNormalizers();
     }
 
+    private RawRankProfile(RawRankProfile other) {
+        this.name = other.name;
+        this.compressedProperties = other.compressedProperties;
+        this.featureNormalizers = other.featureNormalizers;
+        this.constants = other.constants;
+        this.onnxModels = other.onnxModels.stream().map(OnnxModel::clone).toList();
+        this.largeExpressions = other.largeExpressions;
+    }
+
+    /**
+     * Returns a copy of this for use in another deployment, with the given large expressions of that deployment,
+     * to which the large expressions of this are added. Onnx models are copied, as they are registered per deployment.
+     */
+    RawRankProfile reuse(LargeRankingExpressions largeExpressions) {
+        for (RankingExpressionBody expression : this.largeExpressions)
+            largeExpressions.add(new RankingExpressionBody(expression.getName(), expression.getBlob().duplicate().rewind()));
+
+        return new RawRankProfile(this);
+    }
+
+    /** Returns a rough estimate of the heap used by this, for bounding caches of derived profiles. */
+    long estimatedSize() {
+        long size = 1024 + compressedProperties.data().length + 256L * (constants.size() + onnxModels.size());
+        for (RankingExpressionBody expression : largeExpressions)
+            size += expression.getBlob().capacity();
+
+        return size;
+    }
+
     public Collection<RankProfile.Constant> constants() { return constants; }
     public Collection<OnnxModel> onnxModels() { return onnxModels; }
 
@@ -196,6 +229,7 @@ public class RawRankProfile {
         private RankingExpression globalPhaseRanking;
         private final int globalPhaseRerankCount;
         private final SerializationContext functionSerializationContext;
+        private final List<RankingExpressionBody> largeExpressions = new ArrayList<>();
 
         /**
          * Creates a raw rank profile from the given rank profile
@@ -585,7 +619,9 @@ public class RawRankProfile {
                     String functionName = RankingExpression.extractScriptName(propertyName);
                     if (functionName != null) {
                         String mangledName = rankprofileName + "." + functionName;
-                        largeRankingExpressions.add(new RankingExpressionBody(mangledName, ByteBuffer.wrap(expression.getBytes(StandardCharsets.UTF_8))));
+                        RankingExpressionBody body = new RankingExpressionBody(mangledName, ByteBuffer.wrap(expression.getBytes(StandardCharsets.UTF_8)));
+                        largeRankingExpressions.add(body);
+                        largeExpressions.add(body);
                         iter.set(new Pair<>(RankingExpression.propertyExpressionName(functionName), mangledName));
                     }
                 }
@@ -0,0 +1,336 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.schema.derived;
+
+import ai.vespa.rankingexpression.importer.configmodelview.ImportedMlModel;
+import ai.vespa.rankingexpression.importer.configmodelview.ImportedMlModels;
+import com.yahoo.config.application.api.ApplicationFile;
+import com.yahoo.config.application.api.ApplicationPackage;
+import com.yahoo.config.model.api.ModelContext;
+import com.yahoo.io.reader.NamedReader;
+import com.yahoo.path.Path;
+import com.yahoo.schema.DistributableResource.PathType;
+import com.yahoo.schema.LargeRankingExpressions;
+import com.yahoo.schema.OnnxModel;
+import com.yahoo.schema.RankProfile;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+import com.yahoo.vespa.model.ml.ConvertedModel;
+import com.yahoo.vespa.model.ml.FeatureArguments;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A cache of derived rank profiles, which are expensive to create, shared between deployments of an application.
+ * Each profile is keyed by a content hash of its own inputs: the schema, rank profile and expression files, and
+ * query profile types, which are small and hashed once per deployment, and the onnx model, constant and
+ * machine-learned model files and directories the profile itself refers to. A deployment where only, e.g., services, query profiles
+ * or unrelated models changed therefore reuses the rank profiles derived by the previous deployment.
+ * The cache is bounded by the estimated size of the profiles it holds.
+ *
+ * @author bratseth
+ */
+public class RawRankProfileCache {
+
+    /** The features which refer to imported models, and are replaced by the models' expressions when profiles are derived. */
+    private static final Set<String> modelFeatures = Set.of("onnx_vespa", "xgboost", "lightgbm");
+
+    private final long maxBytes;
+    private final Map<String, RawRankProfile> profiles = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    /** Creates a cache which holds rank profiles for a few deployments of a fair number of applications. */
+    public RawRankProfileCache() {
+        this(1L << 27);
+    }
+
+    /** Creates a cache which holds rank profiles of the given estimated size in total. */
+    public RawRankProfileCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** Returns a cache which never holds anything, and never hashes the application package. */
+    public static RawRankProfileCache disabled() { return new RawRankProfileCache(0); }
+
+    /** Returns a view of this for a deployment of the given application package. */
+    public Deployment newDeployment(ApplicationPackage applicationPackage, ModelContext.Properties properties,
+                                    ImportedMlModels importedModels) {
+        return new Deployment(applicationPackage, properties, importedModels);
+    }
+
+    /** Returns the estimated size of the profiles in this. */
+    synchronized long bytes() { return bytes; }
+
+    private synchronized RawRankProfile get(String key) { return profiles.get(key); }
+
+    private synchronized void put(String key, RawRankProfile profile) {
+        long size = profile.estimatedSize();
+        if (size > maxBytes) return;
+
+        RawRankProfile replaced = profiles.put(key, profile);
+        if (replaced != null) bytes -= replaced.estimatedSize();
+        bytes += size;
+        for (var eldest = profiles.entrySet().iterator(); bytes > maxBytes; ) {
+            bytes -= eldest.next().getValue().estimatedSize();
+            eldest.remove();
+        }
+    }
+
+    /** The use of the cache by a single deployment, which counts hits and misses for reporting. */
+    public class Deployment {
+
+        private final ApplicationPackage applicationPackage;
+        private final ModelContext.Properties properties;
+        private final ImportedMlModels importedModels;
+        private final AtomicInteger hits = new AtomicInteger();
+        private final AtomicInteger misses = new AtomicInteger();
+        private final Map<String, String> fileHashes = new ConcurrentHashMap<>();
+        private String sourcesHash = null;
+
+        private Deployment(ApplicationPackage applicationPackage, ModelContext.Properties properties,
+                           ImportedMlModels importedModels) {
+            this.applicationPackage = applicationPackage;
+            this.properties = properties;
+            this.importedModels = importedModels;
+        }
+
+        /**
+         * Returns the given rank profile in the given schema (or "[global]") as derived by an earlier deployment
+         * with the same inputs, if any, or otherwise derives it with the given deriver and caches it.
+         * Large ranking expressions of a reused profile are added to the given large expressions of this deployment.
+         */
+        public RawRankProfile computeIfAbsent(RankProfile profile, String schemaName,
+                                              LargeRankingExpressions largeExpressions, Supplier<RawRankProfile> deriver) {
+            if (maxBytes == 0) return deriver.get();
+
+            String key = schemaName + "/" + profile.name() + "/" + hashInputs(profile);
+            RawRankProfile cached = get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached.reuse(largeExpressions);
+            }
+            misses.incrementAndGet();
+            RawRankProfile derived = deriver.get();
+            put(key, derived);
+            return derived;
+        }
+
+        /** Returns the number of rank profiles reused from earlier deployments. */
+        public int hits() { return hits.get(); }
+
+        /** Returns the number of rank profiles which had to be derived by this deployment. */
+        public int misses() { return misses.get(); }
+
+        /** Returns a hash of the inputs of the given profile: the sources of this deployment, and the files the profile refers to. */
+        String hashInputs(RankProfile profile) {
+            MessageDigest digest = sha256();
+            digest.update(sourcesHash().getBytes(UTF_8));
+            for (OnnxModel model : new TreeMap<>(profile.onnxModels()).values())
+                updateWithFile(digest, model.getName(), model.getPathType(), model.getFileName());
+            for (RankProfile.Constant constant : profile.constants().values().stream()
+                                                        .sorted(Comparator.comparing(constant -> constant.name().toString()))
+                                                        .toList()) {
+                if (constant.valuePath().isPresent())
+                    updateWithFile(digest, constant.name().toString(), constant.pathType().orElse(PathType.FILE), constant.valuePath().get());
+            }
+            for (ImportedMlModel model : modelsOf(profile)) {
+                digest.update((model.name() + "\n").getBytes(UTF_8));
+                digest.update(fileHashes.computeIfAbsent(model.source(), source -> hashLocalFile(Paths.get(source))).getBytes(UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        /** Returns the imported models the expressions of the given profile refer to, resolved as the feature converters do. */
+        private Collection<ImportedMlModel> modelsOf(RankProfile profile) {
+            Map<String, ImportedMlModel> models = new TreeMap<>();
+            for (RankingExpression expression : expressionsOf(profile))
+                addModels(expression.getRoot(), models);
+
+            return models.values();
+        }
+
+        private void addModels(ExpressionNode node, Map<String, ImportedMlModel> models) {
+            if (node instanceof ReferenceNode reference && modelFeatures.contains(reference.getName())) {
+                try {
+                    Path path = new FeatureArguments(reference.getArguments()).path();
+                    ImportedMlModel model = importedModels.get(ConvertedModel.sourceModelFile(applicationPackage, path));
+                    if (model != null) models.put(model.name(), model);
+                }
+                catch (IllegalArgumentException e) {
+                    // Invalid references fail when the profile is derived.
+                }
+            }
+            if (node instanceof CompositeNode composite)
+                for (ExpressionNode child : composite.children())
+                    addModels(child, models);
+        }
+
+        private void updateWithFile(MessageDigest digest, String name, PathType type, String path) {
+            digest.update((name + "\n" + type + "\n" + path + "\n").getBytes(UTF_8));
+            if (type == PathType.FILE)
+                digest.update(fileHashes.computeIfAbsent(path, __ -> hashApplicationFile(Path.fromString(path))).getBytes(UTF_8));
+        }
+
+        private synchronized String sourcesHash() {
+            if (sourcesHash == null)
+                sourcesHash = hashSources(applicationPackage, properties);
+
+            return sourcesHash;
+        }
+
+        private String hashApplicationFile(Path path) {
+            ApplicationFile file = applicationPackage.getFile(path);
+            if ( ! file.exists() || file.isDirectory()) return "";
+            try (InputStream in = file.createInputStream()) {
+                return hash(in);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Failed hashing " + path, e);
+            }
+        }
+
+    }
+
+    /**
+     * Returns a hash of the sources of all rank profiles, which are small and hashed once per deployment: the flags
+     * and properties which affect deriving, schemas, and the rank profile, expression and query profile type files.
+     */
+    static String hashSources(ApplicationPackage applicationPackage, ModelContext.Properties properties) {
+        MessageDigest digest = sha256();
+        digest.update((properties.applicationId().serializedForm() + "\n" +
+                       properties.hostedVespa() + "\n" +
+                       properties.featureFlags().sortBlueprintsByCost() + "\n" +
+                       properties.featureFlags().useV8GeoPositions() + "\n").getBytes(UTF_8));
+        try {
+            for (NamedReader schema : applicationPackage.getSchemas()) {
+                digest.update(schema.getName().getBytes(UTF_8));
+                try (schema) {
+                    digest.update(readAll(schema).getBytes(UTF_8));
+                }
+            }
+            for (Path directory : List.of(ApplicationPackage.SCHEMAS_DIR,
+                                          ApplicationPackage.SEARCH_DEFINITIONS_DIR,
+                                          ApplicationPackage.QUERY_PROFILE_TYPES_DIR)) {
+                ApplicationFile file = applicationPackage.getFile(directory);
+                if (file.exists() && file.isDirectory()) hashSourceFiles(file.listFiles(), digest);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed hashing application package", e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void hashSourceFiles(List<ApplicationFile> files, MessageDigest digest) throws IOException {
+        for (ApplicationFile file : files.stream().sorted().toList()) {
+            Path path = file.getPath();
+            if (file.isDirectory()) {
+                hashSourceFiles(file.listFiles(), digest);
+                continue;
+            }
+            if ( ! isSource(path)) continue;
+
+            digest.update(path.getRelative().getBytes(UTF_8));
+            try (InputStream in = file.createInputStream()) {
+                digest.update(hash(in).getBytes(UTF_8));
+            }
+        }
+    }
+
+    /** Schemas are read above, while models and constants in the schema directories are hashed when a profile refers to them. */
+    private static boolean isSource(Path path) {
+        String name = path.getName();
+        return name.endsWith(ApplicationPackage.RANKPROFILE_NAME_SUFFIX)
+               || name.endsWith(ApplicationPackage.RANKEXPRESSION_NAME_SUFFIX)
+               || path.getParentPath().equals(ApplicationPackage.QUERY_PROFILE_TYPES_DIR);
+    }
+
+    /** Returns all expressions of the given profile, in which references to imported models are found. */
+    private static List<RankingExpression> expressionsOf(RankProfile profile) {
+        List<RankingExpression> expressions = new ArrayList<>();
+        for (RankingExpression expression : new RankingExpression[] { profile.getFirstPhaseRanking(),
+                                                                      profile.getSecondPhaseRanking(),
+                                                                      profile.getGlobalPhaseRanking() })
+            if (expression != null) expressions.add(expression);
+        for (RankProfile.RankingExpressionFunction function : profile.getFunctions().values())
+            expressions.add(function.function().getBody());
+
+        return expressions;
+    }
+
+    /** Returns a hash of the given model file, or of the paths and contents of all files under the given model directory. */
+    static String hashLocalFile(java.nio.file.Path path) {
+        try {
+            if (Files.isRegularFile(path)) {
+                try (InputStream in = Files.newInputStream(path)) {
+                    return hash(in);
+                }
+            }
+            if ( ! Files.isDirectory(path)) return "";
+
+            MessageDigest digest = sha256();
+            try (Stream<java.nio.file.Path> files = Files.walk(path)) {
+                for (java.nio.file.Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                    digest.update((path.relativize(file) + "\n").getBytes(UTF_8));
+                    try (InputStream in = Files.newInputStream(file)) {
+                        digest.update(hash(in).getBytes(UTF_8));
+                    }
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed hashing " + path, e);
+        }
+    }
+
+    private static String hash(InputStream in) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[1 << 16];
+        for (int read; (read = in.read(buffer)) >= 0; )
+            digest.update(buffer, 0, read);
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String readAll(NamedReader reader) throws IOException {
+        StringBuilder content = new StringBuilder();
+        char[] buffer = new char[1 << 12];
+        for (int read; (read = reader.read(buffer)) >= 0; )
+            content.append(buffer, 0, read);
+
+        return content.toString();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -26,6 +26,7 @@ import com.yahoo.config.model.deploy.DeployState;
 import com.yahoo.config.provision.QuotaExceededException;
 import com.yahoo.config.provision.TransientException;
 import com.yahoo.config.provision.Zone;
+import com.yahoo.schema.derived.RawRankProfileCache;
 import com.yahoo.vespa.config.VespaVersion;
 import com.yahoo.vespa.model.application.validation.Validation;
 import com.yahoo.vespa.model.application.validation.Validator;
@@ -54,6 +55,7 @@ public class VespaModelFactory implements ModelFactory {
     private final Clock clock;
     private final Version version;
     private final List<Validator> additionalValidators;
+    private final RawRankProfileCache rawRankProfileCache;
 
     /** Creates a factory for Vespa models for this version of the source */
     @Inject
@@ -75,6 +77,7 @@ public class VespaModelFactory implements ModelFactory {
                 new LightGBMImporter());
         this.zone = zone;
         this.additionalValidators = List.copyOf(additionalValidators.allComponents());
+        this.rawRankProfileCache = new RawRankProfileCache();
 
         this.clock = Clock.systemUTC();
     }
@@ -95,6 +98,7 @@ public class VespaModelFactory implements ModelFactory {
         }
         this.modelImporters = List.of();
         this.additionalValidators = List.of();
+        this.rawRankProfileCache = RawRankProfileCache.disabled();
         this.zone = zone;
         this.clock = clock;
     }
@@ -147,9 +151,19 @@ public class VespaModelFactory implements ModelFactory {
         VespaModel model = buildModel(deployState);
         List<ConfigChangeAction> changeActions = validateModel(model, deployState, validationParameters);
         logReindexingReasons(changeActions, model, deployState.getPreviousModel());
+        logRankProfileCacheUse(deployState);
         return new ModelCreateResult(model, changeActions);
     }
     
+    private static void logRankProfileCacheUse(DeployState deployState) {
+        var cache = deployState.rawRankProfileCache();
+        int total = cache.hits() + cache.misses();
+        if (total == 0) return;
+
+        deployState.getDeployLogger().log(Level.INFO, "Reused " + cache.hits() + " of " + total +
+                                                      " derived rank profiles from previous deployments");
+    }
+
     private void validateXml(ModelContext modelContext, boolean ignoreValidationErrors) {
         if (modelContext.appDir().isPresent()) {
             ApplicationPackageXmlFilesValidator validator =
@@ -193,7 +207,8 @@ public class VespaModelFactory implements ModelFactory {
             .now(clock.instant())
             .wantedNodeVespaVersion(modelContext.wantedNodeVespaVersion())
             .wantedDockerImageRepo(modelContext.wantedDockerImageRepo())
-            .onnxModelCost(modelContext.onnxModelCost());
+            .onnxModelCost(modelContext.onnxModelCost())
+            .rawRankProfileCache(rawRankProfileCache);
         modelContext.previousModel().ifPresent(builder::previousModel);
         modelContext.reindexing().ifPresent(builder::reindexing);
         return builder.build(validationParameters);
@@ -23,6 +23,7 @@ import static com.yahoo.vespa.model.container.xml.ModelIdResolver.ONNX_MODEL;
 public class BertEmbedder extends TypedComponent implements BertBaseEmbedderConfig.Producer {
 
     private final OnnxModelOptions onnxModelOptions;
+    private final Boolean reuseBuffers;
     private final ModelReference modelRef;
     private final ModelReference vocabRef;
     private final Integer maxTokens;
@@ -42,6 +43,7 @@ public class BertEmbedder extends TypedComponent implements BertBaseEmbedderConf
                 getChildValue(xml, "onnx-interop-threads").map(Integer::parseInt),
                 getChildValue(xml, "onnx-intraop-threads").map(Integer::parseInt),
                 getChildValue(xml, "onnx-gpu-device").map(Integer::parseInt).map(OnnxModelOptions.GpuDevice::new));
+        reuseBuffers = getChildValue(xml, "onnx-reuse-buffers").map(Boolean::parseBoolean).orElse(null);
         modelRef = model.modelReference();
         vocabRef = Model.fromXml(state, xml, "tokenizer-vocab", Set.of(BERT_VOCAB)).orElseThrow().modelReference();
         maxTokens = getChildValue(xml, "max-tokens").map(Integer::parseInt).orElse(null);
@@ -70,6 +72,7 @@ public class BertEmbedder extends TypedComponent implements BertBaseEmbedderConf
         onnxModelOptions.interOpThreads().ifPresent(b::onnxInterOpThreads);
         onnxModelOptions.intraOpThreads().ifPresent(b::onnxIntraOpThreads);
         onnxModelOptions.gpuDevice().ifPresent(value -> b.onnxGpuDevice(value.deviceNumber()));
+        if (reuseBuffers != null) b.onnxReuseBuffers(reuseBuffers);
     }
 
 }
@@ -23,6 +23,7 @@ import static com.yahoo.vespa.model.container.xml.ModelIdResolver.ONNX_MODEL;
 public class ColBertEmbedder extends TypedComponent implements ColBertEmbedderConfig.Producer {
 
     private final OnnxModelOptions onnxModelOptions;
+    private final Boolean reuseBuffers;
     private final ModelReference modelRef;
     private final ModelReference vocabRef;
 
@@ -53,6 +54,7 @@ public class ColBertEmbedder extends TypedComponent implements ColBertEmbedderCo
                 getChildValue(xml, "onnx-interop-threads").map(Integer::parseInt),
                 getChildValue(xml, "onnx-intraop-threads").map(Integer::parseInt),
                 getChildValue(xml, "onnx-gpu-device").map(Integer::parseInt).map(OnnxModelOptions.GpuDevice::new));
+        reuseBuffers = getChildValue(xml, "onnx-reuse-buffers").map(Boolean::parseBoolean).orElse(null);
         modelRef = model.modelReference();
         vocabRef = Model.fromXmlOrImplicitlyFromOnnxModel(state, xml, model, "tokenizer-model", Set.of(HF_TOKENIZER)).modelReference();
         maxTokens = getChildValue(xml, "max-tokens").map(Integer::parseInt).orElse(null);
@@ -89,6 +91,7 @@ public class ColBertEmbedder extends TypedComponent implements ColBertEmbedderCo
         onnxModelOptions.interOpThreads().ifPresent(b::transformerInterOpThreads);
         onnxModelOptions.intraOpThreads().ifPresent(b::transformerIntraOpThreads);
         onnxModelOptions.gpuDevice().ifPresent(value -> b.transformerGpuDevice(value.deviceNumber()));
+        if (reuseBuffers != null) b.transformerReuseBuffers(reuseBuffers);
     }
 
 }
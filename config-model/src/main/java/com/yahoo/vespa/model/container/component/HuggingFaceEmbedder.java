@@ -27,6 +27,7 @@ import static com.yahoo.vespa.model.container.xml.ModelIdResolver.ONNX_MODEL;
 public class HuggingFaceEmbedder extends TypedComponent implements HuggingFaceEmbedderConfig.Producer {
 
     private final OnnxModelOptions onnxModelOptions;
+    private final Boolean reuseBuffers;
     private final ModelReference modelRef;
     private final ModelReference vocabRef;
     private final FileReference configRef;
@@ -50,6 +51,7 @@ public class HuggingFaceEmbedder extends TypedComponent implements HuggingFaceEm
                 getChildValue(xml, "onnx-interop-threads").map(Integer::parseInt),
                 getChildValue(xml, "onnx-intraop-threads").map(Integer::parseInt),
                 getChildValue(xml, "onnx-gpu-device").map(Integer::parseInt).map(OnnxModelOptions.GpuDevice::new));
+        reuseBuffers = getChildValue(xml, "onnx-reuse-buffers").map(Boolean::parseBoolean).orElse(null);
         modelRef = model.modelReference();
         vocabRef = Model.fromXmlOrImplicitlyFromOnnxModel(state, xml, model, "tokenizer-model", Set.of(HF_TOKENIZER)).modelReference();
         configRef = getChildValue(xml, "internal-onnx-config-file")
@@ -89,6 +91,7 @@ public class HuggingFaceEmbedder extends TypedComponent implements HuggingFaceEm
         onnxModelOptions.interOpThreads().ifPresent(b::transformerInterOpThreads);
         onnxModelOptions.intraOpThreads().ifPresent(b::transformerIntraOpThreads);
         onnxModelOptions.gpuDevice().ifPresent(value -> b.transformerGpuDevice(value.deviceNumber()));
+        if (reuseBuffers != null) b.transformerReuseBuffers(reuseBuffers);
     }
 
 }
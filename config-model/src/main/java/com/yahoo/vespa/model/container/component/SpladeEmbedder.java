@@ -18,6 +18,7 @@ import static com.yahoo.vespa.model.container.xml.ModelIdResolver.ONNX_MODEL;
 public class SpladeEmbedder extends TypedComponent implements SpladeEmbedderConfig.Producer {
 
     private final OnnxModelOptions onnxModelOptions;
+    private final Boolean reuseBuffers;
     private final ModelReference modelRef;
     private final ModelReference vocabRef;
     private final Integer maxTokens;
@@ -35,6 +36,7 @@ public class SpladeEmbedder extends TypedComponent implements SpladeEmbedderConf
                 getChildValue(xml, "onnx-interop-threads").map(Integer::parseInt),
                 getChildValue(xml, "onnx-intraop-threads").map(Integer::parseInt),
                 getChildValue(xml, "onnx-gpu-device").map(Integer::parseInt).map(OnnxModelOptions.GpuDevice::new));
+        reuseBuffers = getChildValue(xml, "onnx-reuse-buffers").map(Boolean::parseBoolean).orElse(null);
         modelRef = model.modelReference();
         vocabRef = Model.fromXmlOrImplicitlyFromOnnxModel(state, xml, model, "tokenizer-model", Set.of(HF_TOKENIZER)).modelReference();
         maxTokens = getChildValue(xml, "max-tokens").map(Integer::parseInt).orElse(null);
@@ -60,6 +62,7 @@ public class SpladeEmbedder extends TypedComponent implements SpladeEmbedderConf
         onnxModelOptions.interOpThreads().ifPresent(b::transformerInterOpThreads);
         onnxModelOptions.intraOpThreads().ifPresent(b::transformerIntraOpThreads);
         onnxModelOptions.gpuDevice().ifPresent(value -> b.transformerGpuDevice(value.deviceNumber()));
+        if (reuseBuffers != null) b.transformerReuseBuffers(reuseBuffers);
     }
 
 }
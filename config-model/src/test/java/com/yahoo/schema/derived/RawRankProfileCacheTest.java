@@ -0,0 +1,200 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.schema.derived;
+
+import com.yahoo.config.model.application.provider.FilesApplicationPackage;
+import com.yahoo.config.model.deploy.DeployState;
+import com.yahoo.config.model.deploy.TestProperties;
+import com.yahoo.vespa.config.search.RankProfilesConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class RawRankProfileCacheTest {
+
+    private static final String schema = """
+                                         schema test {
+                                             document test {
+                                                 field a type int {
+                                                     indexing: attribute
+                                                 }
+                                             }
+                                             rank-profile first {
+                                                 first-phase {
+                                                     expression: attribute(a) * 2
+                                                 }
+                                             }
+                                             rank-profile second inherits first {
+                                                 second-phase {
+                                                     expression: firstPhase + %d
+                                                 }
+                                             }
+                                         }
+                                         """;
+
+    /** The schema above, with a constant read from a file in the second profile */
+    private static final String constantSchema = schema.replace("""
+                                                                        rank-profile second inherits first {
+                                                                    """,
+                                                                """
+                                                                        rank-profile second inherits first {
+                                                                            constants {
+                                                                                c tensor(x[1]): file:constants.json
+                                                                            }
+                                                                    """)
+                                                       .replace("firstPhase + %d", "firstPhase + %d + sum(constant(c))");
+
+    private static final String queryProfile = """
+                                               <query-profile id="default">
+                                                   <field name="hits">%d</field>
+                                               </query-profile>
+                                               """;
+
+    @TempDir
+    public Path applicationDir;
+
+    @Test
+    void rank_profiles_are_reused_when_inputs_are_unchanged() throws IOException {
+        RawRankProfileCache cache = new RawRankProfileCache();
+
+        writeApplication(1, 10);
+        DeployState first = deployState(cache);
+        String firstConfig = rankProfilesConfig(first); // "default", "unranked", "first" and "second"
+        assertEquals(0, first.rawRankProfileCache().hits());
+        assertEquals(4, first.rawRankProfileCache().misses());
+
+        // Query profiles are not inputs to rank profiles
+        writeApplication(1, 20);
+        DeployState second = deployState(cache);
+        assertEquals(firstConfig, rankProfilesConfig(second));
+        assertEquals(4, second.rawRankProfileCache().hits());
+        assertEquals(0, second.rawRankProfileCache().misses());
+
+        writeApplication(2, 20);
+        DeployState third = deployState(cache);
+        assertNotEquals(firstConfig, rankProfilesConfig(third));
+        assertEquals(0, third.rawRankProfileCache().hits());
+        assertEquals(4, third.rawRankProfileCache().misses());
+    }
+
+    @Test
+    void disabled_cache_derives_everything() throws IOException {
+        writeApplication(1, 10);
+        DeployState deployState = deployState(RawRankProfileCache.disabled());
+        rankProfilesConfig(deployState);
+        assertEquals(0, deployState.rawRankProfileCache().hits());
+        assertEquals(0, deployState.rawRankProfileCache().misses());
+    }
+
+    @Test
+    void profiles_are_keyed_by_their_own_inputs_only() throws IOException {
+        RawRankProfileCache cache = new RawRankProfileCache();
+        writeApplication(1, 10, constantSchema);
+        Files.createDirectories(applicationDir.resolve("models"));
+        Files.writeString(applicationDir.resolve("constants.json"), "{\"cells\":[{\"address\":{\"x\":\"0\"},\"value\":1}]}");
+        DeployState first = deployState(cache);
+        String firstConfig = rankProfilesConfig(first);
+        assertEquals(4, first.rawRankProfileCache().misses());
+
+        // Files no profile refers to are not inputs
+        Files.writeString(applicationDir.resolve("models/unused.json"), "{}");
+        Files.writeString(applicationDir.resolve("services.xml"), "<services version='1.0'/>");
+        DeployState second = deployState(cache);
+        assertEquals(firstConfig, rankProfilesConfig(second));
+        assertEquals(4, second.rawRankProfileCache().hits());
+
+        // Constant files are inputs to the profiles referring to them
+        Files.writeString(applicationDir.resolve("constants.json"), "{\"cells\":[{\"address\":{\"x\":\"0\"},\"value\":2}]}");
+        DeployState third = deployState(cache);
+        rankProfilesConfig(third);
+        assertEquals(3, third.rawRankProfileCache().hits());
+        assertEquals(1, third.rawRankProfileCache().misses());
+    }
+
+    @Test
+    void model_directories_are_hashed_by_content() throws IOException {
+        Path model = applicationDir.resolve("models/saved_model");
+        Files.createDirectories(model.resolve("variables"));
+        Files.writeString(model.resolve("saved_model.pb"), "graph");
+        Files.writeString(model.resolve("variables/variables.data"), "weights");
+        String hash = RawRankProfileCache.hashLocalFile(model);
+        assertNotEquals(RawRankProfileCache.hashLocalFile(applicationDir.resolve("models/missing")), hash);
+
+        Files.writeString(model.resolve("variables/variables.data"), "other weights");
+        String changed = RawRankProfileCache.hashLocalFile(model);
+        assertNotEquals(hash, changed);
+
+        Files.move(model.resolve("variables/variables.data"), model.resolve("variables/variables.index"));
+        assertNotEquals(changed, RawRankProfileCache.hashLocalFile(model));
+    }
+
+    @Test
+    void sources_hash_depends_on_schemas_types_and_flags_only() throws IOException {
+        writeApplication(1, 10);
+        Files.writeString(applicationDir.resolve("services.xml"), "<services version='1.0'/>");
+        String hash = hash(new TestProperties());
+
+        Files.writeString(applicationDir.resolve("services.xml"), "<services version='1.0'><!-- changed --></services>");
+        writeApplication(1, 20);
+        assertEquals(hash, hash(new TestProperties()));
+
+        Files.createDirectories(applicationDir.resolve("search/query-profiles/types"));
+        Files.writeString(applicationDir.resolve("search/query-profiles/types/root.xml"), "<query-profile-type id=\"root\"/>");
+        String withType = hash(new TestProperties());
+        assertNotEquals(hash, withType);
+
+        assertNotEquals(withType, hash(new TestProperties().setHostedVespa(true)));
+    }
+
+    @Test
+    void cache_is_bounded_by_estimated_size() throws IOException {
+        writeApplication(1, 10);
+        RawRankProfileCache unbounded = new RawRankProfileCache();
+        rankProfilesConfig(deployState(unbounded));
+        long size = unbounded.bytes();
+        assertTrue(size > 0);
+
+        RawRankProfileCache bounded = new RawRankProfileCache(size - 1);
+        rankProfilesConfig(deployState(bounded));
+        assertTrue(bounded.bytes() < size);
+        DeployState again = deployState(bounded);
+        rankProfilesConfig(again);
+        assertTrue(again.rawRankProfileCache().misses() > 0);
+    }
+
+    private String hash(TestProperties properties) {
+        return RawRankProfileCache.hashSources(FilesApplicationPackage.fromFile(applicationDir.toFile()), properties);
+    }
+
+    private void writeApplication(int secondPhaseTerm, int hits) throws IOException {
+        writeApplication(secondPhaseTerm, hits, schema);
+    }
+
+    private void writeApplication(int secondPhaseTerm, int hits, String schema) throws IOException {
+        Files.createDirectories(applicationDir.resolve("schemas"));
+        Files.createDirectories(applicationDir.resolve("search/query-profiles"));
+        Files.writeString(applicationDir.resolve("schemas/test.sd"), schema.formatted(secondPhaseTerm));
+        Files.writeString(applicationDir.resolve("search/query-profiles/default.xml"), queryProfile.formatted(hits));
+    }
+
+    private DeployState deployState(RawRankProfileCache cache) {
+        return new DeployState.Builder().applicationPackage(FilesApplicationPackage.fromFile(applicationDir.toFile()))
+                                        .rawRankProfileCache(cache)
+                                        .build();
+    }
+
+    private static String rankProfilesConfig(DeployState deployState) {
+        DerivedConfiguration derived = new DerivedConfiguration(deployState, deployState.getSchemas().get(0), SchemaInfo.IndexMode.INDEX);
+        return new RankProfilesConfig.Builder().rankprofile(derived.getRankProfileList().getRankProfilesConfig()).build().toString();
+    }
+
+}
@@ -90,6 +90,7 @@ public class EmbedderTestCase {
         assertEquals(-1, tokenizerCfg.maxLength());
         assertEquals("Represent this sentence for searching relevant passages:", embedderCfg.prependQuery());
         assertEquals("passage:", embedderCfg.prependDocument());
+        assertTrue(embedderCfg.transformerReuseBuffers());
     }
 
     @Test
@@ -28,6 +28,17 @@ public interface RequestHandler {
      */
     ConfigResponse resolveConfig(ApplicationId appId, GetConfigRequest req, Optional<Version> vespaVersion);
 
+    /**
+     * Builds the config requested by the given request into the config cache, if configs are cached,
+     * such that it is ready when the request is resolved.
+     *
+     * @param appId The application id to use
+     * @param req a config request
+     * @param vespaVersion vespa version
+     * @return whether the config was built by this, i.e., whether it is cached and was not already
+     */
+    boolean warmUpConfig(ApplicationId appId, GetConfigRequest req, Optional<Version> vespaVersion);
+
     /**
      * Lists all configs (name, configKey) in the config model.
      *
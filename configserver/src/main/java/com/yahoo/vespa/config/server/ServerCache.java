@@ -48,7 +48,8 @@ public class ServerCache {
         checksumToConfig.put(xxhash64, config);
     }
 
-    ConfigResponse get(ConfigCacheKey key) {
+    /** Returns the config cached for the given key, or null if it is not cached */
+    public ConfigResponse get(ConfigCacheKey key) {
         PayloadChecksum xxhash64 = checksums.get(key);
         if (xxhash64 == null) return null;
         return checksumToConfig.get(xxhash64);
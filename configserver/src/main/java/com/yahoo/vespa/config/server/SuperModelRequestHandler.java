@@ -73,6 +73,11 @@ public class SuperModelRequestHandler implements RequestHandler {
         return (handler == null) ? null : handler.resolveConfig(req);
     }
 
+    @Override
+    public boolean warmUpConfig(ApplicationId appId, GetConfigRequest req, Optional<Version> vespaVersion) {
+        return false; // Super model configs are not cached
+    }
+
     @Override
     public Set<ConfigKey<?>> listConfigs(ApplicationId appId, Optional<Version> vespaVersion, boolean recursive) {
         throw new UnsupportedOperationException();
@@ -32,6 +32,7 @@ import com.yahoo.yolean.Exceptions;
 import java.util.logging.Level;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A Vespa application for a specific version of Vespa. It holds data and metadata associated with
@@ -102,21 +103,19 @@ public class Application implements ModelResult {
         long start = System.currentTimeMillis();
         metricUpdater.incrementRequests();
         ConfigKey<?> configKey = req.getConfigKey();
-        String defMd5 = req.getRequestDefMd5();
-        if (defMd5 == null || defMd5.isEmpty()) {
-            defMd5 = ConfigUtils.getDefMd5(req.getDefContent().asList());
-        }
-        ConfigCacheKey cacheKey = new ConfigCacheKey(configKey, defMd5);
+        ConfigCacheKey cacheKey = cacheKey(req);
         log.log(Level.FINE, () -> TenantRepository.logPre(getId()) + ("Resolving config " + cacheKey));
 
         ConfigResponse config;
         if (useCache(req)) {
-            config = cache.computeIfAbsent(cacheKey, (ConfigCacheKey key) -> {
-                var response = createConfigResponse(configKey, req, responseFactory);
-                metricUpdater.setCacheConfigElems(cache.configElems());
-                metricUpdater.setCacheChecksumElems(cache.checkSumElems());
-                return response;
-            });
+            config = cache.get(cacheKey);
+            if (config != null) {
+                metricUpdater.incCacheHits();
+            }
+            else {
+                metricUpdater.incCacheMisses();
+                config = computeIfAbsent(cacheKey, req, responseFactory);
+            }
         } else {
             config = createConfigResponse(configKey, req, responseFactory);
         }
@@ -124,6 +123,42 @@ public class Application implements ModelResult {
         return config;
     }
 
+    /**
+     * Builds the config requested by the given request into the cache of this, unless it is already cached,
+     * without counting it as a config request. This is used to build configs ahead of the requests for them.
+     *
+     * @return whether the config was built by this call, i.e., whether it is cached, and was not already
+     */
+    public boolean warmUpConfig(GetConfigRequest req, ConfigResponseFactory responseFactory) {
+        if ( ! useCache(req)) return false;
+        AtomicBoolean built = new AtomicBoolean();
+        computeIfAbsent(cacheKey(req), req, responseFactory, () -> built.set(true));
+        return built.get();
+    }
+
+    private ConfigResponse computeIfAbsent(ConfigCacheKey cacheKey, GetConfigRequest req, ConfigResponseFactory responseFactory) {
+        return computeIfAbsent(cacheKey, req, responseFactory, () -> { });
+    }
+
+    private ConfigResponse computeIfAbsent(ConfigCacheKey cacheKey, GetConfigRequest req, ConfigResponseFactory responseFactory,
+                                           Runnable onBuild) {
+        return cache.computeIfAbsent(cacheKey, (ConfigCacheKey key) -> {
+            var response = createConfigResponse(req.getConfigKey(), req, responseFactory);
+            onBuild.run();
+            metricUpdater.setCacheConfigElems(cache.configElems());
+            metricUpdater.setCacheChecksumElems(cache.checkSumElems());
+            return response;
+        });
+    }
+
+    private static ConfigCacheKey cacheKey(GetConfigRequest req) {
+        String defMd5 = req.getRequestDefMd5();
+        if (defMd5 == null || defMd5.isEmpty()) {
+            defMd5 = ConfigUtils.getDefMd5(req.getDefContent().asList());
+        }
+        return new ConfigCacheKey(req.getConfigKey(), defMd5);
+    }
+
     private ConfigResponse createConfigResponse(ConfigKey<?> configKey, GetConfigRequest req, ConfigResponseFactory responseFactory) {
         ConfigDefinition def = getTargetDef(req);
         if (def == null) {
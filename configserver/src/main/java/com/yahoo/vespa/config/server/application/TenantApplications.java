@@ -241,6 +241,11 @@ public class TenantApplications implements RequestHandler, HostValidator {
         return application.resolveConfig(req, responseFactory);
     }
 
+    @Override
+    public boolean warmUpConfig(ApplicationId appId, GetConfigRequest req, Optional<Version> vespaVersion) {
+        return getApplication(appId, vespaVersion).warmUpConfig(req, responseFactory);
+    }
+
     private void notifyConfigActivationListeners(ApplicationVersions applicationVersions) {
         hostRegistry.update(applicationVersions.getId(), applicationVersions.allHosts());
         configActivationListener.configActivated(applicationVersions);
@@ -31,8 +31,13 @@ public class MetricUpdater {
     private static final String METRIC_APPLICATIONS = getMetricName("applications");
     private static final String METRIC_CACHE_CONFIG_ELEMENTS = getMetricName("cacheConfigElems");
     private static final String METRIC_CACHE_CONFIG_CHECKSUMS = getMetricName("cacheChecksumElems");
+    private static final String METRIC_CACHE_HITS = getMetricName("cacheHits");
+    private static final String METRIC_CACHE_MISSES = getMetricName("cacheMisses");
+    private static final String METRIC_CONFIG_WARMUP_TIME = getMetricName("configWarmupTime");
+    private static final String METRIC_CONFIG_WARMUP_CONFIGS = getMetricName("configWarmupConfigs");
     private static final String METRIC_DELAYED_RESPONSES = getMetricName("delayedResponses");
     private static final String METRIC_RPCSERVER_WORK_QUEUE_SIZE = getMetricName("rpcServerWorkQueueSize");
+    private static final String METRIC_RPCSERVER_REJECTED_REQUESTS = getMetricName("rpcServerRejectedRequests");
 
 
     private final Metrics metrics;
@@ -76,6 +81,27 @@ public class MetricUpdater {
         staticMetrics.put(METRIC_CACHE_CONFIG_CHECKSUMS, elems);
     }
 
+    /** Increments the number of config requests served from the {@link ServerCache} */
+    public void incCacheHits() {
+        metrics.increment(METRIC_CACHE_HITS, metricContext);
+    }
+
+    /** Increments the number of config requests for configs which were not in the {@link ServerCache} */
+    public void incCacheMisses() {
+        metrics.increment(METRIC_CACHE_MISSES, metricContext);
+    }
+
+    /**
+     * Sets the time spent building configs for waiting clients when a new application generation was activated
+     *
+     * @param millis time spent, in milliseconds
+     * @param configs the number of distinct configs which were built
+     */
+    public void setConfigWarmup(long millis, int configs) {
+        metrics.set(METRIC_CONFIG_WARMUP_TIME, millis, metricContext);
+        metrics.set(METRIC_CONFIG_WARMUP_CONFIGS, configs, metricContext);
+    }
+
     /**
      * Sets the number of outstanding responses (unchanged config in long poll)
      *
@@ -219,4 +245,9 @@ public class MetricUpdater {
     public void setRpcServerQueueSize(int numQueued) {
         metrics.set(METRIC_RPCSERVER_WORK_QUEUE_SIZE, numQueued, metricContext);
     }
+
+    /** Adds to the number of getConfig requests rejected because the RPC server work queue was full, or they waited too long in it */
+    public void addRpcServerRejectedRequests(long numRejected) {
+        metrics.add(METRIC_RPCSERVER_REJECTED_REQUESTS, numRejected, metricContext);
+    }
 }
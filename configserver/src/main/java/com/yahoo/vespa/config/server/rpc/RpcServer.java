@@ -21,12 +21,14 @@ import com.yahoo.jrt.Supervisor;
 import com.yahoo.jrt.Target;
 import com.yahoo.jrt.Transport;
 import com.yahoo.security.tls.Capability;
+import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.ErrorCode;
 import com.yahoo.vespa.config.JRTMethods;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequestV3;
 import com.yahoo.vespa.config.protocol.Trace;
+import com.yahoo.vespa.config.protocol.VespaVersion;
 import com.yahoo.vespa.config.server.ConfigActivationListener;
 import com.yahoo.vespa.config.server.GetConfigContext;
 import com.yahoo.vespa.config.server.RequestHandler;
@@ -36,6 +38,7 @@ import com.yahoo.vespa.config.server.filedistribution.FileServer;
 import com.yahoo.vespa.config.server.host.HostRegistry;
 import com.yahoo.vespa.config.server.monitoring.MetricUpdater;
 import com.yahoo.vespa.config.server.monitoring.MetricUpdaterFactory;
+import com.yahoo.vespa.config.server.monitoring.Metrics;
 import com.yahoo.vespa.config.server.rpc.security.RpcAuthorizer;
 import com.yahoo.vespa.config.server.tenant.Tenant;
 import com.yahoo.vespa.config.server.tenant.TenantListener;
@@ -48,13 +51,18 @@ import com.yahoo.yolean.Exceptions;
 
 import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
@@ -85,6 +93,8 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
     private static final String THREADPOOL_NAME = "rpcserver worker pool";
     private static final long SHUTDOWN_TIMEOUT = 60;
     private static final int JRT_RPC_TRANSPORT_THREADS = threadsToUse();
+    /** The max time a getConfig request may wait for one of the worker threads, before failing with a timeout */
+    private static final Duration GET_CONFIG_MAX_QUEUE_TIME = Duration.ofSeconds(10);
 
     private final Supervisor supervisor = new Supervisor(new Transport("rpc", JRT_RPC_TRANSPORT_THREADS));
     private final Spec spec;
@@ -106,7 +116,11 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
     private final RpcAuthorizer rpcAuthorizer;
 
     private final ThreadPoolExecutor executorService;
+    private final int rpcWorkerThreads;
+    private final int maxGetConfigClients;
     private final FileDownloader downloader;
+    private final AtomicLong reportedGetConfigRejections = new AtomicLong(0);
+    private volatile Method getConfigMethod = null;
     private volatile boolean allTenantsLoaded = false;
     private boolean isRunning = false;
     boolean isServingConfigRequests = false;
@@ -134,7 +148,8 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
         supervisor.setMaxOutputBufferSize(config.maxoutputbuffersize());
         this.metrics = metrics.getOrCreateMetricUpdater(Map.of());
         BlockingQueue<Runnable> workQueue = new LinkedBlockingQueue<>(config.maxgetconfigclients());
-        int rpcWorkerThreads = (config.numRpcThreads() == 0) ? threadsToUse() : config.numRpcThreads();
+        rpcWorkerThreads = (config.numRpcThreads() == 0) ? threadsToUse() : config.numRpcThreads();
+        maxGetConfigClients = config.maxgetconfigclients();
         executorService = new ThreadPoolExecutor(rpcWorkerThreads, rpcWorkerThreads,
                 0, TimeUnit.SECONDS, workQueue, ThreadFactoryFactory.getDaemonThreadFactory(THREADPOOL_NAME));
         delayedConfigResponses = new DelayedConfigResponses(this, config.numDelayedResponseThreads());
@@ -156,12 +171,20 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
 
     /**
      * Handles RPC method "config.v3.getConfig" requests.
-     * Uses the template pattern to call methods in classes that extend RpcServer.
+     * This runs on a thread of its own, see {@link #setUpGetConfigHandlers()}, so it waits for authorization
+     * and resolves config right away. The request stays detached, as the response may be delayed.
      */
     private void getConfigV3(Request req) {
+        updateWorkQueueMetrics();
         req.detach();
-        rpcAuthorizer.authorizeConfigRequest(req)
-                .thenRun(() -> addToRequestQueue(JRTServerConfigRequestV3.createFromRequest(req)));
+        try {
+            rpcAuthorizer.authorizeConfigRequest(req).join();
+        } catch (CompletionException | CancellationException e) {
+            return; // The authorizer has returned the request with an error
+        }
+        JRTServerConfigRequest request = JRTServerConfigRequestV3.createFromRequest(req);
+        request.setDelayedResponse(false);
+        new GetConfigProcessor(this, request, false).run();
     }
 
     /**
@@ -237,12 +260,15 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
     }
 
     /**
-     * Set up RPC method handlers for getting config
+     * Set up RPC method handlers for getting config. These run on threads of their own, as many at a time
+     * as there are rpc worker threads, with as many queued as the max number of getConfig clients.
      */
     public void setUpGetConfigHandlers() {
         // The getConfig method in this class will handle RPC calls for getting config
-        getSupervisor().addMethod(JRTMethods.createConfigV3GetConfigMethod(this::getConfigV3)
-                                          .requireCapabilities(Capability.CONFIGSERVER__CONFIG_API));
+        getConfigMethod = JRTMethods.createConfigV3GetConfigMethod(this::getConfigV3)
+                                    .requireCapabilities(Capability.CONFIGSERVER__CONFIG_API)
+                                    .invokeOnVirtualThreads(rpcWorkerThreads, maxGetConfigClients, GET_CONFIG_MAX_QUEUE_TIME);
+        getSupervisor().addMethod(getConfigMethod);
         isServingConfigRequests = true;
     }
 
@@ -281,24 +307,30 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
         List<DelayedConfigResponses.DelayedConfigResponse> responses = delayedConfigResponses.drainQueue(applicationId);
         String logPre = TenantRepository.logPre(applicationId);
         log.log(FINE, () -> logPre + "Start of configActivated: " + responses.size() + " requests on delayed requests queue");
-        int responsesSent = 0;
-        CompletionService<Boolean> completionService = new ExecutorCompletionService<>(executorService);
-        while (!responses.isEmpty()) {
-            DelayedConfigResponses.DelayedConfigResponse delayedConfigResponse = responses.remove(0);
+        List<JRTServerConfigRequest> requests = new ArrayList<>(responses.size());
+        for (DelayedConfigResponses.DelayedConfigResponse delayedConfigResponse : responses) {
             // Discard the ones that we have already answered
             // Doing cancel here deals with the case where the timer is already running or has not run, so
             // there is no need for any extra check.
             if (delayedConfigResponse.cancel()) {
                 log.log(FINEST, () -> logPre + "Timer cancelled for " + delayedConfigResponse.request);
-                // Do not wait for this request if we were unable to execute
-                if (addToRequestQueue(delayedConfigResponse.request, false, completionService)) {
-                    responsesSent++;
-                }
+                requests.add(delayedConfigResponse.request);
             } else {
                 log.log(FINE, () -> logPre + "Timer already cancelled or finished or never scheduled");
             }
         }
 
+        warmUpConfigs(applicationId, requests);
+
+        int responsesSent = 0;
+        CompletionService<Boolean> completionService = new ExecutorCompletionService<>(executorService);
+        for (JRTServerConfigRequest request : requests) {
+            // Do not wait for this request if we were unable to execute
+            if (addToRequestQueue(request, false, completionService)) {
+                responsesSent++;
+            }
+        }
+
         for (int i = 0; i < responsesSent; i++) {
             try {
                 completionService.take();
@@ -308,6 +340,84 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
         }
     }
 
+    /**
+     * Builds each distinct config requested by the given requests in parallel, before the requests are resolved.
+     * Otherwise, all requests for the same config would wait for one of them to build it, while requests for
+     * other configs may wait for the same lock in the config cache.
+     */
+    private void warmUpConfigs(ApplicationId applicationId, List<JRTServerConfigRequest> requests) {
+        if (requests.isEmpty() || applicationId.equals(ApplicationId.global())) return;
+
+        long startNanos = System.nanoTime();
+        Map<WarmupKey, JRTServerConfigRequest> distinctRequests = new LinkedHashMap<>();
+        for (JRTServerConfigRequest request : requests)
+            if ( ! request.noCache())
+                distinctRequests.putIfAbsent(WarmupKey.of(request), request);
+
+        int tasks = 0;
+        CompletionService<Boolean> completionService = new ExecutorCompletionService<>(executorService);
+        for (JRTServerConfigRequest request : distinctRequests.values()) {
+            try {
+                completionService.submit(() -> warmUpConfig(request));
+                tasks++;
+            } catch (RejectedExecutionException e) {
+                break; // The work queue is full; leave the remaining configs to be built by the requests
+            }
+        }
+        int built = 0;
+        for (int i = 0; i < tasks; i++) {
+            try {
+                if (completionService.take().get()) built++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // Not thrown, as warmUpConfig reports its failures as not having built the config
+            }
+        }
+
+        long millis = Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+        int configs = built;
+        metricUpdaterFactory.getOrCreateMetricUpdater(Metrics.createDimensions(applicationId)).setConfigWarmup(millis, configs);
+        log.log(FINE, () -> TenantRepository.logPre(applicationId) + "Built " + configs + " configs for " +
+                            requests.size() + " delayed requests in " + millis + " ms");
+    }
+
+    /**
+     * Builds the config of the given request, and returns whether this was done, i.e., whether it was not already built.
+     * The application is resolved as by {@link #createGetConfigContext}, but without logging, tracing or counting requests
+     * from unknown hosts, which is done when the request itself is resolved.
+     */
+    private boolean warmUpConfig(JRTServerConfigRequest request) {
+        try {
+            Trace trace = Trace.createDummy();
+            GetConfigContext context = createGetConfigContext(resolveTenant(request, trace), request, trace, true);
+            Optional<Version> vespaVersion = useRequestVersion() ? request.getVespaVersion().map(VespaVersion::toString).map(Version::fromString)
+                                                                 : Optional.empty();
+            if (context.isEmpty() || ! context.requestHandler().hasApplication(context.applicationId(), vespaVersion)) return false;
+
+            return context.requestHandler().warmUpConfig(context.applicationId(), request, vespaVersion);
+        } catch (RuntimeException e) {
+            // Errors are reported when the request itself is resolved
+            log.log(FINE, () -> "Failed building config for " + request.getShortDescription() + ": " + Exceptions.toMessageString(e));
+            return false;
+        }
+    }
+
+    /** The request properties which determine which config is built for a request from a given application */
+    private record WarmupKey(ConfigKey<?> configKey, String defMd5, List<String> defContent, Optional<String> vespaVersion) {
+
+        static WarmupKey of(JRTServerConfigRequest request) {
+            String defMd5 = request.getRequestDefMd5();
+            boolean hasDefMd5 = defMd5 != null && ! defMd5.isEmpty();
+            return new WarmupKey(request.getConfigKey(),
+                                 defMd5,
+                                 hasDefMd5 ? List.of() : request.getDefContent().asList(),
+                                 request.getVespaVersion().map(Object::toString));
+        }
+
+    }
+
     @Override
     public void applicationRemoved(ApplicationId applicationId) {
         superModelRequestHandler.removeApplication(applicationId);
@@ -350,10 +460,6 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
         return supervisor;
     }
 
-    private void addToRequestQueue(JRTServerConfigRequest request) {
-        addToRequestQueue(request, false, null);
-    }
-
     public Boolean addToRequestQueue(JRTServerConfigRequest request, boolean forceResponse, CompletionService<Boolean> completionService) {
         // It's no longer delayed if we get here
         request.setDelayedResponse(false);
@@ -367,14 +473,24 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
             updateWorkQueueMetrics();
             return true;
         } catch (RejectedExecutionException e) {
+            metrics.addRpcServerRejectedRequests(1);
             request.addErrorResponse(ErrorCode.INTERNAL_ERROR, "getConfig request queue size is larger than configured max limit");
             respond(request);
             return false;
         }
     }
 
+    /** Reports the getConfig requests waiting for a worker, and those rejected by the getConfig method since last reported */
     private void updateWorkQueueMetrics() {
         int queued = executorService.getQueue().size();
+        Method getConfig = getConfigMethod;
+        if (getConfig != null) {
+            queued += getConfig.queuedInvocations();
+            long rejected = getConfig.rejectedInvocations();
+            long reported = reportedGetConfigRejections.getAndAccumulate(rejected, Math::max);
+            if (rejected > reported)
+                metrics.addRpcServerRejectedRequests(rejected - reported);
+        }
         metrics.setRpcServerQueueSize(queued);
     }
 
@@ -382,6 +498,11 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
      * Returns the context for this request, or null if the server is not properly set up with handlers
      */
     GetConfigContext createGetConfigContext(Optional<TenantName> optionalTenant, JRTServerConfigRequest request, Trace trace) {
+        return createGetConfigContext(optionalTenant, request, trace, false);
+    }
+
+    /** Resolves the context of the given request, quietly, i.e., without reporting requests from unknown hosts, if so asked. */
+    private GetConfigContext createGetConfigContext(Optional<TenantName> optionalTenant, JRTServerConfigRequest request, Trace trace, boolean quiet) {
         if ("*".equals(request.getConfigKey().getConfigId())) {
             return GetConfigContext.create(ApplicationId.global(), superModelRequestHandler, trace);
         }
@@ -389,6 +510,7 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
         TenantName tenant = optionalTenant.orElse(TenantName.defaultName());
         Optional<RequestHandler> requestHandler = getRequestHandler(tenant);
         if (requestHandler.isEmpty()) {
+            if (quiet) return GetConfigContext.empty();
             String msg = TenantRepository.logPre(tenant) + "Unable to find request handler for tenant '" + tenant  +
                          "'. Request from host '" + request.getClientHostName() + "'";
             metrics.incUnknownHostRequests();
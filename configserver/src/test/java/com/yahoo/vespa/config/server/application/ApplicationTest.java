@@ -30,6 +30,7 @@ import com.yahoo.vespa.config.server.UnknownConfigDefinitionException;
 import com.yahoo.vespa.config.server.UserConfigDefinitionRepo;
 import com.yahoo.vespa.config.server.monitoring.MetricUpdater;
 import com.yahoo.vespa.config.server.monitoring.Metrics;
+import com.yahoo.vespa.config.server.rpc.UncompressedConfigResponseFactory;
 import com.yahoo.vespa.model.VespaModel;
 import org.junit.Before;
 import org.junit.Test;
@@ -42,6 +43,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -147,6 +149,21 @@ public class ApplicationTest {
         assertSame(response, cached_response);
     }
 
+    @Test
+    public void require_that_warmed_up_configs_are_cached() {
+        int configElems = handler.getCache().configElems();
+        assertTrue(handler.warmUpConfig(createRequest(ModelConfig.CONFIG_DEF_NAME, ModelConfig.CONFIG_DEF_NAMESPACE, ModelConfig.CONFIG_DEF_SCHEMA),
+                                        new UncompressedConfigResponseFactory()));
+        assertEquals(configElems + 1, handler.getCache().configElems());
+        assertFalse(handler.warmUpConfig(createRequest(ModelConfig.CONFIG_DEF_NAME, ModelConfig.CONFIG_DEF_NAMESPACE, ModelConfig.CONFIG_DEF_SCHEMA),
+                                         new UncompressedConfigResponseFactory()));
+        assertEquals(configElems + 1, handler.getCache().configElems());
+
+        ConfigResponse response = handler.resolveConfig(createRequest(ModelConfig.CONFIG_DEF_NAME, ModelConfig.CONFIG_DEF_NAMESPACE, ModelConfig.CONFIG_DEF_SCHEMA));
+        assertEquals(configElems + 1, handler.getCache().configElems());
+        assertNotNull(response);
+    }
+
     private static GetConfigRequest createRequest(String name, String namespace, String[] schema) {
         Request request =
                 JRTClientConfigRequestV3.createWithParams(new ConfigKey<>(name, "admin/model", namespace, null),
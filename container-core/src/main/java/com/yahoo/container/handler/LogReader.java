@@ -2,6 +2,7 @@
 package com.yahoo.container.handler;
 
 import com.google.common.collect.Iterators;
+import com.yahoo.compress.ZstdSeekTable;
 import com.yahoo.vespa.defaults.Defaults;
 import com.yahoo.yolean.Exceptions;
 
@@ -13,6 +14,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
@@ -118,6 +120,8 @@ class LogReader {
                     var in_gz = Files.newInputStream(log);
                     return new GZIPInputStream(in_gz);
                 } else if (is_zstd) {
+                    Optional<InputStream> seekable = openSeekable(log);
+                    if (seekable.isPresent()) return seekable.get();
                     var pb = new ProcessBuilder("zstdcat", log.toString());
                     pb.redirectError(ProcessBuilder.Redirect.DISCARD);
                     zcat = pb.start();
@@ -143,12 +147,31 @@ class LogReader {
             return InputStream.nullInputStream();
         }
 
+        /**
+         * Opens a zstd file written with a seek table, starting at the first frame which may contain lines
+         * in the requested interval, or returns empty if the file has no seek table.
+         */
+        private Optional<InputStream> openSeekable(Path log) throws IOException {
+            FileChannel channel = FileChannel.open(log);
+            try {
+                Optional<ZstdSeekTable> table = ZstdSeekTable.read(channel);
+                if (table.isPresent())
+                    return Optional.of(table.get().inputStream(channel, table.get().firstFrameFrom((long) (from * 1_000_000))));
+            }
+            catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            channel.close();
+            return Optional.empty();
+        }
+
         private LogLineIterator(Path log, double from, double to, Optional<String> hostname) throws IOException {
-            InputStream in = openFile(log);
-            this.reader = new BufferedReader(new InputStreamReader(in, UTF_8));
             this.from = from;
             this.to = to;
             this.hostname = hostname;
+            InputStream in = openFile(log);
+            this.reader = new BufferedReader(new InputStreamReader(in, UTF_8));
             this.next = readNext();
         }
 
@@ -4,6 +4,7 @@ package com.yahoo.container.logging;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.yahoo.compress.ZstdSeekableOutputStream;
 import com.yahoo.json.Jackson;
 import com.yahoo.yolean.trace.TraceNode;
 
@@ -167,6 +168,20 @@ public class JSONFormatter implements LogWriter<RequestLogEntry> {
         }
     }
 
+    @Override
+    public long timestampMicros(String line) {
+        int start = line.indexOf("\"time\":");
+        if (start < 0) return ZstdSeekableOutputStream.noKey;
+        start += "\"time\":".length();
+        int end = line.indexOf(',', start);
+        try {
+            return Math.round(Double.parseDouble(line.substring(start, end < 0 ? line.length() : end)) * 1_000_000);
+        }
+        catch (NumberFormatException e) {
+            return ZstdSeekableOutputStream.noKey;
+        }
+    }
+
     private JsonGenerator createJsonGenerator(OutputStream outputStream) throws IOException {
         return generatorFactory.createGenerator(outputStream, JsonEncoding.UTF8)
                 .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
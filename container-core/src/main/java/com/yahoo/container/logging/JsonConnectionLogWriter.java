@@ -5,11 +5,13 @@ import com.yahoo.json.Jackson;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.yahoo.compress.ZstdSeekableOutputStream;
 import com.yahoo.container.logging.ConnectionLogEntry.SslHandshakeFailure.ExceptionEntry;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -118,6 +120,22 @@ class JsonConnectionLogWriter implements LogWriter<ConnectionLogEntry> {
         }
     }
 
+    @Override
+    public long timestampMicros(String line) {
+        int start = line.indexOf("\"timestamp\":\"");
+        if (start < 0) return ZstdSeekableOutputStream.noKey;
+        start += "\"timestamp\":\"".length();
+        int end = line.indexOf('"', start);
+        if (end < 0) return ZstdSeekableOutputStream.noKey;
+        try {
+            Instant timestamp = Instant.parse(line.substring(start, end));
+            return timestamp.getEpochSecond() * 1_000_000 + timestamp.getNano() / 1000;
+        }
+        catch (DateTimeParseException e) {
+            return ZstdSeekableOutputStream.noKey;
+        }
+    }
+
     private void writeOptionalString(JsonGenerator generator, String name, String value) throws IOException {
         if (value != null) {
             generator.writeStringField(name, value);
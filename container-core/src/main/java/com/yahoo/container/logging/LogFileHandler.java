@@ -1,7 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.logging;
 
-import com.yahoo.compress.ZstdOutputStream;
+import com.yahoo.compress.ZstdSeekableOutputStream;
 import com.yahoo.io.NativeIO;
 import com.yahoo.log.LogFileDb;
 import com.yahoo.protect.Process;
@@ -27,6 +27,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.GZIPOutputStream;
@@ -183,6 +184,10 @@ class LogFileHandler <LOGTYPE> {
      * Handle logging and file operations
      */
     static class LogThread<LOGTYPE> extends Thread {
+
+        /** Uncompressed size of the independently readable parts of zstd compressed logs */
+        private static final int frameSize = 256 * 1024;
+
         private final Pollable<LOGTYPE> operationProvider;
         long lastFlush = 0;
         private PageCacheFriendlyFileOutputStream fileOutput = null;
@@ -370,16 +375,16 @@ class LogFileHandler <LOGTYPE> {
             if ((oldFileName != null)) {
                 Path oldFile = Paths.get(oldFileName);
                 if (Files.exists(oldFile)) {
-                    executor.execute(() -> runCompression(nativeIO, oldFile, compression));
+                    executor.execute(() -> runCompression(nativeIO, oldFile, compression, logWriter::timestampMicros));
                 }
             }
         }
 
 
-        private static void runCompression(NativeIO nativeIO, Path oldFile, Compression compression) {
+        private static void runCompression(NativeIO nativeIO, Path oldFile, Compression compression, ToLongFunction<String> lineKey) {
             switch (compression) {
                 case ZSTD:
-                    runCompressionZstd(nativeIO, oldFile);
+                    runCompressionZstd(nativeIO, oldFile, lineKey);
                     break;
                 case GZIP:
                     runCompressionGzip(nativeIO, oldFile);
@@ -396,12 +401,12 @@ class LogFileHandler <LOGTYPE> {
             nativeIO.dropFileFromCache(oldFile.toFile());
         }
 
-        private static void runCompressionZstd(NativeIO nativeIO, Path oldFile) {
+        private static void runCompressionZstd(NativeIO nativeIO, Path oldFile, ToLongFunction<String> lineKey) {
             try {
                 Path compressedFile = Paths.get(oldFile.toString() + ".zst");
                 int bufferSize = 2*1024*1024;
                 try (FileOutputStream fileOut = AtomicFileOutputStream.create(compressedFile);
-                     ZstdOutputStream out = new ZstdOutputStream(fileOut, bufferSize);
+                     ZstdSeekableOutputStream out = new ZstdSeekableOutputStream(fileOut, frameSize, lineKey);
                      FileInputStream in = new FileInputStream(oldFile.toFile())) {
                     pageFriendlyTransfer(nativeIO, out, fileOut.getFD(), in, bufferSize);
                     out.flush();
@@ -2,9 +2,17 @@
 
 package com.yahoo.container.logging;
 
+import com.yahoo.compress.ZstdSeekableOutputStream;
+
 import java.io.IOException;
 import java.io.OutputStream;
 
 interface LogWriter <LOGTYPE>  {
     void write(LOGTYPE record, OutputStream outputStream) throws IOException;
+
+    /**
+     * Returns the timestamp of the given line written by this, in microseconds, or {@link ZstdSeekableOutputStream#noKey}
+     * if it is not known. This is used as the key of the lines in compressed log files, to let readers seek by time.
+     */
+    default long timestampMicros(String line) { return ZstdSeekableOutputStream.noKey; }
 }
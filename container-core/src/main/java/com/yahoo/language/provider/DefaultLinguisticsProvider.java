@@ -1,17 +1,23 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.language.provider;
 
+import ai.vespa.metrics.ContainerMetrics;
 import ai.vespa.opennlp.OpenNlpConfig;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.yahoo.component.annotation.Inject;
+import com.yahoo.container.core.LinguisticsCacheConfig;
 import com.yahoo.container.di.componentgraph.Provider;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.language.CachingLinguistics;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.opennlp.OpenNlpLinguistics;
 
 /**
  * Provides the default linguistics implementation if no linguistics component has been explicitly configured
  * (dependency injection will fallback to providers if no components of the requested type is found).
+ * The default linguistics caches the tokens and stems of recently processed texts only if a cache size is configured
+ * in {@link LinguisticsCacheConfig}, as this pays off only where texts repeat, such as query strings.
  *
  * @author bratseth
  */
@@ -22,8 +28,10 @@ public class DefaultLinguisticsProvider implements Provider<Linguistics> {
     private final Supplier<Linguistics> linguisticsSupplier;
 
     @Inject
-    public DefaultLinguisticsProvider(OpenNlpConfig config) {
-        linguisticsSupplier = Suppliers.memoize(() -> createOpenNlpLinguistics(config));
+    public DefaultLinguisticsProvider(OpenNlpConfig config, LinguisticsCacheConfig cacheConfig, Metric metric) {
+        linguisticsSupplier = Suppliers.memoize(() -> cacheConfig.maxBytes() > 0
+                                                      ? createCachingLinguistics(createOpenNlpLinguistics(config), cacheConfig.maxBytes(), metric)
+                                                      : createOpenNlpLinguistics(config));
     }
 
     @Override
@@ -36,4 +44,13 @@ public class DefaultLinguisticsProvider implements Provider<Linguistics> {
         return new OpenNlpLinguistics(config);
     }
 
+    /** Wraps the given linguistics in one which caches tokens and stems of repeated texts, and reports its hits and misses */
+    static CachingLinguistics createCachingLinguistics(Linguistics linguistics, long maxBytes, Metric metric) {
+        String hits = ContainerMetrics.LINGUISTICS_CACHE_HITS.baseName();
+        String misses = ContainerMetrics.LINGUISTICS_CACHE_MISSES.baseName();
+        return new CachingLinguistics(linguistics, maxBytes,
+                                      () -> metric.add(hits, 1, null),
+                                      () -> metric.add(misses, 1, null));
+    }
+
 }
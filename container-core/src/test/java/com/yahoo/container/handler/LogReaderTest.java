@@ -2,6 +2,7 @@
 package com.yahoo.container.handler;
 
 import com.yahoo.compress.ZstdCompressor;
+import com.yahoo.compress.ZstdSeekableOutputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.EnabledIf;
@@ -11,8 +12,11 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
@@ -112,6 +116,56 @@ public class LogReaderTest {
         assertEquals(log101 + log100b, baos.toString(UTF_8));
     }
 
+    @Test
+    void seekableZstdArchivesAreReadFromTheRequestedTime() throws IOException {
+        Path archiveDirectory = Files.createDirectories(folder.toPath().resolve("archive/1970/01/01"));
+        StringBuilder expected = new StringBuilder();
+        Path archive = archiveDirectory.resolve("05-0.zst");
+        try (OutputStream out = new ZstdSeekableOutputStream(Files.newOutputStream(archive), 1024,
+                                                             line -> (long) (Double.parseDouble(line.split("\t")[0]) * 1_000_000))) {
+            for (int i = 0; i < 10000; i++) {
+                String line = (18000 + i / 10.0) + "\tnode1.com\t5480\tcontainer\tstdout\tinfo\tmessage " + i + "\n";
+                if (i >= 5000 && i <= 5010) expected.append(line);
+                out.write(line.getBytes(UTF_8));
+            }
+        }
+        // Overwrite the start of the file, to verify it is not read
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[1024]), 0);
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        LogReader logReader = new LogReader(folder.toPath().resolve("archive"), Pattern.compile(".*"));
+        logReader.writeLogs(baos, Instant.ofEpochSecond(18500), Instant.ofEpochSecond(18501), 100, Optional.empty());
+
+        assertEquals(expected.toString(), baos.toString(UTF_8));
+    }
+
+    @Test
+    void seekableZstdArchivesWithInterleavedNodesAreReadFromTheRequestedTime() throws IOException {
+        Path archiveDirectory = Files.createDirectories(folder.toPath().resolve("archive/1970/01/01"));
+        StringBuilder expected = new StringBuilder();
+        Path archive = archiveDirectory.resolve("05-0.zst");
+        try (OutputStream out = new ZstdSeekableOutputStream(Files.newOutputStream(archive), 1024,
+                                                             line -> (long) (Double.parseDouble(line.split("\t")[0]) * 1_000_000))) {
+            for (int i = 0; i < 10000; i++) {
+                String line = (18000 + i / 10.0) + "\tnode1.com\t5480\tcontainer\tstdout\tinfo\tmessage " + i + "\n";
+                out.write(line.getBytes(UTF_8));
+                if (i % 2 == 0) { // Logs from a node whose clock is ahead are interleaved with the others
+                    line = (18200 + i / 10.0) + "\tnode2.com\t5480\tcontainer\tstdout\tinfo\tmessage " + i + "\n";
+                    if (i >= 3000 && i <= 3010) expected.append(line);
+                    out.write(line.getBytes(UTF_8));
+                }
+            }
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        LogReader logReader = new LogReader(folder.toPath().resolve("archive"), Pattern.compile(".*"));
+        logReader.writeLogs(baos, Instant.ofEpochSecond(18500), Instant.ofEpochSecond(18501), 100, Optional.empty());
+
+        assertEquals(expected.toString(), baos.toString(UTF_8));
+    }
+
     private byte[] compress1(String input) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         OutputStream zip = new GZIPOutputStream(baos);
@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.logging;
 
+import com.yahoo.compress.ZstdSeekableOutputStream;
 import com.yahoo.yolean.trace.TraceNode;
 import org.junit.jupiter.api.Test;
 
@@ -10,6 +11,7 @@ import java.time.Duration;
 import java.time.Instant;
 
 import static com.yahoo.test.json.JsonTestHelper.assertJsonEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 
 /**
@@ -203,6 +205,13 @@ public class JSONLogTestCase {
         assertJsonEquals(formatEntry(entry), expectedOutput);
     }
 
+    @Test
+    void test_timestamp_of_written_line() {
+        JSONFormatter formatter = new JSONFormatter();
+        assertEquals(920880005023000L, formatter.timestampMicros(formatEntry(newRequestLogEntry("test").build())));
+        assertEquals(ZstdSeekableOutputStream.noKey, formatter.timestampMicros("not an access log line"));
+    }
+
     @Test
     void test_remote_address_same_as_ip_address() throws Exception {
         RequestLogEntry entry = newRequestLogEntry("test").build();
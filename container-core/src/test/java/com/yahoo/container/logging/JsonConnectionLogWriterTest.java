@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.logging;
 
+import com.yahoo.compress.ZstdSeekableOutputStream;
 import com.yahoo.test.json.JsonTestHelper;
 import org.junit.jupiter.api.Test;
 
@@ -11,6 +12,8 @@ import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 /**
  * @author bjorncs
  */
@@ -42,5 +45,7 @@ class JsonConnectionLogWriterTest {
         writer.write(entry, out);
         String actualJson = out.toString(StandardCharsets.UTF_8);
         JsonTestHelper.assertJsonEquals(actualJson, expectedJson);
+        assertEquals(instant.toEpochMilli() * 1000, writer.timestampMicros(actualJson));
+        assertEquals(ZstdSeekableOutputStream.noKey, writer.timestampMicros("{\"id\":\"unterminated"));
     }
 }
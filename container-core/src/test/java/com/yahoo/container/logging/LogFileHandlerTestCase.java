@@ -171,7 +171,7 @@ public class LogFileHandlerTestCase {
                     ZstdCompressor zstdCompressor = new ZstdCompressor();
                     byte[] uncompressedBytes = new byte[uncompressedSize];
                     byte[] compressedBytes = Files.readAllBytes(compressedFile);
-                    zstdCompressor.decompress(compressedBytes, 0, compressedBytes.length, uncompressedBytes, 0, uncompressedBytes.length);
+                    zstdCompressor.decompressSeekable(compressedBytes, 0, compressedBytes.length, uncompressedBytes, 0, uncompressedBytes.length);
                     return new String(uncompressedBytes);
                 }));
     }
@@ -6,6 +6,7 @@ import com.yahoo.component.ComponentId;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.compress.Compressor;
 import com.yahoo.container.handler.VipStatus;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.prelude.fastsearch.VespaBackend;
 import com.yahoo.processing.request.CompoundName;
 import com.yahoo.search.Query;
@@ -66,6 +67,7 @@ public class Dispatcher extends AbstractComponent {
     private final RpcConnectionPool rpcResourcePool;
     private final SearchCluster searchCluster;
     private final ClusterMonitor<Node> clusterMonitor;
+    private final HedgingPolicy hedgingPolicy;
     private volatile VolatileItems volatileItems;
 
     private static class VolatileItems {
@@ -118,32 +120,41 @@ public class Dispatcher extends AbstractComponent {
     }
 
     @Inject
-    public Dispatcher(ComponentId clusterId, DispatchConfig dispatchConfig, DispatchNodesConfig nodesConfig, VipStatus vipStatus) {
-        this(clusterId, dispatchConfig, new RpcResourcePool(dispatchConfig, nodesConfig), nodesConfig, vipStatus, RpcInvokerFactory::new);
+    public Dispatcher(ComponentId clusterId, DispatchConfig dispatchConfig, DispatchNodesConfig nodesConfig,
+                      VipStatus vipStatus, Metric metric) {
+        this(clusterId, dispatchConfig, new RpcResourcePool(dispatchConfig, nodesConfig), nodesConfig, vipStatus,
+             RpcInvokerFactory::new, metric);
         initialWarmup(dispatchConfig.warmuptime());
     }
 
     Dispatcher(ComponentId clusterId, DispatchConfig dispatchConfig, RpcConnectionPool rpcConnectionPool,
-               DispatchNodesConfig nodesConfig, VipStatus vipStatus, InvokerFactoryFactory invokerFactories) {
+               DispatchNodesConfig nodesConfig, VipStatus vipStatus, InvokerFactoryFactory invokerFactories, Metric metric) {
         this(dispatchConfig, rpcConnectionPool,
              new SearchCluster(clusterId.stringValue(), AvailabilityPolicy.from(dispatchConfig),
                                toNodes(clusterId.stringValue(), nodesConfig), vipStatus, new RpcPingFactory(rpcConnectionPool)),
-             invokerFactories);
+             invokerFactories, metric);
     }
 
     Dispatcher(DispatchConfig dispatchConfig, RpcConnectionPool rpcConnectionPool,
                SearchCluster searchCluster, InvokerFactoryFactory invokerFactories) {
-        this(dispatchConfig, rpcConnectionPool, searchCluster, new ClusterMonitor<>(searchCluster, false), invokerFactories);
+        this(dispatchConfig, rpcConnectionPool, searchCluster, invokerFactories, null);
+    }
+
+    Dispatcher(DispatchConfig dispatchConfig, RpcConnectionPool rpcConnectionPool,
+               SearchCluster searchCluster, InvokerFactoryFactory invokerFactories, Metric metric) {
+        this(dispatchConfig, rpcConnectionPool, searchCluster, new ClusterMonitor<>(searchCluster, false), invokerFactories, metric);
         this.clusterMonitor.start(); // Populate nodes to monitor before starting it.
     }
 
     Dispatcher(DispatchConfig dispatchConfig, RpcConnectionPool rpcConnectionPool,
-               SearchCluster searchCluster, ClusterMonitor<Node> clusterMonitor, InvokerFactoryFactory invokerFactories) {
+               SearchCluster searchCluster, ClusterMonitor<Node> clusterMonitor, InvokerFactoryFactory invokerFactories,
+               Metric metric) {
         this.dispatchConfig = dispatchConfig;
         this.rpcResourcePool = rpcConnectionPool;
         this.searchCluster = searchCluster;
         this.invokerFactories = invokerFactories;
         this.clusterMonitor = clusterMonitor;
+        this.hedgingPolicy = dispatchConfig.hedging() ? new HedgingPolicy(dispatchConfig, searchCluster.name(), metric) : null;
         this.volatileItems = update();
         searchCluster.addMonitoring(clusterMonitor);
     }
@@ -151,7 +162,7 @@ public class Dispatcher extends AbstractComponent {
     /* For simple mocking in tests. Beware that searchCluster is shutdown in deconstruct() */
     Dispatcher(ClusterMonitor<Node> clusterMonitor, SearchCluster searchCluster,
                DispatchConfig dispatchConfig, InvokerFactory invokerFactory) {
-        this(dispatchConfig, null, searchCluster, clusterMonitor, (__, ___, ____) -> invokerFactory);
+        this(dispatchConfig, null, searchCluster, clusterMonitor, (__, ___, ____) -> invokerFactory, null);
     }
 
     /** Returns the snapshot of volatile items that need to be kept together, incrementing its reference counter. */
@@ -273,7 +284,8 @@ public class Dispatcher extends AbstractComponent {
         try (var items = volatileItems()) { // Take a snapshot, and release it when we're done.
             int maxHitsPerNode = dispatchConfig.maxHitsPerNode();
             SearchInvoker invoker = getSearchPathInvoker(query, searcher, searchCluster.groupList(), items.get().invokerFactory, maxHitsPerNode)
-                    .orElseGet(() -> getInternalInvoker(query, searcher, searchCluster, items.get().loadBalancer, items.get().invokerFactory, maxHitsPerNode));
+                    .orElseGet(() -> getInternalInvoker(query, searcher, searchCluster, items.get().loadBalancer, items.get().invokerFactory,
+                                                        hedgingPolicy, maxHitsPerNode));
 
             if (query.properties().getBoolean(com.yahoo.search.query.Model.ESTIMATE)) {
                 query.setHits(0);
@@ -305,7 +317,8 @@ public class Dispatcher extends AbstractComponent {
     }
 
     private static SearchInvoker getInternalInvoker(Query query, VespaBackend searcher, SearchCluster cluster,
-                                                    LoadBalancer loadBalancer, InvokerFactory invokerFactory, int maxHitsPerNode) {
+                                                    LoadBalancer loadBalancer, InvokerFactory invokerFactory,
+                                                    HedgingPolicy hedgingPolicy, int maxHitsPerNode) {
         Optional<Node> directNode = cluster.localCorpusDispatchTarget();
         if (directNode.isPresent()) {
             Node node = directNode.get();
@@ -336,6 +349,15 @@ public class Dispatcher extends AbstractComponent {
                 query.trace(false, 2, "Dispatching to group ", group.id(), " after retries = ", i);
                 query.getModel().setSearchPath("/" + group.id());
                 invoker.get().teardown((success, time) -> loadBalancer.releaseGroup(group, success, time));
+                if (hedgingPolicy != null && groups > 1) {
+                    Set<Integer> hedgeRejected = new HashSet<>(rejected);
+                    hedgeRejected.add(group.id());
+                    return new HedgedSearchInvoker(invoker.get(),
+                                                   group.id(),
+                                                   () -> getAlternativeInvoker(query, searcher, loadBalancer, invokerFactory,
+                                                                               hedgeRejected, maxHitsPerNode),
+                                                   hedgingPolicy);
+                }
                 return invoker.get();
             } else {
                 loadBalancer.releaseGroup(group, false, RequestDuration.of(Duration.ZERO));
@@ -345,4 +367,22 @@ public class Dispatcher extends AbstractComponent {
         throw new IllegalStateException("No suitable groups to dispatch query. Rejected: " + rejected);
     }
 
+    /** Returns an invoker of a group with sufficient coverage which is not among the given, if any */
+    private static Optional<HedgedSearchInvoker.Alternative> getAlternativeInvoker(Query query, VespaBackend searcher,
+                                                                                   LoadBalancer loadBalancer,
+                                                                                   InvokerFactory invokerFactory,
+                                                                                   Set<Integer> rejected, int maxHitsPerNode) {
+        Optional<Group> groupInCluster = loadBalancer.takeGroup(rejected);
+        if (groupInCluster.isEmpty()) return Optional.empty();
+
+        Group group = groupInCluster.get();
+        Optional<SearchInvoker> invoker = invokerFactory.createSearchInvoker(searcher, query, group.nodes(), false, maxHitsPerNode);
+        if (invoker.isEmpty()) {
+            loadBalancer.releaseGroup(group, false, RequestDuration.of(Duration.ZERO));
+            return Optional.empty();
+        }
+        invoker.get().teardown((success, time) -> loadBalancer.releaseGroup(group, success, time));
+        return Optional.of(new HedgedSearchInvoker.Alternative(invoker.get(), group.id()));
+    }
+
 }
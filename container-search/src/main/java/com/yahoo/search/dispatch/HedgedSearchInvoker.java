@@ -0,0 +1,176 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A search invoker which sends the query to another group when the group it was dispatched to has not
+ * responded within the delay given by a {@link HedgingPolicy}, and returns the result of the group which
+ * responds first. The other group is closed without waiting for its result, and the time it had spent so far is
+ * reported as its response time, such that the load balancer learns that it is slower.
+ * When no hedge is sent, the group the query was dispatched to waits for its nodes within its own timeout handling,
+ * as without hedging. When a hedge is sent, the groups are waited for until the group the query was dispatched to
+ * would stop waiting for its nodes, e.g., by its adaptive timeout, and if neither has responded in full by then,
+ * that group produces the result, with the coverage it has.
+ *
+ * @author ollivir
+ */
+class HedgedSearchInvoker extends SearchInvoker implements ResponseMonitor<SearchInvoker> {
+
+    private final SearchInvoker primary;
+    private final int primaryGroupId;
+    private final Supplier<Optional<Alternative>> alternatives;
+    private final HedgingPolicy policy;
+    private final LinkedBlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+    private final AtomicBoolean responseTimeRecorded = new AtomicBoolean();
+
+    private Query query;
+    private volatile long sendTime;
+    private Alternative hedge = null;
+
+    /**
+     * Creates a hedged search invoker.
+     *
+     * @param primary the invoker of the group the query is dispatched to
+     * @param primaryGroupId the id of the group the query is dispatched to
+     * @param alternatives creates an invoker of another group, or returns empty if there is none available
+     * @param policy the policy deciding when to hedge
+     */
+    HedgedSearchInvoker(SearchInvoker primary, int primaryGroupId, Supplier<Optional<Alternative>> alternatives,
+                        HedgingPolicy policy) {
+        super(Optional.empty());
+        this.primary = primary;
+        this.primaryGroupId = primaryGroupId;
+        this.alternatives = alternatives;
+        this.policy = policy;
+    }
+
+    @Override
+    protected Object sendSearchRequest(Query query, Object context) throws IOException {
+        this.query = query;
+        policy.queryDispatched();
+        primary.setMonitor(this);
+        sendTime = System.nanoTime();
+        return primary.sendSearchRequest(query, context);
+    }
+
+    @Override
+    protected InvokerResult getSearchResult() throws IOException {
+        SearchInvoker winner;
+        try {
+            long delayNanos = policy.delayNanos();
+            winner = awaitFirstResponse(() -> delayNanos - (System.nanoTime() - sendTime));
+            if (winner == null && remainingWaitNanos() > 0)
+                sendHedge();
+            if (winner == null && hedge != null)
+                winner = awaitFirstResponse(() -> Long.MAX_VALUE);
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while waiting for search results", e);
+        }
+
+        // If neither has responded in full, the primary produces the result, with its coverage and errors
+        if (winner == null)
+            winner = primary;
+        if (hedge != null) {
+            if (winner == hedge.invoker()) {
+                policy.hedgeWon();
+                query.trace(false, 2, "Hedged request to group ", hedge.groupId(), " responded first");
+                closeLoser(primary);
+            }
+            else {
+                query.getModel().setSearchPath("/" + primaryGroupId);
+                closeLoser(hedge.invoker());
+            }
+        }
+        InvokerResult result = winner.getSearchResult();
+        winner.setFinalStatus(result.getResult().hits().getError() == null);
+        return result;
+    }
+
+    /**
+     * Returns the first invoker to respond in full, or null if none does before the given time is up, or the primary
+     * would stop waiting for its nodes. The wait is re-evaluated as parts of the primary's response arrive.
+     */
+    private SearchInvoker awaitFirstResponse(LongSupplier nanosLeft) throws InterruptedException {
+        while (true) {
+            long waitNanos = Math.min(nanosLeft.getAsLong(), remainingWaitNanos());
+            if (waitNanos <= 0) return null;
+            Response response = responses.poll(waitNanos, TimeUnit.NANOSECONDS);
+            if (response == null) return null;
+            if (response.complete()) return response.from();
+        }
+    }
+
+    /** Returns the time the primary would still wait for its nodes, bounded by the time left of the query */
+    private long remainingWaitNanos() {
+        long primaryMillis = Math.min(primary.remainingWaitMillis(), query.getTimeLeft());
+        return TimeUnit.MILLISECONDS.toNanos(primaryMillis);
+    }
+
+    /** Closes an invoker which did not respond first, with the time it has spent as a lower bound of its response time */
+    private static void closeLoser(SearchInvoker loser) {
+        loser.setFinalStatus(true);
+        loser.close();
+    }
+
+    /** Sends the query to another group, if the budget allows it, and there is one */
+    private void sendHedge() {
+        if ( ! policy.tryHedge()) return;
+        Optional<Alternative> alternative = alternatives.get();
+        if (alternative.isEmpty()) {
+            policy.hedgeNotSent();
+            return;
+        }
+        query.trace(false, 2, "Sending hedged request to group ", alternative.get().groupId());
+        query.getModel().setSearchPath("/" + alternative.get().groupId());
+        alternative.get().invoker().setMonitor(this);
+        try {
+            alternative.get().invoker().sendSearchRequest(query, null);
+        }
+        catch (IOException | RuntimeException e) {
+            policy.hedgeNotSent();
+            query.trace(false, 2, "Failed sending hedged request to group ", alternative.get().groupId(), ": ", e.getMessage());
+            query.getModel().setSearchPath("/" + primaryGroupId);
+            alternative.get().invoker().close();
+            return;
+        }
+        hedge = alternative.get();
+        policy.hedgeSent();
+    }
+
+    @Override
+    public void responseAvailable(SearchInvoker from) {
+        // Only complete responses are recorded, as timeouts would raise the delay without bound
+        if (responseTimeRecorded.compareAndSet(false, true))
+            policy.recordResponseTime(System.nanoTime() - sendTime);
+        responses.add(new Response(from, true));
+    }
+
+    @Override
+    public void partialResponseAvailable(SearchInvoker from) {
+        if (from == primary)
+            responses.add(new Response(from, false)); // The primary may now stop waiting sooner
+    }
+
+    @Override
+    protected void release() {
+        primary.close();
+        if (hedge != null)
+            hedge.invoker().close();
+    }
+
+    /** An invoker of another group than the one the query was dispatched to */
+    record Alternative(SearchInvoker invoker, int groupId) { }
+
+    /** A response, or a part of one, from the given invoker */
+    private record Response(SearchInvoker from, boolean complete) { }
+
+}
@@ -0,0 +1,130 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.vespa.config.search.DispatchConfig;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides when to send hedged search requests to another group: A hedge is sent when a group has not responded
+ * within a percentile of recent group response times, as long as the number of hedges stays within a budget
+ * given as a fraction of the queries dispatched.
+ *
+ * This class is multithread safe.
+ *
+ * @author ollivir
+ */
+class HedgingPolicy {
+
+    private static final String HEDGES_SENT_METRIC = ContainerMetrics.DISPATCH_HEDGES_SENT.baseName();
+    private static final String HEDGES_WON_METRIC = ContainerMetrics.DISPATCH_HEDGES_WON.baseName();
+
+    /** The number of recent response times the delay is computed from */
+    private static final int windowSize = 1024;
+
+    /** The number of response times to observe before sending any hedges */
+    private static final int minimumSamples = 128;
+
+    /** How often to recompute the delay, in response times recorded */
+    private static final int recomputeInterval = 64;
+
+    /** The credit needed for a single hedge */
+    private static final long hedgeCredit = 1_000_000;
+
+    /** The maximal number of hedges which can be sent in a burst */
+    private static final long maxCredit = 10 * hedgeCredit;
+
+    private final double percentile;
+    private final long creditPerQuery;
+    private final Metric metric;
+    private final Metric.Context metricContext;
+
+    private final long[] responseTimes = new long[windowSize];
+    private long samples = 0;
+    private volatile long delayNanos = Long.MAX_VALUE;
+
+    private final AtomicLong credit = new AtomicLong();
+    private final LongAdder hedgesSent = new LongAdder();
+    private final LongAdder hedgesWon = new LongAdder();
+
+    /**
+     * Creates a hedging policy from config.
+     *
+     * @param clusterName the name of the cluster hedges are sent in, reported as a dimension of the hedge metrics
+     * @param metric the metric to report hedges to, or null to not report them
+     */
+    HedgingPolicy(DispatchConfig config, String clusterName, Metric metric) {
+        this(config.hedgePercentile(), config.hedgeBudget(), clusterName, metric);
+    }
+
+    HedgingPolicy(double percentile, double budget, String clusterName, Metric metric) {
+        if (percentile <= 0 || percentile > 100)
+            throw new IllegalArgumentException("Hedge percentile must be in (0, 100], not " + percentile);
+        if (budget < 0 || budget > 1)
+            throw new IllegalArgumentException("Hedge budget must be in [0, 1], not " + budget);
+        this.percentile = percentile;
+        this.creditPerQuery = (long)(budget * hedgeCredit);
+        this.metric = metric;
+        this.metricContext = metric == null ? null : metric.createContext(Map.of("clustername", clusterName));
+    }
+
+    /** Returns the time to wait for a group before sending a hedge, in nanoseconds, or Long.MAX_VALUE to not hedge */
+    long delayNanos() { return delayNanos; }
+
+    /** Records that a query is dispatched, which adds to the budget of hedges */
+    void queryDispatched() {
+        credit.updateAndGet(current -> Math.min(maxCredit, current + creditPerQuery));
+    }
+
+    /**
+     * Returns whether a hedge may be sent now, and if so, takes the credit for it from the budget.
+     * The caller must then call either {@link #hedgeSent()} or {@link #hedgeNotSent()}.
+     */
+    boolean tryHedge() {
+        return credit.getAndUpdate(current -> current >= hedgeCredit ? current - hedgeCredit : current) >= hedgeCredit;
+    }
+
+    /** Records that a hedge allowed by {@link #tryHedge()} was sent */
+    void hedgeSent() {
+        hedgesSent.increment();
+        if (metric != null)
+            metric.add(HEDGES_SENT_METRIC, 1, metricContext);
+    }
+
+    /** Records that a hedge allowed by {@link #tryHedge()} could not be sent, which returns its credit to the budget */
+    void hedgeNotSent() {
+        credit.updateAndGet(current -> Math.min(maxCredit, current + hedgeCredit));
+    }
+
+    /** Records that a hedge responded before the group it was sent to hedge */
+    void hedgeWon() {
+        hedgesWon.increment();
+        if (metric != null)
+            metric.add(HEDGES_WON_METRIC, 1, metricContext);
+    }
+
+    /** Records the time from a query was sent until the first group responded, which must not be a timeout */
+    synchronized void recordResponseTime(long nanos) {
+        responseTimes[(int)(samples++ % windowSize)] = nanos;
+        if (samples >= minimumSamples && samples % recomputeInterval == 0)
+            delayNanos = percentileOf(Arrays.copyOf(responseTimes, (int)Math.min(samples, windowSize)));
+    }
+
+    private long percentileOf(long[] values) {
+        Arrays.sort(values);
+        int index = (int)Math.ceil(percentile / 100 * values.length) - 1;
+        return values[Math.max(0, index)];
+    }
+
+    synchronized long responseTimesRecorded() { return samples; }
+
+    long hedgesSent() { return hedgesSent.sum(); }
+
+    long hedgesWon() { return hedgesWon.sum(); }
+
+}
@@ -21,6 +21,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -43,6 +44,8 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     private final Set<Integer> alreadyFailedNodes;
     private final CoverageAggregator coverageAggregator;
     private final TopKEstimator hitEstimator;
+    private final int askedNodes;
+    private final AtomicInteger responses = new AtomicInteger();
     private Query query;
 
     private TimeoutHandler timeoutHandler;
@@ -61,6 +64,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         this.alreadyFailedNodes = alreadyFailedNodes;
         this.coverageAggregator = new CoverageAggregator(invokers.size());
         this.hitEstimator = hitEstimator;
+        this.askedNodes = invokers.size();
     }
 
     private int estimateHitsToFetch(int wantedHits, int numPartitions) {
@@ -250,11 +254,17 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         if (availableForProcessing != null) {
             availableForProcessing.add(from);
         }
+        if (responses.incrementAndGet() == askedNodes) {
+            responseAvailable(); // all nodes have responded
+        }
+        else {
+            partialResponseAvailable();
+        }
     }
 
     @Override
-    protected void setMonitor(ResponseMonitor<SearchInvoker> monitor) {
-        // never to be called
+    protected long remainingWaitMillis() {
+        return timeoutHandler == null ? Long.MAX_VALUE : timeoutHandler.nextTimeoutMS(responses.get());
     }
 
     // For overriding in tests
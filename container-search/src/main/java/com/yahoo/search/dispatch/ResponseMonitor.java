@@ -12,4 +12,7 @@ public interface ResponseMonitor<T> {
 
     void responseAvailable(T from);
 
+    /** Called when a part of the response of the given object is available, for monitors which track progress */
+    default void partialResponseAvailable(T from) { }
+
 }
@@ -60,6 +60,20 @@ public abstract class SearchInvoker extends CloseableInvoker {
         }
     }
 
+    protected void partialResponseAvailable() {
+        if (monitor != null) {
+            monitor.partialResponseAvailable(this);
+        }
+    }
+
+    /**
+     * Returns the number of milliseconds {@link #getSearchResult} would still wait for responses, given the responses
+     * received so far, or Long.MAX_VALUE if this has no deadline of its own, other than the timeout of the query.
+     */
+    protected long remainingWaitMillis() {
+        return Long.MAX_VALUE;
+    }
+
     protected Optional<Integer> distributionKey() {
         return node.map(Node::key);
     }
@@ -31,6 +31,9 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
     /** The values of this */
     private final DimensionalMap<ValueWithSource> entries;
 
+    /** The values of this, resolved for the contexts they are looked up in */
+    private final ResolvedEntries resolvedEntries;
+
     /** Keys which have a type in this */
     private final DimensionalMap<QueryProfileType> types;
 
@@ -56,6 +59,7 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
             type.freeze();
         this.type = type;
         this.entries = entries;
+        this.resolvedEntries = new ResolvedEntries(entries);
         this.types = types;
         this.references = references;
         this.unoverridables = unoverridables;
@@ -132,17 +136,19 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
      */
     public Map<String, Object> listValues(CompoundName prefix, Map<String, String> context, Properties substitution) {
         Map<String, Object> values = new HashMap<>();
-        for (Map.Entry<CompoundName, DimensionalValue<ValueWithSource>> entry : entries.entrySet()) {
-            if ( ! entry.getKey().hasPrefix(prefix)) continue;
+        ResolvedEntries.Bound bound = resolvedEntries.bound(context);
+        for (int i = 0; i < resolvedEntries.size(); i++) {
+            CompoundName key = resolvedEntries.key(i);
+            if ( ! key.hasPrefix(prefix)) continue;
 
-            ValueWithSource valueWithSource = entry.getValue().get(context);
+            ValueWithSource valueWithSource = bound.get(i);
             if (valueWithSource == null) continue;
 
             Object value = valueWithSource.value();
             if (value == null) continue;
 
             value = substitute(value, context, substitution);
-            CompoundName suffixName = entry.getKey().rest(prefix.size());
+            CompoundName suffixName = key.rest(prefix.size());
             values.put(suffixName.toString(), value);
         }
         return values;
@@ -152,16 +158,18 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
                                                               Map<String, String> context,
                                                               Properties substitution) {
         Map<String, ValueWithSource> values = new HashMap<>();
-        for (Map.Entry<CompoundName, DimensionalValue<ValueWithSource>> entry : entries.entrySet()) {
-            if ( entry.getKey().size() <= prefix.size()) continue;
-            if ( ! entry.getKey().hasPrefix(prefix)) continue;
+        ResolvedEntries.Bound bound = resolvedEntries.bound(context);
+        for (int i = 0; i < resolvedEntries.size(); i++) {
+            CompoundName key = resolvedEntries.key(i);
+            if ( key.size() <= prefix.size()) continue;
+            if ( ! key.hasPrefix(prefix)) continue;
 
-            ValueWithSource valueWithSource = entry.getValue().get(context);
+            ValueWithSource valueWithSource = bound.get(i);
             if (valueWithSource == null) continue;
             if (valueWithSource.value() == null) continue;
 
             valueWithSource = valueWithSource.withValue(substitute(valueWithSource.value(), context, substitution));
-            CompoundName suffixName = entry.getKey().rest(prefix.size());
+            CompoundName suffixName = key.rest(prefix.size());
             values.put(suffixName.toString(), valueWithSource);
         }
         return values;
@@ -174,10 +182,10 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
         return get(name, context, new QueryProfileProperties(this));
     }
     public final Object get(String name, Map<String, String> context, Properties substitution) {
-        return get(new CompoundName(name), context, substitution);
+        return get(CompoundName.from(name), context, substitution);
     }
     public final Object get(CompoundName name, Map<String, String> context, Properties substitution) {
-        ValueWithSource value = entries.get(name, context);
+        ValueWithSource value = resolvedEntries.get(name, context);
         if (value == null) return null;
         return substitute(value.value(), context, substitution);
     }
@@ -0,0 +1,171 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.query.profile.compiled;
+
+import com.yahoo.processing.request.CompoundName;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The entries of a compiled query profile, resolved for the combinations of dimension values they are looked up in.
+ * Each key is given an index, and each combination of values of the dimensions the entries depend on gets a flat
+ * array of the values resolved for it, which is filled in as keys are looked up.
+ * These arrays are kept in a set-associative table of bounded size, where each set keeps its most recently used
+ * combinations first, and evicts the least recently used one, so lookups in a context matching a combination
+ * which is already in the table do not allocate, and combinations which hash to the same set do not evict each other
+ * unless there are more of them than there are ways in the set.
+ *
+ * This is thread safe: Races only cause the same value to be resolved more than once.
+ *
+ * @author bratseth
+ */
+class ResolvedEntries {
+
+    /** The max total number of values to keep for each profile, in all bindings */
+    private static final int maxResolvedValues = 1 << 15;
+
+    private static final int maxBindings = 64;
+
+    /** The max number of bindings in each set of the table */
+    private static final int maxWays = 4;
+
+    /** Marks a dimension which is not set in a context: Dimensions set to null do not match any variant either */
+    private static final Object absent = new Object();
+
+    /** Marks a key which is resolved to have no value in a binding */
+    private static final ValueWithSource none = new ValueWithSource(null, null, false, false, null, null);
+
+    private final CompoundName[] keys;
+    private final DimensionalValue<ValueWithSource>[] variants;
+    private final Map<CompoundName, Integer> indexes;
+
+    /** The dimensions which any of the entries depend on, in a stable order */
+    private final String[] dimensions;
+
+    /** The resolved bindings, in sets of consecutive entries indexed by the hash of their dimension values */
+    private final Bound[] bindings;
+
+    /** The number of bindings in each set */
+    private final int ways;
+
+    @SuppressWarnings("unchecked")
+    ResolvedEntries(DimensionalMap<ValueWithSource> entries) {
+        int size = entries.entrySet().size();
+        keys = new CompoundName[size];
+        variants = new DimensionalValue[size];
+        indexes = new HashMap<>(size * 2);
+        Set<String> dimensions = new TreeSet<>();
+        int index = 0;
+        for (Map.Entry<CompoundName, DimensionalValue<ValueWithSource>> entry : entries.entrySet()) {
+            keys[index] = entry.getKey();
+            variants[index] = entry.getValue();
+            indexes.put(entry.getKey(), index++);
+            entry.getValue().addDimensionsTo(dimensions);
+        }
+        this.dimensions = dimensions.toArray(new String[0]);
+        this.bindings = new Bound[dimensions.isEmpty() ? 1 : bindingsFor(size)];
+        this.ways = Math.min(maxWays, bindings.length);
+    }
+
+    /** Returns the number of bindings to keep: a power of two which keeps the total number of values bounded */
+    private static int bindingsFor(int keys) {
+        return Math.max(1, Integer.highestOneBit(Math.min(maxBindings, maxResolvedValues / Math.max(1, keys))));
+    }
+
+    /** Returns the number of keys in this */
+    int size() { return keys.length; }
+
+    /** Returns the key at the given index */
+    CompoundName key(int index) { return keys[index]; }
+
+    /** Returns the value of the given key in the given context, or null if none */
+    ValueWithSource get(CompoundName key, Map<String, String> context) {
+        Integer index = indexes.get(key);
+        if (index == null) return null;
+        return bound(context).get(index);
+    }
+
+    /** Returns the values of this resolved in the given context, to look up by the index of each key */
+    Bound bound(Map<String, String> context) {
+        if (context == null) context = Map.of();
+
+        int set = set(context);
+        for (int way = 0; way < ways; way++) {
+            Bound bound = bindings[set + way];
+            if (bound != null && bound.matches(context)) {
+                if (way > 0) moveToFront(set, way, bound);
+                return bound;
+            }
+        }
+        Bound bound = new Bound(context);
+        moveToFront(set, ways - 1, bound);
+        return bound;
+    }
+
+    /** Puts the given bound first in the given set, moving those before the given way one step back */
+    private void moveToFront(int set, int way, Bound bound) {
+        System.arraycopy(bindings, set, bindings, set + 1, way);
+        bindings[set] = bound;
+    }
+
+    /** Returns the index of the first binding in the set of the given context */
+    private int set(Map<String, String> context) {
+        int hash = 1;
+        for (String dimension : dimensions)
+            hash = 31 * hash + valueOf(dimension, context).hashCode();
+        return ((hash ^ (hash >>> 16)) & (bindings.length / ways - 1)) * ways;
+    }
+
+    private static Object valueOf(String dimension, Map<String, String> context) {
+        Object value = context.get(dimension);
+        return value != null ? value : absent;
+    }
+
+    /** The values of this for one combination of dimension values */
+    class Bound {
+
+        /** The values of the dimensions of this binding, as returned by valueOf */
+        private final Object[] dimensionValues;
+
+        /** The context this was created from, used to resolve values on demand: Only the dimensions are accessed */
+        private final Map<String, String> context;
+
+        /** The resolved values, where null means not yet resolved */
+        private final ValueWithSource[] values;
+
+        private Bound(Map<String, String> context) {
+            this.dimensionValues = new Object[dimensions.length];
+            Map<String, String> boundContext = new HashMap<>();
+            for (int i = 0; i < dimensions.length; i++) {
+                dimensionValues[i] = valueOf(dimensions[i], context);
+                if (dimensionValues[i] != absent)
+                    boundContext.put(dimensions[i], context.get(dimensions[i]));
+            }
+            this.context = boundContext;
+            this.values = new ValueWithSource[keys.length];
+        }
+
+        private boolean matches(Map<String, String> context) {
+            for (int i = 0; i < dimensions.length; i++)
+                if ( ! Objects.equals(dimensionValues[i], valueOf(dimensions[i], context))) return false;
+            return true;
+        }
+
+        /** Returns the value of the key with the given index in this binding, or null if none */
+        ValueWithSource get(int index) {
+            ValueWithSource value = values[index];
+            if (value == null) {
+                value = variants[index].get(context);
+                if (value == null)
+                    value = none;
+                values[index] = value;
+            }
+            return value == none ? null : value;
+        }
+
+    }
+
+}
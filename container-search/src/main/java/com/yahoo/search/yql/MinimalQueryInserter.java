@@ -3,6 +3,7 @@ package com.yahoo.search.yql;
 
 import com.yahoo.api.annotations.Beta;
 import com.yahoo.component.annotation.Inject;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.simple.SimpleLinguistics;
 import com.yahoo.processing.IllegalInputException;
@@ -28,6 +29,10 @@ import java.util.logging.Logger;
 /**
  * Minimal combinator for YQL+ syntax and heuristically parsed user queries.
  *
+ * Parsed YQL programs are cached by their text, and the values of parameters are bound for each query,
+ * so applications sending YQL with values which vary between queries get cache hits when they pass
+ * these values as parameters, e.g., <code>where title contains @title</code>.
+ *
  * @author Steinar Knutsen
  */
 // TODO: The query model should do this
@@ -45,10 +50,30 @@ public class MinimalQueryInserter extends Searcher {
     private static final CompoundName MAX_OFFSET = CompoundName.from("maxOffset");
     private static final Logger log = Logger.getLogger(MinimalQueryInserter.class.getName());
 
+    /** The default number of parsed YQL programs to keep */
+    public static final int defaultParseCacheSize = 1024;
+
+    private final ProgramCache programCache;
+
     @Inject
-    public MinimalQueryInserter(Linguistics linguistics) {
+    public MinimalQueryInserter(Linguistics linguistics, Metric metric) {
+        this(linguistics, metric, defaultParseCacheSize);
+    }
+
+    /**
+     * Creates a query inserter which keeps up to the given number of parsed YQL programs,
+     * and reuses these for later queries with the same YQL.
+     *
+     * @param parseCacheSize the max number of parsed programs to keep, or 0 to parse every query
+     */
+    public MinimalQueryInserter(Linguistics linguistics, Metric metric, int parseCacheSize) {
         // Warmup is needed to avoid a large 400ms init cost during first execution of yql code.
         warmup(linguistics);
+        this.programCache = parseCacheSize > 0 ? new ProgramCache(parseCacheSize, metric) : null;
+    }
+
+    public MinimalQueryInserter(Linguistics linguistics) {
+        this(linguistics, null);
     }
 
     public MinimalQueryInserter() {
@@ -61,7 +86,7 @@ public class MinimalQueryInserter extends Searcher {
 
     private static boolean warmup(Linguistics linguistics) {
         Query query = new Query("search/?yql=select%20*%20from%20sources%20where%20title%20contains%20'xyz'");
-        Result result = insertQuery(query, new ParserEnvironment().setLinguistics(linguistics));
+        Result result = insertQuery(query, new ParserEnvironment().setLinguistics(linguistics), null);
         if (result != null) {
             log.warning("Warmup code trigger an error. Error = " + result);
             return false;
@@ -78,7 +103,7 @@ public class MinimalQueryInserter extends Searcher {
         if (query.properties().get(YQL) == null) return execution.search(query);
         Result errorResult;
         try {
-            errorResult = insertQuery(query, ParserEnvironment.fromExecutionContext(execution.context()));
+            errorResult = insertQuery(query, ParserEnvironment.fromExecutionContext(execution.context()), programCache);
         }
         catch (IllegalArgumentException e) {
             throw new IllegalInputException("Illegal YQL query", e);
@@ -86,10 +111,11 @@ public class MinimalQueryInserter extends Searcher {
         return (errorResult == null) ? execution.search(query) : errorResult;
     }
 
-    private static Result insertQuery(Query query, ParserEnvironment env) {
+    private static Result insertQuery(Query query, ParserEnvironment env, ProgramCache programCache) {
         YqlParser parser = (YqlParser) ParserFactory.newInstance(Query.Type.YQL, env);
         parser.setQueryParser(false);
         parser.setUserQuery(query);
+        parser.setProgramCache(programCache);
         QueryTree newTree;
         try {
             Parsable parsable = Parsable.fromQueryModel(query.getModel()).setQuery(query.properties().getString(YQL));
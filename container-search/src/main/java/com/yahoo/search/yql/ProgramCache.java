@@ -0,0 +1,69 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.yql;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.jdisc.Metric;
+import org.antlr.v4.runtime.RecognitionException;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of parsed YQL programs, keyed by the program text only, evicting the least recently used.
+ * The parsed programs refer to parameters and the user query without resolving them, and are never modified
+ * when converted to query trees, so a parsed program may be shared by all queries with the same YQL,
+ * and each query binds the values of its own parameters when its program is converted.
+ *
+ * This class is multithread safe.
+ *
+ * @author bratseth
+ */
+class ProgramCache {
+
+    private static final String hitsMetric = ContainerMetrics.YQL_PARSE_CACHE_HITS.baseName();
+    private static final String missesMetric = ContainerMetrics.YQL_PARSE_CACHE_MISSES.baseName();
+
+    /** Longer programs are not cached, as they are unlikely to be repeated */
+    private static final int maxCachedLength = 1 << 14;
+
+    private final Map<String, OperatorNode<StatementOperator>> entries;
+    private final Metric metric;
+
+    /**
+     * Creates a program cache.
+     *
+     * @param maxSize the max number of parsed programs to keep
+     * @param metric the metric to report hits and misses to, or null to not report them
+     */
+    ProgramCache(int maxSize, Metric metric) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OperatorNode<StatementOperator>> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.metric = metric;
+    }
+
+    /** Returns the parsed program of the given YQL, which is parsed now if it is not cached */
+    OperatorNode<StatementOperator> parse(String yql) throws IOException, RecognitionException {
+        if (yql.length() > maxCachedLength)
+            return new ProgramParser().parse("query", yql);
+
+        OperatorNode<StatementOperator> program;
+        synchronized (entries) {
+            program = entries.get(yql);
+        }
+        if (metric != null)
+            metric.add(program == null ? missesMetric : hitsMetric, 1, null);
+        if (program != null) return program;
+
+        program = new ProgramParser().parse("query", yql);
+        synchronized (entries) {
+            entries.put(yql, program);
+        }
+        return program;
+    }
+
+}
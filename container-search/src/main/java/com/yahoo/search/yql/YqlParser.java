@@ -224,6 +224,7 @@ public class YqlParser implements Parser {
     private Set<String> docTypes;
     private Sorting sorting;
     private boolean queryParser = true;
+    private ProgramCache programCache = null;
     private final Deque<OperatorNode<?>> annotationStack = new ArrayDeque<>();
     private final ParserEnvironment environment;
 
@@ -886,7 +887,8 @@ public class YqlParser implements Parser {
     private OperatorNode<?> parseYqlProgram() {
         OperatorNode<?> ast;
         try {
-            ast = new ProgramParser().parse("query", currentlyParsing.getQuery());
+            ast = programCache != null ? programCache.parse(currentlyParsing.getQuery())
+                                       : new ProgramParser().parse("query", currentlyParsing.getQuery());
         } catch (Exception e) {
             throw new IllegalInputException(e);
         }
@@ -1692,6 +1694,9 @@ public class YqlParser implements Parser {
     @Beta
     public void setUserQuery(Query userQuery) { this.userQuery = userQuery; }
 
+    /** Sets a cache of parsed programs to get programs from, rather than parsing each program, or null to parse each */
+    void setProgramCache(ProgramCache programCache) { this.programCache = programCache; }
+
     @Beta
     public Set<String> getYqlSummaryFields() { return yqlSummaryFields; }
 
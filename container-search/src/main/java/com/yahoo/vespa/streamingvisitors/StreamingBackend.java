@@ -37,8 +37,12 @@ import com.yahoo.vespa.streamingvisitors.tracing.TraceDescription;
 import com.yahoo.yolean.Exceptions;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -57,6 +61,7 @@ public class StreamingBackend extends VespaBackend {
     private static final CompoundName streamingUserid = CompoundName.from("streaming.userid");
     private static final CompoundName streamingGroupname = CompoundName.from("streaming.groupname");
     private static final CompoundName streamingSelection = CompoundName.from("streaming.selection");
+    private static final CompoundName streamingTwoPhase = CompoundName.from("streaming.twophase");
 
     static final String STREAMING_STATISTICS = "streaming.statistics";
     private final VisitorFactory visitorFactory;
@@ -159,9 +164,13 @@ public class StreamingBackend extends VespaBackend {
             partialSummaryHandler.wantToFill(query);
         }
         var visitorContext = new Visitor.Context(getSearchClusterName(), schema, effectiveTraceLevel, partialSummaryHandler);
-        Visitor visitor = visitorFactory.createVisitor(query, route, visitorContext);
+        boolean twoPhase = query.properties().getBoolean(streamingTwoPhase, false);
+        Visitor visitor = visitorFactory.createVisitor(query, route, twoPhase ? visitorContext.withoutSummaries() : visitorContext);
+        Visitor summaryVisitor = null;
         try {
             visitor.doSearch();
+            if (twoPhase)
+                summaryVisitor = fetchSummaries(query, visitor, visitorContext);
         } catch (ParseException e) {
             return new Result(query, ErrorMessage.createInvalidQueryParameter("Failed to parse document selection string: " +
                                                                               e.getMessage()));
@@ -179,7 +188,29 @@ public class StreamingBackend extends VespaBackend {
         } catch (InterruptedException e) {
             return new Result(query, ErrorMessage.createBackendCommunicationError(e.getMessage()));
         }
-        return buildResultFromCompletedVisitor(query, visitor, visitorContext);
+        return buildResultFromCompletedVisitor(query, visitor, summaryVisitor, visitorContext);
+    }
+
+    /**
+     * Visits the documents of the hits returned by the given visitor, i.e., those in [offset, offset + hits),
+     * to get their summaries, unless it already has them all, e.g. because some content nodes do not support visiting without summaries.
+     *
+     * @return the visitor which got the summaries, or null if none was needed
+     */
+    private Visitor fetchSummaries(Query query, Visitor visitor, Visitor.Context context)
+            throws InterruptedException, ParseException, TimeoutException {
+        List<String> missing = new ArrayList<>();
+        for (SearchResult.Hit hit : visitor.getHits())
+            if ( ! visitor.getSummaryMap().containsKey(hit.getDocId()))
+                missing.add(hit.getDocId());
+        if (missing.isEmpty()) return null;
+
+        if (query.getTimeLeft() <= 0)
+            throw new TimeoutException("No time left for fetching summaries in " + StreamingBackend.class.getName());
+        lazyTrace(query, 7, "Fetching summaries of ", missing.size(), " hits");
+        Visitor summaryVisitor = visitorFactory.createVisitor(query, route, context.withSummariesOf(missing));
+        summaryVisitor.doSearch();
+        return summaryVisitor;
     }
 
     private void initializeMissingQueryFields(Query query) {
@@ -209,7 +240,7 @@ public class StreamingBackend extends VespaBackend {
                 .getSorting().fieldOrders());
     }
 
-    private Result buildResultFromCompletedVisitor(Query query, Visitor visitor, Visitor.Context context) {
+    private Result buildResultFromCompletedVisitor(Query query, Visitor visitor, Visitor summaryVisitor, Visitor.Context context) {
         lazyTrace(query, 8, "offset=", query.getOffset(), ", hits=", query.getHits());
 
         String summaryClass = query.getPresentation().getSummary();
@@ -220,6 +251,10 @@ public class StreamingBackend extends VespaBackend {
         Result result = new Result(query);
         List<SearchResult.Hit> hits = visitor.getHits(); // Sorted on rank
         Map<String, DocumentSummary.Summary> summaryMap = visitor.getSummaryMap();
+        if (summaryVisitor != null) {
+            summaryMap = new HashMap<>(summaryMap);
+            summaryMap.putAll(summaryVisitor.getSummaryMap());
+        }
 
         lazyTrace(query, 7, "total hit count = ", visitor.getTotalHitCount(),
                   ", returned hit count = ", hits.size(), ", summary count = ",
@@ -234,16 +269,23 @@ public class StreamingBackend extends VespaBackend {
         DocsumPacket[] summaryPackets = new DocsumPacket [hits.size()];
 
         int index = 0;
+        int removedHits = 0;
         boolean skippedEarlierResult = false;
         for (SearchResult.Hit hit : hits) {
             if (!verifyDocId(hit.getDocId(), query, skippedEarlierResult)) {
                 skippedEarlierResult = true;
                 continue;
             }
+            DocumentSummary.Summary summary = summaryMap.get(hit.getDocId());
+            if (summary == null && summaryVisitor != null) {
+                // The document was removed, or no longer matches, after it was found in the first phase
+                lazyTrace(query, 7, "Dropping hit with document id ", hit.getDocId(), " which had no summary in the second phase");
+                removedHits++;
+                continue;
+            }
             FastHit fastHit = buildSummaryHit(query, hit);
             result.hits().add(fastHit);
 
-            DocumentSummary.Summary summary = summaryMap.get(hit.getDocId());
             if (summary != null) {
                 DocsumPacket dp = new DocsumPacket(summary.getSummary());
                 summaryPackets[index] = dp;
@@ -253,6 +295,9 @@ public class StreamingBackend extends VespaBackend {
             }
             index++;
         }
+        if (removedHits > 0)
+            result.hits().addError(ErrorMessage.createEmptyDocsums(removedHits + " hits were removed or changed before " +
+                                                                   "their summaries were fetched"));
         if (result.isFilled(summaryClass)) {
             lazyTrace(query, 8, "Result is filled for summary class ", summaryClass);
         } else {
@@ -286,7 +331,9 @@ public class StreamingBackend extends VespaBackend {
             result.hits().addError(ErrorMessage.createTimeout("Missing hit summary data for " + skippedHits + " hits"));
         }
 
-        var errors = visitor.getErrors();
+        Set<String> errors = new TreeSet<>(visitor.getErrors());
+        if (summaryVisitor != null)
+            errors.addAll(summaryVisitor.getErrors());
         for (var error : errors) {
             result.hits().addError(ErrorMessage.createSearchReplyError(error));
         }
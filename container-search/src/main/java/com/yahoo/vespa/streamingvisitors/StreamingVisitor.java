@@ -1,7 +1,11 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.streamingvisitors;
 
+import com.yahoo.document.BucketId;
+import com.yahoo.document.BucketIdFactory;
+import com.yahoo.document.DocumentId;
 import com.yahoo.document.fieldset.AllFields;
+import com.yahoo.document.idstring.IdString;
 import com.yahoo.document.select.parser.ParseException;
 import com.yahoo.documentapi.AckToken;
 import com.yahoo.documentapi.VisitorControlHandler;
@@ -31,6 +35,7 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -62,6 +67,9 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
     protected static final int MAX_BUCKETS_PER_VISITOR = 1024;
 
     private static final Logger log = Logger.getLogger(StreamingVisitor.class.getName());
+    private static final BucketIdFactory bucketIdFactory = new BucketIdFactory();
+    private static final int locationBits = 32;
+    private static final long locationMask = (1L << locationBits) - 1;
     private final VisitorParameters params = new VisitorParameters("");
     private List<SearchResult.Hit> hits = new ArrayList<>();
     private Set<String> errors = new TreeSet<>();
@@ -72,6 +80,7 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
     private Query query = null;
     private final VisitorSessionFactory visitorSessionFactory;
     private final int traceLevelOverride;
+    private final long timeoutMs;
     private Trace sessionTrace;
 
     public interface VisitorSessionFactory {
@@ -85,6 +94,8 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
         this.query = query;
         this.visitorSessionFactory = visitorSessionFactory;
         this.traceLevelOverride = context.traceLevelOverride();
+        // Visitors fetching summaries of already found hits run after those, within the same query timeout
+        this.timeoutMs = context.summaryDocumentIds().isEmpty() ? query.getTimeout() : Math.max(1, query.getTimeLeft());
         setVisitorParameters(route, context);
     }
 
@@ -103,6 +114,34 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
         return documentType + " and ( " + selection + " )";
     }
 
+    /** Returns a selection of exactly the given documents */
+    static String createDocumentIdSelectionString(List<String> documentIds) {
+        StringBuilder selection = new StringBuilder();
+        for (String id : documentIds) {
+            if ( ! selection.isEmpty()) selection.append(" or ");
+            selection.append("id == \"").append(id.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return selection.toString();
+    }
+
+    /**
+     * Returns the distinct buckets which are all that need to be visited to find the given documents: the location
+     * bucket of documents with a number or group, which holds all documents of that location, and otherwise the
+     * bucket of the document itself.
+     */
+    static Set<BucketId> bucketsOf(List<String> documentIds) {
+        Set<BucketId> buckets = new HashSet<>();
+        for (String id : documentIds) {
+            DocumentId documentId = new DocumentId(id);
+            IdString scheme = documentId.getScheme();
+            if (scheme.hasNumber() || scheme.hasGroup())
+                buckets.add(new BucketId(locationBits, scheme.getLocation() & locationMask));
+            else
+                buckets.add(bucketIdFactory.getBucketId(documentId));
+        }
+        return buckets;
+    }
+
     private String createQuerySelectionString() {
         String userId = query.properties().getString(streamingUserid);
         if (userId != null)
@@ -116,9 +155,15 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
     }
 
     private void setVisitorParameters(Route route, Visitor.Context context) {
-        params.setDocumentSelection(createSelectionString(context.schema(), createQuerySelectionString()));
-        params.setTimeoutMs(query.getTimeout()); // Per bucket visitor timeout
-        params.setSessionTimeoutMs(query.getTimeout());
+        String selection = createSelectionString(context.schema(), createQuerySelectionString());
+        if ( ! context.summaryDocumentIds().isEmpty()) {
+            selection = selection + " and ( " + createDocumentIdSelectionString(context.summaryDocumentIds()) + " )";
+            // Visit only the buckets of the given documents, also when the query selection is not limited to some
+            params.setBucketsToVisit(bucketsOf(context.summaryDocumentIds()));
+        }
+        params.setDocumentSelection(selection);
+        params.setTimeoutMs(timeoutMs); // Per bucket visitor timeout
+        params.setSessionTimeoutMs(timeoutMs);
         params.setVisitorLibrary("searchvisitor");
         params.setLocalDataHandler(this);
         if (query.properties().getDouble(streamingFromtimestamp) != null) {
@@ -172,7 +217,12 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
                 params.setLibraryParameter("summaryclass", wantedSummary);
             }
         }
-        params.setLibraryParameter("summarycount", String.valueOf(query.getOffset() + query.getHits()));
+        // Summaries are fetched separately only for the hits in [offset, offset + hits), which are those selected
+        int summaryCount = context.summaryDocumentIds().isEmpty() ? query.getOffset() + query.getHits()
+                                                                  : context.summaryDocumentIds().size();
+        params.setLibraryParameter("summarycount", String.valueOf(summaryCount));
+        if ( ! context.summaries())
+            params.setLibraryParameter("summaries", "false");
         params.setLibraryParameter("rankprofile", query.getRanking().getProfile());
         params.setLibraryParameter("allowslimedocsums", "true");
         params.setLibraryParameter("queryflags", String.valueOf(getQueryFlags(query)));
@@ -193,7 +243,8 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
             params.setLibraryParameter("rankproperties", ed.getEncodedData());
         }
 
-        List<Grouping> groupingList = GroupingExecutor.getGroupingList(query);
+        // Groupings are produced by the visitor finding the hits, when summaries are fetched separately
+        List<Grouping> groupingList = context.summaryDocumentIds().isEmpty() ? GroupingExecutor.getGroupingList(query) : List.of();
         if ( ! groupingList.isEmpty()){
             BufferSerializer gbuf = new BufferSerializer(new GrowableByteBuffer());
             gbuf.putInt(null, groupingList.size());
@@ -277,7 +328,7 @@ class StreamingVisitor extends VisitorDataHandler implements Visitor {
     public void doSearch() throws InterruptedException, ParseException, TimeoutException {
         VisitorSession session = visitorSessionFactory.createVisitorSession(params);
         try {
-            if ( ! session.waitUntilDone(query.getTimeout())) {
+            if ( ! session.waitUntilDone(timeoutMs)) {
                 log.log(Level.FINE, () -> "StreamingVisitor returned from waitUntilDone without being completed for " + query +
                                           " with selection " + params.getDocumentSelection());
                 session.abort();
@@ -21,10 +21,19 @@ import java.util.Set;
  */
 interface Visitor {
 
+    /**
+     * The context of a visitor.
+     *
+     * @param summaries whether the visitor should ask for summaries of the hits it finds
+     * @param summaryDocumentIds the ids of the documents to visit to get summaries of, after they are found as top hits
+     *                           by a visitor without summaries, or empty to visit all documents selected by the query
+     */
     record Context(String searchCluster,
                    String schema,
                    int traceLevelOverride,
-                   PartialSummaryHandler partialSummaryHandler)
+                   PartialSummaryHandler partialSummaryHandler,
+                   boolean summaries,
+                   List<String> summaryDocumentIds)
     {
         Context(String searchCluster, String schema) {
             this(searchCluster, schema, 0);
@@ -32,6 +41,20 @@ interface Visitor {
         Context(String searchCluster, String schema, int traceLevelOverride) {
             this(searchCluster, schema, traceLevelOverride, null);
         }
+        Context(String searchCluster, String schema, int traceLevelOverride, PartialSummaryHandler partialSummaryHandler) {
+            this(searchCluster, schema, traceLevelOverride, partialSummaryHandler, true, List.of());
+        }
+
+        /** Returns a copy of this for a visitor which finds hits without asking for their summaries */
+        Context withoutSummaries() {
+            return new Context(searchCluster, schema, traceLevelOverride, partialSummaryHandler, false, List.of());
+        }
+
+        /** Returns a copy of this for a visitor which only gets the summaries of the given documents */
+        Context withSummariesOf(List<String> documentIds) {
+            return new Context(searchCluster, schema, traceLevelOverride, partialSummaryHandler, true, List.copyOf(documentIds));
+        }
+
     }
 
     void doSearch() throws InterruptedException, ParseException, TimeoutException;
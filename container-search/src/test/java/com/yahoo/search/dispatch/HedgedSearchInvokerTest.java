@@ -0,0 +1,258 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.jdisc.test.MockMetric;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Hit;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author ollivir
+ */
+public class HedgedSearchInvokerTest {
+
+    @Test
+    void requireThatNoHedgeIsSentBeforeResponseTimesAreKnown() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(95, 1.0, "test", null);
+        GroupInvoker primary = new GroupInvoker("primary", true);
+        GroupInvoker alternative = new GroupInvoker("alternative", true);
+        Result result = hedged(primary, alternative, policy).search(query(1000));
+        assertEquals("primary", result.hits().get(0).getId().toString());
+        assertEquals(0, policy.hedgesSent());
+        assertFalse(alternative.sent);
+    }
+
+    @Test
+    void requireThatHedgeIsSentAndWinsWhenPrimaryIsSlow() throws Exception {
+        HedgingPolicy policy = warmedUp(new HedgingPolicy(95, 1.0, "test", null));
+        GroupInvoker primary = new GroupInvoker("primary", false);
+        GroupInvoker alternative = new GroupInvoker("alternative", true);
+        Query query = query(5000);
+        Result result = hedged(primary, alternative, policy).search(query);
+        assertEquals("alternative", result.hits().get(0).getId().toString());
+        assertEquals("/7", query.getModel().getSearchPath());
+        assertEquals(1, policy.hedgesSent());
+        assertEquals(1, policy.hedgesWon());
+        assertTrue(primary.closed);
+        assertTrue(primary.closedWithSuccess, "The elapsed time of the slow group is reported");
+        assertFalse(alternative.closed);
+    }
+
+    @Test
+    void requireThatHedgeWinsWithoutWaitingForABlockingPrimary() throws Exception {
+        HedgingPolicy policy = warmedUp(new HedgingPolicy(95, 1.0, "test", null));
+        GroupInvoker primary = new GroupInvoker("primary", false);
+        primary.blockOnResult = new CountDownLatch(1);
+        GroupInvoker alternative = new GroupInvoker("alternative", true);
+        long start = System.nanoTime();
+        Result result = hedged(primary, alternative, policy).search(query(60_000));
+        assertEquals("alternative", result.hits().get(0).getId().toString());
+        assertFalse(primary.resultRequested, "The primary is not waited for");
+        assertTrue(primary.closed);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+    }
+
+    @Test
+    void requireThatPrimaryProducesTheResultByItsOwnDeadlineWhenNeitherGroupResponds() throws Exception {
+        HedgingPolicy policy = warmedUp(new HedgingPolicy(95, 1.0, "test", null));
+        GroupInvoker primary = new GroupInvoker("primary", false);
+        primary.waitMillis = 100;
+        GroupInvoker alternative = new GroupInvoker("alternative", false);
+        long start = System.nanoTime();
+        Result result = hedged(primary, alternative, policy).search(query(60_000));
+        assertEquals("primary", result.hits().get(0).getId().toString());
+        assertEquals(1, policy.hedgesSent());
+        assertEquals(0, policy.hedgesWon());
+        assertTrue(alternative.closed);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30), "The query timeout is not waited for");
+    }
+
+    @Test
+    void requireThatHedgeIsSentToTheAlternativeGroup() throws Exception {
+        HedgingPolicy policy = warmedUp(new HedgingPolicy(95, 1.0, "test", null));
+        GroupInvoker primary = new GroupInvoker("primary", false);
+        GroupInvoker alternative = new GroupInvoker("alternative", false);
+        alternative.onSend = () -> {
+            assertEquals("/7", alternative.query.getModel().getSearchPath());
+            primary.respond();
+        };
+        Query query = query(5000);
+        query.getModel().setSearchPath("/3");
+        hedged(primary, alternative, policy).search(query);
+        assertEquals("/3", query.getModel().getSearchPath());
+    }
+
+    @Test
+    void requireThatHedgesAreReportedWithClusterDimension() throws Exception {
+        MockMetric metric = new MockMetric();
+        HedgingPolicy policy = warmedUp(new HedgingPolicy(95, 1.0, "mycluster", metric));
+        hedged(new GroupInvoker("primary", false), new GroupInvoker("alternative", true), policy).search(query(5000));
+        assertEquals(Map.of(Map.of("clustername", "mycluster"), 1.0),
+                     metric.metrics().get(ContainerMetrics.DISPATCH_HEDGES_SENT.baseName()));
+        assertEquals(Map.of(Map.of("clustername", "mycluster"), 1.0),
+                     metric.metrics().get(ContainerMetrics.DISPATCH_HEDGES_WON.baseName()));
+    }
+
+    @Test
+    void requireThatPrimaryIsUsedWhenItRespondsBeforeTheHedge() throws Exception {
+        HedgingPolicy policy = warmedUp(new HedgingPolicy(95, 1.0, "test", null));
+        GroupInvoker primary = new GroupInvoker("primary", false);
+        GroupInvoker alternative = new GroupInvoker("alternative", false);
+        alternative.onSend = primary::respond;
+        Result result = hedged(primary, alternative, policy).search(query(5000));
+        assertEquals("primary", result.hits().get(0).getId().toString());
+        assertEquals(1, policy.hedgesSent());
+        assertEquals(0, policy.hedgesWon());
+        assertTrue(alternative.closed);
+        assertTrue(alternative.closedWithSuccess, "The elapsed time of the slow group is reported");
+    }
+
+    @Test
+    void requireThatHedgesAreLimitedByBudget() throws Exception {
+        HedgingPolicy policy = warmedUp(new HedgingPolicy(95, 0.0, "test", null));
+        GroupInvoker primary = new GroupInvoker("primary", false);
+        GroupInvoker alternative = new GroupInvoker("alternative", true);
+        Result result = hedged(primary, alternative, policy).search(query(50));
+        assertEquals("primary", result.hits().get(0).getId().toString());
+        assertEquals(0, policy.hedgesSent());
+        assertFalse(alternative.sent);
+    }
+
+    @Test
+    void requireThatBudgetIsKeptWhenThereIsNoAlternativeGroup() throws Exception {
+        MockMetric metric = new MockMetric();
+        HedgingPolicy policy = warmedUp(new HedgingPolicy(95, 0.1, "test", metric));
+        for (int i = 0; i < 10; i++)
+            policy.queryDispatched();
+        GroupInvoker primary = new GroupInvoker("primary", false);
+        Result result = new HedgedSearchInvoker(primary, 3, Optional::empty, policy).search(query(5000));
+        assertEquals("primary", result.hits().get(0).getId().toString());
+        assertEquals(0, policy.hedgesSent());
+        assertFalse(metric.metrics().containsKey(ContainerMetrics.DISPATCH_HEDGES_SENT.baseName()));
+        assertTrue(policy.tryHedge(), "The credit was returned");
+    }
+
+    @Test
+    void requireThatOnlyResponsesAreRecordedAsResponseTimes() throws Exception {
+        HedgingPolicy policy = warmedUp(new HedgingPolicy(95, 0.0, "test", null));
+        long recorded = policy.responseTimesRecorded();
+        GroupInvoker primary = new GroupInvoker("primary", false);
+        Result result = hedged(primary, new GroupInvoker("alternative", true), policy).search(query(5000));
+        assertEquals("primary", result.hits().get(0).getId().toString(), "The primary produces the result within its own timeout");
+        assertEquals(recorded, policy.responseTimesRecorded());
+
+        hedged(new GroupInvoker("primary", true), new GroupInvoker("alternative", true), policy).search(query(5000));
+        assertEquals(recorded + 1, policy.responseTimesRecorded());
+    }
+
+    @Test
+    void requireThatDelayIsPercentileOfRecentResponseTimes() {
+        HedgingPolicy policy = new HedgingPolicy(90, 0.1, "test", null);
+        for (int i = 1; i <= 100; i++)
+            policy.recordResponseTime(TimeUnit.MILLISECONDS.toNanos(i));
+        assertEquals(Long.MAX_VALUE, policy.delayNanos());
+        for (int i = 101; i <= 1024; i++)
+            policy.recordResponseTime(TimeUnit.MILLISECONDS.toNanos(i));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(922), policy.delayNanos());
+
+        for (int i = 0; i < 10; i++)
+            policy.queryDispatched();
+        assertTrue(policy.tryHedge());
+        assertFalse(policy.tryHedge());
+    }
+
+    private static HedgingPolicy warmedUp(HedgingPolicy policy) {
+        for (int i = 0; i < 1024; i++)
+            policy.recordResponseTime(TimeUnit.MILLISECONDS.toNanos(1));
+        return policy;
+    }
+
+    private static HedgedSearchInvoker hedged(GroupInvoker primary, GroupInvoker alternative, HedgingPolicy policy) {
+        return new HedgedSearchInvoker(primary,
+                                       3,
+                                       () -> Optional.of(new HedgedSearchInvoker.Alternative(alternative, 7)),
+                                       policy);
+    }
+
+    private static Query query(long timeoutMillis) {
+        Query query = new Query("?query=test");
+        query.setTimeout(timeoutMillis);
+        return query;
+    }
+
+    /**
+     * An invoker which responds when the query is sent, or when told to, optionally blocks when asked for its result,
+     * and optionally stops waiting for its nodes after a given time
+     */
+    private static class GroupInvoker extends SearchInvoker {
+
+        private final String id;
+        private final boolean respondOnSend;
+        private Query query;
+        Runnable onSend = () -> { };
+        boolean sent = false;
+        boolean closed = false;
+        boolean closedWithSuccess = false;
+        boolean resultRequested = false;
+        CountDownLatch blockOnResult = new CountDownLatch(0);
+        long waitMillis = Long.MAX_VALUE;
+        private long sendMillis;
+
+        GroupInvoker(String id, boolean respondOnSend) {
+            super(Optional.empty());
+            this.id = id;
+            this.respondOnSend = respondOnSend;
+            teardown((success, duration) -> closedWithSuccess = success);
+        }
+
+        @Override
+        protected Object sendSearchRequest(Query query, Object context) {
+            this.query = query;
+            sendMillis = System.currentTimeMillis();
+            sent = true;
+            if (respondOnSend)
+                respond();
+            onSend.run();
+            return context;
+        }
+
+        void respond() { responseAvailable(); }
+
+        @Override
+        protected long remainingWaitMillis() {
+            return waitMillis == Long.MAX_VALUE ? waitMillis : waitMillis - (System.currentTimeMillis() - sendMillis);
+        }
+
+        @Override
+        protected InvokerResult getSearchResult() {
+            resultRequested = true;
+            try {
+                blockOnResult.await(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            InvokerResult result = new InvokerResult(query, 10);
+            result.getResult().hits().add(new Hit(id));
+            return result;
+        }
+
+        @Override
+        protected void release() {
+            closed = true;
+            blockOnResult.countDown();
+        }
+
+    }
+
+}
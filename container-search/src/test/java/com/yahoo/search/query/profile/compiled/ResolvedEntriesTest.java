@@ -0,0 +1,77 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.query.profile.compiled;
+
+import com.yahoo.processing.request.CompoundName;
+import com.yahoo.search.query.profile.DimensionBinding;
+import com.yahoo.search.query.profile.QueryProfile;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * @author bratseth
+ */
+public class ResolvedEntriesTest {
+
+    @Test
+    void values_are_resolved_correctly_in_more_contexts_than_are_kept() {
+        QueryProfile profile = new QueryProfile("test");
+        profile.setDimensions(new String[] { "x", "y" });
+        profile.set("a", "a.default", null);
+        profile.set("b", "b.default", null);
+        for (int i = 0; i < 200; i++) {
+            profile.set("a", "a." + i, new String[] { "x" + i }, null);
+            profile.set("a", "a." + i + ".1", new String[] { "x" + i, "y1" }, null);
+        }
+        CompiledQueryProfile compiled = profile.compile(null);
+
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 200; i++) {
+                assertEquals("a." + i, compiled.get("a", Map.of("x", "x" + i)));
+                assertEquals("a." + i, compiled.get("a", Map.of("x", "x" + i, "y", "y2")));
+                assertEquals("a." + i + ".1", compiled.get("a", Map.of("x", "x" + i, "y", "y1")));
+                assertEquals("b.default", compiled.get("b", Map.of("x", "x" + i, "y", "y1")));
+                assertEquals(Map.of("a", "a." + i + ".1", "b", "b.default"),
+                             compiled.listValues("", Map.of("x", "x" + i, "y", "y1")));
+            }
+        }
+        assertEquals("a.default", compiled.get("a", Map.of("y", "y1")));
+        assertEquals("a.default", compiled.get("a", Map.of()));
+        assertEquals("a.default", compiled.get("a", null));
+        assertNull(compiled.get("c", Map.of("x", "x1")));
+
+        Map<String, String> withNull = new HashMap<>();
+        withNull.put("x", null);
+        assertEquals("a.default", compiled.get("a", withNull));
+    }
+
+    @Test
+    void the_most_recently_used_bindings_are_kept_in_each_set() {
+        // So many keys that only a single set of 4 bindings is kept
+        DimensionalMap.Builder<ValueWithSource> builder = new DimensionalMap.Builder<>();
+        Binding binding = Binding.createFrom(DimensionBinding.createFrom(Map.of("x", "x1")));
+        for (int i = 0; i < 1 << 13; i++)
+            builder.put(CompoundName.from("key" + i), binding, new ValueWithSource("value" + i, "test", false, false, null, null));
+        ResolvedEntries entries = new ResolvedEntries(builder.build());
+
+        List<Map<String, String>> contexts = IntStream.range(0, 5).mapToObj(i -> Map.of("x", "x" + i)).toList();
+        List<ResolvedEntries.Bound> bound = contexts.subList(0, 4).stream().map(entries::bound).toList();
+        for (int round = 0; round < 3; round++)
+            for (int i = 0; i < 4; i++)
+                assertSame(bound.get(i), entries.bound(contexts.get(i)));
+        assertEquals("value1", entries.get(CompoundName.from("key1"), contexts.get(1)).value());
+
+        entries.bound(contexts.get(4)); // Evicts the least recently used
+        assertSame(bound.get(3), entries.bound(contexts.get(3)));
+        assertNotSame(bound.get(0), entries.bound(contexts.get(0)));
+    }
+
+}
@@ -0,0 +1,70 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.query.profile.test;
+
+import com.yahoo.search.query.profile.QueryProfile;
+import com.yahoo.search.query.profile.compiled.CompiledQueryProfile;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Microbenchmark of looking up values of a compiled query profile with variants, in requests which
+ * cycle through a given number of distinct contexts.
+ *
+ * @author bratseth
+ */
+public class QueryProfileVariantGetMicroBenchmark {
+
+    private final String description;
+    private final int contextCount;
+
+    public QueryProfileVariantGetMicroBenchmark(String description, int contextCount) {
+        this.description = description;
+        this.contextCount = contextCount;
+    }
+
+    public void benchmark(int count) {
+        CompiledQueryProfile profile = createProfile();
+        List<Map<String, String>> contexts = IntStream.range(0, contextCount)
+                                                      .mapToObj(i -> Map.of("x", "x" + i, "y", "y" + (i % 3)))
+                                                      .toList();
+        getValues(100000, profile, contexts); // warm-up
+        System.out.println(description);
+        long startTime = System.currentTimeMillis();
+        getValues(count, profile, contexts);
+        long totalTime = System.currentTimeMillis() - startTime;
+        System.out.println("Done in " + totalTime + " ms (" + ((float)totalTime * 1000 / (count * 2) + " microsecond per get)")); // *2 because we do 2 gets
+    }
+
+    private CompiledQueryProfile createProfile() {
+        QueryProfile main = new QueryProfile("main");
+        main.setDimensions(new String[] { "x", "y" });
+        main.set("a", "default", null);
+        for (int i = 0; i < contextCount; i++) {
+            main.set("a", "value" + i, new String[] { "x" + i }, null);
+            main.set("b", "value" + i, new String[] { "x" + i, "y" + (i % 3) }, null);
+        }
+        main.freeze();
+        return main.compile(null);
+    }
+
+    private void getValues(int count, CompiledQueryProfile profile, List<Map<String, String>> contexts) {
+        for (int i = 0; i < count; i++) {
+            Map<String, String> context = contexts.get(i % contexts.size());
+            if (null == profile.get("a", context))
+                throw new RuntimeException("Expected value");
+            if (null != profile.get("nonExisting", context))
+                throw new RuntimeException("Expected no value");
+        }
+    }
+
+    public static void main(String[] args) {
+        int count = 10000000;
+        for (int contexts : new int[] { 1, 4, 16, 48, 64, 256 }) {
+            new QueryProfileVariantGetMicroBenchmark("Getting values in " + contexts + " contexts", contexts).benchmark(count);
+            System.out.println();
+        }
+    }
+
+}
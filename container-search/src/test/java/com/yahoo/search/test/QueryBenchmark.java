@@ -1,7 +1,14 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.test;
 
+import com.yahoo.component.chain.Chain;
+import com.yahoo.language.simple.SimpleLinguistics;
 import com.yahoo.search.Query;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.search.yql.MinimalQueryInserter;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Tests the speed of accessing the query
@@ -10,6 +17,11 @@ import com.yahoo.search.Query;
  */
 public class QueryBenchmark {
 
+    private static final String yql = URLEncoder.encode("select * from sources * where title contains @title and " +
+                                                        "(body contains \"foo\" or body contains phrase(\"bar\", \"baz\")) and " +
+                                                        "year > @year order by year desc limit 10",
+                                                        StandardCharsets.UTF_8);
+
     public void run() {
         int result=0;
 
@@ -27,6 +39,34 @@ public class QueryBenchmark {
         out("Creating and accessing a query 100.000 times took " + (endTime-startTime) + " ms");
     }
 
+    /** Compares inserting a query from YQL with and without the cache of parsed YQL programs */
+    public void runYql() {
+        for (int cacheSize : new int[] { 0, MinimalQueryInserter.defaultParseCacheSize }) {
+            Execution execution = new Execution(new Chain<>(new MinimalQueryInserter(new SimpleLinguistics(), null, cacheSize)),
+                                                Execution.Context.createContextStub());
+            int result=0;
+
+            out("Warming up...");
+            for (int i=0; i<10*1000; i++)
+                result+=createQueryFromYql(i, execution);
+
+            long startTime=System.currentTimeMillis();
+            out("Running...");
+            for (int i=0; i<100*1000; i++)
+                result+=createQueryFromYql(i, execution);
+            out("Ignore this: " + result);
+            long endTime=System.currentTimeMillis();
+            out("Creating a query from YQL 100.000 times with parse cache size " + cacheSize + " took " + (endTime-startTime) + " ms");
+        }
+    }
+
+    private int createQueryFromYql(int i, Execution execution) {
+        // A distinct value of each parameter in every query
+        Query query=new Query("?yql=" + yql + "&title=value" + i + "&year=" + i);
+        execution.search(query);
+        return query.getModel().getQueryTree().getRoot().getTermCount();
+    }
+
     private final int createAndAccessQuery(int i) {
         // 8 sets, 8 gets
 
@@ -54,6 +94,7 @@ public class QueryBenchmark {
 
     public static void main(String[] args) {
         new QueryBenchmark().run();
+        new QueryBenchmark().runYql();
     }
 
 }
@@ -3,7 +3,9 @@ package com.yahoo.search.yql;
 
 import com.google.common.base.Charsets;
 import com.yahoo.component.chain.Chain;
+import com.yahoo.jdisc.test.MockMetric;
 import com.yahoo.language.Language;
+import com.yahoo.language.simple.SimpleLinguistics;
 import com.yahoo.processing.IllegalInputException;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
@@ -26,6 +28,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -409,6 +412,50 @@ public class MinimalQueryInserterTestCase {
         }
     }
 
+    @Test
+    void testParseCache() {
+        MockMetric metric = new MockMetric();
+        Execution execution = new Execution(new Chain<>(new MinimalQueryInserter(new SimpleLinguistics(), metric)),
+                                            Execution.Context.createContextStub());
+        String yql = "select * from sources * where title contains @word and year > @year order by year limit 7 " +
+                     "| all(group(a) each(output(count())))";
+
+        Query first = new Query("?yql=" + encode(yql) + "&word=foo&year=2000");
+        execution.search(first);
+        Query second = new Query("?yql=" + encode(yql) + "&word=foo&year=2000");
+        execution.search(second);
+        assertEquals(1, metric.metrics().get("yql.parse_cache_misses").get(Map.of()));
+        assertEquals(1, metric.metrics().get("yql.parse_cache_hits").get(Map.of()));
+        assertEquals("AND title:foo year:>2000", second.getModel().getQueryTree().toString());
+        assertEquals(first.getModel().getQueryTree(), second.getModel().getQueryTree());
+        assertEquals(7, second.getHits());
+        assertEquals("[ASCENDING:year]", second.getRanking().getSorting().fieldOrders().toString());
+        assertGrouping("[[]all(group(a) each(output(count())))]", second);
+
+        // Parameter values are bound for each query, so other values use the same parsed program.
+        Query third = new Query("?yql=" + encode(yql) + "&word=bar&year=2010");
+        execution.search(third);
+        assertEquals("AND title:bar year:>2010", third.getModel().getQueryTree().toString());
+        assertEquals(1, metric.metrics().get("yql.parse_cache_misses").get(Map.of()));
+        assertEquals(2, metric.metrics().get("yql.parse_cache_hits").get(Map.of()));
+
+        // So is the user query.
+        Query fourth = new Query("?yql=" + encode("select * from sources * where userQuery()") + "&query=foo");
+        execution.search(fourth);
+        Query fifth = new Query("?yql=" + encode("select * from sources * where userQuery()") + "&query=bar");
+        execution.search(fifth);
+        assertEquals("WEAKAND(100) foo", fourth.getModel().getQueryTree().toString());
+        assertEquals("WEAKAND(100) bar", fifth.getModel().getQueryTree().toString());
+        assertEquals(2, metric.metrics().get("yql.parse_cache_misses").get(Map.of()));
+        assertEquals(3, metric.metrics().get("yql.parse_cache_hits").get(Map.of()));
+
+        // Programs which fail to parse are not cached.
+        Query invalid = new Query("?yql=" + encode("select * from sources * where"));
+        assertNotNull(execution.search(invalid).hits().getError());
+        assertNotNull(execution.search(invalid.clone()).hits().getError());
+        assertEquals(4, metric.metrics().get("yql.parse_cache_misses").get(Map.of()));
+    }
+
     @Test
     void verifyThatWarmupIsSane() {
         assertTrue(MinimalQueryInserter.warmup());
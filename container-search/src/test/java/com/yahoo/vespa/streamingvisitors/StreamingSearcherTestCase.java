@@ -58,13 +58,19 @@ public class StreamingSearcherTestCase {
         private final Map<String, DocumentSummary.Summary> summaryMap = new HashMap<>();
         private final List<Grouping> groupings = new ArrayList<>();
         int traceLevelOverride;
+        final Visitor.Context context;
 
         MockVisitor(Query query, String searchCluster, Route route, String documentType, int traceLevelOverride) {
+            this(query, route, new Visitor.Context(searchCluster, documentType, traceLevelOverride));
+        }
+
+        MockVisitor(Query query, Route route, Visitor.Context context) {
             this.query = query;
-            this.searchCluster = searchCluster;
+            this.searchCluster = context.searchCluster();
             this.route = route;
-            this.documentType = documentType;
-            this.traceLevelOverride = traceLevelOverride;
+            this.documentType = context.schema();
+            this.traceLevelOverride = context.traceLevelOverride();
+            this.context = context;
         }
 
         @Override
@@ -107,6 +113,7 @@ public class StreamingSearcherTestCase {
             totalHitCount += hitCount;
             for (int i=0; i<hitCount; ++i) {
                 String docId = idPrefix + i;
+                if ( ! context.summaryDocumentIds().isEmpty() && ! context.summaryDocumentIds().contains(docId)) continue;
                 byte[] summary;
                 if (emptyDocsum) {
                     summary = new byte[] {};
@@ -114,7 +121,8 @@ public class StreamingSearcherTestCase {
                     summary = new byte[] { 0x55, 0x55, 0x55, 0x55 }; // Fake docsum data
                 }
                 hits.add(new SearchResult.Hit(docId, 1.0));
-                summaryMap.put(docId, new DocumentSummary.Summary(docId, summary));
+                if (context.summaries())
+                    summaryMap.put(docId, new DocumentSummary.Summary(docId, summary));
             }
         }
 
@@ -155,10 +163,12 @@ public class StreamingSearcherTestCase {
     private static class MockVisitorFactory implements VisitorFactory {
 
         public MockVisitor lastCreatedVisitor;
+        public final List<MockVisitor> createdVisitors = new ArrayList<>();
 
         @Override
         public Visitor createVisitor(Query query, Route route, Visitor.Context context) {
-            lastCreatedVisitor = new MockVisitor(query, context.searchCluster(), route, context.schema(), context.traceLevelOverride());
+            lastCreatedVisitor = new MockVisitor(query, route, context);
+            createdVisitors.add(lastCreatedVisitor);
             return lastCreatedVisitor;
         }
     }
@@ -231,17 +241,20 @@ public class StreamingSearcherTestCase {
         assertEquals(7.0, ((Inspectable) mf).inspect().field("my_feature").asDouble());
     }
 
-    @Test
-    void testBasics() {
-        MockVisitorFactory factory = new MockVisitorFactory();
+    private static ClusterParams clusterParamsWithSchema() {
         var schema = new Schema.Builder("test")
                 .add(new com.yahoo.search.schema.DocumentSummary.Builder("default").build())
                 .add(new com.yahoo.search.schema.DocumentSummary.Builder("summary").build())
                 .build();
-        ClusterParams clusterParams = new ClusterParams("clusterName", "server.0", "default",
+        return new ClusterParams("clusterName", "server.0", "default",
                 new DocumentdbInfoConfig.Builder().documentdb(new DocumentdbInfoConfig.Documentdb.Builder().name("test")).build(),
                 new SchemaInfo(List.of(schema), List.of()));
-        StreamingBackend searcher = new StreamingBackend(clusterParams, "search-cluster-A", factory, "content-cluster-A");
+    }
+
+    @Test
+    void testBasics() {
+        MockVisitorFactory factory = new MockVisitorFactory();
+        StreamingBackend searcher = new StreamingBackend(clusterParamsWithSchema(), "search-cluster-A", factory, "content-cluster-A");
 
         // Magic query values are used to trigger specific behaviors from mock visitor.
         checkError(searcher, "/?query=noselection",
@@ -269,6 +282,36 @@ public class StreamingSearcherTestCase {
         checkMatchFeatures(searcher);
     }
 
+    @Test
+    void testTwoPhase() {
+        MockVisitorFactory factory = new MockVisitorFactory();
+        StreamingBackend searcher = new StreamingBackend(clusterParamsWithSchema(), "search-cluster-A", factory, "content-cluster-A");
+
+        checkSearch(searcher, "/?streaming.userid=1&query=twouserhits&streaming.twophase", 2, USERDOC_ID_PREFIX);
+        assertEquals(8, factory.createdVisitors.size()); // Two for each query
+        for (int i = 0; i < factory.createdVisitors.size(); i += 2) {
+            assertFalse(factory.createdVisitors.get(i).context.summaries());
+            assertTrue(factory.createdVisitors.get(i).context.summaryDocumentIds().isEmpty());
+            assertTrue(factory.createdVisitors.get(i + 1).context.summaries());
+            assertEquals(List.of(USERDOC_ID_PREFIX + 0, USERDOC_ID_PREFIX + 1), factory.createdVisitors.get(i + 1).context.summaryDocumentIds());
+        }
+
+        // No hits, no summaries to fetch
+        factory.createdVisitors.clear();
+        checkGrouping(searcher, "/?streaming.selection=true&query=onegroupinghit&streaming.twophase", 1);
+        assertEquals(4, factory.createdVisitors.size());
+
+        // Hits which are removed between the phases are dropped, with a soft error
+        for (Query query : generateTestQueries("/?streaming.userid=1&query=nosummary&streaming.twophase")) {
+            Result result = executeQuery(searcher, query);
+            assertEquals(0, result.getConcreteHitCount());
+            assertEquals(1, result.getTotalHitCount());
+            assertEquals("Empty document summaries", result.hits().getError().getMessage());
+            assertEquals("1 hits were removed or changed before their summaries were fetched",
+                         result.hits().getError().getDetailedMessage());
+        }
+    }
+
     @Test
     void testVerifyDocId() {
         Query generalQuery = new Query("/?streaming.selection=true&query=test");
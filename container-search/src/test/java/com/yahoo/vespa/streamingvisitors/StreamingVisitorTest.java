@@ -1,6 +1,9 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.streamingvisitors;
 
+import com.yahoo.document.BucketId;
+import com.yahoo.document.BucketIdFactory;
+import com.yahoo.document.DocumentId;
 import com.yahoo.document.fieldset.AllFields;
 import com.yahoo.document.select.parser.ParseException;
 import com.yahoo.documentapi.*;
@@ -24,6 +27,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -294,6 +298,42 @@ public class StreamingVisitorTest {
         verifyVisitorOk(factory, qa, route, searchCluster);
     }
 
+    @Test
+    void testTwoPhaseParameters() throws Exception {
+        Route route = Route.parse("storageClusterRouteSpec");
+        MockVisitorSessionFactory factory = new MockVisitorSessionFactory();
+        QueryArguments qa = new QueryArguments();
+        qa.userId = "1234";
+        qa.offset = 5;
+        qa.hits = 2;
+        var context = new Visitor.Context("searchClusterConfigId", "mytype", 0);
+
+        new StreamingVisitor(buildQuery(qa), route, factory, context.withoutSummaries()).doSearch();
+        assertEquals("mytype and ( id.user==1234 )", factory.getParams().getDocumentSelection());
+        assertEquals("false", new String(factory.getParams().getLibraryParameters().get("summaries")));
+        assertEquals("7", new String(factory.getParams().getLibraryParameters().get("summarycount")));
+
+        new StreamingVisitor(buildQuery(qa), route, factory, context.withSummariesOf(List.of("id:ns:mytype:n=1234:a", "id:ns:mytype:n=1234:\"b\""))).doSearch();
+        assertEquals("mytype and ( id.user==1234 ) and ( id == \"id:ns:mytype:n=1234:a\" or id == \"id:ns:mytype:n=1234:\\\"b\\\"\" )",
+                     factory.getParams().getDocumentSelection());
+        assertNull(factory.getParams().getLibraryParameters().get("summaries"));
+        assertEquals("2", new String(factory.getParams().getLibraryParameters().get("summarycount")));
+        // Documents of the same user are in one location bucket, which is visited once
+        assertEquals(Set.of(new BucketId(32, 1234)), factory.getParams().getBucketsToVisit());
+        new StreamingVisitor(buildQuery(qa), route, factory, context.withSummariesOf(List.of("id:ns:mytype:g=mygroup:a", "id:ns:mytype:g=mygroup:b"))).doSearch();
+        assertEquals(1, factory.getParams().getBucketsToVisit().size());
+
+        // Only the buckets of the given documents are visited, also when the query selection is not limited to some
+        qa.userId = null;
+        qa.selection = "mytype.field == 1";
+        new StreamingVisitor(buildQuery(qa), route, factory, context.withoutSummaries()).doSearch();
+        assertNull(factory.getParams().getBucketsToVisit());
+        new StreamingVisitor(buildQuery(qa), route, factory, context.withSummariesOf(List.of("id:ns:mytype::a", "id:ns:mytype::b"))).doSearch();
+        BucketIdFactory buckets = new BucketIdFactory();
+        assertEquals(Set.of(buckets.getBucketId(new DocumentId("id:ns:mytype::a")), buckets.getBucketId(new DocumentId("id:ns:mytype::b"))),
+                     factory.getParams().getBucketsToVisit());
+    }
+
     @Test
     void testFailures() throws Exception {
         Route route = Route.parse("storageClusterRouteSpec");
@@ -15,6 +15,7 @@ import com.yahoo.document.FieldPath;
 import com.yahoo.document.datatypes.FieldPathIteratorHandler;
 import com.yahoo.document.datatypes.FieldPathIteratorHandler.ModificationStatus;
 import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.document.datatypes.SerializedFieldValues;
 import com.yahoo.document.serialization.DocumentReader;
 import com.yahoo.document.serialization.DocumentWriter;
 import com.yahoo.document.serialization.FieldReader;
@@ -292,6 +293,16 @@ public class ProxyDocument extends Document implements DocumentOperationWrapper
         return doc.getFieldCount();
     }
 
+    @Override
+    public void setSerializedFieldValues(SerializedFieldValues serialized) {
+        doc.setSerializedFieldValues(serialized);
+    }
+
+    @Override
+    public SerializedFieldValues getSerializedFieldValues() {
+        return doc.getSerializedFieldValues();
+    }
+
     @Override
     public void serialize(DocumentWriter writer) {
         doc.serialize(writer);
@@ -17,15 +17,21 @@ import com.yahoo.document.fieldpathupdate.FieldPathUpdate;
 import com.yahoo.document.update.FieldUpdate;
 import com.yahoo.document.update.MapValueUpdate;
 import com.yahoo.document.update.ValueUpdate;
+import com.yahoo.vespa.indexinglanguage.DocumentFieldValues;
 import com.yahoo.vespa.indexinglanguage.FieldValuesFactory;
+import com.yahoo.vespa.indexinglanguage.expressions.ExecutionContext;
 import com.yahoo.vespa.indexinglanguage.expressions.Expression;
 import com.yahoo.vespa.indexinglanguage.expressions.ScriptExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.StatementExpression;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 
 /**
  * @author Simon Thoresen Hult
@@ -46,12 +52,23 @@ public class DocumentScript {
     public ScriptExpression getExpression() { return expression; }
 
     public Document execute(FieldValuesFactory fieldValuesFactory, Document document) {
+        return execute(fieldValuesFactory, document, null, null);
+    }
+
+    /**
+     * Executes this on the given document, executing statements which do not depend on each other concurrently
+     * in the given executor, if not null, and passing the time spent on each statement to the given timer, if not null.
+     */
+    public Document execute(FieldValuesFactory fieldValuesFactory, Document document,
+                            Executor executor, BiConsumer<StatementExpression, Duration> statementTimer) {
         for (var i = document.iterator(); i.hasNext(); ) {
             Map.Entry<Field, FieldValue> entry = i.next();
             requireThatFieldIsDeclaredInDocument(entry.getKey());
             removeAnyLinguisticsSpanTree(entry.getValue());
         }
-        return expression.execute(fieldValuesFactory, document);
+        DocumentFieldValues fieldValues = fieldValuesFactory.asFieldValues(document);
+        expression.execute(new ExecutionContext(fieldValues), executor, statementTimer);
+        return fieldValues.getFullOutput();
     }
 
     public DocumentUpdate execute(FieldValuesFactory fieldValuesFactory, DocumentUpdate update) {
@@ -1,13 +1,13 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.docprocs.indexing;
 
-import java.util.ArrayList;
-import java.util.List;
+import ai.vespa.metrics.ContainerMetrics;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.component.chain.dependencies.After;
 import com.yahoo.component.chain.dependencies.Before;
 import com.yahoo.component.chain.dependencies.Provides;
 import com.yahoo.component.provider.ComponentRegistry;
+import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.docproc.DocumentProcessor;
 import com.yahoo.docproc.Processing;
 import com.yahoo.document.Document;
@@ -20,6 +20,7 @@ import com.yahoo.document.DocumentUpdate;
 import com.yahoo.document.serialization.DocumentSerializer;
 import com.yahoo.document.serialization.DocumentSerializerFactory;
 import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.process.Chunker;
 import com.yahoo.language.process.Embedder;
@@ -29,8 +30,18 @@ import com.yahoo.language.provider.DefaultGeneratorProvider;
 import com.yahoo.vespa.configdefinition.IlscriptsConfig;
 import com.yahoo.vespa.indexinglanguage.FieldValuesFactory;
 import com.yahoo.vespa.indexinglanguage.expressions.Expression;
+import com.yahoo.vespa.indexinglanguage.expressions.OutputExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.StatementExpression;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -45,9 +56,22 @@ public class IndexingProcessor extends DocumentProcessor {
     public final static String INDEXING_START = "indexingStart";
     public final static String INDEXING_END = "indexingEnd";
 
+    private static final String STATEMENT_TIME_METRIC_NAME = ContainerMetrics.DOCPROC_INDEXING_STATEMENT_TIME.baseName();
+
+    /** Discards metrics, for when none are injected */
+    private static final Metric nullMetric = new Metric() {
+        @Override public void set(String key, Number val, Context ctx) { }
+        @Override public void add(String key, Number val, Context ctx) { }
+        @Override public Context createContext(Map<String, ?> properties) { return null; }
+    };
+
     private final DocumentTypeManager documentTypeManager;
     private final ScriptManager scriptManager;
     private final FieldValuesFactory fieldValuesFactory;
+    /** Executor of independent statements of a document, or null to execute all statements in order */
+    private final ExecutorService statementExecutor;
+    private final Metric metric;
+    private final Map<StatementExpression, Metric.Context> statementMetricContexts = Collections.synchronizedMap(new IdentityHashMap<>());
 
     private class ExpressionSelector extends FieldValuesFactory.SelectExpression {
         @Override
@@ -65,7 +89,8 @@ public class IndexingProcessor extends DocumentProcessor {
                              Linguistics linguistics,
                              ComponentRegistry<Chunker> chunkers,
                              ComponentRegistry<Embedder> embedders,
-                             ComponentRegistry<FieldGenerator> generators) {
+                             ComponentRegistry<FieldGenerator> generators,
+                             Metric metric) {
         this(documentTypeManager,
              new ScriptManager(documentTypeManager,
                                ilscriptsConfig,
@@ -73,14 +98,40 @@ public class IndexingProcessor extends DocumentProcessor {
                                toMap(chunkers, null), // No failing default since we add pure Java default components
                                toMap(embedders, DefaultEmbedderProvider.class),
                                toMap(generators, DefaultGeneratorProvider.class)
-                )
+                ),
+             ilscriptsConfig.statementthreads(),
+             metric
         );
     }
 
+    public IndexingProcessor(DocumentTypeManager documentTypeManager,
+                             IlscriptsConfig ilscriptsConfig,
+                             Linguistics linguistics,
+                             ComponentRegistry<Chunker> chunkers,
+                             ComponentRegistry<Embedder> embedders,
+                             ComponentRegistry<FieldGenerator> generators) {
+        this(documentTypeManager, ilscriptsConfig, linguistics, chunkers, embedders, generators, nullMetric);
+    }
+
     public IndexingProcessor(DocumentTypeManager documentTypeManager,
                              ScriptManager scriptManager) {
+        this(documentTypeManager, scriptManager, 0, nullMetric);
+    }
+
+    /**
+     * @param statementThreads the number of threads to use for executing statements which do not depend on each other
+     *                         concurrently, in addition to the thread processing the document, or 0 to execute in order
+     */
+    public IndexingProcessor(DocumentTypeManager documentTypeManager,
+                             ScriptManager scriptManager,
+                             int statementThreads,
+                             Metric metric) {
         this.documentTypeManager = documentTypeManager;
         this.scriptManager = scriptManager;
+        this.statementExecutor = statementThreads > 0
+                                 ? Executors.newFixedThreadPool(statementThreads, new DaemonThreadFactory("indexing-statement-"))
+                                 : null;
+        this.metric = metric;
         fieldValuesFactory = new FieldValuesFactory(new ExpressionSelector());
     }
 
@@ -130,7 +181,8 @@ public class IndexingProcessor extends DocumentProcessor {
             buffer.flip();
             inputDocument = documentTypeManager.createDocument(buffer);
         }
-        Document output = script.execute(fieldValuesFactory, inputDocument);
+        Document output = script.execute(fieldValuesFactory, inputDocument, statementExecutor,
+                                         (statement, time) -> sampleStatementTime(wantType, statement, time));
         if (output == null) return;
 
         out.add(new DocumentPut(input, output));
@@ -152,6 +204,23 @@ public class IndexingProcessor extends DocumentProcessor {
         out.add(input);
     }
 
+    private void sampleStatementTime(DocumentType documentType, StatementExpression statement, Duration time) {
+        Metric.Context context = statementMetricContexts.computeIfAbsent(statement, __ -> {
+            OutputExpression.OutputFieldNameExtractor outputFields = new OutputExpression.OutputFieldNameExtractor();
+            statement.select(outputFields, outputFields);
+            return metric.createContext(Map.of("documenttype", documentType.getName(),
+                                               "field", String.join(",", new LinkedHashSet<>(outputFields.getOutputFieldNames()))));
+        });
+        metric.set(STATEMENT_TIME_METRIC_NAME, time.toNanos() * 1e-6, context);
+    }
+
+    @Override
+    public void deconstruct() {
+        if (statementExecutor != null)
+            statementExecutor.shutdown();
+        super.deconstruct();
+    }
+
     private static <T> Map<String, T> toMap(ComponentRegistry<T> registry, Class<?> defaultProviderClass) {
         var map = registry.allComponentsById().entrySet().stream()
                 .collect(Collectors.toMap(e -> e.getKey().stringValue(), Map.Entry::getValue));
@@ -2,6 +2,7 @@
 package com.yahoo.document;
 
 import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.document.datatypes.SerializedFieldValues;
 import com.yahoo.document.datatypes.Struct;
 import com.yahoo.document.datatypes.StructuredFieldValue;
 import com.yahoo.document.json.JsonWriter;
@@ -200,6 +201,16 @@ public class Document extends StructuredFieldValue {
         return content.iterator();
     }
 
+    /** Replaces the content of this with the given serialized field values. See {@link Struct#setSerializedFieldValues}. */
+    public void setSerializedFieldValues(SerializedFieldValues serialized) {
+        content.setSerializedFieldValues(serialized);
+    }
+
+    /** Returns the field values of this which are not yet decoded, or null if there are none */
+    public SerializedFieldValues getSerializedFieldValues() {
+        return content.getSerializedFieldValues();
+    }
+
     public String toString() {
         return "document '" + docId + "' of type '" + getDataType().getName() + "'";
     }
@@ -0,0 +1,128 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.datatypes;
+
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.Field;
+import com.yahoo.document.serialization.DocumentDeserializer;
+import com.yahoo.document.serialization.DocumentDeserializerFactory;
+import com.yahoo.io.GrowableByteBuffer;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The fields of a {@link Struct} which are still on serialized form, as slices of the buffer they were read from.
+ * A field is decoded when it is first accessed, and fields which are never accessed can be written back
+ * by copying their bytes. The serialized data is immutable, and shared by all copies of this.
+ *
+ * This class is multithread safe.
+ *
+ * @author bratseth
+ */
+public final class SerializedFieldValues {
+
+    private final DocumentTypeManager manager;
+    private final byte[] data;
+    private final int[] ids;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final BitSet present;
+
+    /**
+     * Creates serialized field values for the given fields, which must be known to the struct type this is set on.
+     *
+     * @param manager the type manager to use when decoding fields
+     * @param data    the serialized field data, which must not be modified after this is created
+     * @param ids     the ids of the fields, which must be unique
+     * @param offsets the offsets of the fields in data
+     * @param lengths the lengths of the fields in data
+     */
+    public SerializedFieldValues(DocumentTypeManager manager, byte[] data, int[] ids, int[] offsets, int[] lengths) {
+        if (ids.length != offsets.length || ids.length != lengths.length)
+            throw new IllegalArgumentException("Must have the same number of field ids, offsets and lengths");
+
+        // Sort by field id, for lookup and for writing the fields in the same order as other structs.
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Integer.compare(ids[a], ids[b]));
+        this.manager = manager;
+        this.data = data;
+        this.ids = new int[ids.length];
+        this.offsets = new int[ids.length];
+        this.lengths = new int[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            this.ids[i] = ids[order[i]];
+            this.offsets[i] = offsets[order[i]];
+            this.lengths[i] = lengths[order[i]];
+            if (offsets[order[i]] < 0 || lengths[order[i]] < 0 || offsets[order[i]] + lengths[order[i]] > data.length)
+                throw new IllegalArgumentException("Field " + ids[order[i]] + " is outside the serialized data");
+            if (i > 0 && this.ids[i] == this.ids[i - 1])
+                throw new IllegalArgumentException("Field " + ids[order[i]] + " is serialized more than once");
+        }
+        this.present = new BitSet(ids.length);
+        this.present.set(0, ids.length);
+    }
+
+    private SerializedFieldValues(SerializedFieldValues other) {
+        this.manager = other.manager;
+        this.data = other.data;
+        this.ids = other.ids;
+        this.offsets = other.offsets;
+        this.lengths = other.lengths;
+        this.present = (BitSet) other.present.clone();
+    }
+
+    /** Returns the number of fields which are still serialized */
+    public synchronized int size() { return present.cardinality(); }
+
+    /** Returns whether the field with the given id is still serialized */
+    public synchronized boolean contains(int fieldId) { return indexOf(fieldId) >= 0; }
+
+    /** Returns the ids of the fields which are still serialized, in increasing order */
+    public synchronized int[] fieldIds() {
+        return present.stream().map(i -> ids[i]).toArray();
+    }
+
+    /**
+     * Writes the serialized value of the given field to the given buffer, and returns the number of bytes written,
+     * or -1 if the given field is not serialized in this, in which case nothing is written.
+     */
+    public synchronized int writeTo(int fieldId, GrowableByteBuffer buffer) {
+        int index = indexOf(fieldId);
+        if (index < 0) return -1;
+        buffer.put(data, offsets[index], lengths[index]);
+        return lengths[index];
+    }
+
+    /** Decodes, and removes, the value of the given field, or returns null if that field is not serialized in this */
+    synchronized FieldValue remove(Field field) {
+        int index = indexOf(field.getId());
+        if (index < 0) return null;
+
+        DocumentDeserializer deserializer =
+                DocumentDeserializerFactory.createHead(manager, GrowableByteBuffer.wrap(data, offsets[index], lengths[index]));
+        FieldValue value = field.getDataType().createFieldValue();
+        value.deserialize(field, deserializer);
+        present.clear(index);
+        return value;
+    }
+
+    /** Removes the given field from this, without decoding it, and returns whether it was present */
+    synchronized boolean discard(int fieldId) {
+        int index = indexOf(fieldId);
+        if (index < 0) return false;
+        present.clear(index);
+        return true;
+    }
+
+    /** Returns a copy of this, which shares the serialized data, but not the set of fields still present */
+    synchronized SerializedFieldValues copy() {
+        return new SerializedFieldValues(this);
+    }
+
+    private int indexOf(int fieldId) {
+        int index = Arrays.binarySearch(ids, fieldId);
+        return index >= 0 && present.get(index) ? index : -1;
+    }
+
+}
@@ -27,17 +27,25 @@ public class Struct extends StructuredFieldValue {
 
     public static final int classId = registerClass(Ids.document + 33, Struct.class);
     private Hashlet<Integer, FieldValue> values = new Hashlet<>();
-    private int[] order = null;
+    /** The ids of the fields of this in increasing order, computed when needed, and possibly by concurrent readers */
+    private volatile int[] order = null;
+    /**
+     * The fields of this which are not yet decoded, or null if all fields are decoded.
+     * Fields are decoded, and this is cleared, while holding the monitor of this struct.
+     */
+    private volatile SerializedFieldValues serialized = null;
 
     private int version;
 
     private int[] getInOrder() {
+        int[] order = this.order;
         if (order == null) {
             order = new int[values.size()];
             for (int i = 0; i < values.size(); i++) {
                 order[i] = values.key(i);
             }
             Arrays.sort(order);
+            this.order = order;
         }
         return order;
     }
@@ -46,6 +54,29 @@ public class Struct extends StructuredFieldValue {
         order = null;
     }
 
+    /** Decodes the given field, which must be done while holding the monitor of this */
+    private FieldValue decode(Field field) {
+        Field myField = getDataType().getField(field.getId());
+        if (myField == null) return null;
+        FieldValue value = serialized.remove(myField);
+        if (value != null) {
+            values.put(myField.getId(), value);
+            invalidateOrder();
+        }
+        if (serialized.size() == 0) serialized = null;
+        return value;
+    }
+
+    /** Decodes all serialized fields, which is needed by operations on all fields of this */
+    private void decodeAll() {
+        if (serialized == null) return;
+        synchronized (this) {
+            if (serialized == null) return;
+            for (int id : serialized.fieldIds())
+                decode(getDataType().getField(id));
+        }
+    }
+
     public Struct(DataType type) {
         super((StructDataType) type);
         this.version = Document.SERIALIZED_VERSION;
@@ -66,7 +97,16 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public Struct clone() {
+        if (serialized == null) return cloneDecoded();
+        synchronized (this) {
+            return cloneDecoded();
+        }
+    }
+
+    private Struct cloneDecoded() {
         Struct struct = (Struct) super.clone();
+        SerializedFieldValues serialized = this.serialized;
+        struct.serialized = serialized == null ? null : serialized.copy();
         struct.values = new Hashlet<>();
         struct.values.reserve(values.size());
         for (int i = 0; i < values.size(); i++) {
@@ -78,18 +118,36 @@ public class Struct extends StructuredFieldValue {
     @Override
     public void clear() {
         values = new Hashlet<>();
+        serialized = null;
         invalidateOrder();
     }
 
     @Override
     public Iterator<Map.Entry<Field, FieldValue>> iterator() {
+        decodeAll();
         return new FieldSet().iterator();
     }
 
     public Set<Map.Entry<Field, FieldValue>> getFields() {
+        decodeAll();
         return new FieldSet();
     }
 
+    /**
+     * Replaces all field values of this with the given serialized ones, which are decoded when they are accessed.
+     * Fields are decoded while holding the monitor of this, so the struct may still be read by multiple threads
+     * concurrently, while modifying it requires exclusive access, as for any struct.
+     */
+    public void setSerializedFieldValues(SerializedFieldValues serialized) {
+        clear();
+        this.serialized = serialized.size() == 0 ? null : serialized.copy();
+    }
+
+    /** Returns the field values of this which are not yet decoded, or null if there are none */
+    public SerializedFieldValues getSerializedFieldValues() {
+        return serialized;
+    }
+
     @Override
     @Deprecated
     public void printXml(XmlStream xml) {
@@ -106,7 +164,13 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue getFieldValue(Field field) {
-        return values.get(field.getId());
+        if (serialized == null) return values.get(field.getId());
+        synchronized (this) {
+            FieldValue value = values.get(field.getId());
+            if (value == null && serialized != null)
+                value = decode(field);
+            return value;
+        }
     }
 
 
@@ -117,7 +181,10 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public int getFieldCount() {
-        return values.size();
+        if (serialized == null) return values.size();
+        synchronized (this) {
+            return values.size() + (serialized == null ? 0 : serialized.size());
+        }
     }
 
     @Override
@@ -137,6 +204,9 @@ public class Struct extends StructuredFieldValue {
         if (myField.getId() != field.getId()) {
             throw new IllegalArgumentException("Inconsistent field: " + field);
         }
+        if (serialized != null && serialized.discard(field.getId()) && serialized.size() == 0) {
+            serialized = null;
+        }
 
         int index = values.getIndexOfKey(field.getId());
         if (index == -1) {
@@ -149,7 +219,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue removeFieldValue(Field field) {
-        FieldValue found = values.get(field.getId());
+        FieldValue found = getFieldValue(field);
         if (found != null) {
             Hashlet<Integer, FieldValue> copy = new Hashlet<>();
             copy.reserve(values.size() - 1);
@@ -196,11 +266,14 @@ public class Struct extends StructuredFieldValue {
         if (!(o instanceof Struct struct)) return false;
         if (!super.equals(o)) return false;
 
+        decodeAll();
+        struct.decodeAll();
         return values.equals(struct.values);
     }
 
     @Override
     public int hashCode() {
+        decodeAll();
         int result = super.hashCode();
         result = 31 * result + values.hashCode();
         return result;
@@ -210,6 +283,7 @@ public class Struct extends StructuredFieldValue {
     public String toString() {
         StringBuilder retVal = new StringBuilder();
         retVal.append("Struct (").append(getDataType()).append("): ");
+        decodeAll();
         int[] increasing = getInOrder();
         for (int id : increasing) {
             retVal.append(getDataType().getField(id)).append("=").append(values.get(id)).append(", ");
@@ -231,7 +305,7 @@ public class Struct extends StructuredFieldValue {
             return cmp;
         }
         Struct rhs = (Struct)obj;
-        cmp = values.size() - rhs.values.size();
+        cmp = getFieldCount() - rhs.getFieldCount();
         if (cmp != 0) {
             return cmp;
         }
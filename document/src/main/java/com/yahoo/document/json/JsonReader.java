@@ -156,6 +156,33 @@ public class JsonReader {
         }
     }
 
+    /**
+     * Reads a JSON which is expected to contain a single, self-describing document operation, i.e., an object
+     * with a "put", "update" or "remove" field holding the document ID, like a line of a JSONL feed.
+     * The operation is not expected to be part of an array.
+     *
+     * @return the parsed document operation
+     */
+    public ParsedDocumentOperation readSingleOperation() {
+        Optional<DocumentParseInfo> documentParseInfo;
+        try {
+            documentParseInfo = parseDocument();
+            if (documentParseInfo.isPresent() && null != parser.nextToken())
+                throw new IllegalArgumentException("expected end of input, got " + parser.currentToken());
+        } catch (IOException e) {
+            state = END_OF_FEED;
+            throw new IllegalArgumentException(e);
+        }
+        if (documentParseInfo.isEmpty())
+            throw new IllegalArgumentException("Missing a document operation ('put', 'update' or 'remove')");
+
+        VespaJsonDocumentReader vespaJsonDocumentReader = new VespaJsonDocumentReader(typeManager.getIgnoreUndefinedFields());
+        ParsedDocumentOperation operation = vespaJsonDocumentReader.createDocumentOperation(
+                getDocumentTypeFromString(documentParseInfo.get().documentId.getDocType(), typeManager), documentParseInfo.get());
+        operation.operation().setCondition(TestAndSetCondition.fromConditionString(documentParseInfo.get().condition));
+        return operation;
+    }
+
     /** Returns the next document operation, or null if we have reached the end */
     public DocumentOperation next() {
         switch (state) {
@@ -6,6 +6,7 @@ import com.yahoo.document.select.parser.ParseException;
 import com.yahoo.document.select.parser.SelectInput;
 import com.yahoo.document.select.parser.SelectParser;
 import com.yahoo.document.select.parser.TokenMgrException;
+import com.yahoo.document.select.rule.CompiledSelection;
 import com.yahoo.document.select.rule.ExpressionNode;
 
 /**
@@ -14,13 +15,15 @@ import com.yahoo.document.select.rule.ExpressionNode;
  * representation which is called the
  * <a href="https://docs.vespa.ai/en/reference/document-select-language.html">document selection language</a>.
  *
- * Document selectors are multithread safe.
+ * Document selectors are multithread safe. Selections are compiled when created, unless they use variables,
+ * for faster evaluation of whether documents are accepted.
  *
  * @author bratseth
  */
 public class DocumentSelector {
 
     private final ExpressionNode expression;
+    private final CompiledSelection compiled; // Null if the expression can not be compiled.
 
     /**
      * Creates a document selector from a Document Selection Language string
@@ -41,6 +44,7 @@ public class DocumentSelector {
             throw (ParseException)t.initCause(e instanceof ParseException ?
                                               new ParseException(input.formatException(e.getMessage())) : e);
         }
+        compiled = CompiledSelection.compile(expression).orElse(null);
     }
 
     /**
@@ -62,6 +66,7 @@ public class DocumentSelector {
      * @throws RuntimeException if the evaluation enters an illegal state
      */
     public Result accepts(Context context) {
+        if (compiled != null) return compiled.evaluate(context);
         return Result.toResult(expression.evaluate(context));
     }
 
@@ -93,7 +98,7 @@ public class DocumentSelector {
         return expression.toString();
     }
 
-    /** Visits the expression tree */
+    /** Visits the expression tree, which must not be modified */
     public void visit(Visitor visitor) {
         expression.accept(visitor);
     }
@@ -30,6 +30,9 @@ public class ComparisonNode implements ExpressionNode {
     // The operator string for this.
     private String operator;
 
+    // The last glob or regular expression compiled by this, as these are typically literals.
+    private CompiledPattern pattern = null;
+
     /**
      * Constructs a new comparison node.
      *
@@ -130,8 +133,17 @@ public class ComparisonNode implements ExpressionNode {
 
     @Override
     public Object evaluate(Context context) {
-        Object oLeft = lhs.evaluate(context);
-        Object oRight = rhs.evaluate(context);
+        return compare(lhs.evaluate(context), rhs.evaluate(context));
+    }
+
+    /**
+     * Compares the given values of the left and right hand sides of this.
+     *
+     * @param oLeft The value of the left hand side.
+     * @param oRight The value of the right hand side.
+     * @return The result list of the comparison.
+     */
+    Object compare(Object oLeft, Object oRight) {
         if (oLeft == null || oRight == null) {
             return evaluateWithAtLeastOneNullSide(oLeft, oRight);
         }
@@ -336,11 +348,31 @@ public class ComparisonNode implements ExpressionNode {
     private Result evaluateString(Object lhs, Object rhs) {
         String left = "" + lhs; // Allows null objects to evaluate to string.
         String right = "" + rhs;
-        if (operator.equals("=~")) {
-            return Result.toResult(Pattern.compile(right).matcher(left).find());
-        } else {
-            return Result.toResult(Pattern.compile(globToRegex(right)).matcher(left).find());
+        return Result.toResult(pattern(right, operator.equals("=~")).matcher(left).find());
+    }
+
+    /** Returns the compiled regular expression, or glob, of the given string, reusing the last one if possible. */
+    private Pattern pattern(String expression, boolean regex) {
+        CompiledPattern compiled = pattern;
+        if (compiled == null || compiled.regex != regex || ! compiled.expression.equals(expression)) {
+            compiled = new CompiledPattern(expression, regex, Pattern.compile(regex ? expression : globToRegex(expression)));
+            pattern = compiled;
         }
+        return compiled.pattern;
+    }
+
+    private static class CompiledPattern {
+
+        final String expression;
+        final boolean regex;
+        final Pattern pattern;
+
+        CompiledPattern(String expression, boolean regex, Pattern pattern) {
+            this.expression = expression;
+            this.regex = regex;
+            this.pattern = pattern;
+        }
+
     }
 
     /**
@@ -0,0 +1,502 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.select.rule;
+
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.Field;
+import com.yahoo.document.FieldPath;
+import com.yahoo.document.FieldPathEntry;
+import com.yahoo.document.PrimitiveDataType;
+import com.yahoo.document.datatypes.FieldPathIteratorHandler;
+import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.document.select.Context;
+import com.yahoo.document.select.Result;
+import com.yahoo.document.select.ResultList;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BinaryOperator;
+
+/**
+ * A document selection expression compiled for repeated evaluation of whether documents are accepted.
+ *
+ * Each compiled node evaluates to the set of distinct results in the result list of the expression node it
+ * was compiled from, as a bit mask over {@link Result}. When there are no variables, this is all the logical
+ * operators need, so these become simple operations on masks, instead of combinations of result lists.
+ * Constant sub-expressions are evaluated when compiling, field paths are resolved once per document type,
+ * and simple fields of primitive types are read directly from the document, without iterating a field path.
+ * Anything else is evaluated by the expression nodes themselves, with the same semantics as without compilation.
+ *
+ * The expression must not be modified after it is compiled.
+ *
+ * @author bratseth
+ */
+public final class CompiledSelection {
+
+    private static final int TRUE = bit(Result.TRUE);
+    private static final int FALSE = bit(Result.FALSE);
+    private static final int[] and = table((lhs, rhs) -> lhs == Result.TRUE && rhs == Result.TRUE ? Result.TRUE
+                                                         : lhs == Result.FALSE || rhs == Result.FALSE ? Result.FALSE
+                                                         : Result.INVALID);
+    private static final int[] or = table((lhs, rhs) -> lhs == Result.TRUE || rhs == Result.TRUE ? Result.TRUE
+                                                        : lhs == Result.FALSE && rhs == Result.FALSE ? Result.FALSE
+                                                        : Result.INVALID);
+
+    private final Node root;
+
+    private CompiledSelection(Node root) {
+        this.root = root;
+    }
+
+    /** Returns the given expression compiled, or empty if it uses variables, and must be evaluated as it is */
+    public static Optional<CompiledSelection> compile(ExpressionNode expression) {
+        if (hasVariables(expression)) return Optional.empty();
+        return Optional.of(new CompiledSelection(compileNode(expression)));
+    }
+
+    /** Returns whether the document in the given context is accepted by this */
+    public Result evaluate(Context context) {
+        return toResult(root.evaluate(context));
+    }
+
+    private static boolean hasVariables(ExpressionNode node) {
+        if (node instanceof VariableNode) return true;
+        if (node instanceof AttributeNode) {
+            for (AttributeNode.Item item : ((AttributeNode) node).getItems())
+                if (item.getName().indexOf('$') >= 0) return true;
+            return hasVariables(((AttributeNode) node).getValue());
+        }
+        for (ExpressionNode child : children(node))
+            if (hasVariables(child)) return true;
+        return false;
+    }
+
+    private static boolean isConstant(ExpressionNode node) {
+        if (node instanceof LiteralNode) return true;
+        if ( ! (node instanceof ArithmeticNode || node instanceof ComparisonNode || node instanceof LogicNode ||
+                node instanceof NegationNode || node instanceof EmbracedNode)) return false;
+        for (ExpressionNode child : children(node))
+            if ( ! isConstant(child)) return false;
+        return true;
+    }
+
+    private static List<ExpressionNode> children(ExpressionNode node) {
+        List<ExpressionNode> children = new ArrayList<>();
+        if (node instanceof ArithmeticNode) {
+            for (ArithmeticNode.NodeItem item : ((ArithmeticNode) node).getItems())
+                children.add(item.getNode());
+        } else if (node instanceof LogicNode) {
+            for (LogicNode.NodeItem item : ((LogicNode) node).getItems())
+                children.add(item.getNode());
+        } else if (node instanceof ComparisonNode) {
+            children.add(((ComparisonNode) node).getLHS());
+            children.add(((ComparisonNode) node).getRHS());
+        } else if (node instanceof NegationNode) {
+            children.add(((NegationNode) node).getNode());
+        } else if (node instanceof EmbracedNode) {
+            children.add(((EmbracedNode) node).getNode());
+        } else if (node instanceof AttributeNode) {
+            children.add(((AttributeNode) node).getValue());
+        }
+        return children;
+    }
+
+    /** Returns the value of the given expression if it is constant, or null if not, or if it fails, and must fail at run time */
+    private static Constant constant(ExpressionNode node) {
+        if ( ! isConstant(node)) return null;
+        try {
+            return new Constant(node.evaluate(new Context(null)));
+        }
+        catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Node compileNode(ExpressionNode node) {
+        Constant constant = constant(node);
+        if (constant != null)
+            return new ConstantNode(mask(constant.value));
+        if (node instanceof LogicNode)
+            return compileLogic((LogicNode) node);
+        if (node instanceof NegationNode)
+            return new Not(compileNode(((NegationNode) node).getNode()));
+        if (node instanceof EmbracedNode)
+            return compileNode(((EmbracedNode) node).getNode());
+        if (node instanceof DocumentTypeNode)
+            return new IsType(((DocumentTypeNode) node).getType());
+        return new Value(compileOperand(node));
+    }
+
+    /** Builds the same tree of binary operations as {@link LogicNode#evaluate} does, respecting operator precedence. */
+    private static Node compileLogic(LogicNode node) {
+        Deque<OperatorNode> stack = new ArrayDeque<>();
+        for (LogicNode.NodeItem item : node.getItems()) {
+            if (stack.size() > 1) {
+                while (stack.peek().operator >= item.getOperator()) {
+                    combineTop(stack);
+                }
+            }
+            stack.push(new OperatorNode(item.getOperator(), compileNode(item.getNode())));
+        }
+        while (stack.size() > 1) {
+            combineTop(stack);
+        }
+        return stack.pop().node;
+    }
+
+    private static void combineTop(Deque<OperatorNode> stack) {
+        OperatorNode rhs = stack.pop();
+        OperatorNode lhs = stack.pop();
+        stack.push(new OperatorNode(lhs.operator, binary(rhs.operator, lhs.node, rhs.node)));
+    }
+
+    private static Node binary(int operator, Node lhs, Node rhs) {
+        if (operator != LogicNode.AND && operator != LogicNode.OR)
+            throw new IllegalStateException("Logical operator " + operator + " not supported.");
+
+        boolean isAnd = operator == LogicNode.AND;
+        if (lhs instanceof ConstantNode) { // The right hand side is evaluated only if the left one does not decide.
+            int constant = ((ConstantNode) lhs).mask;
+            if (toResult(constant) == (isAnd ? Result.FALSE : Result.TRUE))
+                return new ConstantNode(isAnd ? FALSE : TRUE);
+            if (constant == (isAnd ? TRUE : FALSE))
+                return rhs;
+            if (rhs instanceof ConstantNode)
+                return new ConstantNode(combine(isAnd ? and : or, constant, ((ConstantNode) rhs).mask));
+        }
+        return isAnd ? new And(lhs, rhs) : new Or(lhs, rhs);
+    }
+
+    private static Operand compileOperand(ExpressionNode node) {
+        Constant constant = constant(node);
+        if (constant != null)
+            return constant;
+        if (node instanceof EmbracedNode)
+            return compileOperand(((EmbracedNode) node).getNode());
+        if (node instanceof ComparisonNode) {
+            ComparisonNode comparison = (ComparisonNode) node;
+            return new Comparison(comparison, compileOperand(comparison.getLHS()), compileOperand(comparison.getRHS()));
+        }
+        if (node instanceof AttributeNode)
+            return compileAttribute((AttributeNode) node);
+        return node::evaluate;
+    }
+
+    /** Splits the items of the given node into the same field path lookups and function calls as in {@link AttributeNode#evaluate} */
+    private static Operand compileAttribute(AttributeNode node) {
+        List<Step> steps = new ArrayList<>();
+        StringBuilder pos = new StringBuilder(node.getValue().toString());
+        StringBuilder path = new StringBuilder();
+        String pathMessage = null;
+        for (AttributeNode.Item item : node.getItems()) {
+            String message = "Can not invoke '" + item + "' on '" + pos + "' because that term evaluated to null.";
+            if (item.getType() != AttributeNode.Item.FUNCTION) {
+                if (path.length() > 0) {
+                    path.append(".");
+                } else {
+                    pathMessage = message;
+                }
+                path.append(item.getName());
+            } else if (path.length() > 0) {
+                steps.add(new Step(pathMessage, new PathLookup(path.toString()), item.getName()));
+                path = new StringBuilder();
+            } else {
+                steps.add(new Step(message, null, item.getName()));
+            }
+            pos.append(".").append(item);
+        }
+        if (path.length() > 0) {
+            steps.add(new Step(pathMessage, new PathLookup(path.toString()), null));
+        }
+        return new Attribute(compileOperand(node.getValue()), steps);
+    }
+
+    private static int bit(Result result) {
+        return 1 << result.ordinal();
+    }
+
+    /** Returns the set of results in the result list of the given value, as a bit mask */
+    private static int mask(Object value) {
+        if (value instanceof ResultList) {
+            int mask = 0;
+            for (ResultList.ResultPair pair : ((ResultList) value).getResults())
+                mask |= bit(pair.getResult());
+            return mask;
+        }
+        if (value instanceof AttributeNode.VariableValueList) {
+            return ((AttributeNode.VariableValueList) value).isEmpty() ? 0 : TRUE;
+        }
+        return bit(Result.toResult(value));
+    }
+
+    /** Returns the result of a result list with the given set of results, as in {@link ResultList#toResult} */
+    private static Result toResult(int mask) {
+        if ((mask & TRUE) != 0) return Result.TRUE;
+        if ((mask & FALSE) != 0 || mask == 0) return Result.FALSE;
+        return Result.INVALID;
+    }
+
+    private static int combine(int[] table, int lhs, int rhs) {
+        return table[lhs << 3 | rhs];
+    }
+
+    /** Returns the results of combining each pair of results in any two sets of results with the given operator */
+    private static int[] table(BinaryOperator<Result> operator) {
+        int[] table = new int[1 << 6];
+        for (int lhs = 0; lhs < 1 << 3; lhs++)
+            for (int rhs = 0; rhs < 1 << 3; rhs++)
+                for (Result a : Result.values())
+                    for (Result b : Result.values())
+                        if ((lhs & bit(a)) != 0 && (rhs & bit(b)) != 0)
+                            table[lhs << 3 | rhs] |= bit(operator.apply(a, b));
+        return table;
+    }
+
+    /** A compiled boolean expression, evaluating to a set of results */
+    private interface Node {
+
+        int evaluate(Context context);
+
+    }
+
+    /** A compiled expression evaluating to a value, like {@link ExpressionNode#evaluate} */
+    private interface Operand {
+
+        Object evaluate(Context context);
+
+    }
+
+    private static final class OperatorNode {
+
+        final int operator;
+        final Node node;
+
+        OperatorNode(int operator, Node node) {
+            this.operator = operator;
+            this.node = node;
+        }
+
+    }
+
+    private static final class ConstantNode implements Node {
+
+        final int mask;
+
+        ConstantNode(int mask) { this.mask = mask; }
+
+        @Override
+        public int evaluate(Context context) { return mask; }
+
+    }
+
+    private static final class And implements Node {
+
+        private final Node lhs, rhs;
+
+        And(Node lhs, Node rhs) {
+            this.lhs = lhs;
+            this.rhs = rhs;
+        }
+
+        @Override
+        public int evaluate(Context context) {
+            int left = lhs.evaluate(context);
+            if (toResult(left) == Result.FALSE) return FALSE;
+            return combine(and, left, rhs.evaluate(context));
+        }
+
+    }
+
+    private static final class Or implements Node {
+
+        private final Node lhs, rhs;
+
+        Or(Node lhs, Node rhs) {
+            this.lhs = lhs;
+            this.rhs = rhs;
+        }
+
+        @Override
+        public int evaluate(Context context) {
+            int left = lhs.evaluate(context);
+            if (toResult(left) == Result.TRUE) return TRUE;
+            return combine(or, left, rhs.evaluate(context));
+        }
+
+    }
+
+    private static final class Not implements Node {
+
+        private final Node node;
+
+        Not(Node node) { this.node = node; }
+
+        @Override
+        public int evaluate(Context context) {
+            return bit(Result.invert(toResult(node.evaluate(context))));
+        }
+
+    }
+
+    private static final class IsType implements Node {
+
+        private final String type;
+
+        IsType(String type) { this.type = type; }
+
+        @Override
+        public int evaluate(Context context) {
+            return context.getDocumentOperation().getId().getDocType().equals(type) ? TRUE : FALSE;
+        }
+
+    }
+
+    private static final class Value implements Node {
+
+        private final Operand operand;
+
+        Value(Operand operand) { this.operand = operand; }
+
+        @Override
+        public int evaluate(Context context) { return mask(operand.evaluate(context)); }
+
+    }
+
+    private static final class Constant implements Operand {
+
+        private final Object value;
+
+        Constant(Object value) { this.value = value; }
+
+        @Override
+        public Object evaluate(Context context) { return value; }
+
+    }
+
+    private static final class Comparison implements Operand {
+
+        private final ComparisonNode node;
+        private final Operand lhs, rhs;
+
+        Comparison(ComparisonNode node, Operand lhs, Operand rhs) {
+            this.node = node;
+            this.lhs = lhs;
+            this.rhs = rhs;
+        }
+
+        @Override
+        public Object evaluate(Context context) {
+            return node.compare(lhs.evaluate(context), rhs.evaluate(context));
+        }
+
+    }
+
+    private static final class Attribute implements Operand {
+
+        private final Operand value;
+        private final Step[] steps;
+
+        Attribute(Operand value, List<Step> steps) {
+            this.value = value;
+            this.steps = steps.toArray(new Step[0]);
+        }
+
+        @Override
+        public Object evaluate(Context context) {
+            Object obj = value.evaluate(context);
+            for (Step step : steps) {
+                if (obj == null) {
+                    throw new IllegalStateException(step.nullMessage);
+                }
+                if (step.path != null) {
+                    obj = step.path.evaluate(obj);
+                }
+                if (step.function != null) {
+                    obj = AttributeNode.evaluateFunction(step.function, obj);
+                }
+            }
+            return obj;
+        }
+
+    }
+
+    /** A field path lookup, followed by a function call, or either of these */
+    private static final class Step {
+
+        final String nullMessage;
+        final PathLookup path;
+        final String function;
+
+        Step(String nullMessage, PathLookup path, String function) {
+            this.nullMessage = nullMessage;
+            this.path = path;
+            this.function = function;
+        }
+
+    }
+
+    /** Looks up a field path in documents, like {@link AttributeNode#evaluateFieldPath}, resolving it once per document type */
+    private static final class PathLookup {
+
+        private final String path;
+        private ResolvedPath resolved = null;
+
+        PathLookup(String path) { this.path = path; }
+
+        Object evaluate(Object value) {
+            if ( ! (value instanceof DocumentPut)) return AttributeNode.evaluateFieldPath(path, value);
+
+            Document document = ((DocumentPut) value).getDocument();
+            ResolvedPath resolved = resolve(document.getDataType());
+            if (resolved.imported) return null;
+
+            if (resolved.primitiveField != null) {
+                FieldValue fieldValue = document.getFieldValue(resolved.primitiveField);
+                if (fieldValue == null) return null;
+                AttributeNode.VariableValueList values = new AttributeNode.VariableValueList();
+                values.add(new ResultList.VariableValue(new FieldPathIteratorHandler.VariableMap(), fieldValue));
+                return values;
+            }
+            AttributeNode.IteratorHandler handler = new AttributeNode.IteratorHandler();
+            document.iterateNested(resolved.fieldPath, 0, handler);
+            return handler.values.isEmpty() ? null : handler.values;
+        }
+
+        private ResolvedPath resolve(DocumentType type) {
+            ResolvedPath resolved = this.resolved;
+            if (resolved == null || resolved.type != type) {
+                this.resolved = resolved = AttributeNode.isSimpleImportedField(path, type)
+                                           ? new ResolvedPath(type, true, null)
+                                           : new ResolvedPath(type, false, type.buildFieldPath(path));
+            }
+            return resolved;
+        }
+
+    }
+
+    /** A field path resolved in a document type. This is immutable, so it may be shared between threads without locking. */
+    private static final class ResolvedPath {
+
+        final DocumentType type;
+        final boolean imported;
+        final FieldPath fieldPath;
+        /** The field of the path, if it is just a field of a primitive type, which holds at most a single value */
+        final Field primitiveField;
+
+        ResolvedPath(DocumentType type, boolean imported, FieldPath fieldPath) {
+            this.type = type;
+            this.imported = imported;
+            this.fieldPath = fieldPath;
+            this.primitiveField = fieldPath != null && fieldPath.size() == 1
+                                  && fieldPath.get(0).getType() == FieldPathEntry.Type.STRUCT_FIELD
+                                  && fieldPath.get(0).getFieldRef().getDataType() instanceof PrimitiveDataType
+                                  ? fieldPath.get(0).getFieldRef() : null;
+        }
+
+    }
+
+}
@@ -19,6 +19,17 @@ public class DocumentDeserializerFactory {
         return new VespaDocumentDeserializerHead(manager, buf);
     }
 
+    /**
+     * Creates a de-serializer for the current head document format, which leaves the fields of the documents
+     * and structs it reads serialized until they are accessed. This is cheaper when only some fields are accessed,
+     * and fields which are not accessed are written back by copying their bytes when the document is serialized.
+     * Fields are decoded under the lock of the struct holding them, so the documents read may still be read by
+     * multiple threads concurrently.
+     */
+    public static DocumentDeserializer createLazyHead(DocumentTypeManager manager, GrowableByteBuffer buf) {
+        return new VespaDocumentDeserializerHead(manager, buf, true);
+    }
+
     /**
      * Creates a de-serializer for the 6.x document format.
      * This format is an extension of the 4.2 format.
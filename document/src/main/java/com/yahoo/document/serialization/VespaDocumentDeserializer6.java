@@ -27,6 +27,7 @@ import com.yahoo.document.datatypes.MapFieldValue;
 import com.yahoo.document.datatypes.PredicateFieldValue;
 import com.yahoo.document.datatypes.Raw;
 import com.yahoo.document.datatypes.ReferenceFieldValue;
+import com.yahoo.document.datatypes.SerializedFieldValues;
 import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.document.datatypes.Struct;
 import com.yahoo.document.datatypes.StructuredFieldValue;
@@ -64,6 +65,7 @@ import com.yahoo.vespa.objects.FieldBase;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -79,14 +81,24 @@ import static com.yahoo.text.Utf8.calculateStringPositions;
 public class VespaDocumentDeserializer6 extends BufferSerializer implements DocumentDeserializer {
 
     private final DocumentTypeManager manager;
+    private final boolean lazyFields;
     private short version;
     private List<SpanNode> spanNodes;
     private List<Annotation> annotations;
     private int[] stringPositions;
 
     VespaDocumentDeserializer6(DocumentTypeManager manager, GrowableByteBuffer buf) {
+        this(manager, buf, false);
+    }
+
+    /**
+     * @param lazyFields whether to leave the fields of documents and structs read by this serialized,
+     *                   until they are accessed; see {@link SerializedFieldValues}
+     */
+    VespaDocumentDeserializer6(DocumentTypeManager manager, GrowableByteBuffer buf, boolean lazyFields) {
         super(buf);
         this.manager = manager;
+        this.lazyFields = lazyFields;
         this.version = Document.SERIALIZED_VERSION;
     }
 
@@ -293,6 +305,10 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         }
 
         int afterPos = position() + dataSize;
+        if (lazyFields && readSerializedStruct(target, priType, dataSize, fieldIds, fieldLens)) {
+            position(afterPos);
+            return;
+        }
         for (int i = 0; i < numberOfFields; i++) {
             int posBefore = position();
             Field structField = priType.getField(fieldIds[i]);
@@ -309,6 +325,48 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         position(afterPos);
     }
 
+    /**
+     * Copies the serialized fields known to the given type, and sets them on the target, to be decoded when accessed.
+     * Returns false if the target can not hold serialized fields, or already does, in which case it must be read eagerly.
+     */
+    private boolean readSerializedStruct(StructuredFieldValue target, StructDataType priType,
+                                         int dataSize, int[] fieldIds, int[] fieldLens) {
+        SerializedFieldValues existing;
+        if (target instanceof Document document) existing = document.getSerializedFieldValues();
+        else if (target instanceof Struct struct) existing = struct.getSerializedFieldValues();
+        else return false;
+        if (existing != null) return false;
+
+        byte[] data = new byte[dataSize];
+        getBuf().get(data);
+        int known = 0;
+        int[] ids = new int[fieldIds.length];
+        int[] offsets = new int[fieldIds.length];
+        int[] lengths = new int[fieldIds.length];
+        for (int i = 0, offset = 0; i < fieldIds.length; offset += fieldLens[i++]) {
+            // ignoring unknown field
+            if (priType.getField(fieldIds[i]) == null) continue;
+            ids[known] = fieldIds[i];
+            offsets[known] = offset;
+            lengths[known++] = fieldLens[i];
+        }
+        SerializedFieldValues serialized;
+        try {
+            serialized = new SerializedFieldValues(manager, data,
+                                                   Arrays.copyOf(ids, known),
+                                                   Arrays.copyOf(offsets, known),
+                                                   Arrays.copyOf(lengths, known));
+        }
+        catch (IllegalArgumentException e) {
+            throw new DeserializationException(e.getMessage(), e);
+        }
+        if (target instanceof Document document)
+            document.setSerializedFieldValues(serialized);
+        else
+            ((Struct) target).setSerializedFieldValues(serialized);
+        return true;
+    }
+
     @Override
     public void read(FieldBase field, StructuredFieldValue value) {
         throw new IllegalArgumentException("read not implemented yet.");
@@ -24,6 +24,10 @@ public class VespaDocumentDeserializerHead extends VespaDocumentDeserializer6 {
         super(manager, buffer);
     }
 
+    VespaDocumentDeserializerHead(DocumentTypeManager manager, GrowableByteBuffer buffer, boolean lazyFields) {
+        super(manager, buffer, lazyFields);
+    }
+
     @Override
     protected ValueUpdate readTensorModifyUpdate(DataType type) {
         byte operationId = getByte(null);
@@ -12,6 +12,7 @@ import com.yahoo.document.DocumentRemove;
 import com.yahoo.document.DocumentType;
 import com.yahoo.document.DocumentUpdate;
 import com.yahoo.document.Field;
+import com.yahoo.document.StructDataType;
 import com.yahoo.document.WeightedSetDataType;
 import com.yahoo.document.annotation.AlternateSpanList;
 import com.yahoo.document.annotation.Annotation;
@@ -33,6 +34,7 @@ import com.yahoo.document.datatypes.MapFieldValue;
 import com.yahoo.document.datatypes.PredicateFieldValue;
 import com.yahoo.document.datatypes.Raw;
 import com.yahoo.document.datatypes.ReferenceFieldValue;
+import com.yahoo.document.datatypes.SerializedFieldValues;
 import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.document.datatypes.Struct;
 import com.yahoo.document.datatypes.StructuredFieldValue;
@@ -60,6 +62,7 @@ import com.yahoo.vespa.objects.FieldBase;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -345,16 +348,45 @@ public class VespaDocumentSerializer6 extends BufferSerializer implements Docume
         int [] fieldIds = new int[numFields];
         int [] fieldLengths = new int[numFields];
 
-        var iter = s.iterator();
-        for (int i=0; iter.hasNext(); i++) {
-            Map.Entry<Field, FieldValue> value = iter.next();
+        SerializedFieldValues serialized = null;
+        StructDataType type = null;
+        if (s instanceof Document document) {
+            serialized = document.getSerializedFieldValues();
+            type = document.getDataType().contentStruct();
+        }
+        else if (s instanceof Struct struct) {
+            serialized = struct.getSerializedFieldValues();
+            type = struct.getDataType();
+        }
 
-            int startPos = buffer.position();
-            Field key = value.getKey();
-            value.getValue().serialize(key, this);
+        if (serialized == null) {
+            var iter = s.iterator();
+            for (int i=0; iter.hasNext(); i++) {
+                Map.Entry<Field, FieldValue> value = iter.next();
 
-            fieldLengths[i] = buffer.position() - startPos;
-            fieldIds[i] = key.getId();
+                int startPos = buffer.position();
+                Field key = value.getKey();
+                value.getValue().serialize(key, this);
+
+                fieldLengths[i] = buffer.position() - startPos;
+                fieldIds[i] = key.getId();
+            }
+        }
+        else {
+            // Copy the fields which are still serialized, instead of decoding them, in the same order as above.
+            List<Field> fields = new ArrayList<>(type.getFields());
+            fields.sort(Comparator.comparingInt(Field::getId));
+            int i = 0;
+            for (Field key : fields) {
+                int startPos = buffer.position();
+                if (serialized.writeTo(key.getId(), buffer) < 0) { // Not serialized, or decoded by a reader since.
+                    FieldValue value = s.getFieldValue(key);
+                    if (value == null) continue;
+                    value.serialize(key, this);
+                }
+                fieldLengths[i] = buffer.position() - startPos;
+                fieldIds[i++] = key.getId();
+            }
         }
 
         // Switch buffers again:
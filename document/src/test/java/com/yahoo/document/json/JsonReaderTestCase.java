@@ -253,6 +253,33 @@ public class JsonReaderTestCase {
         smokeTestDoc(put.getDocument());
     }
 
+    @Test
+    public void readSingleSelfDescribingOperations() {
+        DocumentPut put = (DocumentPut) createReader("""
+                                                     { "put": "id:unittest:smoke::doc1", "condition": "true", "create": true,
+                                                       "fields": { "something": "smoketest", "flag": true, "nalle": "bamse" } }
+                                                     """).readSingleOperation().operation();
+        assertEquals("true", put.getCondition().getSelection());
+        assertTrue(put.getCreateIfNonExistent());
+        smokeTestDoc(put.getDocument());
+
+        DocumentUpdate update = (DocumentUpdate) createReader("""
+                                                              { "update": "id:unittest:smoke::doc1", "fields": { "nalle": { "assign": "bamse" } } }
+                                                              """).readSingleOperation().operation();
+        assertEquals(new DocumentId("id:unittest:smoke::doc1"), update.getId());
+        assertFalse(update.getCreateIfNonExistent());
+
+        DocumentRemove remove = (DocumentRemove) createReader("{ \"remove\": \"id:unittest:smoke::doc1\" }").readSingleOperation().operation();
+        assertEquals(new DocumentId("id:unittest:smoke::doc1"), remove.getId());
+
+        assertEquals("Missing a document operation ('put', 'update' or 'remove')",
+                     assertThrows(IllegalArgumentException.class,
+                                  () -> createReader("{ \"fields\": { } }").readSingleOperation()).getMessage());
+        assertEquals("expected end of input, got START_OBJECT",
+                     assertThrows(IllegalArgumentException.class,
+                                  () -> createReader("{ \"remove\": \"id:unittest:smoke::doc1\" } { }").readSingleOperation()).getMessage());
+    }
+
     @Test
     public void readSingleDocumentsUpdateStreaming() throws IOException {
         String json = """
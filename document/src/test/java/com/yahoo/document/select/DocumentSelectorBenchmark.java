@@ -0,0 +1,82 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.select;
+
+import com.yahoo.document.ArrayDataType;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.datatypes.Array;
+import com.yahoo.document.datatypes.IntegerFieldValue;
+import com.yahoo.document.select.parser.ParseException;
+import com.yahoo.document.select.parser.SelectInput;
+import com.yahoo.document.select.parser.SelectParser;
+import com.yahoo.document.select.rule.ExpressionNode;
+
+/**
+ * Compares the speed of evaluating compiled selections with that of evaluating the expression trees.
+ *
+ * @author bratseth
+ */
+public class DocumentSelectorBenchmark {
+
+    private static final String[] selections = {
+            "music",
+            "music.year > 1990 and music.artist = \"b*\"",
+            "music and (music.year < 1970 or music.artist =~ \"^[a-c].*beat\" or music.tracks == 7)",
+            "id.namespace == \"ns\" and (music.year + 10) % 3 == 0 and not music.artist == null and true"
+    };
+
+    public void run() throws ParseException {
+        DocumentType type = new DocumentType("music");
+        type.addField("year", DataType.INT);
+        type.addField("artist", DataType.STRING);
+        type.addField("tracks", new ArrayDataType(DataType.INT));
+        DocumentPut[] puts = new DocumentPut[16];
+        for (int i = 0; i < puts.length; i++) {
+            Document document = new Document(type, "id:ns:music::" + i);
+            document.setFieldValue("year", 1960 + 4 * i);
+            document.setFieldValue("artist", (i % 2 == 0 ? "beatles" : "abba") + i);
+            Array<IntegerFieldValue> tracks = new Array<>(type.getField("tracks").getDataType());
+            for (int j = 0; j < i % 4; j++)
+                tracks.add(new IntegerFieldValue(j * 7));
+            document.setFieldValue("tracks", tracks);
+            puts[i] = new DocumentPut(document);
+        }
+
+        for (String selection : selections) {
+            ExpressionNode expression = new SelectParser(new SelectInput(selection)).expression();
+            DocumentSelector selector = new DocumentSelector(selection);
+            int result = 0;
+
+            // Warm-up
+            for (int i = 0; i < 100 * 1000; i++) {
+                result += Result.toResult(expression.evaluate(new Context(puts[i % puts.length]))).ordinal();
+                result += selector.accepts(puts[i % puts.length]).ordinal();
+            }
+
+            long startTime = System.nanoTime();
+            for (int i = 0; i < 1000 * 1000; i++)
+                result += Result.toResult(expression.evaluate(new Context(puts[i % puts.length]))).ordinal();
+            long treeTime = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            for (int i = 0; i < 1000 * 1000; i++)
+                result += selector.accepts(puts[i % puts.length]).ordinal();
+            long compiledTime = System.nanoTime() - startTime;
+
+            out("Ignore this: " + result); // Make sure we are not fooled by optimization by creating an observable result
+            out("Evaluating '" + selection + "' 1.000.000 times took " + treeTime / 1000000 + " ms with the expression tree, and " +
+                compiledTime / 1000000 + " ms compiled");
+        }
+    }
+
+    private void out(String string) {
+        System.out.println(string);
+    }
+
+    public static void main(String[] args) throws ParseException {
+        new DocumentSelectorBenchmark().run();
+    }
+
+}
@@ -863,6 +863,35 @@ public class DocumentSelectorTestCase {
                          "Lexical error at line -1, column 17.  Encountered: <EOF> after : \"\\\"junk\"");
     }
 
+    @Test
+    public void testCompiledSelections() throws ParseException {
+        List<DocumentPut> documents = createDocs();
+
+        // Constant sub-expressions are folded, and the right hand side is not evaluated when the left one decides.
+        assertEquals(Result.FALSE, evaluate("1 > 2 and id.group == \"mygroup\"", documents.get(0)));
+        assertEquals(Result.TRUE, evaluate("\"foo\" = \"f*\" or id.group == \"mygroup\"", documents.get(0)));
+        assertError("2 > 1 and id.group == \"mygroup\"", documents.get(0), "Group identifier is null.");
+        assertEquals(Result.INVALID, evaluate("(1 < \"a\") and test.hint == 24", documents.get(0)));
+        assertEquals(Result.FALSE, evaluate("(1 < \"a\") and test.hint == 25", documents.get(0)));
+
+        // Multi-valued fields yield several results, which are combined pairwise by the logical operators.
+        assertEquals(Result.TRUE, evaluate("test.intarray == 12 and test.intarray != 12", documents.get(0)));
+        assertEquals(Result.FALSE, evaluate("test.intarray == 12 and id.namespace == \"other\"", documents.get(0)));
+        // The array both equals and differs from 12, and false and invalid is false, while true and invalid is invalid.
+        assertEquals(Result.FALSE, evaluate("test.intarray == 12 and (1 < \"a\")", documents.get(0)));
+        assertEquals(Result.TRUE, evaluate("not test.intarray == 13 or (1 < \"a\")", documents.get(0)));
+        assertEquals(Result.TRUE, evaluate("test.intarray == 13 or test.intarray == 12 and test.hint == 24", documents.get(0)));
+
+        // Field paths are resolved per document type.
+        DocumentSelector selector = new DocumentSelector("test.hstring = \"b*\" or parent.parentField == \"x\"");
+        assertEquals(Result.FALSE, selector.accepts(documents.get(0)));
+        assertEquals(Result.TRUE, selector.accepts(documents.get(1)));
+        Document parent = new Document(manager.getDocumentType("parent"), "id:ns:parent::1");
+        parent.setFieldValue("parentField", "x");
+        assertEquals(Result.TRUE, selector.accepts(new DocumentPut(parent)));
+        assertEquals(Result.FALSE, selector.accepts(documents.get(0)));
+    }
+
     @Test
     public void testThatVisitingReportsCorrectResult() throws ParseException {
         assertVisitWithValidNowWorks("music.expire > now()");
@@ -981,7 +1010,11 @@ public class DocumentSelectorTestCase {
     }
 
     private static Result evaluate(String expressionString, DocumentOperation op) throws ParseException {
-        return new DocumentSelector(expressionString).accepts(op);
+        DocumentSelector selector = new DocumentSelector(expressionString);
+        Result result = selector.accepts(op);
+        // The compiled selection must agree with evaluation of the expression tree.
+        assertEquals(expressionString, selector.getMatchingResultList(op).toResult(), result);
+        return result;
     }
 
     private static void assertError(String expressionString, DocumentOperation op, String expectedError) {
@@ -38,6 +38,12 @@ public class SerializationTestUtils {
         return document;
     }
 
+    public static Document deserializeDocumentLazily(byte[] buf, TestDocumentFactory factory) {
+        Document document = factory.createDocument();
+        DocumentDeserializerFactory.createLazyHead(factory.typeManager(), new GrowableByteBuffer(ByteBuffer.wrap(buf))).read(document);
+        return document;
+    }
+
     public static void assertFieldInDocumentSerialization(TestDocumentFactory documentFactory, String fieldName,
                                                           FieldValue serializableFieldValue) {
         Document document = documentFactory.createDocument();
@@ -64,6 +70,10 @@ public class SerializationTestUtils {
         byte[] buf = Files.readAllBytes(path);
         Document deserializedDocument = deserializeDocument(buf, factory);
         assertEquals(path.toString(), document, deserializedDocument);
+        Document lazilyDeserializedDocument = deserializeDocumentLazily(buf, factory);
+        // Fields are copied as they are, which need not be how they would be serialized here
+        assertEquals(path.toString(), document, deserializeDocument(serializeDocument(lazilyDeserializedDocument), factory));
+        assertEquals(path.toString(), document, lazilyDeserializedDocument);
     }
 
 }
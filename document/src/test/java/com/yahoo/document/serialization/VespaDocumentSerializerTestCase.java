@@ -1,18 +1,35 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.document.serialization;
 
+import com.yahoo.document.ArrayDataType;
 import com.yahoo.document.DataType;
 import com.yahoo.document.Document;
 import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.document.Field;
+import com.yahoo.document.StructDataType;
+import com.yahoo.document.datatypes.Array;
+import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.document.datatypes.IntegerFieldValue;
 import com.yahoo.document.datatypes.PredicateFieldValue;
 import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.datatypes.Struct;
 import com.yahoo.io.GrowableByteBuffer;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author Simon Thoresen Hult
@@ -47,4 +64,123 @@ public class VespaDocumentSerializerTestCase {
         Mockito.verify(predicate, Mockito.times(1)).serialize(Mockito.same(field), Mockito.any(FieldWriter.class));
     }
 
+    @Test
+    public void lazily_deserialized_fields_are_decoded_when_accessed_and_copied_when_serialized() {
+        DocumentTypeManager manager = new DocumentTypeManager();
+        StructDataType structType = new StructDataType("my_struct");
+        structType.addField(new Field("my_nested", DataType.STRING));
+        DocumentType docType = new DocumentType("my_type");
+        docType.addField("my_str", DataType.STRING);
+        docType.addField("my_int", DataType.INT);
+        docType.addField("my_struct", structType);
+        docType.addField("my_array", new ArrayDataType(DataType.STRING));
+        manager.register(docType);
+
+        Document doc = new Document(docType, "id:ns:my_type::");
+        doc.setFieldValue("my_str", new StringFieldValue("foo"));
+        doc.setFieldValue("my_int", new IntegerFieldValue(69));
+        Struct struct = structType.createFieldValue();
+        struct.setFieldValue("my_nested", new StringFieldValue("bar"));
+        doc.setFieldValue("my_struct", struct);
+        Array<StringFieldValue> array = new Array<>(docType.getField("my_array").getDataType());
+        array.add(new StringFieldValue("baz"));
+        doc.setFieldValue("my_array", array);
+        byte[] serialized = serialize(doc);
+
+        Document lazy = deserializeLazily(manager, serialized);
+        assertEquals(4, lazy.getSerializedFieldValues().size());
+        assertEquals(4, lazy.getFieldCount());
+        assertEquals(new IntegerFieldValue(69), lazy.getFieldValue("my_int"));
+        assertEquals(struct, lazy.getFieldValue("my_struct"));
+        assertArrayEquals(sorted(new int[] { docType.getField("my_str").getId(), docType.getField("my_array").getId() }),
+                          sorted(lazy.getSerializedFieldValues().fieldIds()));
+        assertEquals(4, lazy.getFieldCount());
+        assertArrayEquals(serialized, serialize(lazy));
+
+        // Modified, removed and cloned fields are no longer serialized, but all other fields still are.
+        Document clone = lazy.clone();
+        lazy.setFieldValue("my_str", new StringFieldValue("qux"));
+        assertEquals(new IntegerFieldValue(69), lazy.removeFieldValue("my_int"));
+        assertEquals(1, lazy.getSerializedFieldValues().size());
+        assertEquals(3, lazy.getFieldCount());
+        Document modified = deserializeLazily(manager, serialize(lazy));
+        assertEquals(new StringFieldValue("qux"), modified.getFieldValue("my_str"));
+        assertNull(modified.getFieldValue("my_int"));
+        assertEquals(array, modified.getFieldValue("my_array"));
+        assertEquals(3, modified.getFieldCount());
+
+        assertEquals(2, clone.getSerializedFieldValues().size());
+        assertEquals(doc, clone);
+        assertNull(clone.getSerializedFieldValues());
+        assertArrayEquals(serialized, serialize(clone));
+    }
+
+    @Test
+    public void lazily_deserialized_fields_may_be_read_concurrently() throws Exception {
+        DocumentTypeManager manager = new DocumentTypeManager();
+        DocumentType docType = new DocumentType("my_type");
+        int fieldCount = 64;
+        for (int i = 0; i < fieldCount; i++)
+            docType.addField("my_str_" + i, DataType.STRING);
+        manager.register(docType);
+        Document doc = new Document(docType, "id:ns:my_type::");
+        for (int i = 0; i < fieldCount; i++)
+            doc.setFieldValue("my_str_" + i, new StringFieldValue("value " + i));
+        byte[] serialized = serialize(doc);
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 100; round++) {
+                Document lazy = deserializeLazily(manager, serialized);
+                CyclicBarrier start = new CyclicBarrier(threads);
+                List<Future<FieldValue[]>> reads = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int offset = t * fieldCount / threads;
+                    reads.add(executor.submit(() -> {
+                        start.await();
+                        FieldValue[] values = new FieldValue[fieldCount];
+                        for (int i = 0; i < fieldCount; i++) {
+                            int field = (offset + i) % fieldCount;
+                            values[field] = lazy.getFieldValue("my_str_" + field);
+                            if (i == fieldCount / 2) assertArrayEquals(serialized, serialize(lazy));
+                        }
+                        return values;
+                    }));
+                }
+                FieldValue[] first = reads.get(0).get();
+                for (int i = 0; i < fieldCount; i++)
+                    assertEquals(new StringFieldValue("value " + i), first[i]);
+                for (Future<FieldValue[]> read : reads) {
+                    FieldValue[] values = read.get();
+                    for (int i = 0; i < fieldCount; i++)
+                        assertSame(first[i], values[i]);
+                }
+                assertNull(lazy.getSerializedFieldValues());
+                assertEquals(doc, lazy);
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private static byte[] serialize(Document doc) {
+        GrowableByteBuffer buf = new GrowableByteBuffer();
+        DocumentSerializerFactory.createHead(buf).write(doc);
+        buf.flip();
+        byte[] serialized = new byte[buf.remaining()];
+        buf.get(serialized);
+        return serialized;
+    }
+
+    private static Document deserializeLazily(DocumentTypeManager manager, byte[] serialized) {
+        return new Document(DocumentDeserializerFactory.createLazyHead(manager, GrowableByteBuffer.wrap(serialized)));
+    }
+
+    private static int[] sorted(int[] values) {
+        Arrays.sort(values);
+        return values;
+    }
+
 }
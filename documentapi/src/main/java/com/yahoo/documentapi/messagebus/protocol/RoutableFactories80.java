@@ -44,6 +44,9 @@ abstract class RoutableFactories80 {
 
     private static final Logger log = Logger.getLogger(RoutableFactories80.class.getName());
 
+    /** Whether put documents are decoded lazily by default; see {@link #createPutDocumentMessageFactory(boolean)} */
+    private static final boolean decodePutFieldsLazily = System.getProperty("vespa.lazy_put_document_decoding", "false").equals("true");
+
     private static class ProtobufCodec<DocApiT extends Routable, ProtoT extends AbstractMessage> implements RoutableFactory {
 
         private final Class<DocApiT>                          apiClass;
@@ -219,6 +222,15 @@ abstract class RoutableFactories80 {
         return Document.createDocument(deserializer);
     }
 
+    /**
+     * Returns a document which decodes its fields when they are accessed, such that fields which are just passed on,
+     * e.g., by document processors which only look at some fields, are written back by copying their bytes.
+     */
+    private static Document fromProtoDocumentWithLazyFields(DocapiCommon.Document protoDoc, DocumentTypeManager repo) {
+        var deserializer = DocumentDeserializerFactory.createLazyHead(repo, new GrowableByteBuffer(protoDoc.getPayload().asReadOnlyByteBuffer()));
+        return Document.createDocument(deserializer);
+    }
+
     private static Document deserializeDoc(ByteBuffer rawDocData, DocumentTypeManager repo) {
         var deserializer = DocumentDeserializerFactory.createHead(repo, new GrowableByteBuffer(rawDocData));
         return Document.createDocument(deserializer);
@@ -350,6 +362,14 @@ abstract class RoutableFactories80 {
     // ---------------------------------------------
 
     static RoutableFactory createPutDocumentMessageFactory() {
+        return createPutDocumentMessageFactory(decodePutFieldsLazily);
+    }
+
+    /**
+     * Returns a factory for put messages, which decodes the fields of the documents it reads when they are
+     * first accessed if lazyFields is true, and when the message is decoded otherwise.
+     */
+    static RoutableFactory createPutDocumentMessageFactory(boolean lazyFields) {
         return ProtobufCodecBuilder
                 .of(PutDocumentMessage.class, DocapiFeed.PutDocumentRequest.class)
                 .encoder((apiMsg) -> {
@@ -364,7 +384,8 @@ abstract class RoutableFactories80 {
                     return builder.build();
                 })
                 .decoderWithRepo(DocapiFeed.PutDocumentRequest.parser(), (protoMsg, repo) -> {
-                    var doc = fromProtoDocument(protoMsg.getDocument(), repo);
+                    var doc = lazyFields ? fromProtoDocumentWithLazyFields(protoMsg.getDocument(), repo)
+                                         : fromProtoDocument(protoMsg.getDocument(), repo);
                     var msg = new PutDocumentMessage(new DocumentPut(doc));
                     if (protoMsg.hasCondition()) {
                         msg.setCondition(fromProtoTasCondition(protoMsg.getCondition()));
@@ -9,8 +9,12 @@ import com.yahoo.document.DocumentPut;
 import com.yahoo.document.DocumentUpdate;
 import com.yahoo.document.GlobalId;
 import com.yahoo.document.TestAndSetCondition;
+import com.yahoo.document.datatypes.FloatFieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.document.fieldpathupdate.RemoveFieldPathUpdate;
 import com.yahoo.document.idstring.IdString;
+import com.yahoo.document.serialization.DocumentDeserializerFactory;
+import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.messagebus.Routable;
 import com.yahoo.text.Utf8;
 import com.yahoo.vdslib.SearchResult;
@@ -187,6 +191,28 @@ public class Messages80TestCase extends MessagesTestBase {
             });
             verifyCreateIfNonExistentFlag();
             verifyTasConditionsCanHaveSelectionAndOrTimestamp();
+            verifyFieldsAreDecodedWhenAccessed();
+        }
+
+        void verifyFieldsAreDecodedWhenAccessed() {
+            var doc = new Document(protocol.getDocumentTypeManager().getDocumentType("testdoc"), "id:ns:testdoc::");
+            doc.setFieldValue("stringfield", new StringFieldValue("foo"));
+            doc.setFieldValue("floatfield", new FloatFieldValue(4.2f));
+            var msg = new PutDocumentMessage(new DocumentPut(doc));
+            byte[] encoded = encode(msg);
+
+            // Fields are decoded eagerly unless lazy decoding is enabled.
+            assertNull(((PutDocumentMessage) decode(encoded)).getDocumentPut().getDocument().getSerializedFieldValues());
+
+            var in = DocumentDeserializerFactory.createHead(protocol.getDocumentTypeManager(), GrowableByteBuffer.wrap(encoded));
+            assertEquals(DocumentProtocol.MESSAGE_PUTDOCUMENT, in.getInt(null));
+            var lazy = (PutDocumentMessage) RoutableFactories80.createPutDocumentMessageFactory(true).decode(in);
+            var decoded = lazy.getDocumentPut().getDocument();
+            assertEquals(2, decoded.getSerializedFieldValues().size());
+            assertEquals(new StringFieldValue("foo"), decoded.getFieldValue("stringfield"));
+            assertEquals(1, decoded.getSerializedFieldValues().size());
+            assertArrayEquals(encoded, encode(new PutDocumentMessage(new DocumentPut(decoded))));
+            assertEquals(doc, decoded);
         }
     }
 
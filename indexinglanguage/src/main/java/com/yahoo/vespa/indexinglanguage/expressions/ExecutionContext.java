@@ -9,27 +9,62 @@ import com.yahoo.language.Linguistics;
 import com.yahoo.language.detect.Detection;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * @author Simon Thoresen Hult
  */
 public class ExecutionContext {
 
-    private final Map<String, FieldValue> variables = new HashMap<>();
+    private final Map<String, FieldValue> variables;
     private final FieldValues fieldValues;
     private FieldValue currentValue;
     private Language language;
-    private final Map<Object, Object> cache = LazyMap.newHashMap();
+    private final Map<Object, Object> cache;
+
+    /** The names of the variables set in this, if this is a fork of another context, and null otherwise */
+    private final Set<String> setVariables;
+    private boolean languageSet = false;
 
     public ExecutionContext() {
         this(null);
     }
 
     public ExecutionContext(FieldValues fieldValue) {
+        this.variables = new HashMap<>();
         this.fieldValues = fieldValue;
         this.language = Language.UNKNOWN;
+        this.cache = LazyMap.newHashMap();
+        this.setVariables = null;
+    }
+
+    private ExecutionContext(ExecutionContext parent, FieldValues fieldValues) {
+        this.variables = new HashMap<>(parent.variables);
+        this.fieldValues = fieldValues;
+        this.currentValue = parent.currentValue;
+        this.language = parent.language;
+        this.cache = new HashMap<>(parent.cache);
+        this.setVariables = new HashSet<>();
+    }
+
+    /**
+     * Returns a copy of this which uses the given field values, and which can be used by another thread
+     * than this; its state is added back to this by {@link #join}.
+     */
+    ExecutionContext fork(FieldValues fieldValues) {
+        return new ExecutionContext(this, fieldValues);
+    }
+
+    /** Sets the variables and language which were set in the given fork of this, and adds its cached values, to this. */
+    void join(ExecutionContext fork) {
+        for (String name : fork.setVariables)
+            variables.put(name, fork.variables.get(name));
+        if (fork.languageSet)
+            language = fork.language;
+        cache.putAll(fork.cache);
     }
 
     public ExecutionContext execute(Expression expression) {
@@ -67,6 +102,8 @@ public class ExecutionContext {
 
     public ExecutionContext setVariable(String name, FieldValue value) {
         variables.put(name, value);
+        if (setVariables != null)
+            setVariables.add(name);
         return this;
     }
 
@@ -95,6 +132,7 @@ public class ExecutionContext {
 
     public ExecutionContext setLanguage(Language language) {
         this.language = Objects.requireNonNull(language);
+        this.languageSet = true;
         return this;
     }
 
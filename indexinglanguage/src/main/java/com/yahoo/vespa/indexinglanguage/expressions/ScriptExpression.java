@@ -2,29 +2,43 @@
 package com.yahoo.vespa.indexinglanguage.expressions;
 
 import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.FieldPath;
 import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.process.Chunker;
 import com.yahoo.language.process.Embedder;
 import com.yahoo.language.process.FieldGenerator;
 import com.yahoo.language.simple.SimpleLinguistics;
+import com.yahoo.vespa.indexinglanguage.DocumentFieldValues;
 import com.yahoo.vespa.indexinglanguage.ExpressionConverter;
 import com.yahoo.vespa.indexinglanguage.ScriptParser;
 import com.yahoo.vespa.indexinglanguage.ScriptParserContext;
 import com.yahoo.vespa.indexinglanguage.parser.IndexingInput;
 import com.yahoo.vespa.indexinglanguage.parser.ParseException;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
 
 /**
  * @author Simon Thoresen Hult
  */
 public final class ScriptExpression extends ExpressionList<StatementExpression> {
 
+    /** The statements of this grouped in levels which can each execute concurrently, computed when first needed */
+    private volatile List<int[]> levels = null;
+
     public ScriptExpression() {
         this(List.of());
     }
@@ -85,14 +99,120 @@ public final class ScriptExpression extends ExpressionList<StatementExpression>
     @Override
     protected void doExecute(ExecutionContext context) {
         FieldValue input = context.getCurrentValue();
-        for (StatementExpression statement : this) {
-            if (context.isComplete() ||
-                (statement.getInputFields().isEmpty() || containsAtLeastOneInputFrom(statement.getInputFields(), context))) {
-                context.setCurrentValue(input);
-                context.execute(statement);
-            }
+        for (StatementExpression statement : this)
+            executeStatement(statement, context, input, null);
+        context.setCurrentValue(input);
+    }
+
+    /**
+     * Executes this like {@link #execute(ExecutionContext)}, but executes statements which do not depend on each other
+     * concurrently, using the given executor, when the context has document field values. Statements depend on each other
+     * through the fields they read and write, and the variables they get and set. The writes of concurrently executed
+     * statements are applied in the order of the statements, so the result is the same as when executing them in order.
+     *
+     * @param context the context to execute in
+     * @param executor the executor to use for executing statements concurrently, or null to execute them in order
+     * @param statementTimer a consumer of the time spent executing each statement, or null
+     * @return the current value of the context after execution
+     */
+    public FieldValue execute(ExecutionContext context, Executor executor, BiConsumer<StatementExpression, Duration> statementTimer) {
+        if (requiresInput() && context.getCurrentValue() == null) return null;
+
+        FieldValue input = context.getCurrentValue();
+        if (executor == null || size() < 2 || ! (context.getFieldValues() instanceof DocumentFieldValues)) {
+            for (StatementExpression statement : this)
+                executeStatement(statement, context, input, statementTimer);
+        }
+        else {
+            for (int[] level : levels())
+                executeLevel(level, context, input, executor, statementTimer);
         }
         context.setCurrentValue(input);
+        return context.getCurrentValue();
+    }
+
+    private List<int[]> levels() {
+        if (levels == null)
+            levels = StatementDependencies.levels(asList());
+        return levels;
+    }
+
+    private void executeLevel(int[] level, ExecutionContext context, FieldValue input,
+                              Executor executor, BiConsumer<StatementExpression, Duration> statementTimer) {
+        if (level.length == 1) {
+            executeStatement(get(level[0]), context, input, statementTimer);
+            return;
+        }
+
+        DocumentFieldValues values = (DocumentFieldValues) context.getFieldValues();
+        List<BufferedFieldValues> buffers = new ArrayList<>(level.length);
+        List<ExecutionContext> forks = new ArrayList<>(level.length);
+        List<FutureTask<Void>> tasks = new ArrayList<>(level.length);
+        for (int index : level) {
+            BufferedFieldValues buffer = new BufferedFieldValues(values);
+            ExecutionContext fork = context.fork(buffer);
+            StatementExpression statement = get(index);
+            buffers.add(buffer);
+            forks.add(fork);
+            tasks.add(new FutureTask<>(() -> executeStatement(statement, fork, input, statementTimer), null));
+        }
+        for (FutureTask<Void> task : tasks.subList(1, tasks.size())) {
+            try {
+                executor.execute(task);
+            }
+            catch (RejectedExecutionException e) {
+                break; // Run by this thread below
+            }
+        }
+        for (FutureTask<Void> task : tasks)
+            task.run(); // Does nothing if the task is already started by the executor
+
+        List<Throwable> failures = new ArrayList<>(level.length);
+        for (FutureTask<Void> task : tasks)
+            failures.add(await(task));
+        for (int i = 0; i < level.length; i++) {
+            if (failures.get(i) != null) {
+                if (failures.get(i) instanceof RuntimeException e) throw e;
+                if (failures.get(i) instanceof Error e) throw e;
+                throw new IllegalStateException("Failed executing '" + get(level[i]) + "'", failures.get(i));
+            }
+            buffers.get(i).applyTo(values);
+            context.join(forks.get(i));
+        }
+    }
+
+    /** Waits for the given task to complete, and returns what it failed with, if anything. */
+    private static Throwable await(FutureTask<Void> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    task.get();
+                    return null;
+                }
+                catch (ExecutionException e) {
+                    return e.getCause();
+                }
+                catch (InterruptedException e) {
+                    interrupted = true; // The task may still be running, so we must keep waiting
+                }
+            }
+        }
+        finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private void executeStatement(StatementExpression statement, ExecutionContext context, FieldValue input,
+                                  BiConsumer<StatementExpression, Duration> statementTimer) {
+        if (context.isComplete() ||
+            (statement.getInputFields().isEmpty() || containsAtLeastOneInputFrom(statement.getInputFields(), context))) {
+            context.setCurrentValue(input);
+            long startNanos = statementTimer == null ? 0 : System.nanoTime();
+            context.execute(statement);
+            if (statementTimer != null)
+                statementTimer.accept(statement, Duration.ofNanos(System.nanoTime() - startNanos));
+        }
     }
 
     private boolean containsAtLeastOneInputFrom(List<String> inputFields, ExecutionContext context) {
@@ -138,4 +258,67 @@ public final class ScriptExpression extends ExpressionList<StatementExpression>
         return ScriptParser.parseScript(config);
     }
 
+    /**
+     * Field values for a statement which is executed concurrently with others: Reads are serialized, and writes
+     * are kept until they are applied to the underlying field values, but are visible to the statement itself.
+     */
+    private static class BufferedFieldValues implements DocumentFieldValues {
+
+        private final DocumentFieldValues values;
+        private final List<Write> writes = new ArrayList<>(1);
+        private final Map<String, FieldValue> written = new HashMap<>();
+
+        BufferedFieldValues(DocumentFieldValues values) {
+            this.values = values;
+        }
+
+        void applyTo(DocumentFieldValues values) {
+            for (Write write : writes)
+                values.setOutputValue(write.fieldName, write.value, write.expression);
+        }
+
+        @Override
+        public FieldValue getInputValue(String fieldName) {
+            if (written.containsKey(fieldName)) return written.get(fieldName);
+            synchronized (values) {
+                return values.getInputValue(fieldName);
+            }
+        }
+
+        @Override
+        public FieldValue getInputValue(FieldPath fieldPath) {
+            if (fieldPath.size() == 1 && fieldPath.get(0).getFieldRef() != null) {
+                String fieldName = fieldPath.get(0).getFieldRef().getName();
+                if (written.containsKey(fieldName)) return written.get(fieldName);
+            }
+            synchronized (values) {
+                return values.getInputValue(fieldPath);
+            }
+        }
+
+        @Override
+        public BufferedFieldValues setOutputValue(String fieldName, FieldValue fieldValue, Expression expression) {
+            writes.add(new Write(fieldName, fieldValue, expression));
+            written.put(fieldName, fieldValue);
+            return this;
+        }
+
+        @Override
+        public DataType getFieldType(String fieldName, Expression expression) {
+            return values.getFieldType(fieldName, expression);
+        }
+
+        @Override
+        public boolean isComplete() { return values.isComplete(); }
+
+        @Override
+        public Document getFullOutput() { return values.getFullOutput(); }
+
+        @Override
+        public Document getUpdatableOutput() { return values.getUpdatableOutput(); }
+
+        private record Write(String fieldName, FieldValue value, Expression expression) { }
+
+    }
+
 }
@@ -0,0 +1,143 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.indexinglanguage.expressions;
+
+import com.yahoo.collections.Pair;
+import com.yahoo.vespa.objects.ObjectOperation;
+import com.yahoo.vespa.objects.ObjectPredicate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds which statements of a script depend on each other through the document fields they read and write,
+ * and the variables they get and set, and groups them into levels of statements which may execute concurrently.
+ * Statements which set the language or clear the state are executed alone, as they may affect any later statement,
+ * as are statements which read a path into a field they also write, since writes are applied only when statements are done;
+ * a statement reading a whole field it has written itself sees the written value, as when statements execute in order.
+ *
+ * @author bratseth
+ */
+final class StatementDependencies {
+
+    private StatementDependencies() { }
+
+    /**
+     * Returns the indices of the given statements grouped in levels, where each statement depends only on statements
+     * in earlier levels, and the statements in each level are in the order they are given.
+     */
+    static List<int[]> levels(List<StatementExpression> statements) {
+        List<Access> accesses = new ArrayList<>(statements.size());
+        for (StatementExpression statement : statements)
+            accesses.add(Access.of(statement));
+
+        int[] levelOf = new int[statements.size()];
+        int levelCount = 0;
+        for (int i = 0; i < statements.size(); i++) {
+            for (int j = 0; j < i; j++)
+                if (levelOf[j] >= levelOf[i] && accesses.get(i).conflictsWith(accesses.get(j)))
+                    levelOf[i] = levelOf[j] + 1;
+            levelCount = Math.max(levelCount, levelOf[i] + 1);
+        }
+
+        List<int[]> levels = new ArrayList<>(levelCount);
+        for (int level = 0; level < levelCount; level++) {
+            int size = 0;
+            for (int l : levelOf) if (l == level) size++;
+            int[] indices = new int[size];
+            for (int i = 0, j = 0; i < levelOf.length; i++) if (levelOf[i] == level) indices[j++] = i;
+            levels.add(indices);
+        }
+        return Collections.unmodifiableList(levels);
+    }
+
+    /** The top-level fields and the variables read and written by a statement. */
+    private static class Access implements ObjectOperation, ObjectPredicate {
+
+        final Set<String> readFields = new HashSet<>();
+        final Set<String> pathReadFields = new HashSet<>();
+        final Set<String> writtenFields = new HashSet<>();
+        final Set<String> readVariables = new HashSet<>();
+        final Set<String> writtenVariables = new HashSet<>();
+        boolean exclusive = false;
+
+        static Access of(StatementExpression statement) {
+            Access access = new Access();
+            statement.select(access, access);
+            if (intersects(access.pathReadFields, access.writtenFields))
+                access.exclusive = true;
+            return access;
+        }
+
+        boolean conflictsWith(Access other) {
+            return exclusive || other.exclusive
+                   || intersects(readFields, other.writtenFields)
+                   || intersects(writtenFields, other.readFields)
+                   || intersects(writtenFields, other.writtenFields)
+                   || intersects(readVariables, other.writtenVariables)
+                   || intersects(writtenVariables, other.readVariables)
+                   || intersects(writtenVariables, other.writtenVariables);
+        }
+
+        @Override
+        public boolean check(Object obj) {
+            return obj instanceof InputExpression || obj instanceof SelectInputExpression || obj instanceof OutputExpression
+                   || obj instanceof GetVarExpression || obj instanceof SetVarExpression
+                   || obj instanceof OptimizePredicateExpression
+                   || obj instanceof SetLanguageExpression || obj instanceof ClearStateExpression;
+        }
+
+        @Override
+        public void execute(Object obj) {
+            if (obj instanceof InputExpression input) {
+                addRead(input.getFieldName());
+            }
+            else if (obj instanceof SelectInputExpression select) {
+                for (Pair<String, Expression> selectCase : select.getCases())
+                    addRead(selectCase.getFirst());
+                select.selectMembers(this, this); // Selected expressions are not traversed further by default
+            }
+            else if (obj instanceof OutputExpression output) {
+                writtenFields.add(topLevelField(output.getFieldName()));
+            }
+            else if (obj instanceof GetVarExpression getVar) {
+                readVariables.add(getVar.getVariableName());
+            }
+            else if (obj instanceof SetVarExpression setVar) {
+                writtenVariables.add(setVar.getVariableName());
+            }
+            else if (obj instanceof OptimizePredicateExpression) {
+                readVariables.addAll(List.of("arity", "lower_bound", "upper_bound"));
+            }
+            else if (obj instanceof SetLanguageExpression || obj instanceof ClearStateExpression) {
+                exclusive = true;
+            }
+        }
+
+        private void addRead(String fieldName) {
+            String field = topLevelField(fieldName);
+            readFields.add(field);
+            if ( ! field.equals(fieldName))
+                pathReadFields.add(field);
+        }
+
+        private static String topLevelField(String fieldName) {
+            for (int i = 0; i < fieldName.length(); i++) {
+                char c = fieldName.charAt(i);
+                if (c == '.' || c == '{' || c == '[') return fieldName.substring(0, i);
+            }
+            return fieldName;
+        }
+
+        private static boolean intersects(Set<String> a, Set<String> b) {
+            if (a.size() > b.size()) return intersects(b, a);
+            for (String element : a)
+                if (b.contains(element)) return true;
+            return false;
+        }
+
+    }
+
+}
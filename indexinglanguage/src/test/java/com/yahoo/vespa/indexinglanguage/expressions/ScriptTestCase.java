@@ -3,6 +3,8 @@ package com.yahoo.vespa.indexinglanguage.expressions;
 
 import com.yahoo.document.ArrayDataType;
 import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
 import com.yahoo.document.Field;
 import com.yahoo.document.PositionDataType;
 import com.yahoo.document.StructDataType;
@@ -11,11 +13,17 @@ import com.yahoo.document.datatypes.IntegerFieldValue;
 import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.document.datatypes.Struct;
 import com.yahoo.language.simple.SimpleLinguistics;
+import com.yahoo.vespa.indexinglanguage.SimpleDocumentFieldValues;
 import com.yahoo.vespa.indexinglanguage.SimpleTestAdapter;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
@@ -237,6 +245,47 @@ public class ScriptTestCase {
         assertEquals("595", adapter.values.get("location_zcurve").toString());
     }
 
+    @Test
+    public void testConcurrentStatements() {
+        var type = new DocumentType("test");
+        for (String name : List.of("text", "a", "b", "c", "d"))
+            type.addField(name, DataType.STRING);
+        var latch = new CountDownLatch(3);
+        // The first statement writes the field read by the next three, which wait for each other,
+        // and the last statement writes a field also written by one of them, and gets a variable set by another.
+        var script = newScript(newStatement(new InputExpression("text"), new LowerCaseExpression(), new SummaryExpression("text")),
+                               newStatement(new InputExpression("text"), new AwaitExpression(latch), new AttributeExpression("a")),
+                               newStatement(new InputExpression("text"), new AwaitExpression(latch), new SetVarExpression("var"),
+                                            new AttributeExpression("b")),
+                               newStatement(new InputExpression("text"), new AwaitExpression(latch), new AttributeExpression("c")),
+                               newStatement(new GetVarExpression("var"), new TrimExpression(), new AttributeExpression("a")),
+                               newStatement(new InputExpression("text"), new AttributeExpression("d")));
+        var levels = StatementDependencies.levels(script.asList());
+        assertEquals(3, levels.size());
+        assertArrayEquals(new int[] { 0 }, levels.get(0));
+        assertArrayEquals(new int[] { 1, 2, 3, 5 }, levels.get(1));
+        assertArrayEquals(new int[] { 4 }, levels.get(2));
+
+        var document = new Document(type, "id:ns:test::");
+        document.setFieldValue("text", new StringFieldValue(" Foo "));
+        var executor = Executors.newFixedThreadPool(2);
+        var timed = new AtomicInteger();
+        try {
+            script.execute(new ExecutionContext(new SimpleDocumentFieldValues(document, document)),
+                           executor,
+                           (statement, duration) -> timed.incrementAndGet());
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertEquals(6, timed.get());
+        assertEquals(new StringFieldValue(" foo "), document.getFieldValue("text"));
+        assertEquals(new StringFieldValue("foo"), document.getFieldValue("a"));
+        assertEquals(new StringFieldValue(" foo "), document.getFieldValue("b"));
+        assertEquals(new StringFieldValue(" foo "), document.getFieldValue("c"));
+        assertEquals(new StringFieldValue(" foo "), document.getFieldValue("d"));
+    }
+
     private static ScriptExpression newScript(StatementExpression... args) {
         return new ScriptExpression(args);
     }
@@ -254,6 +303,29 @@ public class ScriptTestCase {
 
     }
 
+    /** Waits until the given latch is counted down by as many statements as it was created with */
+    private static class AwaitExpression extends Expression {
+
+        private final CountDownLatch latch;
+
+        AwaitExpression(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        protected void doExecute(ExecutionContext context) {
+            latch.countDown();
+            try {
+                if ( ! latch.await(1, TimeUnit.MINUTES))
+                    throw new IllegalStateException("Statements were not executed concurrently");
+            }
+            catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+    }
+
     private static class PutCacheExpression extends Expression {
 
         private final String keyToSet;
@@ -320,6 +320,8 @@ class Connection extends Target {
         synchronized (this) {
             queue.flush(myQueue);
         }
+        int packets = 0;
+        int writes = 0;
         for (int i = 0; i < WRITE_REDO; i++) {
             while (output.bytes() < WRITE_SIZE) {
                 Packet packet = (Packet) myQueue.dequeue();
@@ -330,16 +332,21 @@ class Connection extends Target {
                 ByteBuffer wb = output.getWritable(info.packetLength());
                 owner.writePacket(info);
                 info.encodePacket(packet, wb);
+                packets++;
             }
             ByteBuffer rb = output.getReadable();
             if (rb.remaining() == 0) {
                 break;
             }
             socket.write(rb);
+            writes++;
             if (rb.remaining() > 0) {
                 break;
             }
         }
+        if (writes > 0) {
+            parent.transport().metrics().addWrites(writes, packets);
+        }
         int myWriteWork = 0;
         if (output.bytes() > 0) {
             myWriteWork++;
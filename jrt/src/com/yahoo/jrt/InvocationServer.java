@@ -32,6 +32,10 @@ class InvocationServer {
         if (method != null) {
             if (method.checkParameters(request)) {
                 if (method.requestAccessFilter().allow(request)) {
+                    if (method.threadedInvoker() != null) {
+                        method.threadedInvoker().invoke(this::invokeMethod, this::rejectInvocation);
+                        return;
+                    }
                     method.invoke(request);
                 } else {
                     request.setError(ErrorCode.PERMISSION_DENIED, "Permission denied");
@@ -47,6 +51,18 @@ class InvocationServer {
         }
     }
 
+    private void invokeMethod() {
+        method.invoke(request);
+        if (!request.isDetached()) {
+            returnRequest();
+        }
+    }
+
+    private void rejectInvocation(int errorCode, String message) {
+        request.setError(errorCode, message);
+        returnRequest();
+    }
+
     public void returnRequest() {
         if (!conn.completeRequest(done)) {
             throw new IllegalStateException("Request already returned");
@@ -5,6 +5,7 @@ package com.yahoo.jrt;
 import com.yahoo.security.tls.Capability;
 import com.yahoo.security.tls.CapabilitySet;
 
+import java.time.Duration;
 import java.util.Objects;
 
 /**
@@ -47,6 +48,13 @@ public class Method {
 
     private static final RequireCapabilitiesFilter defaultFilter = RequireCapabilitiesFilter.unclassified();
     private RequestAccessFilter filter = defaultFilter;
+    private ThreadedInvoker invoker = null;
+
+    /** The default max number of invocations waiting to run, for methods invoked on threads of their own */
+    private static final int defaultMaxQueuedInvocations = 1000;
+
+    /** The default max number of seconds invocations may wait to run, for methods invoked on threads of their own */
+    private static final int defaultMaxQueueSeconds = 10;
 
     private static final String undocumented = "???";
 
@@ -163,6 +171,78 @@ public class Method {
 
     public RequestAccessFilter requestAccessFilter() { return filter; }
 
+    /**
+     * Invoke the handler of this method on threads of its own,
+     * rather than in the transport thread, so that the handler may
+     * block, e.g., to wait for a result, and return the request
+     * simply by returning, rather than detaching it. Virtual threads
+     * are used when the runtime supports them, and a shared pool of
+     * daemon threads otherwise. At most the given number of
+     * invocations run at the same time; further invocations are
+     * queued until running ones complete. A handler blocking a long
+     * time holds on to its share of this limit meanwhile. At most
+     * {@value #defaultMaxQueuedInvocations} invocations are queued,
+     * for at most {@value #defaultMaxQueueSeconds} seconds; see
+     * {@link #invokeOnVirtualThreads(int, int, Duration)}.
+     *
+     * @return this Method, to allow chaining
+     * @param maxConcurrentInvocations the max number of concurrent invocations of this method
+     **/
+    public Method invokeOnVirtualThreads(int maxConcurrentInvocations) {
+        return invokeOnVirtualThreads(maxConcurrentInvocations, defaultMaxQueuedInvocations,
+                                      Duration.ofSeconds(defaultMaxQueueSeconds));
+    }
+
+    /**
+     * Invoke the handler of this method on threads of its own, as
+     * {@link #invokeOnVirtualThreads(int)}, with the given bounds on
+     * queued invocations. Invocations arriving when the queue is
+     * full fail with {@link ErrorCode#OVERLOAD}, and invocations
+     * queued for longer than the given time fail with
+     * {@link ErrorCode#TIMEOUT} rather than being started.
+     *
+     * @return this Method, to allow chaining
+     * @param maxConcurrentInvocations the max number of concurrent invocations of this method
+     * @param maxQueuedInvocations the max number of invocations waiting to run
+     * @param maxQueueTime the max time an invocation may wait to run
+     **/
+    public Method invokeOnVirtualThreads(int maxConcurrentInvocations, int maxQueuedInvocations, Duration maxQueueTime) {
+        this.invoker = new ThreadedInvoker(maxConcurrentInvocations, maxQueuedInvocations, maxQueueTime);
+        return this;
+    }
+
+    /**
+     * Obtain the invoker running invocations of this method on
+     * threads of their own, or null if they run in the transport thread
+     *
+     * @return threaded invoker, or null
+     **/
+    ThreadedInvoker threadedInvoker() {
+        return invoker;
+    }
+
+    /**
+     * Obtain the number of invocations of this method currently
+     * queued to run on threads of their own, see {@link
+     * #invokeOnVirtualThreads(int, int, Duration)}
+     *
+     * @return number of queued invocations, or 0 if invocations run in the transport thread
+     **/
+    public int queuedInvocations() {
+        return invoker == null ? 0 : invoker.queued();
+    }
+
+    /**
+     * Obtain the total number of invocations of this method which
+     * have been rejected, with {@link ErrorCode#OVERLOAD} or {@link
+     * ErrorCode#TIMEOUT}, rather than run on a thread of their own
+     *
+     * @return number of rejected invocations, or 0 if invocations run in the transport thread
+     **/
+    public long rejectedInvocations() {
+        return invoker == null ? 0 : invoker.rejected();
+    }
+
     /**
      * Obtain the name of a parameter
      *
@@ -0,0 +1,185 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the invocations of a single method on threads of their own, rather than in the transport
+ * thread, so that handlers may block. At most a given number of invocations run concurrently;
+ * further invocations are queued, and started in order as running ones complete. The queue is
+ * bounded, and invocations arriving when it is full are rejected with {@link ErrorCode#OVERLOAD}.
+ * Invocations which have been queued for longer than a given time are rejected with
+ * {@link ErrorCode#TIMEOUT} instead of being started, as their callers have likely given up.
+ * Invocations run on virtual threads when the runtime supports them, and on a shared pool of
+ * daemon threads otherwise.
+ *
+ * @author bjorncs
+ */
+class ThreadedInvoker {
+
+    private static final Logger log = Logger.getLogger(ThreadedInvoker.class.getName());
+
+    private static final Executor executor = createExecutor();
+
+    /** Receives the error of an invocation which is rejected rather than run */
+    interface Rejection {
+        void reject(int errorCode, String message);
+    }
+
+    private static class Queued {
+        final Runnable invocation;
+        final Rejection rejection;
+        final long queuedNanos;
+        Queued(Runnable invocation, Rejection rejection, long queuedNanos) {
+            this.invocation = invocation;
+            this.rejection = rejection;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxQueueTimeNanos;
+    private final ArrayDeque<Queued> queued = new ArrayDeque<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private int running = 0;
+
+    ThreadedInvoker(int maxConcurrent, int maxQueued, Duration maxQueueTime) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("max concurrent invocations must be positive, but was " + maxConcurrent);
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("max queued invocations can not be negative, but was " + maxQueued);
+        }
+        if (maxQueueTime.isNegative()) {
+            throw new IllegalArgumentException("max queue time can not be negative, but was " + maxQueueTime);
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxQueueTimeNanos = maxQueueTime.toNanos();
+    }
+
+    int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /** Returns the number of invocations currently waiting to run */
+    synchronized int queued() {
+        return queued.size();
+    }
+
+    /** Returns the total number of invocations rejected so far, because the queue was full or they waited too long */
+    long rejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Runs the given invocation on a thread of its own, now if fewer than the max number
+     * of invocations are running, or later otherwise. The invocation is rejected instead
+     * if the queue is full, or if it is queued for longer than the max queue time.
+     *
+     * @param invocation the invocation to run
+     * @param rejection called instead of the invocation if it is rejected
+     */
+    void invoke(Runnable invocation, Rejection rejection) {
+        List<Queued> expired = List.of();
+        boolean start = false;
+        boolean full = false;
+        synchronized (this) {
+            if (running < maxConcurrent) {
+                running++;
+                start = true;
+            } else {
+                long now = System.nanoTime();
+                expired = pollExpired(now);
+                if (queued.size() < maxQueued) {
+                    queued.add(new Queued(invocation, rejection, now));
+                } else {
+                    full = true;
+                }
+            }
+        }
+        rejectExpired(expired);
+        if (start) {
+            executor.execute(() -> run(invocation));
+        } else if (full) {
+            reject(rejection, ErrorCode.OVERLOAD, "Too many invocations: " + maxConcurrent + " running and " +
+                                                  maxQueued + " queued");
+        }
+    }
+
+    private void run(Runnable invocation) {
+        try {
+            invocation.run();
+        } catch (Throwable e) {
+            log.log(Level.WARNING, "Uncaught exception from invocation", e);
+        } finally {
+            Queued next;
+            List<Queued> expired;
+            synchronized (this) {
+                expired = pollExpired(System.nanoTime());
+                next = queued.poll();
+                if (next == null) {
+                    running--;
+                }
+            }
+            rejectExpired(expired);
+            if (next != null) {
+                Runnable invokeNext = next.invocation;
+                executor.execute(() -> run(invokeNext));
+            }
+        }
+    }
+
+    /** Removes and returns the queued invocations which have waited too long, which are first in the queue */
+    private List<Queued> pollExpired(long now) {
+        List<Queued> expired = List.of();
+        while ( ! queued.isEmpty() && now - queued.peek().queuedNanos > maxQueueTimeNanos) {
+            if (expired.isEmpty()) {
+                expired = new ArrayList<>();
+            }
+            expired.add(queued.poll());
+        }
+        return expired;
+    }
+
+    private void rejectExpired(List<Queued> expired) {
+        for (Queued entry : expired) {
+            reject(entry.rejection, ErrorCode.TIMEOUT, "Invocation was queued for more than " +
+                                                        Duration.ofNanos(maxQueueTimeNanos).toMillis() + " ms");
+        }
+    }
+
+    private void reject(Rejection rejection, int errorCode, String message) {
+        rejected.incrementAndGet();
+        try {
+            rejection.reject(errorCode, message);
+        } catch (Throwable e) {
+            log.log(Level.WARNING, "Uncaught exception from rejecting invocation", e);
+        }
+    }
+
+    private static Executor createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threads = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "jrt-invoker-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+}
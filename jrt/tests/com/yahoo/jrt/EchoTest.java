@@ -158,8 +158,11 @@ public class EchoTest {
         assertTrue(Test.equals(req.returnValues(), req.parameters()));
         assertTrue(Test.equals(req.returnValues(), refValues));
         assertTrue(Test.equals(req.parameters(), refValues));
+        TransportMetrics.Snapshot changes = metrics.snapshot().changesSince(startSnapshot);
+        assertTrue(changes.packetsWritten() >= 2); // request and reply
+        assertTrue(changes.socketWrites() >= 2);
         if (metricsAssertions != null) {
-            metricsAssertions.assertMetrics(metrics.snapshot().changesSince(startSnapshot));
+            metricsAssertions.assertMetrics(changes);
         }
         if (connAuthCtxAssertion != null) {
             assertNotNull(connAuthCtx);
@@ -0,0 +1,190 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bjorncs
+ */
+public class ThreadedInvocationTest {
+
+    Supervisor server;
+    Acceptor   acceptor;
+    Supervisor client;
+    Target     target;
+    Method     bounded;
+    Method     expiring;
+
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+
+    @Before
+    public void setUp() throws ListenFailedException {
+        server   = new Supervisor(new Transport());
+        client   = new Supervisor(new Transport());
+        acceptor = server.listen(new Spec(0));
+        target   = client.connect(new Spec("localhost", acceptor.port()));
+        server.addMethod(new Method("block", "i", "i", this::rpc_block).invokeOnVirtualThreads(2));
+        server.addMethod(new Method("fail", "", "", this::rpc_fail).invokeOnVirtualThreads(1));
+        server.addMethod(new Method("detach", "i", "i", this::rpc_detach).invokeOnVirtualThreads(1));
+        bounded  = new Method("bounded", "i", "i", this::rpc_block).invokeOnVirtualThreads(1, 1, Duration.ofSeconds(60));
+        expiring = new Method("expiring", "i", "i", this::rpc_block).invokeOnVirtualThreads(1, 10, Duration.ofMillis(1));
+        server.addMethod(bounded);
+        server.addMethod(expiring);
+        server.addMethod(new Method("inc", "i", "i", this::rpc_inc));
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        target.close();
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+    }
+
+    private void rpc_block(Request req) {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+            assertTrue(release.await(60, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            running.decrementAndGet();
+        }
+        req.returnValues().add(new Int32Value(req.parameters().get(0).asInt32() + 1));
+    }
+
+    private void rpc_fail(Request req) {
+        throw new IllegalStateException("failed");
+    }
+
+    private void rpc_detach(Request req) {
+        req.detach();
+        new Thread(() -> {
+            req.returnValues().add(new Int32Value(req.parameters().get(0).asInt32() + 1));
+            req.returnRequest();
+        }).start();
+    }
+
+    private void rpc_inc(Request req) {
+        req.returnValues().add(new Int32Value(req.parameters().get(0).asInt32() + 1));
+    }
+
+    private static Request request(String method, int value) {
+        Request req = new Request(method);
+        req.parameters().add(new Int32Value(value));
+        return req;
+    }
+
+    @org.junit.Test
+    public void requireThatBlockingHandlersRunConcurrentlyUpToTheLimitWithoutBlockingOtherMethods() throws InterruptedException {
+        Test.Waiter[] waiters = new Test.Waiter[3];
+        Request[] requests = new Request[3];
+        for (int i = 0; i < 3; i++) {
+            waiters[i] = new Test.Waiter();
+            requests[i] = request("block", i);
+            target.invokeAsync(requests[i], Duration.ofSeconds(60), waiters[i]);
+        }
+        while (running.get() < 2) {
+            Thread.sleep(1);
+        }
+
+        // Handlers in the transport thread are served while the blocking ones wait
+        Request inc = request("inc", 41);
+        target.invokeSync(inc, Duration.ofSeconds(60));
+        assertFalse(inc.isError());
+        assertEquals(42, inc.returnValues().get(0).asInt32());
+        for (Test.Waiter waiter : waiters) {
+            assertFalse(waiter.isDone());
+        }
+
+        release.countDown();
+        for (int i = 0; i < 3; i++) {
+            waiters[i].waitDone();
+            assertFalse(requests[i].errorMessage(), requests[i].isError());
+            assertEquals(i + 1, requests[i].returnValues().get(0).asInt32());
+        }
+        assertEquals(2, maxRunning.get());
+    }
+
+    private void awaitHandled() {
+        // Requests on a connection are handled in order, so all previous requests have been handed to their invokers
+        Request inc = request("inc", 0);
+        target.invokeSync(inc, Duration.ofSeconds(60));
+        assertFalse(inc.errorMessage(), inc.isError());
+    }
+
+    @org.junit.Test
+    public void requireThatInvocationsAreRejectedWhenTheQueueIsFull() {
+        Test.Waiter[] waiters = new Test.Waiter[3];
+        Request[] requests = new Request[3];
+        for (int i = 0; i < 3; i++) {
+            waiters[i] = new Test.Waiter();
+            requests[i] = request("bounded", i);
+            target.invokeAsync(requests[i], Duration.ofSeconds(60), waiters[i]);
+        }
+        awaitHandled();
+        waiters[2].waitDone();
+        assertEquals(ErrorCode.OVERLOAD, requests[2].errorCode());
+        assertFalse(waiters[0].isDone());
+        assertFalse(waiters[1].isDone());
+        assertEquals(1, bounded.queuedInvocations());
+        assertEquals(1, bounded.rejectedInvocations());
+
+        release.countDown();
+        for (int i = 0; i < 2; i++) {
+            waiters[i].waitDone();
+            assertFalse(requests[i].errorMessage(), requests[i].isError());
+            assertEquals(i + 1, requests[i].returnValues().get(0).asInt32());
+        }
+    }
+
+    @org.junit.Test
+    public void requireThatInvocationsQueuedForTooLongAreRejected() throws InterruptedException {
+        Test.Waiter[] waiters = new Test.Waiter[2];
+        Request[] requests = new Request[2];
+        for (int i = 0; i < 2; i++) {
+            waiters[i] = new Test.Waiter();
+            requests[i] = request("expiring", i);
+            target.invokeAsync(requests[i], Duration.ofSeconds(60), waiters[i]);
+        }
+        awaitHandled();
+        Thread.sleep(10);
+
+        release.countDown();
+        waiters[0].waitDone();
+        assertFalse(requests[0].errorMessage(), requests[0].isError());
+        waiters[1].waitDone();
+        assertEquals(ErrorCode.TIMEOUT, requests[1].errorCode());
+        assertEquals(0, expiring.queuedInvocations());
+        assertEquals(1, expiring.rejectedInvocations());
+    }
+
+    @org.junit.Test
+    public void requireThatFailingHandlersReturnErrors() {
+        Request req = new Request("fail");
+        target.invokeSync(req, Duration.ofSeconds(60));
+        assertEquals(ErrorCode.METHOD_FAILED, req.errorCode());
+    }
+
+    @org.junit.Test
+    public void requireThatHandlersMayDetachRequests() {
+        Request req = request("detach", 7);
+        target.invokeSync(req, Duration.ofSeconds(60));
+        assertFalse(req.errorMessage(), req.isError());
+        assertEquals(8, req.returnValues().get(0).asInt32());
+    }
+
+}
@@ -0,0 +1,173 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language;
+
+import com.yahoo.language.detect.Detector;
+import com.yahoo.language.process.CharacterClasses;
+import com.yahoo.language.process.GramSplitter;
+import com.yahoo.language.process.LinguisticsParameters;
+import com.yahoo.language.process.Normalizer;
+import com.yahoo.language.process.Segmenter;
+import com.yahoo.language.process.StemList;
+import com.yahoo.language.process.Stemmer;
+import com.yahoo.language.process.Token;
+import com.yahoo.language.process.Tokenizer;
+import com.yahoo.language.process.Transformer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Linguistics which remembers the tokens and stems produced for recently seen texts, and returns those
+ * rather than processing the same text again. This is useful at query time, where the same query strings
+ * tend to be repeated frequently.
+ * Other processing is delegated to the wrapped linguistics directly.
+ *
+ * Cached tokens are shared between callers, and must not be modified.
+ *
+ * @author bratseth
+ */
+public class CachingLinguistics implements Linguistics {
+
+    private final Linguistics linguistics;
+    private final LinguisticsCache<List<Token>> tokens;
+    private final LinguisticsCache<List<StemList>> stems;
+
+    /** Creates a caching wrapper of the given linguistics using at most about 32 Mb for cached results */
+    public CachingLinguistics(Linguistics linguistics) {
+        this(linguistics, 32 * 1024 * 1024);
+    }
+
+    /**
+     * Creates a caching wrapper of the given linguistics.
+     *
+     * @param linguistics the linguistics doing the processing
+     * @param maxBytes the max estimated size of all cached texts and results, in bytes
+     */
+    public CachingLinguistics(Linguistics linguistics, long maxBytes) {
+        this(linguistics, maxBytes, () -> { }, () -> { });
+    }
+
+    /**
+     * Creates a caching wrapper of the given linguistics, which also runs the given callbacks on each cache hit and miss,
+     * e.g., to update metrics.
+     *
+     * @param linguistics the linguistics doing the processing
+     * @param maxBytes the max estimated size of all cached texts and results, in bytes
+     * @param onHit run on each tokenization or stemming which is served from the cache
+     * @param onMiss run on each tokenization or stemming which is not cached
+     */
+    public CachingLinguistics(Linguistics linguistics, long maxBytes, Runnable onHit, Runnable onMiss) {
+        this.linguistics = linguistics;
+        this.tokens = new LinguisticsCache<>(maxBytes / 2, CachingLinguistics::sizeOfTokens, onHit, onMiss);
+        this.stems = new LinguisticsCache<>(maxBytes / 2, CachingLinguistics::sizeOfStems, onHit, onMiss);
+    }
+
+    /** Returns the linguistics wrapped by this */
+    public Linguistics wrapped() { return linguistics; }
+
+    /** Returns the number of tokenizations and stemmings which were served from the cache */
+    public long cacheHits() { return tokens.hits() + stems.hits(); }
+
+    /** Returns the number of tokenizations and stemmings which were not cached */
+    public long cacheMisses() { return tokens.misses() + stems.misses(); }
+
+    @Override
+    public Stemmer getStemmer() { return new CachingStemmer(); }
+
+    @Override
+    public Tokenizer getTokenizer() { return new CachingTokenizer(); }
+
+    @Override
+    public Normalizer getNormalizer() { return linguistics.getNormalizer(); }
+
+    @Override
+    public Transformer getTransformer() { return linguistics.getTransformer(); }
+
+    @Override
+    public Segmenter getSegmenter() { return linguistics.getSegmenter(); }
+
+    @Override
+    public Detector getDetector() { return linguistics.getDetector(); }
+
+    @Override
+    public GramSplitter getGramSplitter() { return linguistics.getGramSplitter(); }
+
+    @Override
+    public CharacterClasses getCharacterClasses() { return linguistics.getCharacterClasses(); }
+
+    @Override
+    public boolean equals(Linguistics other) {
+        return other instanceof CachingLinguistics caching && linguistics.equals(caching.linguistics);
+    }
+
+    @Override
+    public String toString() { return "caching " + linguistics; }
+
+    private static long sizeOfTokens(List<Token> tokens) {
+        long size = 0;
+        for (Token token : tokens)
+            size += sizeOf(token);
+        return size;
+    }
+
+    private static long sizeOf(Token token) {
+        long size = LinguisticsCache.entryOverhead + 2L * (length(token.getOrig()) + length(token.getTokenString()));
+        for (int i = 1; i < token.getNumStems(); i++)
+            size += 2L * length(token.getStem(i));
+        for (int i = 0; i < token.getNumComponents(); i++)
+            size += sizeOf(token.getComponent(i));
+        return size;
+    }
+
+    private static long sizeOfStems(List<StemList> stems) {
+        long size = 0;
+        for (StemList stemList : stems) {
+            size += LinguisticsCache.entryOverhead;
+            for (String stem : stemList)
+                size += 2L * length(stem);
+        }
+        return size;
+    }
+
+    private static int length(String s) { return s == null ? 0 : s.length(); }
+
+    /** A tokenizer which only creates the wrapped tokenizer when it needs to tokenize. */
+    private class CachingTokenizer implements Tokenizer {
+
+        private Tokenizer tokenizer = null;
+
+        @Override
+        public Iterable<Token> tokenize(String input, LinguisticsParameters parameters) {
+            return tokens.computeIfAbsent(input, parameters, () -> {
+                if (tokenizer == null)
+                    tokenizer = linguistics.getTokenizer();
+                List<Token> tokens = new ArrayList<>();
+                tokenizer.tokenize(input, parameters).forEach(tokens::add);
+                return List.copyOf(tokens);
+            });
+        }
+
+    }
+
+    /** A stemmer which only creates the wrapped stemmer when it needs to stem. */
+    private class CachingStemmer implements Stemmer {
+
+        private Stemmer stemmer = null;
+
+        @Override
+        public List<StemList> stem(String input, LinguisticsParameters parameters) {
+            List<StemList> cached = stems.computeIfAbsent(input, parameters, () -> {
+                if (stemmer == null)
+                    stemmer = linguistics.getStemmer();
+                return stemmer.stem(input, parameters);
+            });
+            // Stem lists are modifiable, so return copies
+            List<StemList> copy = new ArrayList<>(cached.size());
+            for (StemList stemList : cached)
+                copy.add(new StemList(stemList.toArray(new String[0])));
+            return copy;
+        }
+
+    }
+
+}
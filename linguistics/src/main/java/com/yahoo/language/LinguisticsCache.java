@@ -0,0 +1,132 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language;
+
+import com.yahoo.language.process.LinguisticsParameters;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * A thread safe cache of results of linguistic processing of a text with some parameters,
+ * bounded by the estimated memory used by the texts and results it holds.
+ * Entries are evicted by the clock algorithm: Lookups only mark the entry as recently used, and the thread
+ * which makes the cache overflow sweeps the entries, unmarking marked and evicting unmarked ones,
+ * such that there is no contention between concurrent lookups.
+ *
+ * @author bratseth
+ */
+class LinguisticsCache<VALUE> {
+
+    /** Rough overhead of an entry, in bytes */
+    static final long entryOverhead = 128;
+
+    private final long maxBytes;
+    private final ToLongFunction<VALUE> weigher;
+    private final Map<Key, Entry<VALUE>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final Runnable onHit;
+    private final Runnable onMiss;
+
+    /** The clock hand of eviction, guarded by evictionLock */
+    private Iterator<Map.Entry<Key, Entry<VALUE>>> hand = null;
+
+    /**
+     * Creates a cache holding entries of at most the given total size.
+     *
+     * @param maxBytes the max estimated size in bytes of the entries of this
+     * @param weigher returns the estimated size in bytes of a value
+     * @param onHit run on each lookup which finds a cached value, e.g., to update metrics
+     * @param onMiss run on each lookup which has to compute the value
+     */
+    LinguisticsCache(long maxBytes, ToLongFunction<VALUE> weigher, Runnable onHit, Runnable onMiss) {
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+        this.onHit = onHit;
+        this.onMiss = onMiss;
+    }
+
+    /** Returns the cached value for this text and parameters, or computes and caches it if there is none */
+    VALUE computeIfAbsent(String text, LinguisticsParameters parameters, Supplier<VALUE> computer) {
+        Key key = new Key(text, parameters);
+        Entry<VALUE> entry = entries.get(key);
+        if (entry != null) {
+            hits.increment();
+            onHit.run();
+            entry.touch();
+            return entry.value;
+        }
+
+        misses.increment();
+        onMiss.run();
+        VALUE value = computer.get();
+        long size = entryOverhead + 2L * text.length() + weigher.applyAsLong(value);
+        if (size > maxBytes / 64) return value; // Large texts, which are unlikely to repeat, would evict many others
+        if (entries.putIfAbsent(key, new Entry<>(value, size)) == null && bytes.addAndGet(size) > maxBytes)
+            evict();
+        return value;
+    }
+
+    /** Returns the number of lookups which found a cached value */
+    long hits() { return hits.sum(); }
+
+    /** Returns the number of lookups which had to compute the value */
+    long misses() { return misses.sum(); }
+
+    /** Returns the estimated size of the entries of this in bytes */
+    long bytes() { return bytes.get(); }
+
+    int size() { return entries.size(); }
+
+    /** Evicts entries until this is below its max size, unless another thread is already doing it */
+    private void evict() {
+        if ( ! evictionLock.tryLock()) return;
+        try {
+            long target = maxBytes - maxBytes / 8; // Leave room to avoid evicting on every insert
+            while (bytes.get() > target) {
+                if (hand == null || ! hand.hasNext())
+                    hand = entries.entrySet().iterator();
+                if ( ! hand.hasNext()) return;
+
+                Map.Entry<Key, Entry<VALUE>> candidate = hand.next();
+                if (candidate.getValue().used)
+                    candidate.getValue().used = false;
+                else if (entries.remove(candidate.getKey(), candidate.getValue()))
+                    bytes.addAndGet(-candidate.getValue().size);
+            }
+        }
+        finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private record Key(String text, LinguisticsParameters parameters) { }
+
+    private static class Entry<VALUE> {
+
+        final VALUE value;
+        final long size;
+
+        /** Whether this has been used since the clock hand last passed it. Races are harmless. */
+        volatile boolean used = false;
+
+        Entry(VALUE value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+
+        void touch() {
+            if ( ! used) used = true;
+        }
+
+    }
+
+}
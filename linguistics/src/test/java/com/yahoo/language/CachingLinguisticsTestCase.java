@@ -0,0 +1,95 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language;
+
+import com.yahoo.language.process.LinguisticsParameters;
+import com.yahoo.language.process.StemList;
+import com.yahoo.language.process.StemMode;
+import com.yahoo.language.process.Token;
+import com.yahoo.language.simple.SimpleLinguistics;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class CachingLinguisticsTestCase {
+
+    private static final LinguisticsParameters stemmed = new LinguisticsParameters(Language.ENGLISH, StemMode.SHORTEST, true, true);
+    private static final LinguisticsParameters accented = new LinguisticsParameters(Language.ENGLISH, StemMode.SHORTEST, false, true);
+
+    @Test
+    public void testTokensAreCachedByTextAndParameters() {
+        var linguistics = new CachingLinguistics(new SimpleLinguistics());
+        Iterable<Token> first = linguistics.getTokenizer().tokenize("Café dogs", stemmed);
+        assertEquals(List.of("cafe", "dogs"), tokenStrings(first));
+        assertEquals(List.of("café", "dogs"), tokenStrings(linguistics.getTokenizer().tokenize("Café dogs", accented)));
+        assertSame(first, linguistics.getTokenizer().tokenize("Café dogs", stemmed));
+        assertEquals(1, linguistics.cacheHits());
+        assertEquals(2, linguistics.cacheMisses());
+    }
+
+    @Test
+    public void testHitsAndMissesAreReported() {
+        AtomicInteger hits = new AtomicInteger(), misses = new AtomicInteger();
+        var linguistics = new CachingLinguistics(new SimpleLinguistics(), 1 << 20, hits::incrementAndGet, misses::incrementAndGet);
+        linguistics.getTokenizer().tokenize("Café dogs", stemmed);
+        linguistics.getTokenizer().tokenize("Café dogs", stemmed);
+        linguistics.getStemmer().stem("Café dogs", stemmed);
+        assertEquals(1, hits.get());
+        assertEquals(2, misses.get());
+    }
+
+    @Test
+    public void testStemsAreCachedAndCopied() {
+        var linguistics = new CachingLinguistics(new SimpleLinguistics());
+        List<StemList> first = linguistics.getStemmer().stem("Running dogs", stemmed);
+        assertEquals(new SimpleLinguistics().getStemmer().stem("Running dogs", stemmed), first);
+        first.get(0).add("modified");
+
+        List<StemList> second = linguistics.getStemmer().stem("Running dogs", stemmed);
+        assertNotSame(first, second);
+        assertEquals(new SimpleLinguistics().getStemmer().stem("Running dogs", stemmed), second);
+        assertEquals(1, linguistics.cacheHits());
+    }
+
+    @Test
+    public void testCacheIsBoundedAndKeepsUsedEntries() {
+        var cache = new LinguisticsCache<String>(64 * 1024, value -> 2L * value.length(), () -> { }, () -> { });
+        cache.computeIfAbsent("frequent", stemmed, () -> "value");
+        for (int i = 0; i < 10000; i++) {
+            cache.computeIfAbsent("text " + i, stemmed, () -> "value");
+            cache.computeIfAbsent("frequent", stemmed, () -> "value");
+        }
+        assertTrue(cache.bytes() <= 64 * 1024);
+        assertTrue(cache.size() < 10000);
+        assertEquals(10001, cache.misses());
+        assertEquals(10000, cache.hits());
+    }
+
+    @Test
+    public void testLargeTextsAreNotCached() {
+        var cache = new LinguisticsCache<String>(64 * 1024, value -> 2L * value.length(), () -> { }, () -> { });
+        String large = "a".repeat(1024);
+        cache.computeIfAbsent(large, stemmed, () -> "value");
+        cache.computeIfAbsent(large, stemmed, () -> "value");
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.misses());
+    }
+
+    private static List<String> tokenStrings(Iterable<Token> tokens) {
+        List<String> strings = new ArrayList<>();
+        for (Token token : tokens)
+            if (token.isIndexable())
+                strings.add(token.getTokenString());
+        return strings;
+    }
+
+}
@@ -13,7 +13,7 @@ import java.util.logging.Logger;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPOutputStream;
 
-import com.yahoo.compress.ZstdOutputStream;
+import com.yahoo.compress.ZstdSeekableOutputStream;
 import com.yahoo.io.NativeIO;
 
 import java.io.FileDescriptor;
@@ -52,6 +52,7 @@ public final class FilesArchived {
     public static final long compressAfterMillis = 2L * 3600 * 1000;
     private static final long maxAgeDays = 30; // GDPR rules: max 30 days
     private static final long sizeLimit = 30L * (1L << 30); // 30 GB
+    private static final int frameSize = 256 * 1024; // Uncompressed size of independently readable parts of zstd archives
 
     private void waitForTrigger(long milliS) throws InterruptedException {
         synchronized (mutex) {
@@ -213,7 +214,7 @@ public final class FilesArchived {
             int bufferSize = 2*1024*1024;
             long mtime = oldFile.lastModified();
             try (FileOutputStream fileOut = AtomicFileOutputStream.create(compressedFile);
-                 ZstdOutputStream out = new ZstdOutputStream(fileOut, bufferSize);
+                 ZstdSeekableOutputStream out = new ZstdSeekableOutputStream(fileOut, frameSize, FilesArchived::timestampMicros);
                  FileInputStream in = new FileInputStream(oldFile))
             {
                 pageFriendlyTransfer(nativeIO, out, fileOut.getFD(), in, bufferSize);
@@ -229,6 +230,18 @@ public final class FilesArchived {
         }
     }
 
+    /** Returns the timestamp of the given log line in microseconds, for indexing compressed archive frames by time */
+    static long timestampMicros(String line) {
+        int end = line.indexOf('\t');
+        if (end < 0) return ZstdSeekableOutputStream.noKey;
+        try {
+            return (long) (Double.parseDouble(line.substring(0, end)) * 1_000_000);
+        }
+        catch (NumberFormatException e) {
+            return ZstdSeekableOutputStream.noKey;
+        }
+    }
+
     private static void runCompressionNone(NativeIO nativeIO, File oldFile) {
         nativeIO.dropFileFromCache(oldFile);
     }
@@ -18,6 +18,7 @@ import ai.vespa.metricsproxy.service.VespaService;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -73,25 +74,15 @@ public class VespaMetrics {
             Optional<MetricsPacket.Builder> systemCheck = getSystemMetrics(service);
             systemCheck.ifPresent(metricsPackets::add);
 
-            MetricAggregator aggregator = new MetricAggregator(service.getDimensions());
+            // One metrics packet per set of metrics that share the same dimensions+consumers
+            MetricAggregator aggregator = new MetricAggregator(service);
             MetricsParser.Collector metricsConsumer = (consumerId != null)
                     ? new ServiceMetricsCollector(metricsConsumers, aggregator, consumerId)
                     : new ServiceMetricsCollectorForAll(metricsConsumers, aggregator);
             service.consumeMetrics(metricsConsumer);
 
             if (! aggregator.getAggregated().isEmpty()) {
-
-                // One metrics packet per set of metrics that share the same dimensions+consumers
-                aggregator.getAggregated().forEach((aggregationKey, metrics) -> {
-                    MetricsPacket.Builder builder = new MetricsPacket.Builder(service.getMonitoringName())
-                            .putMetrics(metrics)
-                            .putDimension(METRIC_TYPE_DIMENSION_ID, "standard")
-                            .putDimension(INSTANCE_DIMENSION_ID, service.getInstanceName())
-                            .putDimensions(aggregationKey.getDimensions());
-                    setMetaInfo(builder, metrics.get(0).getTimeStamp());
-                    builder.addConsumers(aggregationKey.getConsumers());
-                    metricsPackets.add(builder);
-                });
+                metricsPackets.addAll(aggregator.getAggregated().values());
             } else {
                 // Service did not return any metrics, so add metrics packet based on service health.
                 // TODO: Make VespaService.getMetrics return MetricsPacket and handle health on its own.
@@ -116,32 +107,49 @@ public class VespaMetrics {
      * Returns the metrics to output for the given service, with updated timestamp
      * In order to include a metric, it must exist in the given map of metric to consumers.
      * Each returned metric will contain a collection of consumers that it should be routed to.
+     * Parsed values are put directly into the packet of their dimensions and consumers, without creating a metric each.
      */
     private static abstract class ServiceMetricsCollectorBase implements MetricsParser.Collector {
         protected final MetricAggregator aggregator;
 
+        /** The dimensions of parsed metrics, which are shared by many, with those of each configured metric added */
+        private final Map<ConfiguredMetric, Map<Map<DimensionId, String>, Map<DimensionId, String>>> configuredDimensions = new IdentityHashMap<>();
+
         ServiceMetricsCollectorBase(MetricAggregator aggregator) {
             this.aggregator = aggregator;
         }
 
-        protected static Metric metricWithConfigProperties(Metric candidate,
-                                                         ConfiguredMetric configuredMetric,
-                                                         Set<ConsumerId> consumers) {
-            Metric metric = candidate.clone();
-            metric.setDimensions(extractDimensions(candidate.getDimensions(), configuredMetric.dimension()));
-            metric.setConsumers(extractConsumers(consumers));
+        protected void accept(Metric candidate, ConfiguredMetric configuredMetric, Set<ConsumerId> consumers) {
+            aggregator.packetFor(dimensionsOf(candidate.getDimensions(), configuredMetric), extractConsumers(consumers), candidate.getTimeStamp())
+                      .putMetric(outputName(candidate.getName(), configuredMetric), candidate.getValue());
+        }
+
+        protected void accept(MetricsParser.Values values, int index, Instant timestamp, Map<DimensionId, String> dimensions,
+                              ConfiguredMetric configuredMetric, Set<ConsumerId> consumers) {
+            MetricsPacket.Builder packet = aggregator.packetFor(dimensionsOf(dimensions, configuredMetric), extractConsumers(consumers), timestamp);
+            MetricId name = outputName(values.id(index), configuredMetric);
+            if (values.isIntegral(index))
+                packet.putMetricValue(name, values.longValue(index));
+            else
+                packet.putMetricValue(name, values.doubleValue(index));
+        }
 
+        private static MetricId outputName(MetricId name, ConfiguredMetric configuredMetric) {
             if (configuredMetric.outputname() != null && !configuredMetric.outputname().id.isEmpty())
-                metric.setName(configuredMetric.outputname());
-            return metric;
+                return configuredMetric.outputname();
+            return name;
         }
+
+        private Map<DimensionId, String> dimensionsOf(Map<DimensionId, String> dimensions, ConfiguredMetric configuredMetric) {
+            if (configuredMetric.dimension().isEmpty()) return dimensions;
+            return configuredDimensions.computeIfAbsent(configuredMetric, __ -> new IdentityHashMap<>())
+                                       .computeIfAbsent(dimensions, __ -> extractDimensions(dimensions, configuredMetric.dimension()));
+        }
+
         private static Map<DimensionId, String> extractDimensions(Map<DimensionId, String> dimensions, List<Dimension> configuredDimensions) {
-            if ( ! configuredDimensions.isEmpty()) {
-                Map<DimensionId, String> dims = new HashMap<>(dimensions);
-                configuredDimensions.forEach(d -> dims.put(d.key(), d.value()));
-                dimensions = Map.copyOf(dims);
-            }
-            return dimensions;
+            Map<DimensionId, String> dims = new HashMap<>(dimensions);
+            configuredDimensions.forEach(d -> dims.put(d.key(), d.value()));
+            return Map.copyOf(dims);
         }
 
         private static Set<ConsumerId> extractConsumers(Set<ConsumerId> configuredConsumers) {
@@ -163,8 +171,17 @@ public class VespaMetrics {
         public void accept(Metric candidate) {
             ConfiguredMetric configuredMetric = configuredMetrics.get(candidate.getName());
             if (configuredMetric != null) {
-                aggregator.aggregate(
-                        metricWithConfigProperties(candidate, configuredMetric, consumerId));
+                accept(candidate, configuredMetric, consumerId);
+            }
+        }
+
+        @Override
+        public void accept(MetricsParser.Values values, Instant timestamp, Map<DimensionId, String> dimensions, String description) {
+            for (int i = 0; i < values.size(); i++) {
+                ConfiguredMetric configuredMetric = configuredMetrics.get(values.id(i));
+                if (configuredMetric != null) {
+                    accept(values, i, timestamp, dimensions, configuredMetric, consumerId);
+                }
             }
         }
     }
@@ -181,9 +198,18 @@ public class VespaMetrics {
         public void accept(Metric candidate) {
             Map<ConfiguredMetric, Set<ConsumerId>> consumersByMetric = metricsConsumers.getConsumersByMetric(candidate.getName());
             if (consumersByMetric != null) {
-                consumersByMetric.keySet().forEach(
-                        configuredMetric -> aggregator.aggregate(
-                                metricWithConfigProperties(candidate, configuredMetric, consumersByMetric.get(configuredMetric))));
+                consumersByMetric.forEach((configuredMetric, consumers) -> accept(candidate, configuredMetric, consumers));
+            }
+        }
+
+        @Override
+        public void accept(MetricsParser.Values values, Instant timestamp, Map<DimensionId, String> dimensions, String description) {
+            for (int i = 0; i < values.size(); i++) {
+                Map<ConfiguredMetric, Set<ConsumerId>> consumersByMetric = metricsConsumers.getConsumersByMetric(values.id(i));
+                if (consumersByMetric != null) {
+                    for (var configured : consumersByMetric.entrySet())
+                        accept(values, i, timestamp, dimensions, configured.getKey(), configured.getValue());
+                }
             }
         }
     }
@@ -205,18 +231,32 @@ public class VespaMetrics {
     }
 
     private static class MetricAggregator {
-        private final Map<AggregationKey, List<Metric>> aggregated = new HashMap<>();
-        private final Map<DimensionId, String> serviceDimensions;
-        MetricAggregator(Map<DimensionId, String> serviceDimensions) {
-            this.serviceDimensions = serviceDimensions;
+        private final Map<AggregationKey, MetricsPacket.Builder> aggregated = new HashMap<>();
+        /** Aggregation keys by the identity of the dimensions and consumers they are for, which are shared by many metrics */
+        private final Map<Map<DimensionId, String>, Map<Set<ConsumerId>, AggregationKey>> keys = new IdentityHashMap<>();
+        private final VespaService service;
+        MetricAggregator(VespaService service) {
+            this.service = service;
+        }
+        Map<AggregationKey, MetricsPacket.Builder> getAggregated() { return aggregated; }
+        /** Returns the packet to put metrics with the given dimensions and consumers in, with the timestamp of the first of these */
+        MetricsPacket.Builder packetFor(Map<DimensionId, String> dimensions, Set<ConsumerId> consumers, Instant timestamp) {
+            AggregationKey aggregationKey = keys.computeIfAbsent(dimensions, __ -> new IdentityHashMap<>())
+                                                .computeIfAbsent(consumers, __ -> aggregationKey(dimensions, consumers));
+            return aggregated.computeIfAbsent(aggregationKey, key -> {
+                MetricsPacket.Builder builder = new MetricsPacket.Builder(service.getMonitoringName())
+                        .putDimension(METRIC_TYPE_DIMENSION_ID, "standard")
+                        .putDimension(INSTANCE_DIMENSION_ID, service.getInstanceName())
+                        .putDimensions(key.getDimensions());
+                setMetaInfo(builder, timestamp);
+                return builder.addConsumers(key.getConsumers());
+            });
         }
-        Map<AggregationKey, List<Metric>> getAggregated() { return aggregated; }
-        void aggregate(Metric metric) {
+        private AggregationKey aggregationKey(Map<DimensionId, String> dimensions, Set<ConsumerId> consumers) {
             Map<DimensionId, String> mergedDimensions = new LinkedHashMap<>();
-            mergedDimensions.putAll(metric.getDimensions());
-            mergedDimensions.putAll(serviceDimensions);
-            AggregationKey aggregationKey = new AggregationKey(mergedDimensions, metric.getConsumers());
-            aggregated.computeIfAbsent(aggregationKey, key -> new ArrayList<>()).add(metric);
+            mergedDimensions.putAll(dimensions);
+            mergedDimensions.putAll(service.getDimensions());
+            return new AggregationKey(mergedDimensions, consumers);
         }
     }
 
@@ -0,0 +1,249 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.metricsproxy.metric.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable, ordered map from metric id to value, stored column-wise as an array of the interned metric ids
+ * and a primitive array of the values, rather than as one boxed entry per metric.
+ * Integral values are stored exactly, as longs, and floating point values as the bits of a double.
+ * The number type of each value is remembered, such that values are returned as the same type they were put as
+ * when accessed through the map interface.
+ *
+ * @author gjoranv
+ */
+final class MetricValues extends AbstractMap<MetricId, Number> {
+
+    static final MetricValues empty = new MetricValues(new MetricId[0], new long[0], new byte[0]);
+
+    /** Packets with at most this many metrics are searched linearly */
+    private static final int maxLinearSize = 8;
+
+    private static final byte LONG = 0, INTEGER = 1, DOUBLE = 2, FLOAT = 3, NULL = 4;
+
+    private final MetricId[] ids;
+    private final long[] values;
+    private final byte[] types;
+
+    /** Open addressing table of index + 1 into ids, or null for small packets */
+    private final int[] slots;
+
+    private MetricValues(MetricId[] ids, long[] values, byte[] types) {
+        this.ids = ids;
+        this.values = values;
+        this.types = types;
+        this.slots = ids.length > maxLinearSize ? createSlots(ids, ids.length) : null;
+    }
+
+    /** Returns the number of metrics in this */
+    @Override
+    public int size() { return ids.length; }
+
+    /** Returns the id of the metric at the given index */
+    MetricId id(int index) { return ids[index]; }
+
+    /** Returns the value of the metric at the given index, without boxing */
+    double value(int index) { return asDouble(values[index], types[index]); }
+
+    /** Returns whether the value at the given index is an integral number, which is then exactly given by {@link #longValue} */
+    boolean isIntegral(int index) { return isIntegral(types[index]); }
+
+    /** Returns the value of the metric at the given index as a long, which is exact if it is integral */
+    long longValue(int index) { return isIntegral(index) ? values[index] : (long) value(index); }
+
+    /** Returns the index of the given metric, or -1 if it is not present */
+    int indexOf(Object id) { return indexOf(ids, ids.length, slots, id); }
+
+    @Override
+    public boolean containsKey(Object id) { return indexOf(id) >= 0; }
+
+    @Override
+    public Number get(Object id) {
+        int index = indexOf(id);
+        return index < 0 ? null : box(values[index], types[index]);
+    }
+
+    @Override
+    public Set<Entry<MetricId, Number>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() { return ids.length; }
+            @Override
+            public Iterator<Entry<MetricId, Number>> iterator() {
+                return new Iterator<>() {
+                    private int next = 0;
+                    @Override
+                    public boolean hasNext() { return next < ids.length; }
+                    @Override
+                    public Entry<MetricId, Number> next() {
+                        if ( ! hasNext()) throw new NoSuchElementException();
+                        var entry = new SimpleImmutableEntry<>(ids[next], box(values[next], types[next]));
+                        next++;
+                        return entry;
+                    }
+                };
+            }
+        };
+    }
+
+    private static boolean isIntegral(byte type) { return type == LONG || type == INTEGER; }
+
+    private static double asDouble(long value, byte type) {
+        return isIntegral(type) ? value : Double.longBitsToDouble(value);
+    }
+
+    private static Number box(long value, byte type) {
+        return switch (type) {
+            case LONG -> value;
+            case INTEGER -> (int) value;
+            case FLOAT -> (float) Double.longBitsToDouble(value);
+            case NULL -> null;
+            default -> Double.longBitsToDouble(value);
+        };
+    }
+
+    private static byte typeOf(Number value) {
+        if (value == null) return NULL;
+        if (value instanceof Long) return LONG;
+        if (value instanceof Integer) return INTEGER;
+        if (value instanceof Float) return FLOAT;
+        return DOUBLE;
+    }
+
+    private static long bitsOf(Number value, byte type) {
+        return switch (type) {
+            case LONG, INTEGER -> value.longValue();
+            case NULL -> 0;
+            default -> Double.doubleToRawLongBits(value.doubleValue());
+        };
+    }
+
+    private static int indexOf(MetricId[] ids, int size, int[] slots, Object id) {
+        if (slots == null) {
+            for (int i = 0; i < size; i++)
+                if (ids[i] == id) return i;
+            for (int i = 0; i < size; i++) // Ids are interned, so this is rarely needed
+                if (ids[i].equals(id)) return i;
+            return -1;
+        }
+        if (id == null) return -1;
+        int mask = slots.length - 1;
+        for (int slot = spread(id.hashCode()) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int index = slots[slot] - 1;
+            if (ids[index] == id || ids[index].equals(id)) return index;
+        }
+        return -1;
+    }
+
+    private static int[] createSlots(MetricId[] ids, int size) {
+        int[] slots = new int[Integer.highestOneBit(Math.max(1, size * 2 - 1)) << 1];
+        for (int i = 0; i < size; i++)
+            addSlot(slots, ids[i], i);
+        return slots;
+    }
+
+    private static void addSlot(int[] slots, MetricId id, int index) {
+        int mask = slots.length - 1;
+        int slot = spread(id.hashCode()) & mask;
+        while (slots[slot] != 0)
+            slot = (slot + 1) & mask;
+        slots[slot] = index + 1;
+    }
+
+    private static int spread(int hash) { return hash ^ (hash >>> 16); }
+
+    /** A mutable, ordered collection of metric values, which are put directly into the columns of the values built */
+    static final class Builder {
+
+        private MetricId[] ids = new MetricId[maxLinearSize];
+        private long[] values = new long[maxLinearSize];
+        private byte[] types = new byte[maxLinearSize];
+        private int size = 0;
+
+        /** Open addressing table of index + 1 into ids, or null while this is small */
+        private int[] slots = null;
+
+        boolean isEmpty() { return size == 0; }
+
+        /** Sets the value of the given metric, keeping its position if it is already present */
+        void put(MetricId id, Number value) {
+            byte type = typeOf(value);
+            put(id, bitsOf(value, type), type);
+        }
+
+        /** Sets the given integral value of the given metric, without boxing */
+        void put(MetricId id, long value) { put(id, value, LONG); }
+
+        /** Sets the given floating point value of the given metric, without boxing */
+        void put(MetricId id, double value) { put(id, Double.doubleToRawLongBits(value), DOUBLE); }
+
+        private void put(MetricId id, long bits, byte type) {
+            int index = indexOf(ids, size, slots, id);
+            if (index < 0) {
+                if (size == ids.length) grow();
+                index = size++;
+                ids[index] = id;
+                if (slots != null) {
+                    if (size * 2 > slots.length) slots = createSlots(ids, size);
+                    else addSlot(slots, id, index);
+                }
+                else if (size > maxLinearSize) {
+                    slots = createSlots(ids, size);
+                }
+            }
+            values[index] = bits;
+            types[index] = type;
+        }
+
+        /** Removes all metrics but the given ones */
+        void retain(Set<MetricId> idsToRetain) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if ( ! idsToRetain.contains(ids[i])) continue;
+                ids[kept] = ids[i];
+                values[kept] = values[i];
+                types[kept] = types[i];
+                kept++;
+            }
+            Arrays.fill(ids, kept, size, null);
+            size = kept;
+            slots = size > maxLinearSize ? createSlots(ids, size) : null;
+        }
+
+        /** Replaces the metrics of this with the present ones of the given ids, each with all its given output names */
+        void applyOutputNames(Map<MetricId, List<MetricId>> outputNamesById) {
+            Builder renamed = new Builder();
+            outputNamesById.forEach((id, outputNames) -> {
+                int index = indexOf(ids, size, slots, id);
+                if (index < 0) return;
+                for (MetricId outputName : outputNames)
+                    renamed.put(outputName, values[index], types[index]);
+            });
+            ids = renamed.ids;
+            values = renamed.values;
+            types = renamed.types;
+            size = renamed.size;
+            slots = renamed.slots;
+        }
+
+        MetricValues build() {
+            if (size == 0) return empty;
+            return new MetricValues(Arrays.copyOf(ids, size), Arrays.copyOf(values, size), Arrays.copyOf(types, size));
+        }
+
+        private void grow() {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+            values = Arrays.copyOf(values, ids.length);
+            types = Arrays.copyOf(types, ids.length);
+        }
+
+    }
+
+}
@@ -31,17 +31,17 @@ public class MetricsPacket {
     private final String statusMessage;
     private final ServiceId service;
     private final Instant timestamp;
-    private final Map<MetricId, Number> metrics;
+    private final MetricValues metrics;
     private final Map<DimensionId, String> dimensions;
     private final Set<ConsumerId> consumers;
 
     private MetricsPacket(int statusCode, String statusMessage, Instant timestamp, ServiceId service,
-                          Map<MetricId, Number> metrics, Map<DimensionId, String> dimensions, Set<ConsumerId> consumers ) {
+                          MetricValues metrics, Map<DimensionId, String> dimensions, Set<ConsumerId> consumers ) {
         this.statusCode = statusCode;
         this.statusMessage = statusMessage;
         this.timestamp = timestamp;
         this.service = service;
-        this.metrics = Collections.unmodifiableMap(metrics);  // Retain order for tests
+        this.metrics = metrics;  // Retains order for tests
         this.dimensions = Collections.unmodifiableMap(dimensions); // Retain order for tests
         this.consumers = Set.copyOf(consumers);
     }
@@ -54,6 +54,24 @@ public class MetricsPacket {
     public int statusCode() { return statusCode; }
     public String statusMessage() { return statusMessage; }
 
+    /** Returns the number of metrics in this packet. */
+    public int metricCount() { return metrics.size(); }
+
+    /** Returns the id of the metric at the given index, where 0 &lt;= index &lt; metricCount(). */
+    public MetricId metricId(int index) { return metrics.id(index); }
+
+    /** Returns the value of the metric at the given index, where 0 &lt;= index &lt; metricCount(). */
+    public double metricValue(int index) { return metrics.value(index); }
+
+    /** Returns whether the value of the metric at the given index is integral, and thus exactly given by {@link #metricLongValue}. */
+    public boolean metricIsIntegral(int index) { return metrics.isIntegral(index); }
+
+    /** Returns the value of the metric at the given index as a long, which is exact if the value is integral. */
+    public long metricLongValue(int index) { return metrics.longValue(index); }
+
+    /** Returns the index of the metric with the given id in this packet, or -1 if it is not present. */
+    public int metricIndex(MetricId id) { return metrics.indexOf(id); }
+
     @Override
     public String toString() {
         return "MetricsPacket{" +
@@ -81,7 +99,7 @@ public class MetricsPacket {
         private int statusCode = 0;
         private String statusMessage = "";
         private Instant timestamp = Instant.EPOCH;
-        private Map<MetricId, Number> metrics = new LinkedHashMap<>();
+        private final MetricValues.Builder metrics = new MetricValues.Builder();
         private final Map<DimensionId, String> dimensions = new LinkedHashMap<>();
         private Set<ConsumerId> consumers = Set.of();
 
@@ -122,18 +140,25 @@ public class MetricsPacket {
             return this;
         }
 
+        /** Puts the given integral value, which is then a Long in {@link MetricsPacket#metrics()}, without boxing it. */
+        public Builder putMetricValue(MetricId id, long value) {
+            metrics.put(id, value);
+            return this;
+        }
+
+        /** Puts the given floating point value, which is then a Double in {@link MetricsPacket#metrics()}, without boxing it. */
+        public Builder putMetricValue(MetricId id, double value) {
+            metrics.put(id, value);
+            return this;
+        }
+
         public Builder retainMetrics(Set<MetricId> idsToRetain) {
-            metrics.keySet().retainAll(idsToRetain);
+            metrics.retain(idsToRetain);
             return this;
         }
 
         public Builder applyOutputNames(Map<MetricId, List<MetricId>> outputNamesById) {
-            Map<MetricId, Number> newMetrics = new LinkedHashMap<>();
-            outputNamesById.forEach((id, outputNames) -> {
-                if (metrics.containsKey(id))
-                    outputNames.forEach(outputName -> newMetrics.put(outputName, metrics.get(id)));
-            });
-            metrics = newMetrics;
+            metrics.applyOutputNames(outputNamesById);
             return this;
         }
 
@@ -191,7 +216,7 @@ public class MetricsPacket {
         }
 
         public MetricsPacket build() {
-            return new MetricsPacket(statusCode, statusMessage, timestamp, service, metrics, dimensions, consumers);
+            return new MetricsPacket(statusCode, statusMessage, timestamp, service, metrics.build(), dimensions, consumers);
         }
 
         public boolean hasMetrics() {
@@ -1,13 +1,13 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package ai.vespa.metricsproxy.metric.model.json;
 
-import ai.vespa.metricsproxy.metric.model.DimensionId;
-import ai.vespa.metricsproxy.metric.model.MetricId;
+import ai.vespa.metricsproxy.metric.model.MetricsPacket;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_ABSENT;
@@ -29,9 +29,11 @@ public class GenericMetrics {
 
     public GenericMetrics() { }
 
-    GenericMetrics(Map<MetricId, Number> values, Map<DimensionId, String> dimensions) {
-        this.values = values.entrySet().stream().collect(toLinkedMap(entry -> entry.getKey().id, entry -> entry.getValue().doubleValue()));
-        this.dimensions = dimensions.entrySet().stream().collect(toLinkedMap(entry -> entry.getKey().id, Map.Entry::getValue));
+    GenericMetrics(MetricsPacket packet) {
+        this.values = new LinkedHashMap<>(packet.metricCount() * 4 / 3 + 1);
+        for (int i = 0; i < packet.metricCount(); i++)
+            values.put(packet.metricId(i).id, packet.metricValue(i));
+        this.dimensions = packet.dimensions().entrySet().stream().collect(toLinkedMap(entry -> entry.getKey().id, Map.Entry::getValue));
     }
 
 }
@@ -67,16 +67,16 @@ public class PrometheusModel implements Enumeration<MetricFamilySamples> {
         List<MetricFamilySamples.Sample> sampleList = new ArrayList<>();
         packetsByServiceId.forEach(((serviceId, packets) -> {
             for (var packet : packets) {
-                Number metric = packet.metrics().get(metricId);
-                if (metric != null) {
-                    sampleList.add(createSample(serviceId, metricId, metric, packet.timestamp().toEpochMilli(), packet.dimensions()));
+                int index = packet.metricIndex(metricId);
+                if (index >= 0) {
+                    sampleList.add(createSample(serviceId, metricId, packet.metricValue(index), packet.timestamp().toEpochMilli(), packet.dimensions()));
                 }
             }
         }));
         return new MetricFamilySamples(metricId.getIdForPrometheus(), Collector.Type.UNKNOWN, "", sampleList);
     }
 
-    private static Sample createSample(ServiceId serviceId, MetricId metricId, Number metric,
+    private static Sample createSample(ServiceId serviceId, MetricId metricId, double metric,
                                        Long timeStamp, Map<DimensionId, String> dimensions)
     {
         List<String> labels = new ArrayList<>(dimensions.size());
@@ -88,7 +88,7 @@ public class PrometheusModel implements Enumeration<MetricFamilySamples> {
         }
         labels.add("vespa_service");
         labelValues.add(serviceId.getIdForPrometheus());
-        return new Sample(metricId.getIdForPrometheus(), labels, labelValues, metric.doubleValue(), timeStamp);
+        return new Sample(metricId.getIdForPrometheus(), labels, labelValues, metric, timeStamp);
     }
 
 }
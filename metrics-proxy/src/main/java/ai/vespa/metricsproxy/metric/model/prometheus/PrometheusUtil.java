@@ -33,7 +33,8 @@ public class PrometheusUtil {
                                                     NodeDimensions nodeDimensions) {
         Set<MetricId> metricNames = new HashSet<>();
         for (MetricsPacket metricsPacket : metricsPackets) {
-            metricNames.addAll(metricsPacket.metrics().keySet());
+            for (int i = 0; i < metricsPacket.metricCount(); i++)
+                metricNames.add(metricsPacket.metricId(i));
         }
 
         Map<ServiceId, List<MetricsPacket>> packetsByService = metricsPackets.stream()
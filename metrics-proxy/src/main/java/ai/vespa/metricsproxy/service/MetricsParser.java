@@ -12,10 +12,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.Instant;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -31,6 +30,16 @@ public class MetricsParser {
     private static final Double ZERO_DOUBLE = 0d;
     public interface Collector {
         void accept(Metric metric);
+
+        /**
+         * Accepts the values of one item in the 'values' array, which share their timestamp, dimensions and description.
+         * The values are only valid during this call. By default, this creates a metric per value, which collectors
+         * on the path of every poll should avoid by overriding this.
+         */
+        default void accept(Values values, Instant timestamp, Map<DimensionId, String> dimensions, String description) {
+            for (int i = 0; i < values.size(); i++)
+                accept(new Metric(values.id(i), values.value(i), timestamp, dimensions, description));
+        }
     }
 
     private static final ObjectMapper jsonMapper = Jackson.mapper();
@@ -114,18 +123,20 @@ public class MetricsParser {
         }
 
         Map<Set<Dimension>, Map<DimensionId, String>> uniqueDimensions = new HashMap<>();
+        Values values = new Values();
         while (parser.nextToken() == JsonToken.START_OBJECT) {
-            handleValue(parser, timestamp, consumer, uniqueDimensions);
+            handleValue(parser, timestamp, consumer, uniqueDimensions, values);
         }
     }
 
     // One item in the 'values' array, where each item has 'name', 'values' and 'dimensions'
     static private void handleValue(JsonParser parser, Instant timestamp, Collector consumer,
-                                    Map<Set<Dimension>, Map<DimensionId, String>> uniqueDimensions) throws IOException {
+                                    Map<Set<Dimension>, Map<DimensionId, String>> uniqueDimensions,
+                                    Values values) throws IOException {
         String name = "";
         String description = "";
         Map<DimensionId, String> dim = Map.of();
-        List<Map.Entry<String, Number>> values = List.of();
+        values.clear();
         for (parser.nextToken(); parser.currentToken() != JsonToken.END_OBJECT; parser.nextToken()) {
             String fieldName = parser.currentName();
             JsonToken token = parser.nextToken();
@@ -133,7 +144,7 @@ public class MetricsParser {
                 case "name" -> name = parser.getText();
                 case "description" -> description = parser.getText();
                 case "dimensions" -> dim = parseDimensions(parser, uniqueDimensions);
-                case "values" -> values = parseValues(parser);
+                case "values" -> parseValues(parser, values);
                 default -> {
                     if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
                         parser.skipChildren();
@@ -144,9 +155,8 @@ public class MetricsParser {
         if (name.isEmpty()) {
             throw new IOException("missing name for entry in 'values' array");
         }
-        for (Map.Entry<String, Number> value : values) {
-            consumer.accept(new Metric(MetricId.toMetricId(name+"."+value.getKey()), value.getValue(), timestamp, dim, description));
-        }
+        values.resolveIds(name);
+        consumer.accept(values, timestamp, dim, description);
     }
 
     private static Map<DimensionId, String> parseDimensions(JsonParser parser,
@@ -178,21 +188,85 @@ public class MetricsParser {
         }
     }
 
-    private static List<Map.Entry<String, Number>> parseValues(JsonParser parser) throws IOException {
-        List<Map.Entry<String, Number>> metrics = new ArrayList<>();
+    private static void parseValues(JsonParser parser, Values values) throws IOException {
         for (parser.nextToken(); parser.currentToken() != JsonToken.END_OBJECT; parser.nextToken()) {
             String metricName = parser.currentName();
             JsonToken token = parser.nextToken();
             if (token == JsonToken.VALUE_NUMBER_INT) {
-                metrics.add(Map.entry(metricName, parser.getLongValue()));
+                values.add(metricName, parser.getLongValue(), true);
             } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
-                double value = parser.getValueAsDouble();
-                metrics.add(Map.entry(metricName, value == ZERO_DOUBLE ? ZERO_DOUBLE : value));
+                values.add(metricName, Double.doubleToRawLongBits(parser.getValueAsDouble()), false);
             } else {
                 throw new IllegalArgumentException("Value for aggregator '" + metricName + "' is not a number");
             }
         }
-        return metrics;
+    }
+
+    /**
+     * The values of one item in the 'values' array, in primitive columns which are reused for all items,
+     * and which are therefore only valid during the call to the collector they are given to.
+     */
+    public static final class Values {
+
+        private String[] names = new String[16];
+        private MetricId[] ids = new MetricId[16];
+        private long[] bits = new long[16];
+        private boolean[] integral = new boolean[16];
+        private int size = 0;
+
+        private Values() { }
+
+        void clear() {
+            Arrays.fill(names, 0, size, null);
+            Arrays.fill(ids, 0, size, null);
+            size = 0;
+        }
+
+        void add(String name, long value, boolean isIntegral) {
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+                bits = Arrays.copyOf(bits, size * 2);
+                integral = Arrays.copyOf(integral, size * 2);
+            }
+            names[size] = name;
+            bits[size] = value;
+            integral[size] = isIntegral;
+            size++;
+        }
+
+        /** Sets the ids of the values, which are the given name of the item, suffixed by the name of each value */
+        void resolveIds(String name) {
+            for (int i = 0; i < size; i++)
+                ids[i] = MetricId.toMetricId(name + "." + names[i]);
+        }
+
+        /** Returns the number of values */
+        public int size() { return size; }
+
+        /** Returns the id of the metric of the value at the given index */
+        public MetricId id(int index) { return ids[index]; }
+
+        /** Returns whether the value at the given index is integral, and thus exactly given by {@link #longValue} */
+        public boolean isIntegral(int index) { return integral[index]; }
+
+        /** Returns the value at the given index as a long, which is exact if it is integral */
+        public long longValue(int index) { return integral[index] ? bits[index] : (long) doubleValue(index); }
+
+        /** Returns the value at the given index as a double */
+        public double doubleValue(int index) {
+            if (integral[index]) return bits[index];
+            double value = Double.longBitsToDouble(bits[index]);
+            return value == 0 ? 0 : value; // No negative zero
+        }
+
+        /** Returns the value at the given index, exactly as parsed, boxed */
+        public Number value(int index) {
+            if (integral[index]) return bits[index];
+            double value = doubleValue(index);
+            return value == 0 ? ZERO_DOUBLE : value;
+        }
+
     }
 
 }
@@ -0,0 +1,69 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.metricsproxy.metric.model;
+
+import ai.vespa.metricsproxy.metric.dimensions.ApplicationDimensions;
+import ai.vespa.metricsproxy.metric.dimensions.ApplicationDimensionsConfig;
+import ai.vespa.metricsproxy.metric.dimensions.NodeDimensions;
+import ai.vespa.metricsproxy.metric.dimensions.NodeDimensionsConfig;
+import ai.vespa.metricsproxy.metric.model.json.GenericJsonUtil;
+import ai.vespa.metricsproxy.metric.model.json.YamasJsonUtil;
+import ai.vespa.metricsproxy.metric.model.prometheus.PrometheusUtil;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static ai.vespa.metricsproxy.metric.model.DimensionId.toDimensionId;
+import static ai.vespa.metricsproxy.metric.model.MetricId.toMetricId;
+import static ai.vespa.metricsproxy.metric.model.ServiceId.toServiceId;
+
+/**
+ * Builds and renders 100k metric series, as 1000 packets of 100 metrics each.
+ *
+ * @author gjoranv
+ */
+public class MetricsPacketMicroBenchmarkTest {
+
+    private static final int packetCount = 1000;
+    private static final int metricsPerPacket = 100;
+
+    @Ignore
+    @Test
+    public void benchmark() {
+        for (int i = 0; i < 5; i++) { // The first rounds are warm-up
+            List<MetricsPacket> packets = time("build", this::createPackets);
+            time("yamas", () -> YamasJsonUtil.toJson(packets, false).length());
+            time("generic json", () -> GenericJsonUtil.toGenericJsonModel(packets).serialize().length());
+            time("prometheus", () -> PrometheusUtil.toPrometheusModel(packets,
+                                                                       new ApplicationDimensions(new ApplicationDimensionsConfig.Builder().build()),
+                                                                       new NodeDimensions(new NodeDimensionsConfig.Builder().build()))
+                                                   .serialize().length());
+            System.out.println();
+        }
+    }
+
+    private List<MetricsPacket> createPackets() {
+        List<MetricsPacket> packets = new ArrayList<>(packetCount);
+        for (int i = 0; i < packetCount; i++) {
+            var builder = new MetricsPacket.Builder(toServiceId("service" + i % 10))
+                    .timestamp(Instant.ofEpochSecond(1700000000))
+                    .putDimension(toDimensionId("cluster"), "cluster" + i % 3)
+                    .putDimension(toDimensionId("documenttype"), "type" + i % 5);
+            for (int j = 0; j < metricsPerPacket; j++)
+                builder.putMetric(toMetricId("metric" + j + ".average"), j % 2 == 0 ? (Number)(long)(i + j) : (Number)(i * 0.5 + j));
+            packets.add(builder.build());
+        }
+        return packets;
+    }
+
+    private static <T> T time(String task, Supplier<T> supplier) {
+        long start = System.nanoTime();
+        T result = supplier.get();
+        System.out.println(task + ": " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return result;
+    }
+
+}
@@ -10,10 +10,12 @@ import java.util.Map;
 import java.util.Set;
 
 import static ai.vespa.metricsproxy.metric.model.ConsumerId.toConsumerId;
+import static ai.vespa.metricsproxy.metric.model.DimensionId.toDimensionId;
 import static ai.vespa.metricsproxy.metric.model.MetricId.toMetricId;
 import static ai.vespa.metricsproxy.metric.model.ServiceId.toServiceId;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -113,4 +115,76 @@ public class MetricsPacketTest {
         assertFalse(packet.metrics().containsKey(NON_EXISTENT_ID));
     }
 
+    @Test
+    public void metric_values_keep_their_order_and_type() {
+        MetricsPacket packet = new MetricsPacket.Builder(toServiceId("foo"))
+                .putMetric(toMetricId("long"), 3L)
+                .putMetric(toMetricId("int"), 2)
+                .putMetric(toMetricId("double"), 1.5)
+                .putMetric(toMetricId("float"), 0.5f)
+                .build();
+
+        assertEquals(List.of("long", "int", "double", "float"),
+                     packet.metrics().keySet().stream().map(id -> id.id).toList());
+        assertEquals(3L, packet.metrics().get(toMetricId("long")));
+        assertEquals(2, packet.metrics().get(toMetricId("int")));
+        assertEquals(1.5, packet.metrics().get(toMetricId("double")));
+        assertEquals(0.5f, packet.metrics().get(toMetricId("float")));
+        assertEquals(Map.of(toMetricId("long"), 3L, toMetricId("int"), 2, toMetricId("double"), 1.5, toMetricId("float"), 0.5f),
+                     packet.metrics());
+        assertEquals(4, packet.metricCount());
+        assertEquals(2, packet.metricIndex(toMetricId("double")));
+        assertEquals(1.5, packet.metricValue(2), 0);
+        assertEquals(-1, packet.metricIndex(toMetricId("non-existent")));
+    }
+
+    @Test
+    public void metrics_can_be_looked_up_in_large_packets() {
+        var builder = new MetricsPacket.Builder(toServiceId("foo"));
+        for (int i = 0; i < 1000; i++)
+            builder.putMetric(toMetricId("metric" + i), i);
+        MetricsPacket packet = builder.build();
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, packet.metricIndex(toMetricId("metric" + i)));
+            assertEquals(i, packet.metrics().get(toMetricId("metric" + i)));
+        }
+        assertNull(packet.metrics().get(toMetricId("metric1000")));
+    }
+
+    @Test
+    public void integral_values_are_kept_exact() {
+        long large = (1L << 53) + 1; // Not representable as a double
+        var builder = new MetricsPacket.Builder(toServiceId("foo"));
+        for (int i = 0; i < 20; i++) // Replacing values keeps their position, also when a lookup table is used
+            builder.putMetric(toMetricId("metric" + i), 1);
+        builder.putMetric(toMetricId("large"), large)
+               .putMetric(toMetricId("metric3"), large - 1)
+               .putMetric(toMetricId("double"), 0.25);
+        MetricsPacket packet = builder.build();
+
+        assertEquals(large, packet.metrics().get(toMetricId("large")));
+        int index = packet.metricIndex(toMetricId("large"));
+        assertTrue(packet.metricIsIntegral(index));
+        assertEquals(large, packet.metricLongValue(index));
+        assertEquals(3, packet.metricIndex(toMetricId("metric3")));
+        assertEquals(large - 1, packet.metrics().get(toMetricId("metric3")));
+        assertFalse(packet.metricIsIntegral(packet.metricIndex(toMetricId("double"))));
+        assertEquals(22, packet.metricCount());
+    }
+
+    @Test
+    public void primitive_values_are_long_or_double() {
+        MetricsPacket packet = new MetricsPacket.Builder(toServiceId("foo"))
+                .putMetricValue(toMetricId("long"), Long.MAX_VALUE)
+                .putMetricValue(toMetricId("double"), 0.5)
+                .build();
+
+        assertEquals(Long.MAX_VALUE, packet.metrics().get(toMetricId("long")));
+        assertTrue(packet.metricIsIntegral(0));
+        assertEquals(Long.MAX_VALUE, packet.metricLongValue(0));
+        assertEquals(0.5, packet.metrics().get(toMetricId("double")));
+        assertFalse(packet.metricIsIntegral(1));
+    }
+
 }
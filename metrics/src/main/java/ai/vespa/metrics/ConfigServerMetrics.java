@@ -11,6 +11,10 @@ public enum ConfigServerMetrics implements VespaMetrics {
     LATENCY("configserver.latency", Unit.MILLISECOND, "Time to complete requests"),
     CACHE_CONFIG_ELEMS("configserver.cacheConfigElems", Unit.ITEM, "Time to complete requests"),
     CACHE_CHECKSUM_ELEMS("configserver.cacheChecksumElems", Unit.ITEM, "Number of checksum elements in the cache"),
+    CACHE_HITS("configserver.cacheHits", Unit.REQUEST, "Number of config requests served from the config cache"),
+    CACHE_MISSES("configserver.cacheMisses", Unit.REQUEST, "Number of config requests which had to build the config"),
+    CONFIG_WARMUP_TIME("configserver.configWarmupTime", Unit.MILLISECOND, "Time to build the configs requested by waiting clients when a new application generation is activated"),
+    CONFIG_WARMUP_CONFIGS("configserver.configWarmupConfigs", Unit.ITEM, "Number of distinct configs built when a new application generation is activated"),
     HOSTS("configserver.hosts", Unit.NODE, "The number of nodes being served configuration from the config server cluster"),
     TENANTS("configserver.tenants", Unit.INSTANCE, "The number of tenants being served configuration from the config server cluster"),
     APPLICATIONS("configserver.applications", Unit.INSTANCE, "The number of applications being served configuration from the config server cluster"),
@@ -24,6 +28,7 @@ public enum ConfigServerMetrics implements VespaMetrics {
     ADDED_SESSIONS("configserver.addedSessions", Unit.SESSION, "Added config sessions"),
     REMOVED_SESSIONS("configserver.removedSessions", Unit.SESSION, "Removed config sessions"),
     RPC_SERVER_WORK_QUEUE_SIZE("configserver.rpcServerWorkQueueSize", Unit.ITEM, "Number of elements in the RPC server work queue"),
+    RPC_SERVER_REJECTED_REQUESTS("configserver.rpcServerRejectedRequests", Unit.REQUEST, "Number of config requests rejected because the RPC server work queue was full, or they waited too long in it"),
 
     MAINTENANCE_DEPLOYMENT_TRANSIENT_FAILURE("maintenanceDeployment.transientFailure", Unit.OPERATION, "Number of maintenance deployments that failed with a transient failure"),
     MAINTENANCE_DEPLOYMENT_FAILURE("maintenanceDeployment.failure", Unit.OPERATION, "Number of maintenance deployments that failed with a permanent failure"),
@@ -50,6 +55,10 @@ public enum ConfigServerMetrics implements VespaMetrics {
     ORCHESTRATOR_LOCK_ACQUIRED("orchestrator.lock.acquired", Unit.OPERATION, "Number of times zookeeper lock was acquired"),
     ORCHESTRATOR_LOCK_HOLD_LATENCY("orchestrator.lock.hold-latency", Unit.SECOND, "Time zookeeper lock was held before it was released"),
 
+    // Service monitor metrics
+    SERVICE_HEALTH_POLL_LAG("serviceModel.health.pollLag", Unit.SECOND, "How much later than targeted the health of a service was polled"),
+    SERVICE_HEALTH_REQUESTS_IN_FLIGHT("serviceModel.health.requestsInFlight", Unit.REQUEST, "Number of concurrent service health requests"),
+
     // Node repository metrics
     NODES_ACTIVE("nodes.active", Unit.NODE, "The number of active nodes in a cluster"),
     NODES_NON_ACTIVE("nodes.nonActive", Unit.NODE, "The number of non-active nodes in a cluster"),
@@ -131,6 +131,12 @@ public enum ContainerMetrics implements VespaMetrics {
     QUERY_TIMEOUT("query_timeout", Unit.MILLISECOND, "The amount of time allowed for query execution, from the client"),
     FAILED_QUERIES("failed_queries", Unit.OPERATION, "The number of failed queries"),
     DEGRADED_QUERIES("degraded_queries", Unit.OPERATION, "The number of degraded queries, e.g. due to some content nodes not responding in time"),
+    DISPATCH_HEDGES_SENT("dispatch.hedges_sent", Unit.REQUEST, "The number of hedged search requests sent to another group because the first group was slow to respond"),
+    DISPATCH_HEDGES_WON("dispatch.hedges_won", Unit.REQUEST, "The number of hedged search requests which responded before the group they were hedging"),
+    YQL_PARSE_CACHE_HITS("yql.parse_cache_hits", Unit.QUERY, "The number of queries with a YQL statement which was found in the cache of parsed statements"),
+    YQL_PARSE_CACHE_MISSES("yql.parse_cache_misses", Unit.QUERY, "The number of queries with a cacheable YQL statement which had to be parsed"),
+    LINGUISTICS_CACHE_HITS("language.linguistics.cache_hits", Unit.OPERATION, "The number of tokenizations and stemmings by the default linguistics which were served from its cache"),
+    LINGUISTICS_CACHE_MISSES("language.linguistics.cache_misses", Unit.OPERATION, "The number of tokenizations and stemmings by the default linguistics which were not cached"),
     HITS_PER_QUERY("hits_per_query", Unit.HIT_PER_QUERY, "The number of hits returned"),
     QUERY_HIT_OFFSET("query_hit_offset", Unit.HIT, "The offset for hits returned"),
     DOCUMENTS_COVERED("documents_covered", Unit.DOCUMENT, "The combined number of documents considered during query evaluation"),
@@ -140,6 +146,7 @@ public enum ContainerMetrics implements VespaMetrics {
     QUERY_ITEM_COUNT("query_item_count", Unit.ITEM, "The number of query items (terms, phrases, etc.)"),
     DOCPROC_PROC_TIME("docproc.proctime", Unit.MILLISECOND, "Time spent processing document"),
     DOCPROC_DOCUMENTS("docproc.documents", Unit.DOCUMENT, "Number of processed documents"),
+    DOCPROC_INDEXING_STATEMENT_TIME("docproc.indexing.statement_time", Unit.MILLISECOND, "Time spent executing an indexing statement for a document"),
     
     TOTAL_HITS_PER_QUERY("totalhits_per_query", Unit.HIT_PER_QUERY, "The total number of documents found to match queries"),
     EMPTY_RESULTS("empty_results", Unit.OPERATION, "Number of queries matching no documents"),
@@ -208,7 +215,14 @@ public enum ContainerMetrics implements VespaMetrics {
     SERVER_STARTED_MILLIS("serverStartedMillis", Unit.MILLISECOND, "Time since the service was started"),
 
     EMBEDDER_LATENCY("embedder.latency", Unit.MILLISECOND, "Time spent creating an embedding"),
-    EMBEDDER_SEQUENCE_LENGTH("embedder.sequence_length", Unit.BYTE, "Size of sequence produced by tokenizer");
+    EMBEDDER_SEQUENCE_LENGTH("embedder.sequence_length", Unit.BYTE, "Size of sequence produced by tokenizer"),
+
+    FIELD_GENERATOR_CACHE_HITS("generator.cache.hits", Unit.OPERATION, "Number of field generations served from the generation cache"),
+    FIELD_GENERATOR_CACHE_MISSES("generator.cache.misses", Unit.OPERATION, "Number of field generations which ran the language model since they were not cached"),
+
+    ONNX_EVALUATIONS("onnx.evaluations", Unit.OPERATION, "Number of evaluations of ONNX models"),
+    ONNX_CONVERSION_TIME("onnx.conversion_time", Unit.MILLISECOND, "Time spent converting inputs and outputs of ONNX model evaluations"),
+    ONNX_RUN_TIME("onnx.run_time", Unit.MILLISECOND, "Time spent running ONNX models");
 
     private final String name;
     private final Unit unit;
@@ -48,6 +48,10 @@ public class InfrastructureMetricSet {
         addMetric(metrics, ConfigServerMetrics.LATENCY, EnumSet.of(max, sum, count));
         addMetric(metrics, ConfigServerMetrics.CACHE_CONFIG_ELEMS.last());
         addMetric(metrics, ConfigServerMetrics.CACHE_CHECKSUM_ELEMS.last());
+        addMetric(metrics, ConfigServerMetrics.CACHE_HITS.count());
+        addMetric(metrics, ConfigServerMetrics.CACHE_MISSES.count());
+        addMetric(metrics, ConfigServerMetrics.CONFIG_WARMUP_TIME, EnumSet.of(max, sum, count));
+        addMetric(metrics, ConfigServerMetrics.CONFIG_WARMUP_CONFIGS.max());
         addMetric(metrics, ConfigServerMetrics.HOSTS.last());
         addMetric(metrics, ConfigServerMetrics.DELAYED_RESPONSES.count());
         addMetric(metrics, ConfigServerMetrics.SESSION_CHANGE_ERRORS.count());
@@ -114,6 +118,7 @@ public class InfrastructureMetricSet {
         addMetric(metrics, ConfigServerMetrics.HOSTED_VESPA_PARKED_NODES.max());
 
         addMetric(metrics, ConfigServerMetrics.RPC_SERVER_WORK_QUEUE_SIZE.average());
+        addMetric(metrics, ConfigServerMetrics.RPC_SERVER_REJECTED_REQUESTS.count());
         addMetric(metrics, ConfigServerMetrics.DEPLOYMENT_ACTIVATE_MILLIS.max());
         addMetric(metrics, ConfigServerMetrics.DEPLOYMENT_PREPARE_MILLIS.max());
 
@@ -131,6 +136,8 @@ public class InfrastructureMetricSet {
 
         addMetric(metrics, ConfigServerMetrics.ORCHESTRATOR_LOCK_ACQUIRE_SUCCESS.count());
         addMetric(metrics, ConfigServerMetrics.ORCHESTRATOR_LOCK_ACQUIRE_TIMEOUT.count());
+        addMetric(metrics, ConfigServerMetrics.SERVICE_HEALTH_POLL_LAG, EnumSet.of(max, average));
+        addMetric(metrics, ConfigServerMetrics.SERVICE_HEALTH_REQUESTS_IN_FLIGHT.max());
         addMetric(metrics, ConfigServerMetrics.ZONE_WORKING.max());
         addMetric(metrics, ConfigServerMetrics.THROTTLED_HOST_PROVISIONING.max());
 
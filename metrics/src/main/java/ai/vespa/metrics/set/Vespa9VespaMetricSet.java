@@ -217,6 +217,15 @@ public class Vespa9VespaMetricSet {
         addMetric(metrics, ContainerMetrics.EMBEDDER_LATENCY, EnumSet.of(max, sum, count));
         addMetric(metrics, ContainerMetrics.EMBEDDER_SEQUENCE_LENGTH, EnumSet.of(max, sum, count));
 
+        // Field generators
+        addMetric(metrics, ContainerMetrics.FIELD_GENERATOR_CACHE_HITS.count());
+        addMetric(metrics, ContainerMetrics.FIELD_GENERATOR_CACHE_MISSES.count());
+
+        // Stateless ONNX models
+        addMetric(metrics, ContainerMetrics.ONNX_EVALUATIONS.count());
+        addMetric(metrics, ContainerMetrics.ONNX_CONVERSION_TIME.count());
+        addMetric(metrics, ContainerMetrics.ONNX_RUN_TIME.count());
+
         return metrics;
     }
 
@@ -261,6 +270,7 @@ public class Vespa9VespaMetricSet {
 
         addMetric(metrics, ContainerMetrics.DOCPROC_PROC_TIME, EnumSet.of(sum, count, max));
         addMetric(metrics, ContainerMetrics.DOCPROC_DOCUMENTS, EnumSet.of(sum, count, max, min));
+        addMetric(metrics, ContainerMetrics.DOCPROC_INDEXING_STATEMENT_TIME, EnumSet.of(sum, count, max));
 
         return metrics;
     }
@@ -276,6 +286,12 @@ public class Vespa9VespaMetricSet {
         addMetric(metrics, ContainerMetrics.QUERY_TIMEOUT, EnumSet.of(sum, count, max, min, ninety_five_percentile, ninety_nine_percentile));
         addMetric(metrics, ContainerMetrics.FAILED_QUERIES.rate());
         addMetric(metrics, ContainerMetrics.DEGRADED_QUERIES.rate());
+        addMetric(metrics, ContainerMetrics.DISPATCH_HEDGES_SENT.rate());
+        addMetric(metrics, ContainerMetrics.DISPATCH_HEDGES_WON.rate());
+        addMetric(metrics, ContainerMetrics.YQL_PARSE_CACHE_HITS.rate());
+        addMetric(metrics, ContainerMetrics.YQL_PARSE_CACHE_MISSES.rate());
+        addMetric(metrics, ContainerMetrics.LINGUISTICS_CACHE_HITS.rate());
+        addMetric(metrics, ContainerMetrics.LINGUISTICS_CACHE_MISSES.rate());
         addMetric(metrics, ContainerMetrics.HITS_PER_QUERY, EnumSet.of(sum, count, max, ninety_five_percentile, ninety_nine_percentile));
         addMetric(metrics, ContainerMetrics.SEARCH_CONNECTIONS, EnumSet.of(sum, count, max));
         addMetric(metrics, ContainerMetrics.QUERY_HIT_OFFSET, EnumSet.of(sum, count, max));
@@ -0,0 +1,52 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.api.annotations.Beta;
+import com.yahoo.searchlib.rankingexpression.evaluation.GBDTForestEvaluator;
+
+import java.util.List;
+
+/**
+ * An evaluator of a function which is a sum of decision trees, which scores many feature vectors per call.
+ * Unlike {@link FunctionEvaluator}, this is thread safe and can be reused.
+ *
+ * Usage:
+ * <code>double[] scores = model.forestEvaluatorOf("myFunction").evaluate(featureVectors)</code>
+ * where each feature vector holds the values of the {@link #arguments()} in order.
+ *
+ * @author bratseth
+ */
+@Beta
+public class ForestEvaluator {
+
+    private final GBDTForestEvaluator evaluator;
+    private final List<String> arguments;
+
+    ForestEvaluator(GBDTForestEvaluator evaluator, List<String> arguments) {
+        this.evaluator = evaluator;
+        this.arguments = arguments;
+    }
+
+    /** Returns the arguments of the function, in the order their values must be given in each feature vector */
+    public List<String> arguments() { return arguments; }
+
+    /** Returns the score of a single feature vector */
+    public double evaluate(double[] featureVector) {
+        requireSize(featureVector);
+        return evaluator.evaluate(featureVector);
+    }
+
+    /** Returns the scores of the given feature vectors, in the same order */
+    public double[] evaluate(double[][] featureVectors) {
+        for (double[] featureVector : featureVectors)
+            requireSize(featureVector);
+        return evaluator.evaluate(featureVectors);
+    }
+
+    private void requireSize(double[] featureVector) {
+        if (featureVector.length != arguments.size())
+            throw new IllegalArgumentException("Feature vectors must have a value for each of " + arguments +
+                                               ", got " + featureVector.length + " values");
+    }
+
+}
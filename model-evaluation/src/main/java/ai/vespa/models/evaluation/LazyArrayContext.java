@@ -19,6 +19,7 @@ import com.yahoo.tensor.TensorType;
 import static com.yahoo.searchlib.rankingexpression.Reference.RANKING_EXPRESSION_WRAPPER;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -107,6 +108,12 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         return get(index).asDouble();
     }
 
+    /** Returns false for the prototype contexts of a model, which are not used for evaluation, see {@link #copy} */
+    @Override
+    public boolean hasDoubles(int[] indexes) {
+        return indexedBindings.hasDoubles(indexes);
+    }
+
     @Override
     public int getIndex(String name) {
         return requireIndexOf(name);
@@ -175,6 +182,12 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         /** The value to return for lookups where no value is set (default: NaN) */
         private Value missingValue = new DoubleValue(Double.NaN).freeze();
 
+        /**
+         * Which values are set to values with no double representation, or null if this is not known,
+         * as the values of the functions of the model can not yet be inspected
+         */
+        private final BitSet nonDoubleValues;
+
 
         private IndexedBindings(Map<String, Integer> nameToIndex,
                                 Value[] values,
@@ -184,6 +197,9 @@ public final class LazyArrayContext extends Context implements ContextIndex {
             this.values = values;
             this.arguments = arguments;
             this.onnxModels = Map.copyOf(onnxModels);
+            this.nonDoubleValues = new BitSet(values.length);
+            for (int i = 0; i < values.length; i++)
+                nonDoubleValues.set(i, values[i] != missing && ! hasDouble(values[i]));
         }
 
         /**
@@ -206,6 +222,7 @@ public final class LazyArrayContext extends Context implements ContextIndex {
 
             values = new Value[bindTargets.size()];
             Arrays.fill(values, missing);
+            nonDoubleValues = null;
 
             MutableInteger nextIndex = new MutableInteger(0);
             nameToIndex = Map.copyOf(bindTargets.stream()
@@ -232,6 +249,21 @@ public final class LazyArrayContext extends Context implements ContextIndex {
             missingValue = new TensorValue(value).freeze();
         }
 
+        boolean hasDoubles(int[] indexes) {
+            if (nonDoubleValues == null) return false;
+            for (int index : indexes) {
+                if (values[index] == missing ? ! missingValue.hasDouble() : nonDoubleValues.get(index))
+                    return false;
+            }
+            return true;
+        }
+
+        /** Returns whether the given value has a double representation, without computing it */
+        private static boolean hasDouble(Value value) {
+            if (value instanceof LazyValue lazyValue) return lazyValue.isDeclaredDouble();
+            return value.hasDouble();
+        }
+
         Value get(int index) {
             Value value = values[index];
             return value == missing ? missingValue : value;
@@ -239,6 +271,8 @@ public final class LazyArrayContext extends Context implements ContextIndex {
 
         void set(int index, Value value) {
             values[index] = value;
+            if (nonDoubleValues != null)
+                nonDoubleValues.set(index, ! hasDouble(value));
         }
 
         Set<String> names() { return nameToIndex.keySet(); }
@@ -58,6 +58,11 @@ class LazyValue extends Value {
         return type().rank() == 0;
     }
 
+    /** Returns whether the function of this declares that it returns a value with a double representation */
+    boolean isDeclaredDouble() {
+        return model.requireReferencedFunction(function).returnType().map(type -> type.rank() == 0).orElse(false);
+    }
+
     @Override
     public boolean asBoolean() {
         return computedValue().asBoolean();
@@ -5,6 +5,7 @@ import com.yahoo.api.annotations.Beta;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
 import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.GBDTForestEvaluator;
 import com.yahoo.stream.CustomCollectors;
 import com.yahoo.tensor.TensorType;
 
@@ -52,6 +53,8 @@ public class Model implements AutoCloseable {
 
     private final ExpressionOptimizer expressionOptimizer = new ExpressionOptimizer();
 
+    private final List<OnnxModel> onnxModels;
+
     private final List<Runnable> closeActions;
 
     /** Programmatically create a model containing functions without constant of function references only */
@@ -61,7 +64,8 @@ public class Model implements AutoCloseable {
              Map.of(),
              Map.of(),
              List.of(),
-             List.of());
+             List.of(),
+             false);
     }
 
     static class OnnxReplacer extends ExpressionTransformer<TransformContext> {
@@ -120,13 +124,19 @@ public class Model implements AutoCloseable {
         }
     }
 
+    /**
+     * Creates a model from its functions, where the scalar parts of the functions are compiled to speed up
+     * evaluation if compileExpressions is true, see {@link ExpressionOptimizer#setCompileExpressions}.
+     */
     Model(String name,
           Map<FunctionReference, ExpressionFunction> functions,
           Map<FunctionReference, ExpressionFunction> referencedFunctions,
           Map<String, TensorType> declaredTypes,
           List<Constant> constants,
-          List<OnnxModel> onnxModels) {
+          List<OnnxModel> onnxModels,
+          boolean compileExpressions) {
         this.name = name;
+        expressionOptimizer.setCompileExpressions(compileExpressions);
 
         var bindingExtractor = new BindingExtractor(referencedFunctions, onnxModels);
 
@@ -180,6 +190,7 @@ public class Model implements AutoCloseable {
                 .filter(f -> !f.getName().startsWith(INTERMEDIATE_OPERATION_FUNCTION_PREFIX)).toList();
 
         this.referencedFunctions = Map.copyOf(referencedFunctions);
+        this.onnxModels = List.copyOf(onnxModels);
         this.closeActions = onnxModels.stream().map(o -> (Runnable)o::close).toList();
     }
 
@@ -192,6 +203,9 @@ public class Model implements AutoCloseable {
 
     public String name() { return name; }
 
+    /** Returns the ONNX models used by the functions of this */
+    List<OnnxModel> onnxModels() { return onnxModels; }
+
     /**
      * Returns an immutable list of the free, public functions of this.
      * The functions returned always specifies types of all arguments and the return value
@@ -244,22 +258,47 @@ public class Model implements AutoCloseable {
      *              by dot.
      * @throws IllegalArgumentException if the function is not present, or not uniquely identified by the names given
      */
-    public FunctionEvaluator evaluatorOf(String ... names) {  // TODO: Parameter overloading?
+    public FunctionEvaluator evaluatorOf(String ... names) {
+        return evaluatorOf(requireFunction(names));
+    }
+
+    /**
+     * Returns an evaluator which scores many feature vectors per call with the given function, which must be
+     * a decision tree or a sum of decision trees, such as an imported XGBoost or LightGBM model.
+     * The returned evaluator is thread safe and can be reused.
+     *
+     * @param names the names identifying the function, as in {@link #evaluatorOf(String...)}
+     * @throws IllegalArgumentException if the function is not present, not uniquely identified by the names given,
+     *                                  or is not a decision tree or a sum of decision trees
+     */
+    public ForestEvaluator forestEvaluatorOf(String ... names) {
+        ExpressionFunction function = requireFunction(names);
+        List<String> arguments = List.copyOf(function.arguments());
+        return new ForestEvaluator(GBDTForestEvaluator.of(function.getBody(),
+                                                          requireContextPrototype(function.getName()),
+                                                          arguments)
+                                                      .orElseThrow(() -> new IllegalArgumentException(
+                                                              function + " in " + this + " is not a decision tree forest")),
+                                   arguments);
+    }
+
+    /** Returns the function identified by the given names, see {@link #evaluatorOf(String...)} */
+    private ExpressionFunction requireFunction(String ... names) {  // TODO: Parameter overloading?
         if (names.length == 0) {
             if (functions.size() > 1)
                 throwUndeterminedFunction("More than one function is available in " + this + ", but no name is given");
-            return evaluatorOf(functions.get(0));
+            return functions.get(0);
         }
         else if (names.length == 1) {
             String name = names[0];
             ExpressionFunction function = function(name);
-            if (function != null) return evaluatorOf(function);
+            if (function != null) return function;
 
             // Check if the name is a signature
             List<ExpressionFunction> functionsStartingByName =
                     functions.stream().filter(f -> f.getName().startsWith(name + ".")).toList();
             if (functionsStartingByName.size() == 1)
-                return evaluatorOf(functionsStartingByName.get(0));
+                return functionsStartingByName.get(0);
             if (functionsStartingByName.size() > 1)
                 throwUndeterminedFunction("Multiple functions start by '" + name + "' in " + this);
 
@@ -267,24 +306,24 @@ public class Model implements AutoCloseable {
             List<ExpressionFunction> functionsEndingByName =
                     functions.stream().filter(f -> f.getName().endsWith("." + name)).toList();
             if (functionsEndingByName.size() == 1)
-                return evaluatorOf(functionsEndingByName.get(0));
+                return functionsEndingByName.get(0);
             if (functionsEndingByName.size() > 1)
                 throwUndeterminedFunction("Multiple functions called '" + name + "' in " + this);
 
             // To handle TensorFlow conversion to ONNX
             if (name.startsWith("serving_default")) {
-                return evaluatorOf("default" + name.substring("serving_default".length()));
+                return requireFunction("default" + name.substring("serving_default".length()));
             }
 
             // To handle backward compatibility with ONNX conversion to native Vespa ranking expressions
             if (name.startsWith("default.")) {
-                return evaluatorOf(name.substring("default.".length()));
+                return requireFunction(name.substring("default.".length()));
             }
 
             throwUndeterminedFunction("No function '" + name + "' in " + this);
         }
         else if (names.length == 2) {
-            return evaluatorOf(names[0] + "." + names[1]);
+            return requireFunction(names[0] + "." + names[1]);
         }
         throw new IllegalArgumentException("No more than 2 names can be given when choosing a function, got " +
                                            Arrays.toString(names));
@@ -1,17 +1,20 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package ai.vespa.models.evaluation;
 
+import ai.vespa.modelintegration.evaluator.OnnxMetricReporter;
 import ai.vespa.modelintegration.evaluator.OnnxRuntime;
 import com.yahoo.api.annotations.Beta;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.filedistribution.fileacquirer.FileAcquirer;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.vespa.config.search.RankProfilesConfig;
 import com.yahoo.vespa.config.search.core.OnnxModelsConfig;
 import com.yahoo.vespa.config.search.core.RankingConstantsConfig;
 import com.yahoo.vespa.config.search.core.RankingExpressionsConfig;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -26,7 +29,21 @@ public class ModelsEvaluator extends AbstractComponent {
 
     private final Map<String, Model> models;
 
+    /** Reports metrics of the ONNX models, or null if there is nothing to report to */
+    private final OnnxMetricReporter metricReporter;
+
     @Inject
+    public ModelsEvaluator(RankProfilesConfig config,
+                           RankingConstantsConfig constantsConfig,
+                           RankingExpressionsConfig expressionsConfig,
+                           OnnxModelsConfig onnxModelsConfig,
+                           FileAcquirer fileAcquirer,
+                           OnnxRuntime onnx,
+                           Metric metric) {
+        this(new RankProfilesConfigImporter(fileAcquirer, onnx).importFrom(config, constantsConfig, expressionsConfig, onnxModelsConfig),
+             metric);
+    }
+
     public ModelsEvaluator(RankProfilesConfig config,
                            RankingConstantsConfig constantsConfig,
                            RankingExpressionsConfig expressionsConfig,
@@ -56,7 +73,22 @@ public class ModelsEvaluator extends AbstractComponent {
 
     // For testing only
     public ModelsEvaluator(Map<String, Model> models) {
+        this(models, null);
+    }
+
+    private ModelsEvaluator(Map<String, Model> models, Metric metric) {
         this.models = Collections.unmodifiableMap(models);
+        this.metricReporter = metric != null ? new OnnxMetricReporter(metric, "model", onnxModelsOf(this.models)) : null;
+        if (metricReporter != null)
+            metricReporter.start();
+    }
+
+    /** Returns the ONNX models of the given models as sources of metrics */
+    static List<OnnxMetricReporter.Source> onnxModelsOf(Map<String, Model> models) {
+        return models.values().stream()
+                     .flatMap(model -> model.onnxModels().stream())
+                     .map(onnxModel -> new OnnxMetricReporter.Source(onnxModel::name, onnxModel::statistics))
+                     .toList();
     }
 
     /** Returns the models of this as an immutable map */
@@ -82,5 +114,10 @@ public class ModelsEvaluator extends AbstractComponent {
         return model;
     }
 
-    @Override public void deconstruct() { models.values().forEach(Model::close); }
+    @Override
+    public void deconstruct() {
+        if (metricReporter != null)
+            metricReporter.close();
+        models.values().forEach(Model::close);
+    }
 }
@@ -9,6 +9,7 @@ import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
 import java.io.File;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -64,7 +65,7 @@ class OnnxModel implements AutoCloseable {
     private final OnnxEvaluatorOptions options;
     private final OnnxRuntime onnx;
 
-    private OnnxEvaluator evaluator;
+    private volatile OnnxEvaluator evaluator;
     private final Map<String, ExpressionNode> exprPerOutput = new HashMap<>();
 
     OnnxModel(String name, File modelFile, OnnxEvaluatorOptions options, OnnxRuntime onnx) {
@@ -198,6 +199,12 @@ class OnnxModel implements AutoCloseable {
         return evaluator().evaluate(inputs, onnxOutputName);
     }
 
+    /** Returns statistics of the evaluations of this since it was loaded, or all zeros if it is not loaded */
+    OnnxEvaluator.Statistics statistics() {
+        OnnxEvaluator evaluator = this.evaluator;
+        return evaluator != null ? evaluator.statistics() : new OnnxEvaluator.Statistics(0, Duration.ZERO, Duration.ZERO);
+    }
+
     private OnnxEvaluator evaluator() {
         if (evaluator == null) {
             throw new IllegalStateException("ONNX model has not been loaded.");
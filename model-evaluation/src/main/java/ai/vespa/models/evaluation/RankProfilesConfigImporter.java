@@ -47,6 +47,9 @@ import java.util.regex.Pattern;
  */
 public class RankProfilesConfigImporter {
 
+    /** The rank property which, if set to true, enables compilation of the scalar parts of the functions of a profile */
+    static final String compileExpressionsProperty = "vespa.modelevaluation.compile";
+
     private final FileAcquirer fileAcquirer;
     private final OnnxRuntime onnx;
 
@@ -94,6 +97,7 @@ public class RankProfilesConfigImporter {
         ExpressionFunction globalPhase = null;
         Map<String, TensorType> declaredTypes = new LinkedHashMap<>();
         Set<String> matchFeaturesSet = new HashSet<>();
+        boolean compileExpressions = false;
         for (RankProfilesConfig.Rankprofile.Fef.Property property : profile.fef().property()) {
             Optional<FunctionReference> reference = FunctionReference.fromSerial(property.name());
             Optional<FunctionReference> externalReference = FunctionReference.fromExternalSerial(property.name());
@@ -144,6 +148,9 @@ public class RankProfilesConfigImporter {
             else if (property.name().equals("vespa.match.feature")) {
                 matchFeaturesSet.add(property.value());
             }
+            else if (property.name().equals(compileExpressionsProperty)) {
+                compileExpressions = Boolean.parseBoolean(property.value());
+            }
             else if (property.name().equals("vespa.rank.firstphase")) { // Include in addition to functions
                 firstPhase = new ExpressionFunction("firstphase", new ArrayList<>(),
                                                     new RankingExpression("first-phase", property.value()));
@@ -177,7 +184,7 @@ public class RankProfilesConfigImporter {
             referencedFunctions.remove(ref);
         }
         try {
-            return new Model(profile.name(), functions, referencedFunctions, declaredTypes, constants, onnxModels);
+            return new Model(profile.name(), functions, referencedFunctions, declaredTypes, constants, onnxModels, compileExpressions);
         }
         catch (RuntimeException e) {
             throw new IllegalArgumentException("Could not load model '" + profile.name() + "'", e);
@@ -210,6 +217,7 @@ public class RankProfilesConfigImporter {
                     .setExecutionMode(onnxModelConfig.stateless_execution_mode())
                     .setInterOpThreads(onnxModelConfig.stateless_interop_threads())
                     .setIntraOpThreads(onnxModelConfig.stateless_intraop_threads())
+                    .setReuseBuffers(onnxModelConfig.stateless_reuse_buffers())
                     .setGpuDevice(onnxModelConfig.gpu_device(), onnxModelConfig.gpu_device_required())
                     .build();
             var m =  new OnnxModel(name, file, options, onnx);
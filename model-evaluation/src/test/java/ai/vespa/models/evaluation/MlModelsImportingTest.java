@@ -7,6 +7,7 @@ import com.yahoo.tensor.TensorType;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
@@ -44,6 +45,7 @@ public class MlModelsImportingTest {
             FunctionEvaluator evaluator = xgboost.evaluatorOf();
             assertEquals("f109, f29, f56, f60", evaluator.context().names().stream().sorted().collect(Collectors.joining(", ")));
             assertEquals(-4.37659, evaluator.evaluate().sum().asDouble(), delta);
+            assertForestEvaluation(xgboost);
         }
 
         {
@@ -62,6 +64,7 @@ public class MlModelsImportingTest {
             FunctionEvaluator evaluator = lightgbm.evaluatorOf();
             assertEquals("categorical_1, categorical_2, numerical_1, numerical_2", evaluator.context().names().stream().sorted().collect(Collectors.joining(", ")));
             assertEquals(1.91300868202, evaluator.evaluate().sum().asDouble(), delta);
+            assertForestEvaluation(lightgbm);
         }
 
         {
@@ -136,6 +139,25 @@ public class MlModelsImportingTest {
         }
     }
 
+    private void assertForestEvaluation(Model model) {
+        ForestEvaluator forestEvaluator = model.forestEvaluatorOf();
+        List<String> arguments = forestEvaluator.arguments();
+        Random random = new Random(1);
+        double[][] vectors = new double[100][arguments.size()];
+        for (double[] vector : vectors)
+            for (int i = 0; i < vector.length; i++)
+                vector[i] = random.nextInt(5) == 0 ? Double.NaN : random.nextInt(4) + random.nextDouble();
+        double[] scores = forestEvaluator.evaluate(vectors);
+        for (int i = 0; i < vectors.length; i++) {
+            FunctionEvaluator evaluator = model.evaluatorOf();
+            for (int j = 0; j < arguments.size(); j++)
+                if ( ! Double.isNaN(vectors[i][j]))
+                    evaluator.bind(arguments.get(j), vectors[i][j]);
+            assertEquals(evaluator.evaluate().asDouble(), scores[i], 0);
+            assertEquals(scores[i], forestEvaluator.evaluate(vectors[i]), 0);
+        }
+    }
+
     private Tensor inputTensor() {
         Tensor.Builder b = Tensor.Builder.of(TensorType.fromSpec("tensor(d0[],d1[784])"));
         for (int i = 0; i < 784; i++)
@@ -6,6 +6,7 @@ import com.yahoo.filedistribution.fileacquirer.MockFileAcquirer;
 import com.yahoo.path.Path;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.compilation.CompiledExpressionNode;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.vespa.config.search.RankProfilesConfig;
@@ -15,7 +16,9 @@ import com.yahoo.vespa.config.search.core.RankingExpressionsConfig;
 import com.yahoo.yolean.Exceptions;
 import org.junit.Test;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -132,6 +135,32 @@ public class ModelsEvaluatorTest {
 
     }
 
+    @Test
+    public void testCompiledEvaluation() {
+        for (boolean compile : new boolean[] { false, true }) {
+            Map<FunctionReference, ExpressionFunction> functions = new LinkedHashMap<>();
+            ExpressionFunction scalar = new ExpressionFunction("scalar", RankingExpression.from("a * 2 + b"))
+                                                .withArgument("a", TensorType.empty)
+                                                .withArgument("b", TensorType.empty);
+            ExpressionFunction mixed = new ExpressionFunction("mixed", RankingExpression.from("reduce(t * (a + 1), sum) + a * b"))
+                                               .withArgument("a", TensorType.empty)
+                                               .withArgument("b", TensorType.empty)
+                                               .withArgument("t", TensorType.fromSpec("tensor(x[2])"));
+            functions.put(FunctionReference.fromName("scalar"), scalar);
+            functions.put(FunctionReference.fromName("mixed"), mixed);
+            Model model = new Model("test-model", functions, Map.of(), Map.of(), List.of(), List.of(), compile);
+            assertEquals(compile, model.function("scalar").getBody().getRoot() instanceof CompiledExpressionNode);
+
+            FunctionEvaluator evaluator = model.evaluatorOf("scalar");
+            evaluator.bind("a", 2).bind("b", 3);
+            assertEquals(7, evaluator.evaluate().asDouble(), delta);
+
+            evaluator = model.evaluatorOf("mixed");
+            evaluator.bind("a", 2).bind("b", 3).bind("t", Tensor.from("tensor(x[2]):[1,2]"));
+            assertEquals(15, evaluator.evaluate().asDouble(), delta);
+        }
+    }
+
     // TODO: Test argument-less function
     // TODO: Test with nested functions
 
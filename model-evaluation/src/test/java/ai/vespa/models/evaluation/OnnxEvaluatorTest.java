@@ -1,10 +1,12 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package ai.vespa.models.evaluation;
 
+import ai.vespa.modelintegration.evaluator.OnnxMetricReporter;
 import ai.vespa.modelintegration.evaluator.OnnxRuntime;
 import com.yahoo.config.subscription.ConfigGetter;
 import com.yahoo.filedistribution.fileacquirer.FileAcquirer;
 import com.yahoo.filedistribution.fileacquirer.MockFileAcquirer;
+import com.yahoo.jdisc.test.MockMetric;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.vespa.config.search.RankProfilesConfig;
 import com.yahoo.vespa.config.search.core.OnnxModelsConfig;
@@ -17,6 +19,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
@@ -51,6 +54,29 @@ public class OnnxEvaluatorTest {
         assertEquals(function.evaluate(), Tensor.from("tensor<float>(d0[2],d1[1]):[0.63931,0.67574]"));
     }
 
+    @Test
+    public void testOnnxMetricsAreReported() {
+        assumeTrue(OnnxRuntime.isRuntimeAvailable());
+        ModelsEvaluator models = createModels();
+        MockMetric metric = new MockMetric();
+        OnnxMetricReporter reporter = new OnnxMetricReporter(metric, "model", ModelsEvaluator.onnxModelsOf(models.models()));
+
+        for (int i = 0; i < 3; i++) {
+            FunctionEvaluator function = models.evaluatorOf("add_mul", "output1");
+            function.bind("input1", Tensor.from("tensor<float>(d0[1]):[2]"));
+            function.bind("input2", Tensor.from("tensor<float>(d0[1]):[3]"));
+            assertEquals(6.0, function.evaluate().sum().asDouble(), delta);
+        }
+        reporter.report();
+        assertEquals(3.0, metric.metrics().get("onnx.evaluations").get(Map.of("model", "add_mul")), delta);
+        assertTrue(metric.metrics().get("onnx.run_time").containsKey(Map.of("model", "add_mul")));
+        assertNull(metric.metrics().get("onnx.evaluations").get(Map.of("model", "one_layer")));
+
+        reporter.report(); // Only changes since the last report are added
+        assertEquals(3.0, metric.metrics().get("onnx.evaluations").get(Map.of("model", "add_mul")), delta);
+        reporter.close();
+    }
+
     @SuppressWarnings("deprecation")
     private ModelsEvaluator createModels() {
         RankProfilesConfig config = ConfigGetter.getConfig(RankProfilesConfig.class, fileConfigId("rank-profiles.cfg"));
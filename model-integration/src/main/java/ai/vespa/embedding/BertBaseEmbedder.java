@@ -3,10 +3,12 @@ package ai.vespa.embedding;
 
 import ai.vespa.modelintegration.evaluator.OnnxEvaluator;
 import ai.vespa.modelintegration.evaluator.OnnxEvaluatorOptions;
+import ai.vespa.modelintegration.evaluator.OnnxMetricReporter;
 import ai.vespa.modelintegration.evaluator.OnnxRuntime;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.embedding.BertBaseEmbedderConfig;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.language.process.Embedder;
 import com.yahoo.language.wordpiece.WordPieceEmbedder;
 import com.yahoo.tensor.IndexedTensor;
@@ -45,8 +47,15 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
     private final WordPieceEmbedder tokenizer;
     private final OnnxEvaluator evaluator;
 
-    @Inject
+    /** Reports metrics of the ONNX model, or null if there is nothing to report to */
+    private final OnnxMetricReporter metricReporter;
+
     public BertBaseEmbedder(OnnxRuntime onnx, Embedder.Runtime runtime, BertBaseEmbedderConfig config) {
+        this(onnx, runtime, config, null);
+    }
+
+    @Inject
+    public BertBaseEmbedder(OnnxRuntime onnx, Embedder.Runtime runtime, BertBaseEmbedderConfig config, Metric metric) {
         this.runtime = runtime;
         maxTokens = config.transformerMaxTokens();
         startSequenceToken = config.transformerStartSequenceToken();
@@ -59,7 +68,8 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
 
         OnnxEvaluatorOptions.Builder optionsBuilder = new OnnxEvaluatorOptions.Builder()
                 .setExecutionMode(config.onnxExecutionMode().toString())
-                .setThreads(config.onnxInterOpThreads(), config.onnxIntraOpThreads());
+                .setThreads(config.onnxInterOpThreads(), config.onnxIntraOpThreads())
+                .setReuseBuffers(config.onnxReuseBuffers());
         if (config.onnxGpuDevice() >= 0) optionsBuilder.setGpuDevice(config.onnxGpuDevice());
         OnnxEvaluatorOptions options = optionsBuilder.build();
 
@@ -67,6 +77,11 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
         this.evaluator = onnx.evaluatorOf(config.transformerModel().toString(), options);
 
         validateModel();
+        metricReporter = metric != null
+                         ? new OnnxMetricReporter(metric, "embedder", List.of(OnnxMetricReporter.Source.of(() -> getId().toString(), evaluator)))
+                         : null;
+        if (metricReporter != null)
+            metricReporter.start();
     }
 
     private void validateModel() {
@@ -114,7 +129,12 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
         return embedding;
     }
 
-    @Override public void deconstruct() { evaluator.close(); }
+    @Override
+    public void deconstruct() {
+        if (metricReporter != null)
+            metricReporter.close();
+        evaluator.close();
+    }
 
     private List<Integer> tokenize(String text, Context ctx) { return tokenizer.embed(text, ctx); }
 
@@ -3,11 +3,13 @@ package ai.vespa.embedding;
 
 import ai.vespa.modelintegration.evaluator.OnnxEvaluator;
 import ai.vespa.modelintegration.evaluator.OnnxEvaluatorOptions;
+import ai.vespa.modelintegration.evaluator.OnnxMetricReporter;
 import com.yahoo.api.annotations.Beta;
 import ai.vespa.modelintegration.evaluator.OnnxRuntime;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.embedding.ColBertEmbedderConfig;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.language.huggingface.HuggingFaceTokenizer;
 import com.yahoo.language.process.Embedder;
 import com.yahoo.searchlib.rankingexpression.evaluation.MapContext;
@@ -48,6 +50,9 @@ public class ColBertEmbedder extends AbstractComponent implements Embedder {
     private final String outputName;
     private final HuggingFaceTokenizer tokenizer;
     private final OnnxEvaluator evaluator;
+
+    /** Reports metrics of the ONNX model, or null if there is nothing to report to */
+    private final OnnxMetricReporter metricReporter;
     private final int maxTransformerTokens;
     private final int maxQueryTokens;
     private final int maxDocumentTokens;
@@ -65,8 +70,12 @@ public class ColBertEmbedder extends AbstractComponent implements Embedder {
 
     public record TransformerInput(List<Long> inputIds, List<Long> attentionMask) {}
 
-    @Inject
     public ColBertEmbedder(OnnxRuntime onnx, Embedder.Runtime runtime, ColBertEmbedderConfig config) {
+        this(onnx, runtime, config, null);
+    }
+
+    @Inject
+    public ColBertEmbedder(OnnxRuntime onnx, Embedder.Runtime runtime, ColBertEmbedderConfig config, Metric metric) {
         this.runtime = runtime;
         inputIdsName = config.transformerInputIds();
         attentionMaskName = config.transformerAttentionMask();
@@ -103,12 +112,18 @@ public class ColBertEmbedder extends AbstractComponent implements Embedder {
         );
         var optionsBuilder = new OnnxEvaluatorOptions.Builder()
                 .setExecutionMode(config.transformerExecutionMode().toString())
-                .setThreads(config.transformerInterOpThreads(), config.transformerIntraOpThreads());
+                .setThreads(config.transformerInterOpThreads(), config.transformerIntraOpThreads())
+                .setReuseBuffers(config.transformerReuseBuffers());
         if (config.transformerGpuDevice() >= 0)
             optionsBuilder.setGpuDevice(config.transformerGpuDevice());
         var onnxOpts = optionsBuilder.build();
         evaluator = onnx.evaluatorOf(config.transformerModel().toString(), onnxOpts);
         validateModel();
+        metricReporter = metric != null
+                         ? new OnnxMetricReporter(metric, "embedder", List.of(OnnxMetricReporter.Source.of(() -> getId().toString(), evaluator)))
+                         : null;
+        if (metricReporter != null)
+            metricReporter.start();
     }
 
     private void validateModel() {
@@ -145,6 +160,8 @@ public class ColBertEmbedder extends AbstractComponent implements Embedder {
     }
     @Override
     public void deconstruct() {
+        if (metricReporter != null)
+            metricReporter.close();
         evaluator.close();
         tokenizer.close();
     }
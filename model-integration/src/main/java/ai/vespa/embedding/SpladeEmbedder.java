@@ -3,11 +3,13 @@ package ai.vespa.embedding;
 
 import ai.vespa.modelintegration.evaluator.OnnxEvaluator;
 import ai.vespa.modelintegration.evaluator.OnnxEvaluatorOptions;
+import ai.vespa.modelintegration.evaluator.OnnxMetricReporter;
 import ai.vespa.modelintegration.evaluator.OnnxRuntime;
 import com.yahoo.api.annotations.Beta;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.embedding.SpladeEmbedderConfig;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.language.huggingface.HuggingFaceTokenizer;
 import com.yahoo.language.process.Embedder;
 import com.yahoo.tensor.DirectIndexedAddress;
@@ -41,11 +43,23 @@ public class SpladeEmbedder extends AbstractComponent implements Embedder {
     private final HuggingFaceTokenizer tokenizer;
     private final OnnxEvaluator evaluator;
 
-    @Inject
+    /** Reports metrics of the ONNX model, or null if there is nothing to report to */
+    private final OnnxMetricReporter metricReporter;
+
     public SpladeEmbedder(OnnxRuntime onnx, Embedder.Runtime runtime, SpladeEmbedderConfig config) {
-        this(onnx, runtime, config, true);
+        this(onnx, runtime, config, null);
+    }
+
+    @Inject
+    public SpladeEmbedder(OnnxRuntime onnx, Embedder.Runtime runtime, SpladeEmbedderConfig config, Metric metric) {
+        this(onnx, runtime, config, metric, true);
     }
+
     SpladeEmbedder(OnnxRuntime onnx, Embedder.Runtime runtime, SpladeEmbedderConfig config, boolean useCustomReduce) {
+        this(onnx, runtime, config, null, useCustomReduce);
+    }
+
+    SpladeEmbedder(OnnxRuntime onnx, Embedder.Runtime runtime, SpladeEmbedderConfig config, Metric metric, boolean useCustomReduce) {
         this.runtime = runtime;
         inputIdsName = config.transformerInputIds();
         attentionMaskName = config.transformerAttentionMask();
@@ -71,12 +85,18 @@ public class SpladeEmbedder extends AbstractComponent implements Embedder {
         this.tokenizer = builder.build();
         var optionsBuilder = new OnnxEvaluatorOptions.Builder()
                 .setExecutionMode(config.transformerExecutionMode().toString())
-                .setThreads(config.transformerInterOpThreads(), config.transformerIntraOpThreads());
+                .setThreads(config.transformerInterOpThreads(), config.transformerIntraOpThreads())
+                .setReuseBuffers(config.transformerReuseBuffers());
         if (config.transformerGpuDevice() >= 0)
             optionsBuilder.setGpuDevice(config.transformerGpuDevice());
         var onnxOpts = optionsBuilder.build();
         evaluator = onnx.evaluatorOf(config.transformerModel().toString(), onnxOpts);
         validateModel();
+        metricReporter = metric != null
+                         ? new OnnxMetricReporter(metric, "embedder", List.of(OnnxMetricReporter.Source.of(() -> getId().toString(), evaluator)))
+                         : null;
+        if (metricReporter != null)
+            metricReporter.start();
     }
 
     private void validateModel() {
@@ -231,6 +251,8 @@ public class SpladeEmbedder extends AbstractComponent implements Embedder {
 
     @Override
     public void deconstruct() {
+        if (metricReporter != null)
+            metricReporter.close();
         evaluator.close();
         tokenizer.close();
     }
@@ -4,11 +4,13 @@ package ai.vespa.embedding.huggingface;
 import ai.vespa.embedding.PoolingStrategy;
 import ai.vespa.modelintegration.evaluator.OnnxEvaluator;
 import ai.vespa.modelintegration.evaluator.OnnxEvaluatorOptions;
+import ai.vespa.modelintegration.evaluator.OnnxMetricReporter;
 import ai.vespa.modelintegration.evaluator.OnnxRuntime;
 import com.yahoo.api.annotations.Beta;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.embedding.huggingface.HuggingFaceEmbedderConfig;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.language.huggingface.HuggingFaceTokenizer;
 import com.yahoo.language.process.Embedder;
 import com.yahoo.tensor.IndexedTensor;
@@ -39,12 +41,19 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
     private final OnnxEvaluator evaluator;
     private final PoolingStrategy poolingStrategy;
 
+    /** Reports metrics of the ONNX model, or null if there is nothing to report to */
+    private final OnnxMetricReporter metricReporter;
+
     private final String prependQuery;
 
     private final String prependDocument;
 
-    @Inject
     public HuggingFaceEmbedder(OnnxRuntime onnx, Embedder.Runtime runtime, HuggingFaceEmbedderConfig config) {
+        this(onnx, runtime, config, null);
+    }
+
+    @Inject
+    public HuggingFaceEmbedder(OnnxRuntime onnx, Embedder.Runtime runtime, HuggingFaceEmbedderConfig config, Metric metric) {
         this.runtime = runtime;
         inputIdsName = config.transformerInputIds();
         attentionMaskName = config.transformerAttentionMask();
@@ -70,7 +79,8 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
         poolingStrategy = PoolingStrategy.fromString(config.poolingStrategy().toString());
         var optionsBuilder = new OnnxEvaluatorOptions.Builder()
                 .setExecutionMode(config.transformerExecutionMode().toString())
-                .setThreads(config.transformerInterOpThreads(), config.transformerIntraOpThreads());
+                .setThreads(config.transformerInterOpThreads(), config.transformerIntraOpThreads())
+                .setReuseBuffers(config.transformerReuseBuffers());
         if (config.transformerGpuDevice() >= 0)
             optionsBuilder.setGpuDevice(config.transformerGpuDevice());
 
@@ -78,6 +88,11 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
         evaluator = onnx.evaluatorOf(config.transformerModel().toString(), onnxOpts);
         tokenTypeIdsName = detectTokenTypeIds(config, evaluator);
         validateModel();
+        metricReporter = metric != null
+                         ? new OnnxMetricReporter(metric, "embedder", List.of(OnnxMetricReporter.Source.of(() -> getId().toString(), evaluator)))
+                         : null;
+        if (metricReporter != null)
+            metricReporter.start();
     }
 
     private static String detectTokenTypeIds(HuggingFaceEmbedderConfig config, OnnxEvaluator evaluator) {
@@ -121,6 +136,8 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
 
     @Override
     public void deconstruct() {
+        if (metricReporter != null)
+            metricReporter.close();
         evaluator.close();
         tokenizer.close();
     }
@@ -0,0 +1,303 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.llm.generation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A size-bounded cache of texts generated by a language model, keyed by a string which identifies the generation,
+ * i.e., the model, the prompt and the inference options.
+ * Concurrent requests for the same generation are coalesced, such that only one of them runs the model.
+ * If a directory is given, generations are also stored there, such that they survive restarts.
+ * The cache is bounded by the estimated size of the generations it holds, and the least recently used generations
+ * are evicted when it is full. Generations larger than the cache are not cached.
+ *
+ * @author glebashnik
+ */
+class GenerationCache {
+
+    private static final Logger logger = Logger.getLogger(GenerationCache.class.getName());
+
+    private final long maxBytes;
+    private final Optional<Path> directory;
+    private final Map<String, Entry> entries;
+    private long bytes = 0;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Runnable onHit;
+    private final Runnable onMiss;
+
+    GenerationCache(long maxBytes, Optional<Path> directory) {
+        this(maxBytes, directory, () -> { }, () -> { });
+    }
+
+    /** Creates a cache which also runs the given callbacks on each hit and miss, e.g., to update metrics */
+    GenerationCache(long maxBytes, Optional<Path> directory, Runnable onHit, Runnable onMiss) {
+        if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes must be positive, but was " + maxBytes);
+        this.maxBytes = maxBytes;
+        this.directory = directory;
+        this.onHit = onHit;
+        this.onMiss = onMiss;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        directory.ifPresent(this::load);
+    }
+
+    /**
+     * Returns the text generated for the given key, running the given generator only if no generation for this key
+     * is cached or in progress. A null generated text is returned but not cached.
+     */
+    String computeIfAbsent(String key, Supplier<String> generator) {
+        String hash = hash(key);
+        String cached = get(hash, key);
+        if (cached != null) {
+            hit();
+            return cached;
+        }
+
+        CompletableFuture<String> generation = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, generation);
+        if (running != null) {
+            hit();
+            return await(running);
+        }
+        try {
+            String generated = get(hash, key); // May have completed since we looked
+            if (generated != null) {
+                hit();
+            }
+            else {
+                miss();
+                generated = generator.get();
+                if (generated != null)
+                    put(hash, new Entry(key, generated));
+            }
+            generation.complete(generated);
+            return generated;
+        }
+        catch (RuntimeException e) {
+            generation.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            inFlight.remove(key, generation);
+        }
+    }
+
+    private void hit() {
+        hits.incrementAndGet();
+        onHit.run();
+    }
+
+    private void miss() {
+        misses.incrementAndGet();
+        onMiss.run();
+    }
+
+    /** Returns the number of generations served from this, including those coalesced with one in progress */
+    long hits() { return hits.get(); }
+
+    /** Returns the number of generations which had to be run */
+    long misses() { return misses.get(); }
+
+    /** Returns the number of generations in this */
+    synchronized int size() { return entries.size(); }
+
+    /** Returns the estimated size of the generations in this */
+    synchronized long bytes() { return bytes; }
+
+    /** Returns the text cached for the given key, and marks it as recently used on disk outside the lock */
+    private String get(String hash, String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(hash);
+        }
+        if (entry == null || ! entry.key.equals(key)) return null;
+        directory.ifPresent(dir -> touch(dir.resolve(hash)));
+        return entry.text;
+    }
+
+    /** Adds the given entry to the index under the lock, and then stores it, and deletes any evicted ones, outside it */
+    private void put(String hash, Entry entry) {
+        if (entry.size() > maxBytes) return;
+
+        List<String> evicted;
+        synchronized (this) {
+            add(hash, entry);
+            evicted = evictIfFull();
+        }
+        if (directory.isEmpty()) return;
+
+        Path dir = directory.get();
+        write(dir, hash, entry);
+        for (String evictedHash : evicted)
+            deleteUnlessCached(dir, evictedHash);
+        deleteUnlessCached(dir, hash); // In case it was evicted while being written
+    }
+
+    private void deleteUnlessCached(Path dir, String hash) {
+        synchronized (this) {
+            if (entries.containsKey(hash)) return;
+        }
+        delete(dir.resolve(hash));
+    }
+
+    private void add(String hash, Entry entry) {
+        Entry replaced = entries.put(hash, entry);
+        if (replaced != null) bytes -= replaced.size();
+        bytes += entry.size();
+    }
+
+    /** Removes the least recently used entries from the index until it is no longer too large, and returns their hashes */
+    private List<String> evictIfFull() {
+        List<String> evicted = new ArrayList<>();
+        for (var iterator = entries.entrySet().iterator(); bytes > maxBytes; ) {
+            var eldest = iterator.next();
+            evicted.add(eldest.getKey());
+            bytes -= eldest.getValue().size();
+            iterator.remove();
+        }
+        return evicted;
+    }
+
+    /** Loads the generations stored in the given directory, least recently used first */
+    private void load(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> list = Files.list(directory)) {
+                files = list.filter(file -> file.getFileName().toString().length() == 64)
+                            .sorted(Comparator.comparing(GenerationCache::lastModified))
+                            .toList();
+            }
+            try (Stream<Path> list = Files.list(directory)) {
+                list.filter(file -> file.getFileName().toString().endsWith(".tmp")).forEach(GenerationCache::delete);
+            }
+            for (Path file : files) {
+                Entry entry = read(file);
+                if (entry != null && file.getFileName().toString().equals(hash(entry.key)))
+                    add(file.getFileName().toString(), entry);
+                else
+                    delete(file);
+            }
+            for (String evicted : evictIfFull())
+                delete(directory.resolve(evicted));
+            logger.log(Level.FINE, () -> "Loaded " + entries.size() + " cached generations from " + directory);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed loading cached generations from " + directory, e);
+        }
+    }
+
+    /** Writes the entry as the key length, the key and then the text, all UTF-8, replacing any existing file */
+    private static void write(Path directory, String hash, Entry entry) {
+        byte[] key = entry.key.getBytes(UTF_8);
+        byte[] text = entry.text.getBytes(UTF_8);
+        byte[] content = ByteBuffer.allocate(4 + key.length + text.length).putInt(key.length).put(key).put(text).array();
+        try {
+            Path temporary = Files.createTempFile(directory, hash, ".tmp");
+            Files.write(temporary, content);
+            Files.move(temporary, directory.resolve(hash), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING, "Failed storing cached generation in " + directory, e);
+        }
+    }
+
+    private static Entry read(Path file) {
+        try {
+            ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+            int keyLength = content.getInt();
+            if (keyLength < 0 || keyLength > content.remaining()) return null;
+            String key = new String(content.array(), 4, keyLength, UTF_8);
+            String text = new String(content.array(), 4 + keyLength, content.remaining() - keyLength, UTF_8);
+            return new Entry(key, text);
+        }
+        catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Failed reading cached generation " + file, e);
+            return null;
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch (IOException e) {
+            logger.log(Level.FINE, "Failed touching cached generation " + file, e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException e) {
+            logger.log(Level.FINE, "Failed deleting cached generation " + file, e);
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        }
+        catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String await(CompletableFuture<String> generation) {
+        try {
+            return generation.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    static String hash(String key) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(key.getBytes(UTF_8)));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Returns the estimated size of a cached generation with the given key and text */
+    static long estimatedSize(String key, String text) {
+        return 256 + 2L * (key.length() + text.length()); // The strings, the hash, and the index and entry objects
+    }
+
+    private record Entry(String key, String text) {
+
+        long size() { return estimatedSize(key, text); }
+
+    }
+
+}
@@ -6,6 +6,7 @@ import ai.vespa.llm.InferenceParameters;
 import ai.vespa.llm.LanguageModel;
 import ai.vespa.llm.completion.Prompt;
 import ai.vespa.llm.completion.StringPrompt;
+import ai.vespa.metrics.ContainerMetrics;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.component.provider.ComponentRegistry;
@@ -14,12 +15,18 @@ import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.language.process.Chunker;
 import com.yahoo.language.process.FieldGenerator;
+import com.yahoo.metrics.simple.Counter;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.metrics.simple.Point;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
 import java.util.logging.Logger;
 
 /**
@@ -35,12 +42,34 @@ public class LanguageModelFieldGenerator extends AbstractComponent implements Fi
 
     private final LanguageModelFieldGeneratorConfig config;
     private final String promptTemplate;
-    
-    @Inject
+
+    /** Cache of generated texts, or null if disabled */
+    private final GenerationCache cache;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private volatile Point metricPoint;
+
     public LanguageModelFieldGenerator(LanguageModelFieldGeneratorConfig config, ComponentRegistry<LanguageModel> languageModels) {
+        this(config, languageModels, MetricReceiver.nullImplementation);
+    }
+
+    @Inject
+    public LanguageModelFieldGenerator(LanguageModelFieldGeneratorConfig config,
+                                       ComponentRegistry<LanguageModel> languageModels,
+                                       MetricReceiver metrics) {
         this.languageModel = LanguageModelUtils.findLanguageModel(config.providerId(), languageModels, logger);
         this.config = config;
         this.promptTemplate = loadPromptTemplate(config);
+        this.cacheHits = metrics.declareCounter(ContainerMetrics.FIELD_GENERATOR_CACHE_HITS.baseName());
+        this.cacheMisses = metrics.declareCounter(ContainerMetrics.FIELD_GENERATOR_CACHE_MISSES.baseName());
+        this.cache = config.cacheBytes() > 0 ? new GenerationCache(config.cacheBytes(), cacheDirectory(config),
+                                                                   () -> cacheHits.add(metricPoint()),
+                                                                   () -> cacheMisses.add(metricPoint()))
+                                             : null;
+    }
+
+    private static Optional<Path> cacheDirectory(LanguageModelFieldGeneratorConfig config) {
+        return config.cacheDirectory().isEmpty() ? Optional.empty() : Optional.of(Path.of(config.cacheDirectory()));
     }
 
     private String loadPromptTemplate(LanguageModelFieldGeneratorConfig config) {
@@ -83,9 +112,7 @@ public class LanguageModelFieldGenerator extends AbstractComponent implements Fi
         }
         
         var expandedPrompt = LanguageModelUtils.expandPrompt(prompt.asString(), promptTemplate, jsonSchema);
-        var completions = languageModel.complete(StringPrompt.from(expandedPrompt), new InferenceParameters(options::get));
-        var firstCompletion = completions.get(0);
-        var generatedText = firstCompletion.text();
+        var generatedText = generateText(expandedPrompt, options);
         FieldValue generatedFieldValue; 
         
         if (config.responseFormatType() == LanguageModelFieldGeneratorConfig.ResponseFormatType.JSON) {
@@ -108,6 +135,31 @@ public class LanguageModelFieldGenerator extends AbstractComponent implements Fi
         return generatedFieldValue;
     }
 
+    private String generateText(String expandedPrompt, Map<String, String> options) {
+        if (cache == null)
+            return complete(expandedPrompt, options);
+
+        String key = config.providerId() + "\n" + new TreeMap<>(options) + "\n" + expandedPrompt;
+        return cache.computeIfAbsent(key, () -> complete(expandedPrompt, options));
+    }
+
+    private String complete(String expandedPrompt, Map<String, String> options) {
+        var completions = languageModel.complete(StringPrompt.from(expandedPrompt), new InferenceParameters(options::get));
+        return completions.get(0).text();
+    }
+
+    private Point metricPoint() {
+        if (metricPoint == null)
+            metricPoint = new Point(Map.of("generator", getIdString()));
+        return metricPoint;
+    }
+
+    /** Returns the number of generations served from the cache of this, or 0 if it has no cache */
+    long cacheHits() { return cache == null ? 0 : cache.hits(); }
+
+    /** Returns the number of generations which ran the language model while the cache of this was enabled */
+    long cacheMisses() { return cache == null ? 0 : cache.misses(); }
+
     private record CacheKey(LanguageModelFieldGenerator generator, Prompt prompt, String destination, DataType targetType) {}
 
 }
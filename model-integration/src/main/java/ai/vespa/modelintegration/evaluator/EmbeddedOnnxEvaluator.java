@@ -6,12 +6,18 @@ import ai.onnxruntime.OnnxTensor;
 import ai.onnxruntime.OnnxValue;
 import ai.onnxruntime.OrtException;
 import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
-import java.util.Collections;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,45 +32,68 @@ class EmbeddedOnnxEvaluator implements OnnxEvaluator {
     private static final Logger LOG = Logger.getLogger(EmbeddedOnnxEvaluator.class.getName());
 
     private final EmbeddedOnnxRuntime.ReferencedOrtSession session;
+    private final Map<String, NodeInfo> inputInfo;
+    private final Map<String, NodeInfo> outputInfo;
+
+    /** Buffers reused by each thread, or null to allocate buffers for each evaluation */
+    private final ReusableBuffers buffers;
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder conversionNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
 
     EmbeddedOnnxEvaluator(String modelPath, OnnxEvaluatorOptions options, EmbeddedOnnxRuntime runtime) {
-        session = createSession(EmbeddedOnnxRuntime.ModelPathOrData.of(modelPath), runtime, options, true);
+        this(createSession(EmbeddedOnnxRuntime.ModelPathOrData.of(modelPath), runtime, options, true), options);
     }
 
     EmbeddedOnnxEvaluator(byte[] data, OnnxEvaluatorOptions options, EmbeddedOnnxRuntime runtime) {
-        session = createSession(EmbeddedOnnxRuntime.ModelPathOrData.of(data), runtime, options, true);
+        this(createSession(EmbeddedOnnxRuntime.ModelPathOrData.of(data), runtime, options, true), options);
     }
 
-    @Override
-    public Tensor evaluate(Map<String, Tensor> inputs, String output) {
-        Map<String, OnnxTensor> onnxInputs = null;
+    private EmbeddedOnnxEvaluator(EmbeddedOnnxRuntime.ReferencedOrtSession session, OnnxEvaluatorOptions options) {
+        this.session = session;
         try {
-            output = mapToInternalName(output);
-            onnxInputs = TensorConverter.toOnnxTensors(inputs, EmbeddedOnnxRuntime.ortEnvironment(), session.instance());
-            try (OrtSession.Result result = session.instance().run(onnxInputs, Collections.singleton(output))) {
-                return TensorConverter.toVespaTensor(result.get(0));
-            }
+            this.inputInfo = session.instance().getInputInfo();
+            this.outputInfo = session.instance().getOutputInfo();
         } catch (OrtException e) {
+            session.close();
             throw new RuntimeException("ONNX Runtime exception", e);
-        } finally {
-            if (onnxInputs != null) {
-                onnxInputs.values().forEach(OnnxTensor::close);
-            }
         }
+        this.buffers = options != null && options.reuseBuffers() ? new ReusableBuffers() : null;
+    }
+
+    @Override
+    public Tensor evaluate(Map<String, Tensor> inputs, String output) {
+        return evaluate(inputs, Set.of(mapToInternalName(output))).values().iterator().next();
     }
 
     @Override
     public Map<String, Tensor> evaluate(Map<String, Tensor> inputs) {
+        return evaluate(inputs, outputInfo.keySet());
+    }
+
+    private Map<String, Tensor> evaluate(Map<String, Tensor> inputs, Set<String> outputs) {
         Map<String, OnnxTensor> onnxInputs = null;
+        Map<String, OnnxTensor> pinnedOutputs = Map.of();
         try {
-            onnxInputs = TensorConverter.toOnnxTensors(inputs, EmbeddedOnnxRuntime.ortEnvironment(), session.instance());
-            Map<String, Tensor> outputs = new HashMap<>();
-            try (OrtSession.Result result = session.instance().run(onnxInputs)) {
-                for (Map.Entry<String, OnnxValue> output : result) {
-                    String mapped = TensorConverter.asValidName(output.getKey());
-                    outputs.put(mapped, TensorConverter.toVespaTensor(output.getValue()));
+            long startTime = System.nanoTime();
+            onnxInputs = TensorConverter.toOnnxTensors(inputs, EmbeddedOnnxRuntime.ortEnvironment(), inputInfo, buffers);
+            pinnedOutputs = pinnedOutputs(outputs);
+            Set<String> requestedOutputs = new HashSet<>(outputs);
+            requestedOutputs.removeAll(pinnedOutputs.keySet());
+            long runStartTime = System.nanoTime();
+            try (OrtSession.Result result = session.instance().run(onnxInputs, requestedOutputs, pinnedOutputs)) {
+                long runEndTime = System.nanoTime();
+                Map<String, Tensor> vespaOutputs = new HashMap<>();
+                for (String output : outputs) {
+                    OnnxValue value = pinnedOutputs.containsKey(output) ? pinnedOutputs.get(output)
+                                                                        : result.get(output).orElseThrow();
+                    vespaOutputs.put(TensorConverter.asValidName(output), TensorConverter.toVespaTensor(value));
                 }
-                return outputs;
+                evaluations.increment();
+                runNanos.add(runEndTime - runStartTime);
+                conversionNanos.add(runStartTime - startTime + System.nanoTime() - runEndTime);
+                return vespaOutputs;
             }
         } catch (OrtException e) {
             throw new RuntimeException("ONNX Runtime exception", e);
@@ -72,9 +101,37 @@ class EmbeddedOnnxEvaluator implements OnnxEvaluator {
             if (onnxInputs != null) {
                 onnxInputs.values().forEach(OnnxTensor::close);
             }
+            pinnedOutputs.values().forEach(OnnxTensor::close);
         }
     }
 
+    /**
+     * Returns the outputs among the given which have a fixed shape, bound to reusable buffers
+     * which ONNX Runtime will write the outputs to, or an empty map if buffers are not reused.
+     */
+    private Map<String, OnnxTensor> pinnedOutputs(Set<String> outputs) throws OrtException {
+        if (buffers == null) return Map.of();
+        Map<String, OnnxTensor> pinned = new HashMap<>();
+        for (String output : outputs) {
+            NodeInfo node = outputInfo.get(output);
+            if (node == null || ! (node.getInfo() instanceof TensorInfo info)) continue;
+            long[] shape = info.getShape();
+            if (Arrays.stream(shape).anyMatch(size -> size < 1)) continue; // shape depends on the inputs
+            if (info.type.size * info.getNumElements() > Integer.MAX_VALUE) continue;
+            ByteBuffer buffer = buffers.get(output, (int)(info.type.size * info.getNumElements()));
+            pinned.put(output, OnnxTensor.createTensor(EmbeddedOnnxRuntime.ortEnvironment(), buffer, shape, info.type));
+        }
+        return pinned;
+    }
+
+    /** Returns statistics of the evaluations done by this */
+    @Override
+    public Statistics statistics() {
+        return new Statistics(evaluations.sum(),
+                              Duration.ofNanos(conversionNanos.sum()),
+                              Duration.ofNanos(runNanos.sum()));
+    }
+
     private Map<String, OnnxEvaluator.IdAndType> toSpecMap(Map<String, NodeInfo> infoMap) {
         Map<String, OnnxEvaluator.IdAndType> result = new HashMap<>();
         for (var info : infoMap.entrySet()) {
@@ -167,9 +224,8 @@ class EmbeddedOnnxEvaluator implements OnnxEvaluator {
     // For unit testing
     OrtSession ortSession() { return session.instance(); }
 
-    private String mapToInternalName(String outputName) throws OrtException {
-        var info = session.instance().getOutputInfo();
-        var internalNames = info.keySet();
+    private String mapToInternalName(String outputName) {
+        var internalNames = outputInfo.keySet();
         for (String name : internalNames) {
             if (name.equals(outputName)) {
                 return name;
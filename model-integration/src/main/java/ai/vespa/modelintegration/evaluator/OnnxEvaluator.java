@@ -5,6 +5,7 @@ package ai.vespa.modelintegration.evaluator;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.time.Duration;
 import java.util.Map;
 
 /**
@@ -16,6 +17,12 @@ public interface OnnxEvaluator extends AutoCloseable {
 
     record IdAndType(String id, TensorType type) { }
 
+    /**
+     * Statistics of the evaluations done by an evaluator, where conversion time is the time spent converting
+     * inputs and outputs between Vespa and the runtime, and run time is the time spent running the model.
+     */
+    record Statistics(long evaluations, Duration conversionTime, Duration runTime) { }
+
     Tensor evaluate(Map<String, Tensor> inputs, String output);
     Map<String, Tensor> evaluate(Map<String, Tensor> inputs);
 
@@ -24,6 +31,9 @@ public interface OnnxEvaluator extends AutoCloseable {
     Map<String, TensorType> getInputInfo();
     Map<String, TensorType> getOutputInfo();
 
+    /** Returns statistics of the evaluations done by this, or all zeros if this does not collect statistics */
+    default Statistics statistics() { return new Statistics(0, Duration.ZERO, Duration.ZERO); }
+
     @Override void close();
 
 }
@@ -17,6 +17,7 @@ public record OnnxEvaluatorOptions(
         int intraOpThreads,
         int gpuDeviceNumber,
         boolean gpuDeviceRequired,
+        /** Whether to evaluate with direct buffers which are reused by each thread */boolean reuseBuffers,
         /** Optional runtime specific raw config */Optional<String> rawConfig) {
 
 
@@ -45,6 +46,7 @@ public record OnnxEvaluatorOptions(
         private int intraOpThreads;
         private int gpuDeviceNumber;
         private boolean gpuDeviceRequired;
+        private boolean reuseBuffers;
         private String rawConfig;
 
         public Builder() {
@@ -54,6 +56,7 @@ public record OnnxEvaluatorOptions(
             intraOpThreads = quarterVcpu;
             gpuDeviceNumber = -1;
             gpuDeviceRequired = false;
+            reuseBuffers = false;
             rawConfig = null;
         }
 
@@ -63,6 +66,7 @@ public record OnnxEvaluatorOptions(
             this.intraOpThreads = options.intraOpThreads();
             this.gpuDeviceNumber = options.gpuDeviceNumber();
             this.gpuDeviceRequired = options.gpuDeviceRequired();
+            this.reuseBuffers = options.reuseBuffers();
             this.rawConfig = options.rawConfig().orElse(null);
         }
 
@@ -111,6 +115,16 @@ public record OnnxEvaluatorOptions(
             return this;
         }
 
+        /**
+         * Sets whether inputs and outputs should be converted through direct buffers which are kept by each thread
+         * and reused between evaluations, instead of allocating new buffers for each evaluation.
+         * This trades some memory per evaluating thread for less allocation and copying.
+         */
+        public Builder setReuseBuffers(boolean reuseBuffers) {
+            this.reuseBuffers = reuseBuffers;
+            return this;
+        }
+
         /**
          * Sets the raw config as a string. It's runtime specific - for Triton it's the content of config.pbtxt
          * Settings this overrides other options such as {@link #setExecutionMode}, {@link #setInterOpThreads} and {@link #setIntraOpThreads}.
@@ -127,6 +141,7 @@ public record OnnxEvaluatorOptions(
                     intraOpThreads,
                     gpuDeviceNumber,
                     gpuDeviceRequired,
+                    reuseBuffers,
                     Optional.ofNullable(rawConfig));
         }
     }
@@ -0,0 +1,85 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.modelintegration.evaluator;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.jdisc.Metric;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Periodically reports the evaluation statistics of a set of ONNX models as metrics,
+ * with the name of each model as the value of a given dimension.
+ *
+ * @author bjorncs
+ */
+public class OnnxMetricReporter implements AutoCloseable {
+
+    /** A source of evaluation statistics, and the name it is reported under, which is resolved at each report */
+    public record Source(Supplier<String> name, Supplier<OnnxEvaluator.Statistics> statistics) {
+
+        /** Returns a source of the statistics of the given evaluator */
+        public static Source of(Supplier<String> name, OnnxEvaluator evaluator) {
+            return new Source(name, evaluator::statistics);
+        }
+
+    }
+
+    private static final OnnxEvaluator.Statistics none = new OnnxEvaluator.Statistics(0, Duration.ZERO, Duration.ZERO);
+
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("onnx-metric-reporter-"));
+    private final Metric metric;
+    private final String dimension;
+    private final List<Source> sources;
+
+    /** The statistics of each source at the last report, which are only accessed by the reporting thread */
+    private final OnnxEvaluator.Statistics[] reported;
+
+    public OnnxMetricReporter(Metric metric, String dimension, List<Source> sources) {
+        this.metric = metric;
+        this.dimension = dimension;
+        this.sources = List.copyOf(sources);
+        this.reported = new OnnxEvaluator.Statistics[this.sources.size()];
+        Arrays.fill(reported, none);
+    }
+
+    public void start() {
+        executor.scheduleAtFixedRate(this::report, 10, 10, TimeUnit.SECONDS);
+    }
+
+    /** Reports the evaluations, and time spent on them, since the last report */
+    public void report() {
+        for (int i = 0; i < sources.size(); i++) {
+            OnnxEvaluator.Statistics current = sources.get(i).statistics().get();
+            OnnxEvaluator.Statistics previous = reported[i];
+            if (current.evaluations() == previous.evaluations()) continue;
+
+            Metric.Context context = metric.createContext(Map.of(dimension, sources.get(i).name().get()));
+            metric.add(ContainerMetrics.ONNX_EVALUATIONS.baseName(), current.evaluations() - previous.evaluations(), context);
+            metric.add(ContainerMetrics.ONNX_CONVERSION_TIME.baseName(),
+                       current.conversionTime().toMillis() - previous.conversionTime().toMillis(), context);
+            metric.add(ContainerMetrics.ONNX_RUN_TIME.baseName(),
+                       current.runTime().toMillis() - previous.runTime().toMillis(), context);
+            reported[i] = current;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
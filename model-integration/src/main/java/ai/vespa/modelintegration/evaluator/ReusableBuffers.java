@@ -0,0 +1,83 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.modelintegration.evaluator;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Direct buffers for the inputs and outputs of evaluations, which are kept by each thread and reused by
+ * its later evaluations. There is one buffer per tensor name and size bucket, where sizes are rounded up to
+ * the next power of two, such that inputs of varying shapes, like token sequences of different lengths,
+ * share a few buffers. Each thread keeps buffers of at most a given total size, dropping the least recently
+ * used ones first, and buffers larger than the largest bucket are not kept at all.
+ *
+ * A buffer returned from this must not be used after the thread has started its next evaluation.
+ *
+ * @author bjorncs
+ */
+class ReusableBuffers {
+
+    private static final int minBucketSize = 64;
+    static final int maxBucketSize = 1 << 24;
+
+    private final long maxBytesPerThread;
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    ReusableBuffers() {
+        this(1 << 26);
+    }
+
+    /** Creates reusable buffers where each thread keeps buffers of at most the given total size */
+    ReusableBuffers(long maxBytesPerThread) {
+        this.maxBytesPerThread = maxBytesPerThread;
+    }
+
+    /** Returns a buffer in native byte order with the given number of bytes remaining, for the given tensor */
+    ByteBuffer get(String name, int bytes) {
+        int bucketSize = bucketSize(bytes);
+        ByteBuffer buffer = bucketSize > maxBucketSize ? ByteBuffer.allocateDirect(bytes)
+                                                       : buffers.get().bufferOf(new Key(name, bucketSize));
+        return buffer.clear().limit(bytes).slice().order(ByteOrder.nativeOrder());
+    }
+
+    /** Returns the total size of the buffers kept by the calling thread */
+    long bytesKept() { return buffers.get().bytes; }
+
+    static int bucketSize(int bytes) {
+        if (bytes <= minBucketSize) return minBucketSize;
+        if (bytes > maxBucketSize) return bytes;
+        return Integer.highestOneBit(bytes - 1) << 1;
+    }
+
+    private record Key(String name, int size) { }
+
+    /** The buffers of a single thread, in order of last use */
+    private class Buffers extends LinkedHashMap<Key, ByteBuffer> {
+
+        private long bytes = 0;
+
+        Buffers() {
+            super(16, 0.75f, true);
+        }
+
+        ByteBuffer bufferOf(Key key) {
+            ByteBuffer buffer = get(key);
+            if (buffer != null) return buffer;
+
+            buffer = ByteBuffer.allocateDirect(key.size());
+            if (key.size() > maxBytesPerThread) return buffer;
+            for (Iterator<Map.Entry<Key, ByteBuffer>> eldest = entrySet().iterator(); bytes + key.size() > maxBytesPerThread; ) {
+                bytes -= eldest.next().getKey().size();
+                eldest.remove();
+            }
+            put(key, buffer);
+            bytes += key.size();
+            return buffer;
+        }
+
+    }
+
+}
@@ -39,14 +39,27 @@ class TensorConverter {
 
     static Map<String, OnnxTensor> toOnnxTensors(Map<String, Tensor> tensorMap, OrtEnvironment env, OrtSession session)
         throws OrtException
+    {
+        return toOnnxTensors(tensorMap, env, session.getInputInfo(), null);
+    }
+
+    /**
+     * Converts the given tensors to ONNX tensors of the types of the given inputs.
+     * The returned tensors use buffers from the given reusable buffers, or new buffers if it is null.
+     */
+    static Map<String, OnnxTensor> toOnnxTensors(Map<String, Tensor> tensorMap, OrtEnvironment env,
+                                                 Map<String, NodeInfo> inputInfo, ReusableBuffers buffers)
+        throws OrtException
     {
         Map<String, OnnxTensor> result = new HashMap<>();
         for (String name : tensorMap.keySet()) {
-            Tensor vespaTensor = tensorMap.get(name);
-            name = toOnnxName(name, session.getInputInfo().keySet());
-            TensorInfo onnxTensorInfo = toTensorInfo(session.getInputInfo().get(name).getInfo());
-            OnnxTensor onnxTensor = toOnnxTensor(vespaTensor, onnxTensorInfo, env);
-            result.put(name, onnxTensor);
+            IndexedTensor vespaTensor = requireIndexed(tensorMap.get(name));
+            name = toOnnxName(name, inputInfo.keySet());
+            TensorInfo onnxTensorInfo = toTensorInfo(inputInfo.get(name).getInfo());
+            int bytes = (int)vespaTensor.size() * onnxTensorInfo.type.size;
+            ByteBuffer buffer = buffers == null ? ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder())
+                                                : buffers.get(name, bytes);
+            result.put(name, toOnnxTensor(vespaTensor, onnxTensorInfo, env, buffer));
         }
         return result;
     }
@@ -54,19 +67,32 @@ class TensorConverter {
     static OnnxTensor toOnnxTensor(Tensor vespaTensor, TensorInfo onnxTensorInfo, OrtEnvironment environment)
         throws OrtException
     {
+        IndexedTensor tensor = requireIndexed(vespaTensor);
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int)tensor.size() * onnxTensorInfo.type.size).order(ByteOrder.nativeOrder());
+        return toOnnxTensor(tensor, onnxTensorInfo, environment, buffer);
+    }
+
+    private static IndexedTensor requireIndexed(Tensor vespaTensor) {
         if ( ! (vespaTensor instanceof IndexedTensor tensor)) {
             throw new IllegalArgumentException("OnnxEvaluator currently only supports tensors with indexed dimensions");
         }
-        ByteBuffer buffer = ByteBuffer.allocateDirect((int)tensor.size() * onnxTensorInfo.type.size).order(ByteOrder.nativeOrder());
+        return tensor;
+    }
+
+    /** Returns an ONNX tensor holding the values of the given tensor in the given buffer, which must be direct */
+    private static OnnxTensor toOnnxTensor(IndexedTensor tensor, TensorInfo onnxTensorInfo, OrtEnvironment environment,
+                                           ByteBuffer buffer)
+        throws OrtException
+    {
         if (onnxTensorInfo.type == OnnxJavaType.FLOAT) {
-            for (int i = 0; i < tensor.size(); i++)
-                buffer.putFloat(tensor.getFloat(i));
-            return OnnxTensor.createTensor(environment, buffer.rewind().asFloatBuffer(), tensor.shape());
+            FloatBuffer floats = buffer.asFloatBuffer();
+            tensor.copyTo(floats);
+            return OnnxTensor.createTensor(environment, floats.rewind(), tensor.shape());
         }
         if (onnxTensorInfo.type == OnnxJavaType.DOUBLE) {
-            for (int i = 0; i < tensor.size(); i++)
-                buffer.putDouble(tensor.get(i));
-            return OnnxTensor.createTensor(environment, buffer.rewind().asDoubleBuffer(), tensor.shape());
+            DoubleBuffer doubles = buffer.asDoubleBuffer();
+            tensor.copyTo(doubles);
+            return OnnxTensor.createTensor(environment, doubles.rewind(), tensor.shape());
         }
         if (onnxTensorInfo.type == OnnxJavaType.INT8) {
             for (int i = 0; i < tensor.size(); i++)
@@ -106,14 +132,6 @@ class TensorConverter {
         float convert(short value);
     }
     
-    private static void extractTensor(FloatBuffer buffer, IndexedTensor.BoundBuilder builder, int totalSize) {
-        for (int i = 0; i < totalSize; i++)
-            builder.cellByDirectIndex(i, buffer.get(i));
-    }
-    private static void extractTensor(DoubleBuffer buffer, IndexedTensor.BoundBuilder builder, int totalSize) {
-        for (int i = 0; i < totalSize; i++)
-            builder.cellByDirectIndex(i, buffer.get(i));
-    }
     private static void extractTensor(ByteBuffer buffer, IndexedTensor.BoundBuilder builder, int totalSize) {
         for (int i = 0; i < totalSize; i++)
             builder.cellByDirectIndex(i, buffer.get(i));
@@ -142,16 +160,24 @@ class TensorConverter {
         TensorInfo tensorInfo = onnxTensor.getInfo();
         TensorType type = toVespaType(onnxTensor.getInfo());
         DimensionSizes sizes = DimensionSizes.of(type);
-        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder) Tensor.Builder.of(type, sizes);
         long totalSizeAsLong = sizes.totalSize();
         if (totalSizeAsLong > Integer.MAX_VALUE) {
             throw new IllegalArgumentException("TotalSize=" + totalSizeAsLong + " currently limited at INTEGER.MAX_VALUE");
         }
 
         int totalSize = (int) totalSizeAsLong;
+        if (tensorInfo.type == OnnxJavaType.FLOAT) { // bulk copy, and hand the values over to the tensor
+            float[] values = new float[totalSize];
+            onnxTensor.getFloatBuffer().get(0, values);
+            return IndexedTensor.Builder.of(type, sizes, values).build();
+        }
+        if (tensorInfo.type == OnnxJavaType.DOUBLE) {
+            double[] values = new double[totalSize];
+            onnxTensor.getDoubleBuffer().get(0, values);
+            return IndexedTensor.Builder.of(type, sizes, values).build();
+        }
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder) Tensor.Builder.of(type, sizes);
         switch (tensorInfo.type) {
-            case FLOAT -> extractTensor(onnxTensor.getFloatBuffer(), builder, totalSize);
-            case DOUBLE -> extractTensor(onnxTensor.getDoubleBuffer(), builder, totalSize);
             case INT8 -> extractTensor(onnxTensor.getByteBuffer(), builder, totalSize);
             case INT16 -> extractTensor(onnxTensor.getShortBuffer(), builder, totalSize);
             case INT32 -> extractTensor(onnxTensor.getIntBuffer(), builder, totalSize);
@@ -162,6 +162,25 @@ public class HuggingFaceEmbedderTest {
         assertEquals("tensor<int8>(x[2]):[119, -116]", binarizedResultQuery.toAbbreviatedString());
     }
 
+    @Test
+    public void testEmbedderWithReusedBuffers() {
+        String vocabPath = "src/test/models/onnx/transformer/real_tokenizer.json";
+        String modelPath = "src/test/models/onnx/transformer/embedding_model.onnx";
+        assumeTrue(OnnxRuntime.isRuntimeAvailable(modelPath));
+        HuggingFaceEmbedderConfig.Builder builder = new HuggingFaceEmbedderConfig.Builder();
+        builder.tokenizerPath(ModelReference.valueOf(vocabPath));
+        builder.transformerModel(ModelReference.valueOf(modelPath));
+        builder.transformerGpuDevice(-1);
+        builder.transformerReuseBuffers(true);
+        var reusingEmbedder = new HuggingFaceEmbedder(OnnxRuntime.testInstance(), Embedder.Runtime.testInstance(), builder.build());
+
+        var context = new Embedder.Context("schema.indexing");
+        var type = TensorType.fromSpec("tensor<float>(x[8])");
+        for (String input : new String[] { "This is a test", "This is a longer test, which needs larger buffers", "Short" })
+            assertEquals(embedder.embed(input, context, type), reusingEmbedder.embed(input, context, type));
+        reusingEmbedder.deconstruct();
+    }
+
     @Test
     public void testPrepend() {
         var context = new Embedder.Context("schema.indexing");
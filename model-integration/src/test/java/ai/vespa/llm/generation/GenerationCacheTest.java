@@ -0,0 +1,117 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.llm.generation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author glebashnik
+ */
+public class GenerationCacheTest {
+
+    @TempDir
+    public Path directory;
+
+    @Test
+    public void testLeastRecentlyUsedGenerationsAreEvicted() {
+        var cache = new GenerationCache(2 * GenerationCache.estimatedSize("a", "a1"), Optional.empty());
+        var generations = new AtomicInteger();
+        assertEquals("a1", cache.computeIfAbsent("a", () -> "a" + generations.incrementAndGet()));
+        assertEquals("b2", cache.computeIfAbsent("b", () -> "b" + generations.incrementAndGet()));
+        assertEquals("a1", cache.computeIfAbsent("a", () -> "a" + generations.incrementAndGet()));
+        assertEquals("c3", cache.computeIfAbsent("c", () -> "c" + generations.incrementAndGet()));
+        assertEquals("a1", cache.computeIfAbsent("a", () -> "a" + generations.incrementAndGet()));
+        assertEquals("b4", cache.computeIfAbsent("b", () -> "b" + generations.incrementAndGet()));
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.hits());
+        assertEquals(4, cache.misses());
+    }
+
+    @Test
+    public void testCacheIsBoundedByEstimatedSize() {
+        long small = GenerationCache.estimatedSize("a", "a");
+        var cache = new GenerationCache(3 * small, Optional.empty());
+        cache.computeIfAbsent("a", () -> "a");
+        cache.computeIfAbsent("b", () -> "b");
+        cache.computeIfAbsent("c", () -> "c");
+        assertEquals(3, cache.size());
+        assertEquals(3 * small, cache.bytes());
+
+        // A larger generation evicts as many of the least recently used ones as needed
+        String large = "x".repeat((int) small / 2);
+        cache.computeIfAbsent("d", () -> large);
+        assertEquals(2, cache.size());
+        assertEquals(small + GenerationCache.estimatedSize("d", large), cache.bytes());
+
+        // A generation larger than the cache is returned, but not cached
+        String huge = "x".repeat((int) (3 * small));
+        assertEquals(huge, cache.computeIfAbsent("e", () -> huge));
+        assertEquals(2, cache.size());
+        assertEquals(huge, cache.computeIfAbsent("e", () -> huge));
+        assertEquals(6, cache.misses());
+    }
+
+    @Test
+    public void testGenerationsSurviveRestarts() {
+        long size = GenerationCache.estimatedSize("a", "generated a");
+        var cache = new GenerationCache(2 * size, Optional.of(directory));
+        cache.computeIfAbsent("a", () -> "generated a");
+        cache.computeIfAbsent("b", () -> "generated b");
+        cache.computeIfAbsent("c", () -> "generated c");
+
+        var restarted = new GenerationCache(2 * size, Optional.of(directory));
+        assertEquals(2, restarted.size());
+        assertEquals("generated c", restarted.computeIfAbsent("c", () -> "generated again"));
+        assertEquals("generated again", restarted.computeIfAbsent("a", () -> "generated again"));
+        assertEquals(1, restarted.hits());
+        assertEquals(1, restarted.misses());
+    }
+
+    @Test
+    public void testConcurrentGenerationsAreCoalesced() throws Exception {
+        var cache = new GenerationCache(1 << 20, Optional.empty());
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var generations = new AtomicInteger();
+        var first = CompletableFuture.supplyAsync(() -> cache.computeIfAbsent("key", () -> {
+            started.countDown();
+            await(release);
+            return "generated " + generations.incrementAndGet();
+        }));
+        started.await();
+        var second = CompletableFuture.supplyAsync(() -> cache.computeIfAbsent("key", () -> "generated " + generations.incrementAndGet()));
+        while (cache.hits() == 0) Thread.sleep(1); // Wait until the second is waiting for the first
+        release.countDown();
+        assertEquals("generated 1", first.get());
+        assertEquals("generated 1", second.get());
+        assertEquals(1, generations.get());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void testFailedGenerationsAreNotCached() {
+        var cache = new GenerationCache(1 << 20, Optional.empty());
+        assertThrows(IllegalStateException.class, () -> cache.computeIfAbsent("key", () -> { throw new IllegalStateException(); }));
+        assertEquals("generated", cache.computeIfAbsent("key", () -> "generated"));
+        assertEquals(2, cache.misses());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
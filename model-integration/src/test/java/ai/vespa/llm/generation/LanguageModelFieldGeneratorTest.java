@@ -86,6 +86,25 @@ public class LanguageModelFieldGeneratorTest {
         assertEquals("hello there hello there", result2.toString());
     }
 
+    @Test
+    public void testGenerateWithCache() {
+        var languageModel = new RepeatInputLanguageModel(2);
+        var languageModels = Map.<String, LanguageModel>of("languageModel", languageModel);
+
+        var config = new LanguageModelFieldGeneratorConfig.Builder()
+                .providerId("languageModel")
+                .cacheBytes(1 << 20)
+                .build();
+        var generator = createGenerator(config, languageModels);
+
+        // Each generate call uses a new context, as for separate documents
+        assertEquals("hello hello", generator.generate(StringPrompt.from("hello"), new FieldGenerator.Context("doc.text", DataType.STRING)).toString());
+        assertEquals("hello hello", generator.generate(StringPrompt.from("hello"), new FieldGenerator.Context("doc.text", DataType.STRING)).toString());
+        assertEquals("world world", generator.generate(StringPrompt.from("world"), new FieldGenerator.Context("doc.text", DataType.STRING)).toString());
+        assertEquals(1, generator.cacheHits());
+        assertEquals(2, generator.cacheMisses());
+    }
+
     @Test
     public void testGenerateWithEmptyPromptTemplate() {
         LanguageModel languageModel = new RepeatInputLanguageModel(2);
@@ -54,6 +54,56 @@ public class EmbeddedOnnxEvaluatorTest {
         assertEquals(evaluator.evaluate(inputs, "output"), Tensor.from("tensor(d0[1],d1[1]):[1.3]"));
     }
 
+    @Test
+    public void testReusedBuffers() {
+        assumeTrue(OnnxRuntime.isRuntimeAvailable());
+        var runtime = new EmbeddedOnnxRuntime();
+        var options = new OnnxEvaluatorOptions.Builder().setReuseBuffers(true).build();
+        OnnxEvaluator evaluator = runtime.evaluatorOf("src/test/models/onnx/simple/simple.onnx", options);
+
+        Map<String, Tensor> inputs = new HashMap<>();
+        inputs.put("query_tensor", Tensor.from("tensor(d0[1],d1[4]):[0.1, 0.2, 0.3, 0.4]"));
+        inputs.put("attribute_tensor", Tensor.from("tensor(d0[4],d1[1]):[0.1, 0.2, 0.3, 0.4]"));
+        inputs.put("bias_tensor", Tensor.from("tensor(d0[1],d1[1]):[1.0]"));
+        assertEquals(Tensor.from("tensor<float>(d0[1],d1[1]):[1.3]"), evaluator.evaluate(inputs, "output"));
+
+        inputs.put("bias_tensor", Tensor.from("tensor(d0[1],d1[1]):[2.0]"));
+        assertEquals(Tensor.from("tensor<float>(d0[1],d1[1]):[2.3]"), evaluator.evaluate(inputs).get("output"));
+        assertEquals(2, evaluator.statistics().evaluations());
+
+        // Dynamic output shapes are returned by the runtime rather than written to reused buffers
+        evaluator = runtime.evaluatorOf("src/test/models/onnx/pytorch/one_layer.onnx", options);
+        inputs = Map.of("input", Tensor.from("tensor<float>(d0[2],d1[3]):[[0.1, 0.2, 0.3],[0.4,0.5,0.6]]"));
+        assertEquals(Tensor.from("tensor<float>(d0[2],d1[1]):[0.6393113,0.67574286]"), evaluator.evaluate(inputs, "output"));
+        inputs = Map.of("input", Tensor.from("tensor<float>(d0[1],d1[3]):[[0.1, 0.2, 0.3]]"));
+        assertEquals(Tensor.from("tensor<float>(d0[1],d1[1]):[0.6393113]"), evaluator.evaluate(inputs, "output"));
+    }
+
+    @Test
+    public void testBufferBucketSizes() {
+        assertEquals(64, ReusableBuffers.bucketSize(1));
+        assertEquals(64, ReusableBuffers.bucketSize(64));
+        assertEquals(128, ReusableBuffers.bucketSize(65));
+        assertEquals(1024, ReusableBuffers.bucketSize(1024));
+        assertEquals(1 << 24, ReusableBuffers.bucketSize(1 << 24));
+        assertEquals((1 << 24) + 1, ReusableBuffers.bucketSize((1 << 24) + 1));
+    }
+
+    @Test
+    public void testBuffersKeptPerThreadAreBounded() {
+        var buffers = new ReusableBuffers(1024);
+        assertEquals(100, buffers.get("a", 100).remaining());
+        buffers.get("b", 300);
+        assertEquals(128 + 512, buffers.bytesKept());
+        buffers.get("a", 120); // Same bucket as the first buffer
+        assertEquals(128 + 512, buffers.bytesKept());
+        buffers.get("c", 512); // Drops the least recently used buffer, of b
+        assertEquals(128 + 512, buffers.bytesKept());
+        assertEquals(2000, buffers.get("d", 2000).remaining()); // Larger than all kept buffers
+        assertEquals(128 + 512, buffers.bytesKept());
+        assertEquals(ReusableBuffers.maxBucketSize + 1, new ReusableBuffers().get("e", ReusableBuffers.maxBucketSize + 1).remaining());
+    }
+
     @Test
     public void testBatchDimension() {
         assumeTrue(OnnxRuntime.isRuntimeAvailable());
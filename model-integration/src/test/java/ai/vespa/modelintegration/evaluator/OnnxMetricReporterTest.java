@@ -0,0 +1,44 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.modelintegration.evaluator;
+
+import com.yahoo.jdisc.test.MockMetric;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author bjorncs
+ */
+class OnnxMetricReporterTest {
+
+    @Test
+    void reports_changes_since_last_report_under_name_of_source() {
+        var name = new AtomicReference<>("first");
+        var statistics = new AtomicReference<>(new OnnxEvaluator.Statistics(0, Duration.ZERO, Duration.ZERO));
+        var metric = new MockMetric();
+        try (var reporter = new OnnxMetricReporter(metric, "embedder", List.of(new OnnxMetricReporter.Source(name::get, statistics::get)))) {
+            reporter.report();
+            assertNull(metric.metrics().get("onnx.evaluations"));
+
+            statistics.set(new OnnxEvaluator.Statistics(3, Duration.ofMillis(5), Duration.ofMillis(20)));
+            reporter.report();
+            assertEquals(3.0, metric.metrics().get("onnx.evaluations").get(Map.of("embedder", "first")));
+            assertEquals(5.0, metric.metrics().get("onnx.conversion_time").get(Map.of("embedder", "first")));
+            assertEquals(20.0, metric.metrics().get("onnx.run_time").get(Map.of("embedder", "first")));
+
+            name.set("second");
+            statistics.set(new OnnxEvaluator.Statistics(4, Duration.ofMillis(7), Duration.ofMillis(30)));
+            reporter.report();
+            assertEquals(1.0, metric.metrics().get("onnx.evaluations").get(Map.of("embedder", "second")));
+            assertEquals(2.0, metric.metrics().get("onnx.conversion_time").get(Map.of("embedder", "second")));
+            assertEquals(10.0, metric.metrics().get("onnx.run_time").get(Map.of("embedder", "second")));
+        }
+    }
+
+}
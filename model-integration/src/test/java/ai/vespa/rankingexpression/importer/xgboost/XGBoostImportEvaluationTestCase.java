@@ -7,11 +7,15 @@ import com.yahoo.searchlib.rankingexpression.evaluation.Context;
 import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
 import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.GBDTForestEvaluator;
 import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
 import com.yahoo.tensor.Tensor;
 import org.junit.Test;
 
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -57,6 +61,18 @@ public class XGBoostImportEvaluationTestCase {
         assertXGBoostEvaluation(6.0, expression, features(context, "f1", Tensor.from(1.0)));
     }
 
+    @Test
+    public void testXGBoostBatchEvaluation() {
+        RankingExpression expression = new XGBoostImporter()
+                .importModel("xgb", "src/test/models/xgboost/xgboost.test.json")
+                .expressions().get("xgb");
+        GBDTForestEvaluator evaluator = GBDTForestEvaluator.of(expression, List.of("f2", "f1")).get();
+        double[][] vectors = { { 0.0, 0.0 }, { 1.0, 0.0 }, { 0.0, 1.0 }, { 1.0, 1.0 },
+                               { Double.NaN, 0.0 }, { Double.NaN, 1.0 }, { 0.0, Double.NaN }, { 1.0, Double.NaN },
+                               { Double.NaN, Double.NaN } };
+        assertArrayEquals(new double[] { 1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 9.0, 11.0 }, evaluator.evaluate(vectors), 1e-9);
+    }
+
     private ArrayContext features(ArrayContext context) {
         return context.clone();
     }
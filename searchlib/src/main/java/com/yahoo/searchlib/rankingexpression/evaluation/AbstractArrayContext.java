@@ -84,10 +84,23 @@ public abstract class AbstractArrayContext extends Context implements Cloneable,
         return indexedBindings.getDouble(index);
     }
 
+    @Override
+    public boolean hasDoubles(int[] indexes) {
+        return indexedBindings.hasDoubles(indexes);
+    }
+
     final boolean isMissing(int index) {
         return indexedBindings.isMissing(index);
     }
 
+    final boolean hasDouble(int index) {
+        return indexedBindings.hasDouble(index);
+    }
+
+    final void setHasDouble(int index, boolean hasDouble) {
+        indexedBindings.setHasDouble(index, hasDouble);
+    }
+
     final void clearMissing(int index) {
         indexedBindings.clearMissing(index);
     }
@@ -125,6 +138,9 @@ public abstract class AbstractArrayContext extends Context implements Cloneable,
         /** Which values actually are set */
         private BitSet setValues;
 
+        /** Which values are set to values with no double representation */
+        private BitSet nonDoubleValues;
+
         /** Value to return if value is missing. */
         private final double missingValue;
 
@@ -134,6 +150,7 @@ public abstract class AbstractArrayContext extends Context implements Cloneable,
 
             this.missingValue = missingValue.asDouble();
             setValues = new BitSet(bindTargets.size());
+            nonDoubleValues = new BitSet(bindTargets.size());
             doubleValues = new double[bindTargets.size()];
             for (int i = 0; i < bindTargets.size(); ++i) {
                 doubleValues[i] = this.missingValue;
@@ -165,6 +182,15 @@ public abstract class AbstractArrayContext extends Context implements Cloneable,
         public double getDouble(int index) { return doubleValues[index]; }
         public boolean isMissing(int index) { return ! setValues.get(index); }
         public void clearMissing(int index) { setValues.set(index); }
+        public boolean hasDouble(int index) { return ! nonDoubleValues.get(index); }
+        public void setHasDouble(int index, boolean hasDouble) { nonDoubleValues.set(index, ! hasDouble); }
+
+        public boolean hasDoubles(int[] indexes) {
+            if (nonDoubleValues.isEmpty()) return true;
+            for (int index : indexes)
+                if (nonDoubleValues.get(index)) return false;
+            return true;
+        }
 
         /**
          * Creates a clone of this context suitable for evaluating against the same ranking expression
@@ -175,6 +201,7 @@ public abstract class AbstractArrayContext extends Context implements Cloneable,
             try {
                 IndexedBindings clone = (IndexedBindings)super.clone();
                 clone.setValues = new BitSet(nameToIndex.size());
+                clone.nonDoubleValues = new BitSet(nameToIndex.size());
                 clone.doubleValues = new double[nameToIndex.size()];
                 for (int i = 0; i < nameToIndex.size(); ++i) {
                     clone.doubleValues[i] = missingValue;
@@ -84,9 +84,11 @@ public class ArrayContext extends AbstractArrayContext implements Cloneable {
         clearMissing(index);
         try {
             doubleValues()[index] = value.asDouble();
+            setHasDouble(index, true);
         }
         catch (UnsupportedOperationException e) {
-            doubleValues()[index] = Double.NaN; // see getDouble below
+            doubleValues()[index] = Double.NaN;
+            setHasDouble(index, false); // see getDouble below
         }
     }
 
@@ -114,10 +116,9 @@ public class ArrayContext extends AbstractArrayContext implements Cloneable {
     /** Perform a fast lookup directly of the value as a double. This is faster than get(index).asDouble() */
     @Override
     public final double getDouble(int index) {
-        double value = doubleValues()[index];
-        if (Double.isNaN(value) && ! isMissing(index))  // NaN is valid as a missing value
+        if ( ! hasDouble(index))
             throw new UnsupportedOperationException("Value at " + index + " has no double representation");
-        return value;
+        return doubleValues()[index];
     }
 
     @Override
@@ -92,6 +92,18 @@ public abstract class Context implements EvaluationContext<Reference> {
         throw new UnsupportedOperationException(this + " does not support variable lookup by index");
     }
 
+    /**
+     * Returns whether the values at the given indexes all have a double representation, such that they
+     * may be looked up by {@link #getDouble(int)}. This is supported by some optimized context subclasses,
+     * which keep track of it as values are bound. This default implementation returns false.
+     *
+     * @param indexes the indexes of the variables to check
+     * @return whether all the indexed variables have double values
+     */
+    public boolean hasDoubles(int[] indexes) {
+        return false;
+    }
+
     /**
      * Same as put(name,DoubleValue.frozen(value))
      */
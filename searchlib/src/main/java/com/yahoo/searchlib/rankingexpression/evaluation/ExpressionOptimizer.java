@@ -2,6 +2,7 @@
 package com.yahoo.searchlib.rankingexpression.evaluation;
 
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.compilation.ExpressionCompiler;
 import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestOptimizer;
 import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTOptimizer;
 import com.yahoo.searchlib.rankingexpression.evaluation.tensoroptimization.TensorOptimizer;
@@ -35,6 +36,7 @@ public class ExpressionOptimizer {
     private final GBDTOptimizer gbdtOptimizer = new GBDTOptimizer();
     private final GBDTForestOptimizer gbdtForestOptimizer = new GBDTForestOptimizer();
     private final TensorOptimizer tensorOptimizer = new TensorOptimizer();
+    private final ExpressionCompiler expressionCompiler = new ExpressionCompiler();
 
     /** Gets an optimizer instance used by this by class name, or null if the optimizer is not known */
     public Optimizer getOptimizer(Class<?> clazz) {
@@ -44,15 +46,23 @@ public class ExpressionOptimizer {
             return gbdtForestOptimizer;
         if (clazz == tensorOptimizer.getClass())
             return tensorOptimizer;
+        if (clazz == expressionCompiler.getClass())
+            return expressionCompiler;
         return null;
     }
 
+    /** Sets whether the scalar parts of expressions should be compiled, see {@link ExpressionCompiler}. This is off by default. */
+    public void setCompileExpressions(boolean compileExpressions) {
+        expressionCompiler.setEnabled(compileExpressions);
+    }
+
     public OptimizationReport optimize(RankingExpression expression, ContextIndex contextIndex) {
         OptimizationReport report = new OptimizationReport();
         // Note: Order of optimizations matter
         gbdtOptimizer.optimize(expression, contextIndex, report);
         gbdtForestOptimizer.optimize(expression, contextIndex, report);
         tensorOptimizer.optimize(expression, contextIndex, report);
+        expressionCompiler.optimize(expression, contextIndex, report); // disabled by default
         return report;
     }
 
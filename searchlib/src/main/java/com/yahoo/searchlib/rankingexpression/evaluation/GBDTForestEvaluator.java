@@ -0,0 +1,264 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.api.annotations.Beta;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTOptimizer;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * <p>Evaluates a sum of decision trees, such as an imported XGBoost or LightGBM model, for many feature vectors
+ * per call.</p>
+ *
+ * <p>The trees are stored as parallel arrays of nodes in depth first order, where the true branch of a condition
+ * is the next node, and vectors are scored in blocks where each tree is evaluated for all the vectors in the block
+ * before moving on to the next tree, such that the nodes of a tree and the vectors of a block stay in cache.
+ * The trees are added in the same order for each vector as in {@link GBDTForestNode}, so the scores are
+ * identical to evaluating the expression for each vector.</p>
+ *
+ * <p>Instances are immutable and may be used by multiple threads.</p>
+ *
+ * @author bratseth
+ */
+@Beta
+public final class GBDTForestEvaluator {
+
+    /** The number of vectors which are scored together by each tree */
+    private static final int blockSize = 64;
+
+    private static final byte smaller = 0, equal = 1, in = 2, notLargerOrEqual = 3;
+
+    /** The node at which each tree starts */
+    private final int[] trees;
+
+    /** The feature vector index of the value tested by each node, or -1 if the node is a leaf */
+    private final int[] features;
+
+    /** The comparison of each condition node */
+    private final byte[] conditions;
+
+    /** The value compared with in each condition node, or the value of each leaf */
+    private final double[] values;
+
+    /** The node of the false branch of each condition node */
+    private final int[] falseBranches;
+
+    /** The start and end in setValues of the set of each set membership node */
+    private final int[] setStarts, setEnds;
+    private final double[] setValues;
+
+    private final int featureCount;
+
+    private GBDTForestEvaluator(Builder builder, int[] featureMap) {
+        this.trees = builder.trees.stream().mapToInt(Integer::intValue).toArray();
+        this.features = new int[builder.nodes];
+        for (int node = 0; node < builder.nodes; node++) {
+            int feature = builder.features[node];
+            this.features[node] = feature < 0 ? -1 : featureMap[feature];
+        }
+        this.conditions = Arrays.copyOf(builder.conditions, builder.nodes);
+        this.values = Arrays.copyOf(builder.values, builder.nodes);
+        this.falseBranches = Arrays.copyOf(builder.falseBranches, builder.nodes);
+        this.setStarts = Arrays.copyOf(builder.setStarts, builder.nodes);
+        this.setEnds = Arrays.copyOf(builder.setEnds, builder.nodes);
+        this.setValues = builder.setValues.stream().mapToDouble(Double::doubleValue).toArray();
+        this.featureCount = Arrays.stream(featureMap).max().orElse(-1) + 1;
+    }
+
+    /**
+     * Returns an evaluator of the given expression if it is a decision tree or a sum of decision trees,
+     * and empty otherwise.
+     *
+     * @param expression the expression to evaluate, which may already be optimized using the given context
+     * @param context the context of the expression, which resolves the given features
+     * @param features the features of each feature vector given to this, in order. All the features the
+     *                 trees test must be included
+     * @throws IllegalArgumentException if the trees test a feature which is not included in the given features
+     */
+    public static Optional<GBDTForestEvaluator> of(RankingExpression expression, ContextIndex context, List<String> features) {
+        ExpressionNode root = expression.getRoot();
+        if ( ! (root instanceof GBDTForestNode || root instanceof GBDTNode)) { // optimize a copy
+            RankingExpression copy = new RankingExpression(expression.getName(), root);
+            OptimizationReport report = new OptimizationReport();
+            new GBDTOptimizer().optimize(copy, context, report);
+            new GBDTForestOptimizer().optimize(copy, context, report);
+            root = copy.getRoot();
+        }
+
+        Builder builder = new Builder();
+        if (root instanceof GBDTForestNode forest)
+            builder.addForest(forest.values());
+        else if (root instanceof GBDTNode tree)
+            builder.addTree(tree.values(), 0);
+        else
+            return Optional.empty();
+        return Optional.of(new GBDTForestEvaluator(builder, featureMap(builder, context, features)));
+    }
+
+    /**
+     * Returns an evaluator of the given unoptimized expression if it is a decision tree or a sum of decision trees,
+     * and empty otherwise.
+     *
+     * @param expression the expression to evaluate
+     * @param features the features of each feature vector given to this, in order. All the features the
+     *                 trees test must be included
+     * @throws IllegalArgumentException if the trees test a feature which is not included in the given features
+     */
+    public static Optional<GBDTForestEvaluator> of(RankingExpression expression, List<String> features) {
+        return of(expression, new ArrayContext(expression, true), features);
+    }
+
+    /** Returns the number of trees in this */
+    public int treeCount() { return trees.length; }
+
+    /** Returns the least length of the feature vectors given to this */
+    public int featureCount() { return featureCount; }
+
+    /** Returns the score of a single feature vector */
+    public double evaluate(double[] featureVector) {
+        double score = 0;
+        for (int tree : trees)
+            score += leafValue(tree, featureVector);
+        return score;
+    }
+
+    /** Returns the scores of the given feature vectors, in the same order */
+    public double[] evaluate(double[][] featureVectors) {
+        double[] scores = new double[featureVectors.length];
+        for (int blockStart = 0; blockStart < featureVectors.length; blockStart += blockSize) {
+            int blockEnd = Math.min(blockStart + blockSize, featureVectors.length);
+            for (int tree : trees) {
+                for (int i = blockStart; i < blockEnd; i++)
+                    scores[i] += leafValue(tree, featureVectors[i]);
+            }
+        }
+        return scores;
+    }
+
+    private double leafValue(int node, double[] featureVector) {
+        while (features[node] >= 0) {
+            double value = featureVector[features[node]];
+            boolean isTrue = switch (conditions[node]) {
+                case smaller -> value < values[node];
+                case equal -> value == values[node];
+                case in -> contains(node, value);
+                default -> ! (value >= values[node]);
+            };
+            node = isTrue ? node + 1 : falseBranches[node];
+        }
+        return values[node];
+    }
+
+    private boolean contains(int node, double value) {
+        for (int i = setStarts[node]; i < setEnds[node]; i++)
+            if (setValues[i] == value) return true;
+        return false;
+    }
+
+    /** Returns the index in the given features of each context index tested by the trees */
+    private static int[] featureMap(Builder builder, ContextIndex context, List<String> features) {
+        int[] featureMap = new int[builder.maxFeature + 1];
+        Arrays.fill(featureMap, -1);
+        for (int i = 0; i < features.size(); i++) {
+            int index;
+            try {
+                index = context.getIndex(features.get(i));
+            }
+            catch (RuntimeException e) { // not known to the context, so not tested
+                continue;
+            }
+            if (index < featureMap.length)
+                featureMap[index] = i;
+        }
+        for (int node = 0; node < builder.nodes; node++) {
+            int feature = builder.features[node];
+            if (feature >= 0 && featureMap[feature] < 0)
+                throw new IllegalArgumentException("The trees test a feature which is not among " + features);
+        }
+        return featureMap;
+    }
+
+    /** Decodes the programs of GBDTNode and GBDTForestNode into nodes */
+    private static class Builder {
+
+        final List<Integer> trees = new ArrayList<>();
+        final List<Double> setValues = new ArrayList<>();
+        int[] features = new int[16];
+        byte[] conditions = new byte[16];
+        double[] values = new double[16];
+        int[] falseBranches = new int[16];
+        int[] setStarts = new int[16];
+        int[] setEnds = new int[16];
+        int nodes = 0;
+        int maxFeature = -1;
+
+        void addForest(double[] program) {
+            int pc = 0;
+            while (pc < program.length) {
+                int treeLength = (int)program[pc++];
+                addTree(program, pc);
+                pc += treeLength;
+            }
+        }
+
+        void addTree(double[] program, int start) {
+            trees.add(nodes);
+            addNode(program, start);
+        }
+
+        /** Adds the subtree starting at the given program counter, and returns the program counter after it */
+        private int addNode(double[] program, int pc) {
+            int node = newNode();
+            double value = program[pc++];
+            if (value < GBDTNode.MAX_LEAF_VALUE) { // a leaf
+                features[node] = -1;
+                values[node] = value;
+                return pc;
+            }
+
+            int offset = (int)value - GBDTNode.MAX_LEAF_VALUE;
+            byte condition = (byte)(offset / GBDTNode.MAX_VARIABLES);
+            int feature = offset % GBDTNode.MAX_VARIABLES;
+            features[node] = feature;
+            conditions[node] = condition;
+            maxFeature = Math.max(maxFeature, feature);
+            if (condition == in) {
+                int setSize = (int)program[pc++];
+                setStarts[node] = setValues.size();
+                for (int i = 0; i < setSize; i++)
+                    setValues.add(program[pc++]);
+                setEnds[node] = setValues.size();
+            }
+            else {
+                values[node] = program[pc++];
+            }
+            pc++; // the jump to the false branch, which is after the true branch
+            pc = addNode(program, pc);
+            falseBranches[node] = nodes;
+            return addNode(program, pc);
+        }
+
+        private int newNode() {
+            if (nodes == features.length) {
+                int capacity = nodes * 2;
+                features = Arrays.copyOf(features, capacity);
+                conditions = Arrays.copyOf(conditions, capacity);
+                values = Arrays.copyOf(values, capacity);
+                falseBranches = Arrays.copyOf(falseBranches, capacity);
+                setStarts = Arrays.copyOf(setStarts, capacity);
+                setEnds = Arrays.copyOf(setEnds, capacity);
+            }
+            return nodes++;
+        }
+
+    }
+
+}
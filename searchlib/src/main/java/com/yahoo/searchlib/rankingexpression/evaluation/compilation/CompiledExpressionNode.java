@@ -0,0 +1,59 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.compilation;
+
+import com.yahoo.searchlib.rankingexpression.Reference;
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.SerializationContext;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.TypeContext;
+
+import java.util.Deque;
+import java.util.Objects;
+
+/**
+ * A scalar expression compiled by {@link ExpressionCompiler}. This is serialized and typed as the expression
+ * it was compiled from, and falls back to interpreting that expression in evaluations where the context
+ * does not hold doubles for all the values it reads.
+ *
+ * @author bratseth
+ */
+public final class CompiledExpressionNode extends ExpressionNode {
+
+    private final ExpressionNode expression;
+    private final DoubleExpression compiled;
+
+    /** The indexes of the values read by the compiled expression */
+    private final int[] references;
+
+    CompiledExpressionNode(ExpressionNode expression, DoubleExpression compiled, int[] references) {
+        this.expression = expression;
+        this.compiled = compiled;
+        this.references = references;
+    }
+
+    /** Returns the expression this was compiled from */
+    public ExpressionNode expression() { return expression; }
+
+    @Override
+    public TensorType type(TypeContext<Reference> context) { return expression.type(context); }
+
+    @Override
+    public Value evaluate(Context context) {
+        if ( ! context.hasDoubles(references)) // e.g. a tensor is bound to a value read by this, in this evaluation
+            return expression.evaluate(context);
+        return new DoubleValue(compiled.evaluate(context));
+    }
+
+    @Override
+    public StringBuilder toString(StringBuilder string, SerializationContext context, Deque<String> path, CompositeNode parent) {
+        return expression.toString(string, context, path, parent);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash("compiled", expression); }
+
+}
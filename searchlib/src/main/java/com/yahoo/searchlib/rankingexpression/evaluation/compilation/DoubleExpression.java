@@ -0,0 +1,17 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.compilation;
+
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+
+/**
+ * A compiled scalar expression.
+ *
+ * @author bratseth
+ */
+@FunctionalInterface
+interface DoubleExpression {
+
+    /** Returns the value of this in the given context, which must hold doubles for all the values this reads */
+    double evaluate(Context context);
+
+}
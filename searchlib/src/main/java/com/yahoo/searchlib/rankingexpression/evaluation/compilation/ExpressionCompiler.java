@@ -0,0 +1,252 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.compilation;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.BooleanValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.LongValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.OptimizationReport;
+import com.yahoo.searchlib.rankingexpression.evaluation.Optimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.ConstantNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.Function;
+import com.yahoo.searchlib.rankingexpression.rule.FunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.IfNode;
+import com.yahoo.searchlib.rankingexpression.rule.LambdaFunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.NegativeNode;
+import com.yahoo.searchlib.rankingexpression.rule.NotNode;
+import com.yahoo.searchlib.rankingexpression.rule.OperationNode;
+import com.yahoo.searchlib.rankingexpression.rule.Operator;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+import com.yahoo.searchlib.rankingexpression.rule.SetMembershipNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>Compiles the scalar parts of ranking expressions into trees of lambdas which read the bound values
+ * by index and compute with primitive doubles, such that evaluation does not create a value object per node.
+ * Each largest scalar subexpression is replaced by a {@link CompiledExpressionNode}, while the rest of the expression,
+ * such as tensor functions, is still interpreted. GBDT nodes created by the GBDT optimizers are compiled as well.</p>
+ *
+ * <p>This is disabled by default. Like the other optimizations, compiled expressions <b>must</b> be executed
+ * using a context created from the ranking expression <i>before</i> the ranking expression is optimized.
+ * Compiled subexpressions are interpreted instead in evaluations where the context holds a value which is not
+ * a double for any of the references they read, as told by {@link Context#hasDoubles}.</p>
+ *
+ * <p>This class is not multithread safe.</p>
+ *
+ * @author bratseth
+ */
+public class ExpressionCompiler extends Optimizer {
+
+    private OptimizationReport report;
+
+    /** The indexes of the values read by the expression currently being compiled */
+    private BitSet references;
+
+    public ExpressionCompiler() {
+        setEnabled(false);
+    }
+
+    @Override
+    public void optimize(RankingExpression expression, ContextIndex context, OptimizationReport report) {
+        if ( ! isEnabled()) return;
+        this.report = report;
+        expression.setRoot(compileLargestScalarExpressions(expression.getRoot(), context));
+        report.note("Expression compilation done");
+    }
+
+    private ExpressionNode compileLargestScalarExpressions(ExpressionNode node, ContextIndex context) {
+        if (node instanceof ConstantNode || node instanceof ReferenceNode) return node; // Nothing to gain
+        if (node instanceof LambdaFunctionNode) return node; // Evaluated in another context
+        references = new BitSet();
+        DoubleExpression compiled = compile(node, context);
+        if (compiled != null) {
+            report.incMetric("Compiled expressions", 1);
+            return new CompiledExpressionNode(node, compiled, references.stream().toArray());
+        }
+        if (node instanceof CompositeNode composite) {
+            List<ExpressionNode> children = new ArrayList<>(composite.children().size());
+            for (ExpressionNode child : composite.children())
+                children.add(compileLargestScalarExpressions(child, context));
+            return composite.setChildren(children);
+        }
+        return node;
+    }
+
+    /** Returns the given expression compiled, or null if it is not a scalar expression which can be compiled */
+    private DoubleExpression compile(ExpressionNode node, ContextIndex context) {
+        if (node instanceof ConstantNode constant)
+            return compileConstant(constant.getValue());
+        if (node instanceof ReferenceNode reference)
+            return compileReference(reference, context);
+        if (node instanceof EmbracedNode embraced)
+            return compile(embraced.getValue(), context);
+        if (node instanceof NegativeNode negative) {
+            DoubleExpression value = compile(negative.getValue(), context);
+            if (value == null) return null;
+            return c -> - value.evaluate(c);
+        }
+        if (node instanceof NotNode not) {
+            DoubleExpression value = compile(not.getValue(), context);
+            if (value == null) return null;
+            return c -> value.evaluate(c) != 0 ? 0 : 1;
+        }
+        if (node instanceof IfNode ifNode)
+            return compileIf(ifNode, context);
+        if (node instanceof OperationNode operation)
+            return compileOperation(operation, context);
+        if (node instanceof FunctionNode function)
+            return compileFunction(function, context);
+        if (node instanceof SetMembershipNode setMembership)
+            return compileSetMembership(setMembership, context);
+        if (node instanceof GBDTNode tree) {
+            references.set(0, context.size()); // the variables read are encoded in the tree values
+            double[] values = tree.values();
+            return c -> GBDTNode.evaluate(values, 0, c);
+        }
+        if (node instanceof GBDTForestNode forest) {
+            references.set(0, context.size());
+            return compileForest(forest.values());
+        }
+        return null;
+    }
+
+    private static DoubleExpression compileConstant(Value value) {
+        if ( ! (value instanceof DoubleValue || value instanceof BooleanValue || value instanceof LongValue)) return null;
+        double constant = value.asDouble();
+        return c -> constant;
+    }
+
+    private DoubleExpression compileReference(ReferenceNode reference, ContextIndex context) {
+        String name = reference.toString();
+        if ( ! (context instanceof Context bindings) || ! bindings.names().contains(name)) return null; // not bound
+        int index = context.getIndex(name);
+        if (context.get(index) instanceof TensorValue) return null; // bound to a tensor at compile time
+        references.set(index);
+        return c -> c.getDouble(index);
+    }
+
+    private DoubleExpression compileIf(IfNode ifNode, ContextIndex context) {
+        DoubleExpression condition = compile(ifNode.getCondition(), context);
+        DoubleExpression trueExpression = compile(ifNode.getTrueExpression(), context);
+        DoubleExpression falseExpression = compile(ifNode.getFalseExpression(), context);
+        if (condition == null || trueExpression == null || falseExpression == null) return null;
+        return c -> condition.evaluate(c) != 0 ? trueExpression.evaluate(c) : falseExpression.evaluate(c);
+    }
+
+    /** Compiles the operations in the same order as the interpreter applies them */
+    private DoubleExpression compileOperation(OperationNode operation, ContextIndex context) {
+        Iterator<ExpressionNode> child = operation.children().iterator();
+        Deque<Item> stack = new ArrayDeque<>();
+        DoubleExpression first = compile(child.next(), context);
+        if (first == null) return null;
+        stack.push(new Item(null, first));
+        for (Iterator<Operator> it = operation.operators().iterator(); it.hasNext() && child.hasNext();) {
+            Operator operator = it.next();
+            while (stack.size() > 1 && ! operator.hasPrecedenceOver(stack.peek().operator))
+                popStack(stack);
+            DoubleExpression next = compile(child.next(), context);
+            if (next == null) return null;
+            stack.push(new Item(operator, next));
+        }
+        while (stack.size() > 1)
+            popStack(stack);
+        return stack.getFirst().expression;
+    }
+
+    private static void popStack(Deque<Item> stack) {
+        Item rhs = stack.pop();
+        Item lhs = stack.peek();
+        lhs.expression = compile(rhs.operator, lhs.expression, rhs.expression);
+    }
+
+    private static DoubleExpression compile(Operator operator, DoubleExpression x, DoubleExpression y) {
+        return switch (operator) {
+            case or -> c -> { boolean a = x.evaluate(c) != 0, b = y.evaluate(c) != 0; return a || b ? 1 : 0; };
+            case and -> c -> { boolean a = x.evaluate(c) != 0, b = y.evaluate(c) != 0; return a && b ? 1 : 0; };
+            case largerOrEqual -> c -> x.evaluate(c) >= y.evaluate(c) ? 1 : 0;
+            case larger -> c -> x.evaluate(c) > y.evaluate(c) ? 1 : 0;
+            case smallerOrEqual -> c -> x.evaluate(c) <= y.evaluate(c) ? 1 : 0;
+            case smaller -> c -> x.evaluate(c) < y.evaluate(c) ? 1 : 0;
+            case notEqual -> c -> x.evaluate(c) != y.evaluate(c) ? 1 : 0;
+            case equal -> c -> x.evaluate(c) == y.evaluate(c) ? 1 : 0;
+            case plus -> c -> x.evaluate(c) + y.evaluate(c);
+            case minus -> c -> x.evaluate(c) - y.evaluate(c);
+            case multiply -> c -> x.evaluate(c) * y.evaluate(c);
+            case divide -> c -> x.evaluate(c) / y.evaluate(c);
+            case modulo -> c -> x.evaluate(c) % y.evaluate(c);
+            case power -> c -> Function.pow.evaluate(x.evaluate(c), y.evaluate(c));
+            default -> c -> operator.evaluate(new DoubleValue(x.evaluate(c)), new DoubleValue(y.evaluate(c))).asDouble();
+        };
+    }
+
+    private DoubleExpression compileFunction(FunctionNode node, ContextIndex context) {
+        Function function = node.getFunction();
+        List<ExpressionNode> arguments = node.children();
+        if (arguments.isEmpty())
+            return c -> function.evaluate(0, 0);
+        DoubleExpression x = compile(arguments.get(0), context);
+        if (x == null) return null;
+        if (arguments.size() == 1)
+            return c -> function.evaluate(x.evaluate(c), 0);
+        DoubleExpression y = compile(arguments.get(1), context);
+        if (y == null) return null;
+        return c -> function.evaluate(x.evaluate(c), y.evaluate(c));
+    }
+
+    private DoubleExpression compileSetMembership(SetMembershipNode node, ContextIndex context) {
+        DoubleExpression testValue = compile(node.getTestValue(), context);
+        if (testValue == null) return null;
+        DoubleExpression[] setValues = new DoubleExpression[node.getSetValues().size()];
+        for (int i = 0; i < setValues.length; i++) {
+            setValues[i] = compile(node.getSetValues().get(i), context);
+            if (setValues[i] == null) return null;
+        }
+        return c -> {
+            double value = testValue.evaluate(c);
+            for (DoubleExpression setValue : setValues)
+                if (setValue.evaluate(c) == value) return 1;
+            return 0;
+        };
+    }
+
+    private static DoubleExpression compileForest(double[] values) {
+        return c -> {
+            int pc = 0;
+            double treeSum = 0;
+            while (pc < values.length) {
+                int nextTree = (int)values[pc++];
+                treeSum += GBDTNode.evaluate(values, pc, c);
+                pc += nextTree;
+            }
+            return treeSum;
+        };
+    }
+
+    private static class Item {
+
+        final Operator operator;
+        DoubleExpression expression;
+
+        Item(Operator operator, DoubleExpression expression) {
+            this.operator = operator;
+            this.expression = expression;
+        }
+
+    }
+
+}
@@ -9,13 +9,16 @@ import com.yahoo.searchlib.rankingexpression.evaluation.Optimizer;
 import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
 import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
 import com.yahoo.searchlib.rankingexpression.rule.TensorFunctionNode;
+import com.yahoo.tensor.functions.FusedCellwise;
 import com.yahoo.tensor.functions.Join;
+import com.yahoo.tensor.functions.Map;
 import com.yahoo.tensor.functions.Reduce;
 import com.yahoo.tensor.functions.ReduceJoin;
 import com.yahoo.tensor.functions.TensorFunction;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Recognizes and optimizes tensor expressions.
@@ -35,6 +38,7 @@ public class TensorOptimizer extends Optimizer {
     }
 
     private ExpressionNode optimize(ExpressionNode node, ContextIndex context) {
+        node = optimizeCellwiseChain(node);
         node = optimizeReduceJoin(node);
         if (node instanceof CompositeNode) {
             return optimizeChildren((CompositeNode)node, context);
@@ -50,6 +54,46 @@ public class TensorOptimizer extends Optimizer {
         return node.setChildren(optimizedChildren);
     }
 
+    /**
+     * Recognizes chains of maps and joins, optionally followed by a reduce, which are evaluated
+     * as a single loop over the cells of dense arguments, avoiding the cost of the temporary tensors.
+     *
+     * As with reduce-join, the arguments of each evaluation determine whether the optimization is performed.
+     */
+    private ExpressionNode optimizeCellwiseChain(ExpressionNode node) {
+        if ( ! (node instanceof TensorFunctionNode)) {
+            return node;
+        }
+        TensorFunction<Reference> function = ((TensorFunctionNode) node).function();
+        if ( ! isFusable(function)) {
+            return node;
+        }
+        Optional<FusedCellwise<Reference>> fused = FusedCellwise.of(unwrapFusable(function));
+        if (fused.isEmpty()) {
+            return node;
+        }
+        report.incMetric("Fused cell-wise chain", 1);
+        return new TensorFunctionNode(fused.get());
+    }
+
+    private static boolean isFusable(TensorFunction<Reference> function) {
+        return function instanceof Map || function instanceof Join || function instanceof Reduce;
+    }
+
+    /** Replaces arguments which are maps or joins by the functions themselves */
+    private static TensorFunction<Reference> unwrapFusable(TensorFunction<Reference> function) {
+        List<TensorFunction<Reference>> arguments = new ArrayList<>();
+        for (TensorFunction<Reference> argument : function.arguments()) {
+            if (argument instanceof TensorFunctionNode.ExpressionTensorFunction wrapper
+                && wrapper.wrappedExpression() instanceof TensorFunctionNode child
+                && (child.function() instanceof Map || child.function() instanceof Join))
+                arguments.add(unwrapFusable(child.function()));
+            else
+                arguments.add(argument);
+        }
+        return function.withArguments(arguments);
+    }
+
     /**
      * Recognized a reduce followed by a join. In many cases, chunking these
      * two operations together is significantly more efficient than evaluating
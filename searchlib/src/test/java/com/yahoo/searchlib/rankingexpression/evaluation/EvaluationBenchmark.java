@@ -3,13 +3,16 @@ package com.yahoo.searchlib.rankingexpression.evaluation;
 
 import com.yahoo.io.IOUtils;
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.compilation.ExpressionCompiler;
 import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTOptimizer;
 import com.yahoo.searchlib.rankingexpression.parser.ParseException;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Two small benchmarks of ranking expression evaluation
@@ -22,7 +25,7 @@ public class EvaluationBenchmark {
         try {
             //runNativeComparison(100*1000*1000);
 
-            // benchmark with a large gbdt: Expected tree and forest speedup: 2x, 4x
+            // benchmark with a large gbdt: Expected tree and forest speedup: 2x, 4x, compiling without the gbdt optimizations comparable to tree
             runGBDT(1000*1000, gbdt);
 
             // benchmark with a large gbdt using set membership tests (on integers) extensively
@@ -152,6 +155,65 @@ public class EvaluationBenchmark {
         double forestTotal=benchmark(forestOptimized,forestContext,iterations,"Forest optimized");
         assertEqualish(total,forestTotal);
         System.out.println("-----------------------------------------------------------------------------------------------------");
+
+        // Compiled...................
+        RankingExpression compiled = new RankingExpression(gbdtString);
+        DoubleOnlyArrayContext compiledContext = new DoubleOnlyArrayContext(compiled, true);
+        ExpressionOptimizer compiler = new ExpressionOptimizer();
+        compiler.getOptimizer(GBDTOptimizer.class).setEnabled(false);
+        compiler.getOptimizer(GBDTForestOptimizer.class).setEnabled(false);
+        compiler.getOptimizer(ExpressionCompiler.class).setEnabled(true);
+        System.out.print("Compiling ... ");
+        OptimizationReport compilationReport = compiler.optimize(compiled, compiledContext);
+        System.out.println("done");
+        System.out.println(compilationReport);
+        double compiledTotal = benchmark(compiled, compiledContext, iterations, "Compiled");
+        assertEqualish(total, compiledTotal);
+        System.out.println("-----------------------------------------------------------------------------------------------------");
+
+        // Forest batch evaluated...................
+        RankingExpression batchEvaluated = new RankingExpression(gbdtString);
+        List<String> features = List.copyOf(new DoubleOnlyArrayContext(batchEvaluated, true).names());
+        GBDTForestEvaluator evaluator = GBDTForestEvaluator.of(batchEvaluated, features).get();
+        double batchTotal = benchmarkBatches(evaluator, features, iterations, "Forest batch evaluated");
+        assertEqualish(total, batchTotal);
+        System.out.println("-----------------------------------------------------------------------------------------------------");
+    }
+
+    private double benchmarkBatches(GBDTForestEvaluator evaluator, List<String> features, int iterations, String description) {
+        oul("Running '" + description + "':");
+        out("   Warming up ...");
+        double total=0;
+        total+=benchmarkBatchIterations(evaluator, features, iterations/5);
+        oul("done");
+
+        out("   Running " + iterations + " of '" + description + "' ...");
+        long tStartTime=System.currentTimeMillis();
+        total+=benchmarkBatchIterations(evaluator, features, iterations);
+        long totalTime=System.currentTimeMillis()-tStartTime;
+        oul("done");
+        oul("   Total time running '" + description + "': " + totalTime + " ms (" + totalTime*1000/iterations + " microseconds/expression)");
+        return total;
+    }
+
+    private double benchmarkBatchIterations(GBDTForestEvaluator evaluator, List<String> features, int iterations) {
+        // Binds the same values as benchmarkIterations, in batches of the size of a typical rerank phase
+        int batchSize = 500;
+        int ratio = features.indexOf("LW_NEWS_SEARCHES_RATIO");
+        int users = features.indexOf("NEWS_USERS");
+        int catid = features.indexOf("catid");
+        double total=0;
+        for (int i=0; i<iterations; i+=batchSize) {
+            double[][] vectors = new double[Math.min(batchSize, iterations - i)][features.size()];
+            for (int j=0; j<vectors.length; j++) {
+                if (ratio >= 0) vectors[j][ratio] = i+j;
+                if (users >= 0) vectors[j][users] = (double)(i+j)/1000*1000;
+                if (catid >= 0) vectors[j][catid] = 100300102;
+            }
+            for (double score : evaluator.evaluate(vectors))
+                total+=score;
+        }
+        return total;
     }
 
     private double benchmark(RankingExpression gbdt, Context context, int iterations, String description) {
@@ -0,0 +1,96 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author bratseth
+ */
+public class GBDTForestEvaluatorTestCase {
+
+    private static final String forest =
+            "if (a < 0.5, if (b < 1.5, 1.0, 2.0), if (c in [0.0, 1.0, 3.0], 3.0, -4.0)) + " +
+            "if (b < 0.7, 5.0, if (a < 0.2, 6.0, if (!(c >= 2.0), 7.0, 8.5))) + " +
+            "if (c == 2.0, 0.25, if (d < 1.0, -0.5, 0.125))";
+
+    private final List<String> features = List.of("d", "c", "b", "a", "unused");
+    private final Random random = new Random(1);
+
+    @Test
+    public void testBatchEvaluationIsEquivalentToExpressionEvaluation() throws ParseException {
+        double[][] vectors = vectors(200);
+        GBDTForestEvaluator evaluator = GBDTForestEvaluator.of(new RankingExpression(forest), features).get();
+        assertEquals(3, evaluator.treeCount());
+        assertScores(vectors, new RankingExpression(forest), evaluator.evaluate(vectors));
+        for (double[] vector : vectors)
+            assertEquals(evaluate(new RankingExpression(forest), vector), evaluator.evaluate(vector), 0);
+    }
+
+    @Test
+    public void testEvaluatorOfOptimizedExpression() throws ParseException {
+        RankingExpression expression = new RankingExpression(forest);
+        ArrayContext context = new ArrayContext(expression);
+        new ExpressionOptimizer().optimize(expression, context);
+        assertTrue(expression.getRoot() instanceof GBDTForestNode);
+
+        double[][] vectors = vectors(100);
+        assertScores(vectors, new RankingExpression(forest),
+                     GBDTForestEvaluator.of(expression, context, features).get().evaluate(vectors));
+    }
+
+    @Test
+    public void testSingleTree() throws ParseException {
+        String tree = "if (a < 0.5, if (b < 1.5, 1.0, 2.0), 3.0)";
+        double[][] vectors = vectors(10);
+        assertScores(vectors, new RankingExpression(tree),
+                     GBDTForestEvaluator.of(new RankingExpression(tree), features).get().evaluate(vectors));
+    }
+
+    @Test
+    public void testNonForests() throws ParseException {
+        assertFalse(GBDTForestEvaluator.of(new RankingExpression("a + b"), features).isPresent());
+        assertFalse(GBDTForestEvaluator.of(new RankingExpression("if (a < 0.5, 1, 2) * 3"), features).isPresent());
+        try {
+            GBDTForestEvaluator.of(new RankingExpression(forest), List.of("a", "b", "c"));
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("The trees test a feature which is not among [a, b, c]", e.getMessage());
+        }
+    }
+
+    private void assertScores(double[][] vectors, RankingExpression expression, double[] scores) {
+        assertEquals(vectors.length, scores.length);
+        for (int i = 0; i < vectors.length; i++)
+            assertEquals("Vector " + i, evaluate(expression, vectors[i]), scores[i], 0);
+    }
+
+    private double evaluate(RankingExpression expression, double[] vector) {
+        MapContext context = new MapContext();
+        for (int i = 0; i < features.size(); i++)
+            context.put(features.get(i), vector[i]);
+        return expression.evaluate(context).asDouble();
+    }
+
+    private double[][] vectors(int count) {
+        double[][] vectors = new double[count][];
+        for (int i = 0; i < count; i++) {
+            vectors[i] = new double[features.size()];
+            for (int j = 0; j < features.size(); j++)
+                vectors[i][j] = random.nextInt(3) == 0 ? random.nextInt(4) : random.nextDouble() * 2;
+        }
+        return vectors;
+    }
+
+}
@@ -0,0 +1,170 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.compilation;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.ArrayContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleOnlyArrayContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.OptimizationReport;
+import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import com.yahoo.tensor.Tensor;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class ExpressionCompilerTestCase {
+
+    private static final double delta = 1e-12;
+
+    @Test
+    public void testCompiledEvaluationIsEquivalentToInterpretation() throws ParseException {
+        assertCompiled("a + b * c - a / b", 1);
+        assertCompiled("a - b - c + 2 ^ a ^ 0.5 % 3", 1);
+        assertCompiled("-(a + b) * !(c > 1) + (a == b) + (a != b) + (a <= b && b >= c || c < a)", 1);
+        assertCompiled("if (a < b, if (c in [1, 2, 3.5], 10, 20), a ~= b)", 1);
+        assertCompiled("max(a, b) + sqrt(c) + log(a * b) + pow(a, 2) + fmod(c, a) + isNan(a)", 1);
+        assertCompiled("if (a < 0.5, if (b < 1.5, 1.0, 2.0), if (c in [0.0, 1.0], 3.0, 4.0)) + " +
+                       "if (b < 0.7, 5.0, if (a < 0.2, 6.0, 7.0))", 1);
+    }
+
+    @Test
+    public void testCompilingGbdtNodes() throws ParseException {
+        String gbdt = "if (a < 0.5, if (b < 1.5, 1.0, 2.0), if (c in [0.0, 1.0], 3.0, 4.0)) + " +
+                      "if (b < 0.7, 5.0, if (a < 0.2, 6.0, 7.0))";
+        for (double a : new double[] { 0.1, 0.3, 1.0 }) {
+            for (double b : new double[] { 0.5, 1.0, 2.0 }) {
+                for (double c : new double[] { 0.0, 1.0, 2.0 }) {
+                    RankingExpression expression = new RankingExpression(gbdt);
+                    DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression, true);
+                    context.put("a", a);
+                    context.put("b", b);
+                    context.put("c", c);
+                    double expected = expression.evaluate(context).asDouble();
+
+                    ExpressionOptimizer optimizer = new ExpressionOptimizer();
+                    optimizer.getOptimizer(ExpressionCompiler.class).setEnabled(true);
+                    OptimizationReport report = optimizer.optimize(expression, context);
+                    assertEquals(1, report.getMetric("Compiled expressions"));
+                    assertEquals(expected, expression.evaluate(context).asDouble(), delta);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTensorsAreInterpreted() throws ParseException {
+        RankingExpression expression = new RankingExpression("reduce(t * (a + 1), sum) + (a * b)");
+        ArrayContext context = new ArrayContext(expression);
+        context.put("t", new TensorValue(Tensor.from("tensor(x[3]):[1,2,3]")));
+        context.put("a", 2);
+        context.put("b", 3);
+        String serialized = expression.toString();
+        double expected = expression.evaluate(context).asDouble();
+
+        OptimizationReport report = compile(expression, context);
+        assertEquals(2, report.getMetric("Compiled expressions"));
+        assertEquals(serialized, expression.toString());
+        assertEquals(expected, expression.evaluate(context).asDouble(), delta);
+    }
+
+    @Test
+    public void testFallsBackToInterpretationOfNonDoubleValues() throws ParseException {
+        RankingExpression expression = new RankingExpression("a * 2 + b");
+        ArrayContext context = new ArrayContext(expression);
+        context.put("a", 2);
+        context.put("b", 3);
+        compile(expression, context);
+        assertTrue(expression.getRoot() instanceof CompiledExpressionNode);
+        assertEquals(7, expression.evaluate(context).asDouble(), delta);
+
+        context.put("a", new TensorValue(Tensor.from("tensor(x[2]):[1,2]")));
+        assertEquals(Tensor.from("tensor(x[2]):[5,7]"), expression.evaluate(context).asTensor());
+        context.put("a", 3);
+        assertEquals(9, expression.evaluate(context).asDouble(), delta);
+    }
+
+    @Test
+    public void testFallsBackToInterpretationOnlyForTheEvaluationWithNonDoubleValues() throws ParseException {
+        RankingExpression expression = new RankingExpression("a * 2 + b");
+        ArrayContext context = new ArrayContext(expression);
+        context.put("a", 2);
+        context.put("b", 3);
+        compile(expression, context);
+        int[] a = { context.getIndex("a") };
+        int[] ab = { context.getIndex("a"), context.getIndex("b") };
+        assertTrue(context.hasDoubles(ab));
+
+        context.put("b", new TensorValue(Tensor.from("tensor(x[2]):[1,2]")));
+        assertFalse(context.hasDoubles(ab));
+        assertTrue(context.hasDoubles(a));
+        assertEquals(Tensor.from("tensor(x[2]):[5,6]"), expression.evaluate(context).asTensor());
+
+        context.put("b", 4);
+        assertTrue(context.hasDoubles(ab));
+        assertEquals(8, expression.evaluate(context).asDouble(), delta);
+        assertTrue(expression.getRoot() instanceof CompiledExpressionNode);
+    }
+
+    @Test
+    public void testNaNIsEvaluatedAsADouble() throws ParseException {
+        RankingExpression expression = new RankingExpression("a * 2 + b");
+        ArrayContext context = new ArrayContext(expression);
+        context.put("a", Double.NaN);
+        context.put("b", 3);
+        compile(expression, context);
+        assertTrue(context.hasDoubles(new int[] { context.getIndex("a"), context.getIndex("b") }));
+        assertTrue(Double.isNaN(context.getDouble(context.getIndex("a"))));
+        assertTrue(Double.isNaN(expression.evaluate(context).asDouble()));
+    }
+
+    @Test
+    public void testUnboundReferencesAreNotCompiled() throws ParseException {
+        RankingExpression expression = new RankingExpression("a + b");
+        ArrayContext context = new ArrayContext(new RankingExpression("a"));
+        context.put("a", 2);
+        compile(expression, context);
+        assertTrue( ! (expression.getRoot() instanceof CompiledExpressionNode));
+    }
+
+    @Test
+    public void testDisabledByDefault() throws ParseException {
+        RankingExpression expression = new RankingExpression("a + b");
+        new ExpressionOptimizer().optimize(expression, new ArrayContext(expression));
+        assertEquals("a + b", expression.toString());
+        assertTrue( ! (expression.getRoot() instanceof CompiledExpressionNode));
+    }
+
+    private void assertCompiled(String expressionString, int compiledExpressions) throws ParseException {
+        for (double a : new double[] { 0.1, 1.0, 2.0 }) {
+            for (double b : new double[] { 0.5, 1.0, 3.5 }) {
+                for (double c : new double[] { 1.0, 2.0, 3.5 }) {
+                    RankingExpression expression = new RankingExpression(expressionString);
+                    ArrayContext context = new ArrayContext(expression);
+                    context.put("a", a);
+                    context.put("b", b);
+                    context.put("c", c);
+                    double expected = expression.evaluate(context).asDouble();
+
+                    OptimizationReport report = compile(expression, context);
+                    assertEquals(compiledExpressions, report.getMetric("Compiled expressions"));
+                    assertTrue(expression.getRoot() instanceof CompiledExpressionNode);
+                    assertEquals(expressionString + " with a=" + a + ", b=" + b + ", c=" + c,
+                                 expected, expression.evaluate(context).asDouble(), delta);
+                }
+            }
+        }
+    }
+
+    private OptimizationReport compile(RankingExpression expression, ArrayContext context) {
+        ExpressionOptimizer optimizer = new ExpressionOptimizer();
+        optimizer.getOptimizer(ExpressionCompiler.class).setEnabled(true);
+        return optimizer.optimize(expression, context);
+    }
+
+}
@@ -10,11 +10,13 @@ import com.yahoo.searchlib.rankingexpression.parser.ParseException;
 import com.yahoo.searchlib.rankingexpression.rule.TensorFunctionNode;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.functions.FusedCellwise;
 import com.yahoo.tensor.functions.Reduce;
 import com.yahoo.tensor.functions.ReduceJoin;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author lesters
@@ -52,6 +54,31 @@ public class TensorOptimizerTestCase {
         assertCantOptimize("d0[1],d1[2],d2[3]", "d0[1],d1[2],d2[3]", "d1,d2");  // reducing on less then joining on
     }
 
+    @Test
+    public void testCellwiseChainFusion() throws ParseException {
+        String squaredDistance = "reduce(map(join(a, b, f(a,b)(a - b)), f(x)(x * x)), sum, d1)";
+        assertFused(squaredDistance, "tensor(d0[2],d1[3])", "tensor(d0[2],d1[3])");
+        assertFused(squaredDistance, "tensor<float>(d1[5])", "tensor<float>(d1[5])");
+        assertFused(squaredDistance, "tensor(d1[3])", "tensor(d0[2],d1[3])"); // evaluated as reduce-join
+        assertFused("map(join(join(a, b, f(a,b)(a + b)), a, f(a,b)(a * b)), f(x)(sqrt(x)))", "tensor(d0[4])", "tensor(d0[4])");
+        assertFused("reduce(map(join(a, b, f(a,b)(a * b)), f(x)(x * x)), max)", "tensor<float>(d0[2],d1[3])", "tensor<float>(d0[2],d1[3])");
+    }
+
+    private void assertFused(String expressionString, String aType, String bType) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        ArrayContext context = generateContext(Tensor.random(TensorType.fromSpec(aType)),
+                                               Tensor.random(TensorType.fromSpec(bType)),
+                                               expression);
+        Tensor result = expression.evaluate(context).asTensor();
+        String serialized = expression.toString();
+
+        OptimizationReport report = new ExpressionOptimizer().optimize(expression, context);
+        assertEquals(1, report.getMetric("Fused cell-wise chain"));
+        assertTrue(((TensorFunctionNode)expression.getRoot()).function() instanceof FusedCellwise);
+        assertEquals(serialized, expression.toString());
+        assertEquals(result, expression.evaluate(context).asTensor());
+    }
+
     private void assertWillOptimize(String aType, String bType) throws ParseException {
         assertWillOptimize(aType, bType, "", "sum");
     }
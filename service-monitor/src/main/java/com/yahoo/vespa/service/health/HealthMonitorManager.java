@@ -1,9 +1,11 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.service.health;
 
+import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.config.model.api.ApplicationInfo;
 import com.yahoo.config.provision.ApplicationId;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.vespa.applicationmodel.ClusterId;
 import com.yahoo.vespa.applicationmodel.ConfigId;
 import com.yahoo.vespa.applicationmodel.ServiceStatus;
@@ -26,50 +28,53 @@ import java.util.concurrent.ConcurrentHashMap;
  *
  * @author hakon
  */
-public class HealthMonitorManager implements MonitorManager, HealthMonitorApi {
-    // Weight the following against each other:
-    //  - The number of threads N working on health checking
-    //  - The health request timeout T
-    //  - The max staleness S of the health of an endpoint
-    //  - The ideal staleness I of the health of an endpoint
-    //
-    // The largest zone is main.prod.us-west-1:
-    //  - 314 tenant host admins
-    //  - 7 proxy host admins
-    //  - 3 config host admins
-    //  - 3 config servers
-    // for a total of E = 327 endpoints
-    private static final int MAX_ENDPOINTS = 500;
+public class HealthMonitorManager extends AbstractComponent implements MonitorManager, HealthMonitorApi {
+    // The health requests are asynchronous, so the threads only start requests, and wait for
+    // a permit when MAX_CONCURRENT_REQUESTS requests are in flight. Each endpoint is polled every
+    // TARGET_HEALTH_STALENESS, over one persistent connection, so with a request timeout T and E endpoints,
+    // E * T / TARGET_HEALTH_STALENESS requests are in flight when all endpoints time out.
+    // With T = 1s and E = 10000 endpoints, that is 1000 requests.
+    private static final int MAX_CONCURRENT_REQUESTS = 1000;
+    private static final int MAX_CONNECTIONS = 20000;
     private static final Duration HEALTH_REQUEST_TIMEOUT = Duration.ofSeconds(1);
     private static final Duration TARGET_HEALTH_STALENESS = Duration.ofSeconds(10);
-    private static final Duration MAX_HEALTH_STALENESS = Duration.ofSeconds(60);
-    static final int THREAD_POOL_SIZE = (int) Math.ceil(MAX_ENDPOINTS * HEALTH_REQUEST_TIMEOUT.toMillis() / (double) MAX_HEALTH_STALENESS.toMillis());
+    static final int THREAD_POOL_SIZE = 1;
 
-    // Keep connections alive 60 seconds (>=MAX_HEALTH_STALENESS) if a keep-alive value has not be
-    // explicitly set by the server.
+    // Keep idle connections alive 60 seconds (>= TARGET_HEALTH_STALENESS).
     private static final Duration KEEP_ALIVE = Duration.ofSeconds(60);
 
     private final ConcurrentHashMap<ApplicationId, ApplicationHealthMonitor> healthMonitors = new ConcurrentHashMap<>();
     private final DuperModelManager duperModel;
     private final ApplicationHealthMonitorFactory applicationHealthMonitorFactory;
+    private final Runnable closeHealthModel;
 
     @Inject
-    public HealthMonitorManager(DuperModelManager duperModel) {
+    public HealthMonitorManager(DuperModelManager duperModel, Metric metric) {
         this(duperModel, new StateV1HealthModel(TARGET_HEALTH_STALENESS,
-                                                HEALTH_REQUEST_TIMEOUT,
-                                                KEEP_ALIVE,
+                                                new StateV1HealthPoller(HEALTH_REQUEST_TIMEOUT,
+                                                                        KEEP_ALIVE,
+                                                                        MAX_CONNECTIONS,
+                                                                        MAX_CONCURRENT_REQUESTS,
+                                                                        metric),
                                                 new RunletExecutorImpl(THREAD_POOL_SIZE)));
     }
 
     private HealthMonitorManager(DuperModelManager duperModel, StateV1HealthModel healthModel) {
-        this(duperModel, id -> new ApplicationHealthMonitor(id, healthModel));
+        this(duperModel, id -> new ApplicationHealthMonitor(id, healthModel), healthModel::close);
     }
 
     /** Default access due to testing. */
     HealthMonitorManager(DuperModelManager duperModel,
                          ApplicationHealthMonitorFactory applicationHealthMonitorFactory) {
+        this(duperModel, applicationHealthMonitorFactory, () -> { });
+    }
+
+    private HealthMonitorManager(DuperModelManager duperModel,
+                                 ApplicationHealthMonitorFactory applicationHealthMonitorFactory,
+                                 Runnable closeHealthModel) {
         this.duperModel = duperModel;
         this.applicationHealthMonitorFactory = applicationHealthMonitorFactory;
+        this.closeHealthModel = closeHealthModel;
     }
 
     @Override
@@ -93,6 +98,12 @@ public class HealthMonitorManager implements MonitorManager, HealthMonitorApi {
     public void bootstrapComplete() {
     }
 
+    @Override
+    public void deconstruct() {
+        healthMonitors.keySet().forEach(this::applicationRemoved);
+        closeHealthModel.run();
+    }
+
     @Override
     public ServiceStatusInfo getStatus(ApplicationId applicationId,
                                        ClusterId clusterId,
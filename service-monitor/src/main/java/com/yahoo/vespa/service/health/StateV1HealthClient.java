@@ -2,18 +2,14 @@
 package com.yahoo.vespa.service.health;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.util.logging.Level;
-import org.apache.http.HttpEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.util.EntityUtils;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
 
 import java.io.IOException;
-import java.net.URL;
+import java.net.URI;
 import java.time.Duration;
-import java.util.function.Function;
-import java.util.logging.Logger;
-
-import static com.yahoo.yolean.Exceptions.uncheck;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * A thread-unsafe /state/v1/health endpoint client.
@@ -22,38 +18,52 @@ import static com.yahoo.yolean.Exceptions.uncheck;
  */
 public class StateV1HealthClient implements AutoCloseable {
 
-    private static final long MAX_CONTENT_LENGTH = 1L << 20; // 1 MB
     private static final ObjectMapper MAPPER = new ObjectMapper();
-    private static final Logger logger = Logger.getLogger(StateV1HealthClient.class.getName());
-    private final ApacheHttpClient httpClient;
-    private final Function<HttpEntity, String> getContentFunction;
 
-    StateV1HealthClient(URL url, Duration requestTimeout, Duration connectionKeepAlive) {
-        this(new ApacheHttpClient(url, requestTimeout, connectionKeepAlive),
-                entity -> uncheck(() -> EntityUtils.toString(entity)));
-    }
+    private final URI uri;
+    private final Duration interval;
+    private final StateV1HealthPoller poller;
+    private Instant previousRequest = null;
 
-    StateV1HealthClient(ApacheHttpClient apacheHttpClient, Function<HttpEntity, String> getContentFunction) {
-        httpClient = apacheHttpClient;
-        this.getContentFunction = getContentFunction;
+    /**
+     * @param uri the health endpoint
+     * @param interval the target interval between requests, which is used to report poll lag
+     * @param poller the poller to send requests through
+     */
+    StateV1HealthClient(URI uri, Duration interval, StateV1HealthPoller poller) {
+        this.uri = uri;
+        this.interval = interval;
+        this.poller = poller;
     }
 
-    HealthInfo get() throws Exception {
-        return httpClient.get(this::handle);
+    /** Sends a health request, and returns the future result, which is never completed exceptionally. */
+    CompletableFuture<HealthInfo> get() {
+        Instant now = Instant.now();
+        if (previousRequest != null) {
+            poller.reportPollLag(Duration.between(previousRequest, now).minus(interval));
+        }
+        previousRequest = now;
+
+        return poller.get(uri).handle((response, exception) -> {
+            if (exception != null) return HealthInfo.fromException(unwrap(exception));
+            try {
+                return handle(response);
+            } catch (Exception e) {
+                return HealthInfo.fromException(e);
+            }
+        });
     }
 
-    private HealthInfo handle(CloseableHttpResponse httpResponse) throws IOException {
-        int httpStatusCode = httpResponse.getStatusLine().getStatusCode();
+    static HealthInfo handle(SimpleHttpResponse httpResponse) throws IOException {
+        int httpStatusCode = httpResponse.getCode();
         if (httpStatusCode < 200 || httpStatusCode >= 300) {
             return HealthInfo.fromBadHttpStatusCode(httpStatusCode);
         }
 
-        HttpEntity bodyEntity = httpResponse.getEntity();
-        long contentLength = bodyEntity.getContentLength();
-        if (contentLength > MAX_CONTENT_LENGTH) {
-            throw new IllegalArgumentException("Content too long: " + contentLength + " bytes");
+        byte[] body = httpResponse.getBodyBytes();
+        if (body == null) {
+            throw new IllegalArgumentException("Response has no content");
         }
-        String body = getContentFunction.apply(bodyEntity);
         HealthResponse healthResponse = MAPPER.readValue(body, HealthResponse.class);
 
         if (healthResponse.status == null || healthResponse.status.code == null) {
@@ -63,13 +73,15 @@ public class StateV1HealthClient implements AutoCloseable {
         }
     }
 
-    @Override
-    public void close() {
-        try {
-            httpClient.close();
-        } catch (Exception e) {
-            logger.log(Level.WARNING, "Failed to close CloseableHttpClient", e);
+    private static Exception unwrap(Throwable throwable) {
+        while (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
         }
+        return throwable instanceof Exception exception ? exception : new RuntimeException(throwable);
     }
 
+    /** Does nothing, as the connection to the endpoint is owned by the poller. */
+    @Override
+    public void close() { }
+
 }
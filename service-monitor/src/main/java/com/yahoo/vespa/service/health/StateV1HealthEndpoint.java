@@ -16,24 +16,21 @@ import static com.yahoo.yolean.Exceptions.uncheck;
 class StateV1HealthEndpoint implements HealthEndpoint {
     private final ServiceId serviceId;
     private final URL url;
-    private final Duration requestTimeout;
-    private final Duration connectionKeepAlive;
     private final Duration delay;
+    private final StateV1HealthPoller poller;
     private final RunletExecutor executor;
 
     StateV1HealthEndpoint(ServiceId serviceId,
                           DomainName hostname,
                           int port,
                           Duration delay,
-                          Duration requestTimeout,
-                          Duration connectionKeepAlive,
+                          StateV1HealthPoller poller,
                           RunletExecutor executor) {
         this.serviceId = serviceId;
         this.delay = delay;
+        this.poller = poller;
         this.executor = executor;
         this.url = uncheck(() -> new URL("http", hostname.value(), port, "/state/v1/health"));
-        this.requestTimeout = requestTimeout;
-        this.connectionKeepAlive = connectionKeepAlive;
     }
 
     @Override
@@ -43,7 +40,7 @@ class StateV1HealthEndpoint implements HealthEndpoint {
 
     @Override
     public HealthMonitor startMonitoring() {
-        var updater = new StateV1HealthUpdater(url, requestTimeout, connectionKeepAlive);
+        var updater = new StateV1HealthUpdater(url, delay, poller);
         return new StateV1HealthMonitor(updater, executor, delay);
     }
 
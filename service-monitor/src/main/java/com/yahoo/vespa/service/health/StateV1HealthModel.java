@@ -27,17 +27,14 @@ public class StateV1HealthModel implements AutoCloseable {
     /** Port tags implying /state/v1/health is served on HTTP. */
     public static final List<String> HTTP_HEALTH_PORT_TAGS = List.of(PORT_TAG_HTTP, PORT_TAG_STATE);
     private final Duration targetHealthStaleness;
-    private final Duration requestTimeout;
-    private final Duration connectionKeepAlive;
+    private final StateV1HealthPoller poller;
     private final RunletExecutor executor;
 
     StateV1HealthModel(Duration targetHealthStaleness,
-                       Duration requestTimeout,
-                       Duration connectionKeepAlive,
+                       StateV1HealthPoller poller,
                        RunletExecutor executor) {
         this.targetHealthStaleness = targetHealthStaleness;
-        this.requestTimeout = requestTimeout;
-        this.connectionKeepAlive = connectionKeepAlive;
+        this.poller = poller;
         this.executor = executor;
     }
 
@@ -55,8 +52,7 @@ public class StateV1HealthModel implements AutoCloseable {
                                 hostname,
                                 portInfo.getPort(),
                                 targetHealthStaleness,
-                                requestTimeout,
-                                connectionKeepAlive,
+                                poller,
                                 executor);
                         endpoints.put(serviceId, endpoint);
                         break; // Avoid >1 endpoints per serviceId
@@ -83,5 +79,6 @@ public class StateV1HealthModel implements AutoCloseable {
     @Override
     public void close() {
         executor.close();
+        poller.close();
     }
 }
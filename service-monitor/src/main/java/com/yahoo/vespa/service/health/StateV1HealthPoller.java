@@ -0,0 +1,194 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.service.health;
+
+import ai.vespa.util.http.hc5.VespaAsyncHttpClientBuilder;
+import com.yahoo.jdisc.Metric;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.nio.AsyncClientConnectionManager;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentTooLongException;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.ByteArrayBuffer;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sends the /state/v1/health requests of all monitored endpoints through a single, asynchronous HTTP client,
+ * such that a thread is only needed to start each request, and not for waiting for the response.
+ *
+ * <p>Each endpoint gets at most one persistent connection, which is HTTP/2 if the server supports it over TLS.
+ * Connections are pooled per scheme, host and port, as that is what a connection is to: Services on the same
+ * host listen on different ports, so each of them gets a connection of its own.
+ * The number of concurrent requests is bounded: Requests wait for a permit before they are sent, which
+ * delays the periodic polling of other endpoints, and is reported as poll lag.</p>
+ *
+ * <p>Response bodies larger than {@link #MAX_RESPONSE_BYTES} fail the request as soon as that is known,
+ * from the Content-Length header or while reading, so they are never buffered in full.</p>
+ *
+ * @author hakonhall
+ */
+class StateV1HealthPoller implements AutoCloseable {
+
+    static final String POLL_LAG_METRIC = "serviceModel.health.pollLag";
+    static final String REQUESTS_IN_FLIGHT_METRIC = "serviceModel.health.requestsInFlight";
+    static final int MAX_RESPONSE_BYTES = 1 << 20; // 1 MB
+
+    private final CloseableHttpAsyncClient httpClient;
+    private final int maxConcurrentRequests;
+    private final Semaphore requestPermits;
+    private final Metric metric;
+
+    StateV1HealthPoller(Duration requestTimeout, Duration connectionKeepAlive,
+                        int maxConnections, int maxConcurrentRequests, Metric metric) {
+        this(makeHttpClient(requestTimeout, connectionKeepAlive, maxConnections), maxConcurrentRequests, metric);
+        httpClient.start();
+    }
+
+    StateV1HealthPoller(CloseableHttpAsyncClient httpClient, int maxConcurrentRequests, Metric metric) {
+        this.httpClient = httpClient;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.requestPermits = new Semaphore(maxConcurrentRequests);
+        this.metric = metric;
+    }
+
+    static CloseableHttpAsyncClient makeHttpClient(Duration timeout, Duration keepAlive, int maxConnections) {
+        return VespaAsyncHttpClientBuilder
+                .create(tlsStrategy -> makeConnectionManager(tlsStrategy, timeout, maxConnections))
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setIoThreadCount(2)
+                        .setSoTimeout(Timeout.of(timeout))
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(timeout)) // connection from connection manager
+                        .setResponseTimeout(Timeout.of(timeout)) // waiting for data
+                        .build())
+                .evictIdleConnections(TimeValue.of(keepAlive))
+                .disableAutomaticRetries()
+                .setUserAgent("service-monitor")
+                .build();
+    }
+
+    private static AsyncClientConnectionManager makeConnectionManager(TlsStrategy tlsStrategy, Duration timeout, int maxConnections) {
+        return PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(1) // A single, persistent connection per endpoint, i.e., per host and port
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(timeout)) // establishment of connection
+                        .build())
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(HttpVersionPolicy.NEGOTIATE) // HTTP/2 if the server supports it
+                        .build())
+                .setTlsStrategy(tlsStrategy)
+                .build();
+    }
+
+    /** Sends a GET request to the given URI, once there are less than the max number of requests in flight. */
+    CompletableFuture<SimpleHttpResponse> get(URI uri) {
+        SimpleHttpRequest request = SimpleRequestBuilder.get(uri).build();
+        CompletableFuture<SimpleHttpResponse> response = new CompletableFuture<>();
+        requestPermits.acquireUninterruptibly();
+        CompletableFuture<SimpleHttpResponse> result = response.whenComplete((__, ___) -> requestPermits.release());
+        metric.set(REQUESTS_IN_FLIGHT_METRIC, maxConcurrentRequests - requestPermits.availablePermits(), null);
+        try {
+            httpClient.execute(SimpleRequestProducer.create(request), new BoundedResponseConsumer(MAX_RESPONSE_BYTES), new FutureCallback<>() {
+                @Override public void completed(SimpleHttpResponse result) { response.complete(result); }
+                @Override public void failed(Exception e) { response.completeExceptionally(e); }
+                @Override public void cancelled() { response.cancel(false); }
+            });
+        } catch (RuntimeException e) {
+            response.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /** Reports how much later than targeted an endpoint was polled. */
+    void reportPollLag(Duration lag) {
+        metric.set(POLL_LAG_METRIC, Math.max(0, lag.toMillis()) / 1000.0, null);
+    }
+
+    @Override
+    public void close() {
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+
+    /** Buffers the body of a response, but fails as soon as it is known to be longer than a given number of bytes. */
+    static class BoundedResponseConsumer extends AbstractBinResponseConsumer<SimpleHttpResponse> {
+
+        private final int maxBytes;
+        private HttpResponse response;
+        private ContentType contentType;
+        private ByteArrayBuffer body;
+
+        BoundedResponseConsumer(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        protected void start(HttpResponse response, ContentType contentType) throws IOException {
+            Header contentLength = response.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+            if (contentLength != null) {
+                try {
+                    long length = Long.parseLong(contentLength.getValue().trim());
+                    if (length > maxBytes) throw new ContentTooLongException("Content too long: " + length + " bytes");
+                } catch (NumberFormatException e) {
+                    // Leave it to the reading of the body
+                }
+            }
+            this.response = response;
+            this.contentType = contentType;
+            this.body = new ByteArrayBuffer(1024);
+        }
+
+        @Override
+        protected int capacityIncrement() {
+            return maxBytes;
+        }
+
+        @Override
+        protected void data(ByteBuffer data, boolean endOfStream) throws IOException {
+            if (body.length() + data.remaining() > maxBytes) {
+                throw new ContentTooLongException("Content too long: more than " + maxBytes + " bytes");
+            }
+            body.append(data);
+        }
+
+        @Override
+        protected SimpleHttpResponse buildResult() {
+            SimpleHttpResponse result = SimpleHttpResponse.copy(response);
+            if (body.length() > 0) {
+                result.setBody(body.toByteArray(), contentType);
+            }
+            return result;
+        }
+
+        @Override
+        public void releaseResources() {
+            body = null;
+        }
+
+    }
+
+}
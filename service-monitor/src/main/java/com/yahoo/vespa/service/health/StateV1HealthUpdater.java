@@ -4,10 +4,12 @@ package com.yahoo.vespa.service.health;
 import com.yahoo.vespa.applicationmodel.ServiceStatus;
 import com.yahoo.vespa.applicationmodel.ServiceStatusInfo;
 
+import java.net.URI;
 import java.net.URL;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -25,9 +27,10 @@ class StateV1HealthUpdater implements HealthUpdater {
     private final StateV1HealthClient healthClient;
 
     private volatile ServiceStatusInfo serviceStatusInfo = new ServiceStatusInfo(ServiceStatus.UNKNOWN);
+    private CompletableFuture<Void> pendingUpdate = CompletableFuture.completedFuture(null);
 
-    StateV1HealthUpdater(URL url, Duration requestTimeout, Duration connectionKeepAlive) {
-        this(url.toString(), new StateV1HealthClient(url, requestTimeout, connectionKeepAlive));
+    StateV1HealthUpdater(URL url, Duration interval, StateV1HealthPoller poller) {
+        this(url.toString(), new StateV1HealthClient(URI.create(url.toString()), interval, poller));
     }
 
     StateV1HealthUpdater(String endpoint, StateV1HealthClient healthClient) {
@@ -40,18 +43,17 @@ class StateV1HealthUpdater implements HealthUpdater {
         return serviceStatusInfo;
     }
 
+    /** Starts a health request, unless the previous one is still in flight, and updates the status when it completes. */
     @Override
     public void run() {
+        if ( ! pendingUpdate.isDone()) return;
+
         // Get time before fetching rather than after, to make the resulting age be an upper limit.
         Instant now = Instant.now();
+        pendingUpdate = healthClient.get().thenAccept(healthInfo -> update(now, healthInfo));
+    }
 
-        HealthInfo healthInfo;
-        try {
-            healthInfo = healthClient.get();
-        } catch (Exception e) {
-            healthInfo = HealthInfo.fromException(e);
-        }
-
+    private void update(Instant now, HealthInfo healthInfo) {
         ServiceStatus newServiceStatus = healthInfo.isHealthy() ? ServiceStatus.UP : ServiceStatus.DOWN;
 
         final Optional<Instant> newSince;
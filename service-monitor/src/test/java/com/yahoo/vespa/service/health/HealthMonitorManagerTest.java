@@ -63,7 +63,7 @@ public class HealthMonitorManagerTest {
 
     @Test
     public void threadPoolSize() {
-        assertEquals(9, HealthMonitorManager.THREAD_POOL_SIZE);
+        assertEquals(1, HealthMonitorManager.THREAD_POOL_SIZE);
     }
 
     @Before
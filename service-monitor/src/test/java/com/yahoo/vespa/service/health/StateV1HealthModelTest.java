@@ -34,13 +34,12 @@ import static org.mockito.Mockito.when;
 public class StateV1HealthModelTest {
     private final RunletExecutor executor = mock(RunletExecutor.class);
     private final Duration healthStaleness = Duration.ofSeconds(1);
-    private final Duration requestTimeout = Duration.ofSeconds(2);
-    private final Duration keepAlive = Duration.ofSeconds(3);
+    private final StateV1HealthPoller poller = mock(StateV1HealthPoller.class);
     private final ProxyHostApplication proxyHostApplication = new ProxyHostApplication();
     private final List<DomainName> hostnames = Stream.of("host1", "host2").map(DomainName::of).toList();
     private final ApplicationInfo proxyHostApplicationInfo = proxyHostApplication.makeApplicationInfo(hostnames);
 
-    private final StateV1HealthModel model = new StateV1HealthModel(healthStaleness, requestTimeout, keepAlive, executor);
+    private final StateV1HealthModel model = new StateV1HealthModel(healthStaleness, poller, executor);
 
     @Test
     public void test() {
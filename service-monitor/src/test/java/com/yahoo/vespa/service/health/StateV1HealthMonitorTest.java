@@ -7,6 +7,7 @@ import com.yahoo.vespa.service.executor.RunletExecutorImpl;
 import org.junit.Test;
 
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
@@ -14,7 +15,7 @@ import static org.mockito.Mockito.when;
 
 public class StateV1HealthMonitorTest {
     @Test
-    public void downThenUpThenDown() throws Exception {
+    public void downThenUpThenDown() {
         StateV1HealthClient client = mock(StateV1HealthClient.class);
 
         StateV1HealthUpdater updater = new StateV1HealthUpdater("https://foo/state/v1/health", client);
@@ -22,12 +23,12 @@ public class StateV1HealthMonitorTest {
         try (StateV1HealthMonitor monitor = new StateV1HealthMonitor(updater, executor, Duration.ofMillis(10))) {
             assertEquals(ServiceStatus.UNKNOWN, monitor.getStatus().serviceStatus());
 
-            when(client.get()).thenReturn(HealthInfo.fromHealthStatusCode(HealthInfo.UP_STATUS_CODE));
+            when(client.get()).thenReturn(CompletableFuture.completedFuture(HealthInfo.fromHealthStatusCode(HealthInfo.UP_STATUS_CODE)));
             while (monitor.getStatus().serviceStatus() != ServiceStatus.UP) {
                 try { Thread.sleep(2); } catch (InterruptedException ignored) { }
             }
 
-            when(client.get()).thenReturn(HealthInfo.fromException(new IllegalStateException("foo")));
+            when(client.get()).thenReturn(CompletableFuture.completedFuture(HealthInfo.fromException(new IllegalStateException("foo"))));
             while (monitor.getStatus().serviceStatus() != ServiceStatus.DOWN) {
                 try { Thread.sleep(2); } catch (InterruptedException ignored) { }
             }
@@ -0,0 +1,121 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.service.health;
+
+import com.sun.net.httpserver.HttpServer;
+import com.yahoo.jdisc.Metric;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author hakonhall
+ */
+public class StateV1HealthPollerTest {
+
+    private final Metric metric = mock(Metric.class);
+    private final CountDownLatch respond = new CountDownLatch(1);
+    private HttpServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/state/v1/health", exchange -> {
+            try {
+                respond.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            byte[] body = "{\"status\": {\"code\": \"up\"}}".getBytes(UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        for (long length : new long[] { StateV1HealthPoller.MAX_RESPONSE_BYTES + 1, 0 }) { // 0 means chunked
+            server.createContext("/" + length + "/state/v1/health", exchange -> {
+                exchange.sendResponseHeaders(200, length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    byte[] chunk = new byte[1 << 16];
+                    for (int written = 0; written <= StateV1HealthPoller.MAX_RESPONSE_BYTES; written += chunk.length) {
+                        out.write(chunk, 0, (int) Math.min(chunk.length, length == 0 ? chunk.length : length - written));
+                    }
+                } catch (IOException e) {
+                    // Client stopped reading
+                }
+            });
+        }
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void requests_are_bounded_and_asynchronous() throws Exception {
+        URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/state/v1/health");
+        try (StateV1HealthPoller poller = new StateV1HealthPoller(Duration.ofSeconds(10), Duration.ofSeconds(60), 10, 1, metric)) {
+            StateV1HealthClient client = new StateV1HealthClient(uri, Duration.ofSeconds(10), poller);
+            CompletableFuture<HealthInfo> first = client.get();
+            assertFalse(first.isDone());
+            verify(metric).set(eq(StateV1HealthPoller.REQUESTS_IN_FLIGHT_METRIC), eq(1), any());
+
+            CompletableFuture<CompletableFuture<HealthInfo>> second = CompletableFuture.supplyAsync(client::get);
+            Thread.sleep(100);
+            assertFalse("Waits for the first request to complete", second.isDone());
+
+            respond.countDown();
+            assertTrue(first.get(10, TimeUnit.SECONDS).isHealthy());
+            assertTrue(second.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS).isHealthy());
+            verify(metric, atLeastOnce()).set(eq(StateV1HealthPoller.POLL_LAG_METRIC), any(), any());
+        }
+    }
+
+    @Test
+    public void too_long_responses_are_not_read() throws Exception {
+        try (StateV1HealthPoller poller = new StateV1HealthPoller(Duration.ofSeconds(10), Duration.ofSeconds(60), 10, 1, metric)) {
+            for (String prefix : new String[] { "/" + (StateV1HealthPoller.MAX_RESPONSE_BYTES + 1), "/0" }) {
+                URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + prefix + "/state/v1/health");
+                HealthInfo info = new StateV1HealthClient(uri, Duration.ofSeconds(10), poller).get().get(10, TimeUnit.SECONDS);
+                assertFalse(info.isHealthy());
+                assertTrue(info.toString(), info.toString().contains("Content too long"));
+            }
+        }
+    }
+
+    @Test
+    public void connection_failure_is_unhealthy() throws Exception {
+        server.stop(0);
+        URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/state/v1/health");
+        try (StateV1HealthPoller poller = new StateV1HealthPoller(Duration.ofSeconds(10), Duration.ofSeconds(60), 10, 1, metric)) {
+            HealthInfo info = new StateV1HealthClient(uri, Duration.ofSeconds(10), poller).get().get(10, TimeUnit.SECONDS);
+            assertFalse(info.isHealthy());
+            assertTrue(info.toString(), info.toString().startsWith("Exception: "));
+            assertEquals(info.toString(), info.getErrorDescription().get());
+        }
+    }
+
+}
@@ -3,23 +3,23 @@ package com.yahoo.vespa.service.health;
 
 import com.yahoo.vespa.applicationmodel.ServiceStatus;
 import com.yahoo.vespa.applicationmodel.ServiceStatusInfo;
-import org.apache.http.HttpEntity;
-import org.apache.http.StatusLine;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.conn.ConnectTimeoutException;
-import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.core5.http.ContentType;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.io.IOException;
 import java.net.URL;
-import java.util.function.Function;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class StateV1HealthUpdaterTest {
@@ -31,7 +31,7 @@ public class StateV1HealthUpdaterTest {
     }
 
     @Test
-    public void successfulRequestResponse() throws IOException {
+    public void successfulRequestResponse() {
         ServiceStatusInfo info = getServiceStatusInfoFromJsonResponse("{\n" +
                 "    \"metrics\": {\n" +
                 "        \"snapshot\": {\n" +
@@ -47,7 +47,7 @@ public class StateV1HealthUpdaterTest {
     }
 
     @Test
-    public void notUpResponse() throws IOException {
+    public void notUpResponse() {
         ServiceStatusInfo info = getServiceStatusInfoFromJsonResponse("{\n" +
                 "    \"metrics\": {\n" +
                 "        \"snapshot\": {\n" +
@@ -63,7 +63,7 @@ public class StateV1HealthUpdaterTest {
     }
 
     @Test
-    public void noCodeInResponse() throws IOException {
+    public void noCodeInResponse() {
         ServiceStatusInfo info = getServiceStatusInfoFromJsonResponse("{\n" +
                 "    \"metrics\": {\n" +
                 "        \"snapshot\": {\n" +
@@ -79,7 +79,7 @@ public class StateV1HealthUpdaterTest {
     }
 
     @Test
-    public void noStatusInResponse() throws IOException {
+    public void noStatusInResponse() {
         ServiceStatusInfo info = getServiceStatusInfoFromJsonResponse("{\n" +
                 "    \"metrics\": {\n" +
                 "        \"snapshot\": {\n" +
@@ -94,41 +94,28 @@ public class StateV1HealthUpdaterTest {
     }
 
     @Test
-    public void badJson() throws IOException {
+    public void badJson() {
         ServiceStatusInfo info = getServiceStatusInfoFromJsonResponse("} foo bar");
         assertEquals(ServiceStatus.DOWN, info.serviceStatus());
         assertTrue(info.errorOrNull().startsWith("Exception: Unexpected close marker '}': "));
     }
 
-    private ServiceStatusInfo getServiceStatusInfoFromJsonResponse(String content)
-            throws IOException {
-        CloseableHttpClient client = mock(CloseableHttpClient.class);
+    private ServiceStatusInfo getServiceStatusInfoFromJsonResponse(String content) {
+        StateV1HealthPoller poller = mock(StateV1HealthPoller.class);
+        when(poller.get(any())).thenReturn(CompletableFuture.completedFuture(SimpleHttpResponse.create(200, content, ContentType.APPLICATION_JSON)));
 
-        CloseableHttpResponse response = mock(CloseableHttpResponse.class);
-        when(client.execute(any())).thenReturn(response);
-
-        StatusLine statusLine = mock(StatusLine.class);
-        when(response.getStatusLine()).thenReturn(statusLine);
-
-        when(statusLine.getStatusCode()).thenReturn(200);
-
-        HttpEntity httpEntity = mock(HttpEntity.class);
-        when(response.getEntity()).thenReturn(httpEntity);
-
-        try (StateV1HealthUpdater updater = makeUpdater(client, entry -> content)) {
-            when(httpEntity.getContentLength()).thenReturn((long) content.length());
+        try (StateV1HealthUpdater updater = makeUpdater(poller)) {
             updater.run();
             return updater.getServiceStatusInfo();
         }
     }
 
     @Test
-    public void testRequestException() throws IOException {
-        CloseableHttpClient client = mock(CloseableHttpClient.class);
-
-        when(client.execute(any())).thenThrow(new ConnectTimeoutException("exception string"));
+    public void testRequestException() {
+        StateV1HealthPoller poller = mock(StateV1HealthPoller.class);
+        when(poller.get(any())).thenReturn(CompletableFuture.failedFuture(new ConnectTimeoutException("exception string")));
 
-        try (StateV1HealthUpdater updater = makeUpdater(client, entry -> "")) {
+        try (StateV1HealthUpdater updater = makeUpdater(poller)) {
             updater.run();
             ServiceStatusInfo info = updater.getServiceStatusInfo();
             assertEquals(ServiceStatus.DOWN, info.serviceStatus());
@@ -137,24 +124,11 @@ public class StateV1HealthUpdaterTest {
     }
 
     @Test
-    public void testBadHttpResponseCode()
-            throws IOException {
-        CloseableHttpClient client = mock(CloseableHttpClient.class);
-
-        CloseableHttpResponse response = mock(CloseableHttpResponse.class);
-        when(client.execute(any())).thenReturn(response);
-
-        StatusLine statusLine = mock(StatusLine.class);
-        when(response.getStatusLine()).thenReturn(statusLine);
-
-        when(statusLine.getStatusCode()).thenReturn(500);
-
-        HttpEntity httpEntity = mock(HttpEntity.class);
-        when(response.getEntity()).thenReturn(httpEntity);
+    public void testBadHttpResponseCode() {
+        StateV1HealthPoller poller = mock(StateV1HealthPoller.class);
+        when(poller.get(any())).thenReturn(CompletableFuture.completedFuture(SimpleHttpResponse.create(500, "{}", ContentType.APPLICATION_JSON)));
 
-        String content = "{}";
-        try (HealthUpdater updater = makeUpdater(client, entry -> content)) {
-            when(httpEntity.getContentLength()).thenReturn((long) content.length());
+        try (HealthUpdater updater = makeUpdater(poller)) {
             updater.run();
             ServiceStatusInfo info = updater.getServiceStatusInfo();
             assertEquals(ServiceStatus.DOWN, info.serviceStatus());
@@ -162,9 +136,27 @@ public class StateV1HealthUpdaterTest {
         }
     }
 
-    private StateV1HealthUpdater makeUpdater(CloseableHttpClient client, Function<HttpEntity, String> getContentFunction) {
-        ApacheHttpClient apacheHttpClient = new ApacheHttpClient(url, client);
-        StateV1HealthClient healthClient = new StateV1HealthClient(apacheHttpClient, getContentFunction);
-        return new StateV1HealthUpdater(url.toString(), healthClient);
+    @Test
+    public void requestIsNotSentWhileThePreviousIsInFlight() {
+        StateV1HealthPoller poller = mock(StateV1HealthPoller.class);
+        CompletableFuture<SimpleHttpResponse> response = new CompletableFuture<>();
+        when(poller.get(any())).thenReturn(response);
+
+        try (StateV1HealthUpdater updater = makeUpdater(poller)) {
+            updater.run();
+            updater.run();
+            verify(poller, times(1)).get(any());
+            assertEquals(ServiceStatus.UNKNOWN, updater.getServiceStatusInfo().serviceStatus());
+
+            response.complete(SimpleHttpResponse.create(200, "{\"status\": {\"code\": \"up\"}}", ContentType.APPLICATION_JSON));
+            assertEquals(ServiceStatus.UP, updater.getServiceStatusInfo().serviceStatus());
+            updater.run();
+            verify(poller, times(2)).get(any());
+            verify(poller, times(1)).reportPollLag(any());
+        }
+    }
+
+    private StateV1HealthUpdater makeUpdater(StateV1HealthPoller poller) {
+        return new StateV1HealthUpdater(url, Duration.ofSeconds(10), poller);
     }
 }
@@ -92,6 +92,7 @@ public:
     RequestBuilder& rank_profile(const std::string& value) { return set_param("rankprofile", value); }
     RequestBuilder& summary_class(const std::string& value) { return set_param("summaryclass", value); }
     RequestBuilder& summary_count(uint32_t value) { return set_param("summarycount", std::to_string(value)); }
+    RequestBuilder& summaries(bool value) { return set_param("summaries", value ? "true" : "false"); }
     RequestBuilder& sort(const std::string& value) { return set_param("sort", value); }
     RequestBuilder& query_stack_count(uint32_t value) { return set_param("querystackcount", std::to_string(value)); }
     RequestBuilder& string_term(const std::string& term, const std::string& field) {
@@ -256,6 +257,19 @@ TEST_F(SearchVisitorTest, basic_query_execution_in_search_visitor)
     expect_match_features({}, {}, *res);
 }
 
+TEST_F(SearchVisitorTest, summaries_are_not_generated_when_not_wanted)
+{
+    auto res = execute_query(RequestBuilder().number_term("[5;10]", "id").summaries(false).build(),
+                             {{3},{7},{4},{5},{9}});
+    expect_hits({{9,19.0}, {7,17.0}, {5,15.0}}, *res);
+    expect_summary({}, *res);
+
+    res = execute_query(RequestBuilder().number_term("[5;10]", "id").summaries(true).build(),
+                        {{3},{7},{4},{5},{9}});
+    expect_hits({{9,19.0}, {7,17.0}, {5,15.0}}, *res);
+    expect_summary({{5}, {7}, {9}}, *res);
+}
+
 TEST_F(SearchVisitorTest, match_features_returned_in_search_result)
 {
     auto res = execute_query(RequestBuilder().
@@ -332,6 +332,7 @@ SearchVisitor::SearchVisitor(StorageComponent& component,
       _fieldSearchSpecMap(),
       _snippetModifierManager(),
       _summaryClass("default"),
+      _generateSummaries(true),
       _attrMan(),
       _attrCtx(_attrMan.createContext()),
       _summaryGenerator(_attrMan, *this),
@@ -426,6 +427,11 @@ SearchVisitor::init(const Parameters & params)
         LOG(debug, "Received summary count: %ld", wantedSummaryCount);
     }
     _queryResult->getSearchResult().setWantedHitCount(wantedSummaryCount);
+    if (params.lookup("summaries", valueRef) && (valueRef == "false")) {
+        // The client only wants the hits, and fetches summaries of the globally best ones separately
+        _generateSummaries = false;
+        LOG(debug, "Not generating summaries");
+    }
 
     std::string_view sortRef;
     bool hasSortSpec = params.lookup("sort", sortRef);
@@ -1336,7 +1342,7 @@ SearchVisitor::generateGroupingResults()
 void
 SearchVisitor::generateDocumentSummaries()
 {
-    if ( ! _rankController.valid()) {
+    if ( ! _rankController.valid() || ! _generateSummaries) {
         return;
     }
     auto& hit_collector = _rankController.getRankProcessor()->getHitCollector();
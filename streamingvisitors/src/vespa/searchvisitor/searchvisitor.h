@@ -466,6 +466,7 @@ private:
     vsm::FieldSearchSpecMap                 _fieldSearchSpecMap;
     vsm::SnippetModifierManager             _snippetModifierManager;
     std::string                        _summaryClass;
+    bool                               _generateSummaries;
     search::AttributeManager                _attrMan;
     search::attribute::IAttributeContext::UP _attrCtx;
     SummaryGenerator                        _summaryGenerator;
@@ -147,10 +147,23 @@ public interface FeedClientBuilder {
     /** Specify HTTP(S) proxy for all endpoints */
     FeedClientBuilder setProxy(URI uri);
 
-    /** What compression to use for request bodies; default {@code auto}. */
+    /**
+     * What compression to use for request bodies; default {@code auto}.
+     * {@code dictionary} compresses each document with a dictionary trained by the server for its document type,
+     * which also makes small documents compress well, and falls back to {@code auto} until such a dictionary exists.
+     */
     FeedClientBuilder setCompression(Compression compression);
 
-    enum Compression { auto, none, gzip }
+    enum Compression { auto, none, gzip, dictionary }
+
+    /**
+     * Turns on batching, where document operations are sent as lines of JSONL requests to the /document/v1/batch
+     * endpoint, rather than with one request each, which reduces the per-operation overhead of feeding small documents.
+     * A batch is sent when it is full, or when its first operation has waited for a small fraction of the recent latency
+     * of batches. Operations are still retried, and ordered per document, individually. This requires a server which
+     * supports the batch endpoint; default is off.
+     */
+    FeedClientBuilder setBatching(boolean enabled);
 
     /** Constructs instance of {@link FeedClient} from builder configuration */
     FeedClient build();
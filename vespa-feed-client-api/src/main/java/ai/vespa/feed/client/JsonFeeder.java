@@ -13,9 +13,18 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -45,14 +54,18 @@ public class JsonFeeder implements Closeable {
         t.setDaemon(true);
         return t;
     });
+    private final ExecutorService parserExecutor;
+    private final int parserThreads;
     private final FeedClient client;
     private final OperationParameters protoParameters;
     private final AtomicInteger globalInflightOperations = new AtomicInteger(0);
     private volatile boolean closed = false;
 
-    private JsonFeeder(FeedClient client, OperationParameters protoParameters) {
+    private JsonFeeder(FeedClient client, OperationParameters protoParameters, int parserThreads) {
         this.client = client;
         this.protoParameters = protoParameters;
+        this.parserThreads = parserThreads;
+        this.parserExecutor = parserThreads > 1 ? Executors.newFixedThreadPool(parserThreads, new ParserThreadFactory()) : null;
     }
 
     public interface ResultCallback {
@@ -132,6 +145,9 @@ public class JsonFeeder implements Closeable {
      *     ]
      * </pre>
      * Note that {@code "id"} is an alias for the document put operation.
+     * The stream may also be a sequence of such operations without the enclosing array (JSONL); if this feeder
+     * was built with more than one parser thread, such a stream is split at operation boundaries and parsed in
+     * parallel, while operations are still dispatched to the {@link FeedClient} in the order they appear.
      * Exceptional completion will use be an instance of {@link FeedException} or one of its sub-classes.
      * The input stream will be closed upon exhaustion, or error.
      */
@@ -153,8 +169,8 @@ public class JsonFeeder implements Closeable {
         CompletableFuture<Result> result;
         AtomicInteger localInflightOperations = new AtomicInteger(1); // The below dispatch loop itself is counted as a single pending operation
         AtomicBoolean finalCallbackInvoked = new AtomicBoolean();
-        try (RingBufferStream buffer = new RingBufferStream(jsonStream, size)) {
-            while ((result = buffer.next()) != null) {
+        try (OperationSource operations = createOperationSource(jsonStream, size)) {
+            while ((result = operations.next()) != null) {
                 localInflightOperations.incrementAndGet();
                 globalInflightOperations.incrementAndGet();
                 result.whenCompleteAsync((r, t) -> {
@@ -186,6 +202,19 @@ public class JsonFeeder implements Closeable {
         return overallResult;
     }
 
+    /** Returns a parallel, chunked source for JSONL streams if this has parser threads, or a ring buffer otherwise. */
+    private OperationSource createOperationSource(InputStream jsonStream, int size) throws IOException {
+        if (parserExecutor == null) return new RingBufferStream(jsonStream, size);
+
+        PushbackInputStream in = new PushbackInputStream(jsonStream);
+        int first;
+        do first = in.read();
+        while (first != -1 && Character.isWhitespace(first));
+        if (first != -1) in.unread(first);
+        return first == '[' ? new RingBufferStream(in, size)
+                            : new ChunkedOperationSource(in, min(size, maxChunkSize));
+    }
+
     private static void invokeCallback(ResultCallback callback, Consumer<ResultCallback> invocation) {
         try {
             invocation.accept(callback);
@@ -203,6 +232,7 @@ public class JsonFeeder implements Closeable {
         closed = true;
         awaitInflightOperations();
         client.close();
+        if (parserExecutor != null) parserExecutor.shutdown();
         resultExecutor.shutdown();
         try {
             if (!resultExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
@@ -229,7 +259,188 @@ public class JsonFeeder implements Closeable {
         return new FeedException(e);
     }
 
-    private class RingBufferStream extends InputStream {
+    /** A source of dispatched feed operations, which returns {@code null} when there are no more operations. */
+    private interface OperationSource extends Closeable {
+
+        CompletableFuture<Result> next() throws IOException;
+
+    }
+
+    private static class ParserThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "json-feeder-parser-" + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+
+    }
+
+    private static final int maxChunkSize = 1 << 20;
+
+    /**
+     * Splits a stream of top-level JSON objects into chunks at object boundaries, using a cheap scan which
+     * only tracks nesting depth and string literals. Each chunk is parsed by a separate task on the parser
+     * executor, and the parsed operations are dispatched from the calling thread in input order, so operations
+     * on the same document are passed to the {@link FeedClient} in the order they appear in the stream.
+     */
+    private class ChunkedOperationSource implements OperationSource {
+
+        private final InputStream in;
+        private final int chunkSize;
+        private final Deque<CompletableFuture<ParsedChunk>> pending = new ArrayDeque<>();
+        private Iterator<Operation> operations = Collections.emptyIterator();
+        private Exception failure = null;
+        private byte[] data;
+        private int filled = 0;     // Number of bytes read into data.
+        private int boundary = 0;   // End of the last complete top-level object in data.
+        private int depth = 0;
+        private boolean inString = false;
+        private boolean escaped = false;
+        private boolean eof = false;
+        private long offset = 0;    // Stream offset of the start of data.
+        private long lines = 0;     // Newlines seen in the stream so far.
+        private long linesAtBoundary = 0;
+        private long linesAtOffset = 0;
+
+        ChunkedOperationSource(InputStream in, int chunkSize) {
+            this.in = in;
+            this.chunkSize = Math.max(1, chunkSize);
+            this.data = new byte[this.chunkSize];
+        }
+
+        @Override
+        public CompletableFuture<Result> next() throws IOException {
+            while ( ! operations.hasNext()) {
+                if (failure != null) {
+                    if (failure instanceof IOException) throw (IOException) failure;
+                    throw (RuntimeException) failure;
+                }
+                while (pending.size() < 2 * parserThreads) {
+                    byte[] chunk = readChunk();
+                    if (chunk == null) break;
+                    long chunkOffset = offset, chunkLine = linesAtOffset;
+                    pending.add(CompletableFuture.supplyAsync(() -> parse(chunk, chunkOffset, chunkLine), parserExecutor));
+                    advance(chunk.length);
+                }
+                if (pending.isEmpty()) return null;
+
+                ParsedChunk parsed = pending.poll().join();
+                operations = parsed.operations.iterator();
+                failure = parsed.failure;
+            }
+            return operations.next().dispatch();
+        }
+
+        /** Returns the next chunk of complete objects, or the remaining bytes at end of stream, or null if exhausted. */
+        private byte[] readChunk() throws IOException {
+            while (true) {
+                if (eof) {
+                    if (filled == 0) return null;
+                    boundary = filled;
+                    linesAtBoundary = lines;
+                    return Arrays.copyOf(data, filled);
+                }
+                if (boundary >= chunkSize)
+                    return Arrays.copyOf(data, boundary);
+
+                if (filled == data.length)
+                    data = Arrays.copyOf(data, 2 * data.length);
+
+                int read = in.read(data, filled, data.length - filled);
+                if (read < 0) {
+                    eof = true;
+                }
+                else {
+                    scan(filled, filled + read);
+                    filled += read;
+                }
+            }
+        }
+
+        private void scan(int from, int to) {
+            for (int i = from; i < to; i++) {
+                byte b = data[i];
+                if (b == '\n') ++lines;
+                if (inString) {
+                    if (escaped) escaped = false;
+                    else if (b == '\\') escaped = true;
+                    else if (b == '"') inString = false;
+                }
+                else if (b == '"') inString = true;
+                else if (b == '{' || b == '[') ++depth;
+                else if ((b == '}' || b == ']') && --depth <= 0) {
+                    depth = 0; // Malformed input is left for the parser to report, but must not prevent splitting.
+                    boundary = i + 1;
+                    linesAtBoundary = lines;
+                }
+            }
+        }
+
+        /** Discards the first {@code length} bytes of data, which have been handed off as a chunk ending at the last boundary. */
+        private void advance(int length) {
+            System.arraycopy(data, length, data, 0, filled - length);
+            filled -= length;
+            boundary = 0;
+            offset += length;
+            linesAtOffset = linesAtBoundary;
+        }
+
+        @Override
+        public void close() throws IOException {
+            eof = true;
+            in.close();
+        }
+
+    }
+
+    private static class ParsedChunk {
+
+        final List<Operation> operations;
+        final Exception failure;
+
+        ParsedChunk(List<Operation> operations, Exception failure) {
+            this.operations = operations;
+            this.failure = failure;
+        }
+
+    }
+
+    /** Parses all operations in the given chunk; a failure is kept, to be thrown after preceding operations are dispatched. */
+    private ParsedChunk parse(byte[] chunk, long offset, long line) {
+        List<Operation> operations = new ArrayList<>();
+        try {
+            ChunkOperationParser parser = new ChunkOperationParser(chunk, offset, line);
+            for (Operation operation; (operation = parser.parse()) != null; )
+                operations.add(operation);
+
+            return new ParsedChunk(operations, null);
+        }
+        catch (IOException | RuntimeException e) {
+            return new ParsedChunk(operations, e);
+        }
+    }
+
+    private class ChunkOperationParser extends OperationParserAndExecutor {
+
+        private final byte[] json;
+
+        ChunkOperationParser(byte[] json, long offset, long line) throws IOException {
+            super(factory.createParser(json), false, offset, line);
+            this.json = json;
+        }
+
+        @Override
+        String getDocumentJson(long start, long end) {
+            return "{\"fields\":" + new String(json, (int) start, (int) (end - start), UTF_8) + "}";
+        }
+
+    }
+
+    private class RingBufferStream extends InputStream implements OperationSource {
 
         private final byte[] b = new byte[1];
         private final InputStream in;
@@ -289,6 +500,7 @@ public class JsonFeeder implements Closeable {
             }
         }
 
+        @Override
         public CompletableFuture<Result> next() throws IOException {
            return parserAndExecutor.next();
         }
@@ -402,26 +614,71 @@ public class JsonFeeder implements Closeable {
         }
     }
 
+    /** A parsed feed operation, which is not yet dispatched to the feed client. */
+    private class Operation {
+
+        private final OperationType type;
+        private final DocumentId id;
+        private final String payload;
+        private final OperationParameters parameters;
+
+        Operation(OperationType type, DocumentId id, String payload, OperationParameters parameters) {
+            this.type = type;
+            this.id = id;
+            this.payload = payload;
+            this.parameters = parameters;
+        }
+
+        CompletableFuture<Result> dispatch() {
+            switch (type) {
+                case PUT:    return client.put   (id, payload, parameters);
+                case UPDATE: return client.update(id, payload, parameters);
+                case REMOVE: return client.remove(id, parameters);
+                default: throw new IllegalStateException("Unexpected operation type '" + type + "'");
+            }
+        }
+
+    }
+
     private abstract class OperationParserAndExecutor {
 
         private final JsonParser parser;
         private final boolean multipleOperations;
+        private final long offsetBase;
+        private final long lineBase;
         private boolean arrayPrefixParsed;
 
         protected OperationParserAndExecutor(JsonParser parser, boolean multipleOperations) {
+            this(parser, multipleOperations, 0, 0);
+        }
+
+        /** Creates a parser for a part of a stream, starting at the given byte offset and line, for error reporting. */
+        protected OperationParserAndExecutor(JsonParser parser, boolean multipleOperations, long offsetBase, long lineBase) {
             this.parser = parser;
             this.multipleOperations = multipleOperations;
+            this.offsetBase = offsetBase;
+            this.lineBase = lineBase;
         }
 
         abstract String getDocumentJson(long start, long end);
 
         OperationParseException parseException(String error) {
             JsonLocation location = parser.currentLocation();
-            return new OperationParseException(error + " at offset " + location.getByteOffset() +
-                                               " (line " + location.getLineNr() + ", column " + location.getColumnNr() + ")");
+            return new OperationParseException(error + " at offset " + (offsetBase + location.getByteOffset()) +
+                                               " (line " + (lineBase + location.getLineNr()) + ", column " + location.getColumnNr() + ")");
+        }
+
+        private long tokenOffset() {
+            return offsetBase + parser.currentTokenLocation().getByteOffset();
         }
 
         CompletableFuture<Result> next() throws IOException {
+            Operation operation = parse();
+            return operation == null ? null : operation.dispatch();
+        }
+
+        /** Parses the next operation, or returns null if there are no more. */
+        Operation parse() throws IOException {
             JsonToken token = parser.nextToken();
             if (multipleOperations && ! arrayPrefixParsed && token == JsonToken.START_ARRAY) {
                 arrayPrefixParsed = true;
@@ -477,25 +734,19 @@ public class JsonFeeder implements Closeable {
             else if (end < start)
                 throw parseException("No 'fields' object for document");
 
-            String payload = getDocumentJson(start, end);
-            switch (type) {
-                case PUT:    return client.put   (id, payload, parameters);
-                case UPDATE: return client.update(id, payload, parameters);
-                case REMOVE: return client.remove(id, parameters);
-                default: throw new OperationParseException("Unexpected operation type '" + type + "'");
-            }
+            return new Operation(type, id, getDocumentJson(start, end), parameters);
         }
 
         private void expect(JsonToken token) throws IOException {
             if (parser.nextToken() != token)
-                throw new OperationParseException("Expected '" + token + "' at offset " + parser.currentTokenLocation().getByteOffset() +
+                throw new OperationParseException("Expected '" + token + "' at offset " + tokenOffset() +
                         ", but found '" + parser.currentToken() + "' (" + parser.getText() + ")");
         }
 
         private String readString() throws IOException {
             String value = parser.nextTextValue();
             if (value == null)
-                throw new OperationParseException("Expected '" + JsonToken.VALUE_STRING + "' at offset " + parser.currentTokenLocation().getByteOffset() +
+                throw new OperationParseException("Expected '" + JsonToken.VALUE_STRING + "' at offset " + tokenOffset() +
                                                   ", but found '" + parser.currentToken() + "' (" + parser.getText() + ")");
 
             return value;
@@ -504,7 +755,7 @@ public class JsonFeeder implements Closeable {
         private boolean readBoolean() throws IOException {
             Boolean value = parser.nextBooleanValue();
             if (value == null)
-                throw new OperationParseException("Expected '" + JsonToken.VALUE_FALSE + "' or '" + JsonToken.VALUE_TRUE + "' at offset " + parser.currentTokenLocation().getByteOffset() +
+                throw new OperationParseException("Expected '" + JsonToken.VALUE_FALSE + "' or '" + JsonToken.VALUE_TRUE + "' at offset " + tokenOffset() +
                                                   ", but found '" + parser.currentToken() + "' (" + parser.getText() + ")");
 
             return value;
@@ -521,6 +772,7 @@ public class JsonFeeder implements Closeable {
 
         final FeedClient client;
         OperationParameters parameters = OperationParameters.empty();
+        int parserThreads = 1;
 
         private Builder(FeedClient client) {
             this.client = requireNonNull(client);
@@ -541,8 +793,18 @@ public class JsonFeeder implements Closeable {
             return this;
         }
 
+        /**
+         * Sets the number of threads used to parse JSONL feeds given to {@link #feedMany(InputStream, ResultCallback)}.
+         * With the default of 1, operations are parsed by the calling thread; JSON array feeds are always parsed that way.
+         */
+        public Builder withParserThreads(int parserThreads) {
+            if (parserThreads < 1) throw new IllegalArgumentException("Parser threads must be at least 1, but was " + parserThreads);
+            this.parserThreads = parserThreads;
+            return this;
+        }
+
         public JsonFeeder build() {
-            return new JsonFeeder(client, parameters);
+            return new JsonFeeder(client, parameters, parserThreads);
         }
 
     }
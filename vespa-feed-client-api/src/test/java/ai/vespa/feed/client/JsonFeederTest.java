@@ -10,6 +10,7 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
@@ -149,6 +150,69 @@ class JsonFeederTest {
         }
     }
 
+    @Test
+    public void jsonLOperationsAreParsedInParallelAndDispatchedInOrder() throws IOException, ExecutionException, InterruptedException {
+        MockClient client = new MockClient();
+        try (JsonFeeder feeder = JsonFeeder.builder(client).withParserThreads(4).build()) {
+            int docs = 1000;
+            String json = IntStream.range(0, docs).mapToObj(i ->
+                                                                 i % 3 == 0 ? "{ \"remove\": \"id:ns:type::abc" + i + "\" }\n"
+                                                                            : "{\n  \"put\": \"id:ns:type::abc" + i + "\",\n" +
+                                                                              "  \"fields\": { \"lul\": \"{[\\\"}]" + i + "\" }\n}\n")
+                                   .collect(joining());
+
+            AtomicInteger resultsReceived = new AtomicInteger();
+            feeder.feedMany(new ByteArrayInputStream(json.getBytes(UTF_8)),
+                            100, // Small chunks, where most objects straddle chunk boundaries.
+                            new JsonFeeder.ResultCallback() {
+                                @Override public void onNextResult(Result result, FeedException error) { resultsReceived.incrementAndGet(); }
+                            })
+                  .get();
+            assertEquals(docs, resultsReceived.get());
+            assertEquals(IntStream.range(0, docs).mapToObj(i -> "id:ns:type::abc" + i).collect(Collectors.toList()),
+                         client.dispatched.stream().map(DocumentId::toString).collect(Collectors.toList()));
+            client.assertPutOperation("abc1", "{\"fields\":{ \"lul\": \"{[\\\"}]1\" }}");
+        }
+    }
+
+    @Test
+    public void jsonArrayIsParsedSequentiallyWithParserThreads() throws IOException, ExecutionException, InterruptedException {
+        MockClient client = new MockClient();
+        try (JsonFeeder feeder = JsonFeeder.builder(client).withParserThreads(2).build()) {
+            String json = "  [{ \"put\": \"id:ns:type::abc1\", \"fields\": { \"lul\": \"lal\" } },\n" +
+                          "   { \"put\": \"id:ns:type::abc2\", \"fields\": { \"lul\": \"lal\" } }]\n";
+            feeder.feedMany(new ByteArrayInputStream(json.getBytes(UTF_8))).get();
+            client.assertPutDocumentIds("abc1", "abc2");
+        }
+    }
+
+    @Test
+    public void parallelParsingReportsErrorsAfterPrecedingOperations() throws IOException, InterruptedException {
+        String json = "{ \"remove\": \"id:ns:type::abc1\" }\n" +
+                      "{ \"remove\": \"id:ns:type::abc2\" }\n" +
+                      "{ \"remove\": \"id:ns:type::abc3\", \"fields\": { } }\n" +
+                      "{ \"remove\": \"id:ns:type::abc4\" }\n";
+        List<String> errors = new ArrayList<>();
+        for (int parserThreads : new int[] { 1, 2 }) {
+            MockClient client = new MockClient();
+            try (JsonFeeder feeder = JsonFeeder.builder(client).withParserThreads(parserThreads).build()) {
+                AtomicReference<FeedException> error = new AtomicReference<>();
+                ExecutionException thrown = assertThrows(ExecutionException.class,
+                                                         () -> feeder.feedMany(new ByteArrayInputStream(json.getBytes(UTF_8)),
+                                                                               40,
+                                                                               new JsonFeeder.ResultCallback() {
+                                                                                   @Override public void onError(FeedException e) { error.set(e); }
+                                                                               })
+                                                                     .get());
+                assertEquals(OperationParseException.class, thrown.getCause().getClass());
+                errors.add(error.get().getMessage());
+                client.assertRemoveDocumentIds("abc1", "abc2");
+            }
+        }
+        assertEquals("Illegal 'fields' object for remove operation at offset 113 (line 3, column 48)", errors.get(0));
+        assertEquals(errors.get(0), errors.get(1), "Parallel parsing reports the same error location");
+    }
+
     @Test
     public void singleJsonOperationIsDispatchedToFeedClient() throws IOException, ExecutionException, InterruptedException {
         MockClient client = new MockClient();
@@ -170,22 +234,26 @@ class JsonFeederTest {
         final Map<DocumentId, String> putOperations = new LinkedHashMap<>();
         final Map<DocumentId, String> updateOperations = new LinkedHashMap<>();
         final Map<DocumentId, String> removeOperations = new LinkedHashMap<>();
+        final List<DocumentId> dispatched = new ArrayList<>();
 
         @Override
         public CompletableFuture<Result> put(DocumentId documentId, String documentJson, OperationParameters params) {
             putOperations.put(documentId, documentJson);
+            dispatched.add(documentId);
             return createSuccessResult(documentId);
         }
 
         @Override
         public CompletableFuture<Result> update(DocumentId documentId, String updateJson, OperationParameters params) {
             updateOperations.put(documentId, updateJson);
+            dispatched.add(documentId);
             return createSuccessResult(documentId);
         }
 
         @Override
         public CompletableFuture<Result> remove(DocumentId documentId, OperationParameters params) {
             removeOperations.put(documentId, null);
+            dispatched.add(documentId);
             return createSuccessResult(documentId);
         }
 
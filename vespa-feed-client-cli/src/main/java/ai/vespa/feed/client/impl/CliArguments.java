@@ -41,6 +41,8 @@ class CliArguments {
     private static final String CONNECTIONS_OPTION = "connections";
     private static final String DISABLE_SSL_HOSTNAME_VERIFICATION_OPTION = "disable-ssl-hostname-verification";
     private static final String DRYRUN_OPTION = "dryrun";
+    private static final String PARSE_BENCHMARK_OPTION = "parse-benchmark";
+    private static final String PARSER_THREADS_OPTION = "parser-threads";
     private static final String SPEED_TEST_OPTION = "speed-test";
     private static final String TEST_PAYLOAD_SIZE_OPTION = "test-payload-size";
     private static final String ENDPOINT_OPTION = "endpoint";
@@ -81,7 +83,7 @@ class CliArguments {
 
     private static void validateArgumentCombination(CommandLine args) throws CliArgumentsException {
         if (!args.hasOption(HELP_OPTION) && !args.hasOption(VERSION_OPTION)) {
-            if (!args.hasOption(ENDPOINT_OPTION)) {
+            if (!args.hasOption(ENDPOINT_OPTION) && !args.hasOption(PARSE_BENCHMARK_OPTION)) {
                 throw new CliArgumentsException("Endpoint must be specified");
             }
             if (args.hasOption(SPEED_TEST_OPTION)) {
@@ -98,6 +100,9 @@ class CliArguments {
                     throw new CliArgumentsException(String.format("Option '%s' can only be specified together with '%s'", TEST_PAYLOAD_SIZE_OPTION, SPEED_TEST_OPTION));
                 }
             }
+            if (args.hasOption(PARSE_BENCHMARK_OPTION) && (args.hasOption(DRYRUN_OPTION) || args.hasOption(SPEED_TEST_OPTION))) {
+                throw new CliArgumentsException(String.format("Option '%s' cannot be combined with '%s' or '%s'", PARSE_BENCHMARK_OPTION, DRYRUN_OPTION, SPEED_TEST_OPTION));
+            }
             if (args.hasOption(CERTIFICATE_OPTION) != args.hasOption(PRIVATE_KEY_OPTION)) {
                 throw new CliArgumentsException(
                         String.format("Both '%s' and '%s' must be specified together", CERTIFICATE_OPTION, PRIVATE_KEY_OPTION));
@@ -183,6 +188,10 @@ class CliArguments {
 
     boolean dryrunEnabled() { return has(DRYRUN_OPTION); }
 
+    boolean parseBenchmark() { return has(PARSE_BENCHMARK_OPTION); }
+
+    OptionalInt parserThreads() throws CliArgumentsException { return intValue(PARSER_THREADS_OPTION); }
+
     boolean speedTest() { return has(SPEED_TEST_OPTION); }
 
     Compression compression() throws CliArgumentsException {
@@ -338,6 +347,17 @@ class CliArguments {
                         .longOpt(DRYRUN_OPTION)
                         .desc("Let each operation succeed after " + DryrunCluster.DELAY.toMillis() + "ms, instead of sending it across the network ")
                         .build())
+                .addOption(Option.builder()
+                        .longOpt(PARSE_BENCHMARK_OPTION)
+                        .desc("Parse the JSONL feed and let each operation succeed immediately, without sending anything, " +
+                              "to measure feed parsing throughput; prints statistics to stdout when done")
+                        .build())
+                .addOption(Option.builder()
+                        .longOpt(PARSER_THREADS_OPTION)
+                        .desc("Number of threads used to parse JSONL feeds, split at operation boundaries. Default is 1")
+                        .hasArg()
+                        .type(Number.class)
+                        .build())
                 .addOption(Option.builder()
                         .longOpt(SPEED_TEST_OPTION)
                         .desc("Perform a network speed test, where the server immediately responds to each feed operation with a successful response. Requires Vespa version ≥ 8.35 on the server")
@@ -373,7 +393,7 @@ class CliArguments {
                 .addOption(Option.builder()
                         .longOpt(COMPRESSION)
                         .desc("Forced compression mode for feed requests; the default is to compress large requests. " +
-                              "Valid arguments are: 'auto' (default), 'none', 'gzip'")
+                              "Valid arguments are: 'auto' (default), 'none', 'gzip', 'dictionary'")
                         .hasArg()
                         .type(Compression.class)
                         .build())
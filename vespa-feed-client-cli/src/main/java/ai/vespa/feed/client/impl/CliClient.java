@@ -1,11 +1,13 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package ai.vespa.feed.client.impl;
 
+import ai.vespa.feed.client.DocumentId;
 import ai.vespa.feed.client.FeedClient;
 import ai.vespa.feed.client.FeedClientBuilder;
 import ai.vespa.feed.client.FeedException;
 import ai.vespa.feed.client.JsonFeeder;
 import ai.vespa.feed.client.JsonFeeder.ResultCallback;
+import ai.vespa.feed.client.OperationParameters;
 import ai.vespa.feed.client.OperationStats;
 import ai.vespa.feed.client.Result;
 import ai.vespa.feed.client.ResultException;
@@ -28,6 +30,7 @@ import java.time.Instant;
 import java.util.Enumeration;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
@@ -127,7 +130,7 @@ public class CliClient {
                 });
                 latch.await();
 
-                printBenchmarkResult(System.nanoTime() - startNanos, successes.get(), failures.get(), feedClient.stats(), cliArgs.benchmarkModeEnabled() ? systemOut : systemError);
+                printBenchmarkResult(System.nanoTime() - startNanos, successes.get(), failures.get(), feedClient.stats(), cliArgs.benchmarkModeEnabled() || cliArgs.parseBenchmark() ? systemOut : systemError);
                 if (fatal.get() != null) throw fatal.get();
             }
             return 0;
@@ -161,6 +164,7 @@ public class CliClient {
     }
 
     private static FeedClient createFeedClient(CliArguments cliArgs) throws CliArguments.CliArgumentsException {
+        if (cliArgs.parseBenchmark()) return new ParseBenchmarkClient();
         FeedClientBuilder builder = FeedClientBuilder.create(cliArgs.endpoint());
         cliArgs.connections().ifPresent(builder::setConnectionsPerEndpoint);
         cliArgs.maxStreamsPerConnection().ifPresent(builder::setMaxStreamPerConnection);
@@ -184,6 +188,7 @@ public class CliClient {
         cliArgs.timeout().ifPresent(builder::withTimeout);
         cliArgs.route().ifPresent(builder::withRoute);
         cliArgs.traceLevel().ifPresent(builder::withTracelevel);
+        cliArgs.parserThreads().ifPresent(builder::withParserThreads);
         return builder.build();
     }
 
@@ -212,6 +217,50 @@ public class CliClient {
 
     }
 
+    /** Completes every operation immediately, so feed throughput is bounded only by parsing of the input. */
+    private static class ParseBenchmarkClient implements FeedClient {
+
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong operations = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+
+        @Override
+        public CompletableFuture<Result> put(DocumentId documentId, String documentJson, OperationParameters params) {
+            return complete(documentId, documentJson.length());
+        }
+
+        @Override
+        public CompletableFuture<Result> update(DocumentId documentId, String updateJson, OperationParameters params) {
+            return complete(documentId, updateJson.length());
+        }
+
+        @Override
+        public CompletableFuture<Result> remove(DocumentId documentId, OperationParameters params) {
+            return complete(documentId, 0);
+        }
+
+        private CompletableFuture<Result> complete(DocumentId documentId, int length) {
+            operations.incrementAndGet();
+            bytes.addAndGet(length);
+            return CompletableFuture.completedFuture(new ResultImpl(Result.Type.success, documentId, null, null));
+        }
+
+        @Override
+        public OperationStats stats() {
+            long count = operations.get();
+            double seconds = (System.nanoTime() - startNanos) * 1e-9;
+            return new OperationStats(seconds, count, 0, 0, 0, bytes.get(), 0, 0, 0,
+                                      Map.of(200, new OperationStats.Response(count, 0, 0, 0, 0, 0, count / Math.max(seconds, 1e-9))));
+        }
+
+        @Override public void resetStats() { }
+
+        @Override public CircuitBreaker.State circuitBreakerState() { return CircuitBreaker.State.CLOSED; }
+
+        @Override public void close(boolean graceful) { }
+
+    }
+
     static void printBenchmarkResult(long durationNanos, long successes, long failures,
                                      OperationStats stats, OutputStream systemOut) throws IOException {
         try (JsonGenerator generator = factory.createGenerator(systemOut).useDefaultPrettyPrinter()) {
@@ -100,6 +100,18 @@ class CliArgumentsTest {
         CliArguments.fromRawArgs(new String[] {"--endpoint", "foo", "--speed-test"});
     }
 
+    @Test
+    void parse_benchmark_does_not_require_endpoint() throws CliArgumentsException {
+        CliArguments args = CliArguments.fromRawArgs(new String[] {"--parse-benchmark", "--parser-threads", "8", "--stdin"});
+        assertTrue(args.parseBenchmark());
+        assertEquals(8, args.parserThreads().getAsInt());
+
+        assertEquals("Option 'parse-benchmark' cannot be combined with 'dryrun' or 'speed-test'",
+                     assertThrows(CliArgumentsException.class,
+                                  () -> CliArguments.fromRawArgs(new String[] {"--parse-benchmark", "--dryrun", "--stdin"}))
+                             .getMessage());
+    }
+
     @Test
     void generated_help_page_contains_expected_description() throws CliArguments.CliArgumentsException, IOException {
         CliArguments args = CliArguments.fromRawArgs(new String[]{"--help"});
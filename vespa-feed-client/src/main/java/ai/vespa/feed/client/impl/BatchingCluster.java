@@ -0,0 +1,308 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.feed.client.impl;
+
+import ai.vespa.feed.client.HttpResponse;
+import ai.vespa.feed.client.OperationStats;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.logging.Level.FINE;
+
+/**
+ * Sends document operations in batches to the /document/v1/batch endpoint, with a line per operation in a JSONL request,
+ * and completes each operation with its own line of the JSONL response. Requests which can not be batched, like the
+ * handshake, or operations so large that batching them saves nothing, are dispatched by the delegate as they are.
+ *
+ * Operations are still retried, throttled, and ordered per document, individually, by the {@link HttpRequestStrategy}
+ * dispatching them to this: since it dispatches only one operation at a time per document, each batch has at most one
+ * operation per document. A batch is sent when it is full, or when its first operation has waited for a fraction of
+ * the recent latency of batches; thus, batching adds little to the latency of operations, while the number of operations
+ * per batch grows with the rate at which they are dispatched.
+ *
+ * @author jonmv
+ */
+class BatchingCluster implements Cluster {
+
+    private static final Logger log = Logger.getLogger(BatchingCluster.class.getName());
+
+    static final String path = "/document/v1/batch";
+
+    /** Operations larger than this are sent by themselves, as the per-request overhead is insignificant for them */
+    static final int maxBatchedOperationBytes = 1 << 16;
+    static final int maxBatchBytes = 1 << 20;
+    static final int maxBatchOperations = 1 << 10;
+
+    /** A batch waits for more operations for this fraction of the recent latency of batches, within the bounds below */
+    private static final int lingerFraction = 16;
+    private static final Duration defaultMinLinger = Duration.ofNanos(100_000);
+    private static final Duration defaultMaxLinger = Duration.ofMillis(10);
+
+    private static final JsonFactory factory = new JsonFactoryBuilder()
+            .streamReadConstraints(StreamReadConstraints.builder().maxStringLength(Integer.MAX_VALUE).build())
+            .build();
+
+    private final Object monitor = new Object();
+    private final Map<String, Batch> batches = new HashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "feed-client-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Cluster delegate;
+    private final LongSupplier nanoClock;
+    private final long minLingerNanos;
+    private final long maxLingerNanos;
+    private volatile long latencyNanos;
+
+    BatchingCluster(Cluster delegate, LongSupplier nanoClock) {
+        this(delegate, nanoClock, defaultMinLinger, defaultMaxLinger);
+    }
+
+    BatchingCluster(Cluster delegate, LongSupplier nanoClock, Duration minLinger, Duration maxLinger) {
+        this.delegate = delegate;
+        this.nanoClock = nanoClock;
+        this.minLingerNanos = minLinger.toNanos();
+        this.maxLingerNanos = maxLinger.toNanos();
+        this.latencyNanos = lingerFraction * minLingerNanos;
+    }
+
+    @Override
+    public void dispatch(HttpRequest request, CompletableFuture<HttpResponse> vessel) {
+        Batchable batchable = request.batchable().orElse(null);
+        if (batchable == null || batchable.line.length > maxBatchedOperationBytes) {
+            delegate.dispatch(request, vessel);
+            return;
+        }
+
+        Batch full = null;
+        synchronized (monitor) {
+            Batch batch = batches.get(batchable.query);
+            boolean scheduled = true;
+            if (batch == null) {
+                batches.put(batchable.query, batch = new Batch(batchable.query));
+                Batch created = batch;
+                long lingerNanos = Math.max(minLingerNanos, Math.min(maxLingerNanos, latencyNanos / lingerFraction));
+                try {
+                    scheduler.schedule(() -> sendIfPending(created), lingerNanos, TimeUnit.NANOSECONDS);
+                }
+                catch (RejectedExecutionException e) { // Closed, so send it right away.
+                    scheduled = false;
+                }
+            }
+            batch.add(request, vessel, batchable.line);
+            if ( ! scheduled || batch.bytes >= maxBatchBytes || batch.operations.size() >= maxBatchOperations) {
+                batches.remove(batch.query);
+                full = batch;
+            }
+        }
+        if (full != null)
+            send(full);
+    }
+
+    private void sendIfPending(Batch batch) {
+        synchronized (monitor) {
+            if ( ! batches.remove(batch.query, batch))
+                return;
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(batch.bytes);
+            List<Operation> operations = new ArrayList<>(batch.operations.size());
+            Duration timeout = null;
+            for (Operation operation : batch.operations) {
+                Duration timeLeft = operation.request.timeLeft();
+                if (timeLeft.toMillis() <= 0) {
+                    operation.vessel.completeExceptionally(new TimeoutException("operation timed out after '" + operation.request.timeout() + "'"));
+                    continue;
+                }
+                if (timeout == null || timeLeft.compareTo(timeout) < 0)
+                    timeout = timeLeft;
+                body.writeBytes(operation.line);
+                body.write('\n');
+                operations.add(operation);
+            }
+            if (operations.isEmpty())
+                return;
+
+            HttpRequest request = new HttpRequest("POST",
+                                                  path,
+                                                  batch.query,
+                                                  operations.get(0).request.headers(),
+                                                  body.toByteArray(),
+                                                  timeout,
+                                                  nanoClock);
+            long startNanos = nanoClock.getAsLong();
+            CompletableFuture<HttpResponse> vessel = new CompletableFuture<>();
+            vessel.whenComplete((response, thrown) -> complete(operations, response, thrown, nanoClock.getAsLong() - startNanos));
+            delegate.dispatch(request, vessel);
+        }
+        catch (Throwable t) {
+            for (Operation operation : batch.operations)
+                operation.vessel.completeExceptionally(t);
+        }
+    }
+
+    /** Completes each operation with its line of the batch response, or with the response itself, if this was not OK. */
+    private void complete(List<Operation> operations, HttpResponse response, Throwable thrown, long latencyNanos) {
+        if (thrown != null) {
+            for (Operation operation : operations)
+                operation.vessel.completeExceptionally(thrown);
+            return;
+        }
+        if (response.code() != 200) {
+            for (Operation operation : operations)
+                operation.vessel.complete(response);
+            return;
+        }
+
+        this.latencyNanos = (7 * this.latencyNanos + latencyNanos) / 8;
+        byte[] body = response.body() == null ? new byte[0] : response.body();
+        for (int start = 0, end; start < body.length; start = end + 1) {
+            end = start;
+            while (end < body.length && body[end] != '\n') end++;
+            if (end == start) continue;
+            try {
+                Line line = parseLine(body, start, end - start);
+                if (line.index >= 0 && line.index < operations.size())
+                    operations.get(line.index).vessel.complete(line);
+            }
+            catch (IOException | RuntimeException e) {
+                log.log(FINE, "Failed parsing line of batch response: " + new String(body, start, end - start, UTF_8), e);
+            }
+        }
+        for (Operation operation : operations)
+            if ( ! operation.vessel.isDone()) // The response was cut short, or the line unreadable; retry the operation.
+                operation.vessel.completeExceptionally(new IOException("no result for operation in batch response"));
+    }
+
+    static Line parseLine(byte[] body, int offset, int length) throws IOException {
+        int index = -1;
+        int status = -1;
+        try (JsonParser parser = factory.createParser(body, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("expected a JSON object");
+
+            String name;
+            while ((name = parser.nextFieldName()) != null && (index < 0 || status < 0)) {
+                switch (name) {
+                    case "index": index = parser.nextIntValue(-1); break;
+                    case "status": status = parser.nextIntValue(-1); break;
+                    default: parser.nextToken(); parser.skipChildren(); break;
+                }
+            }
+        }
+        if (status < 0)
+            throw new IOException("missing status");
+
+        byte[] content = new byte[length];
+        System.arraycopy(body, offset, content, 0, length);
+        return new Line(index, status, content);
+    }
+
+    @Override
+    public void close() {
+        List<Batch> pending;
+        synchronized (monitor) {
+            pending = new ArrayList<>(batches.values());
+            batches.clear();
+        }
+        scheduler.shutdownNow();
+        pending.forEach(this::send);
+        delegate.close();
+    }
+
+    @Override
+    public OperationStats stats() {
+        return delegate.stats();
+    }
+
+    @Override
+    public void resetStats() {
+        delegate.resetStats();
+    }
+
+    /** How an operation is sent as part of a batch: its UTF-8 encoded line in the batch, and the query of the batches it may be part of. */
+    static class Batchable {
+
+        final String query;
+        final byte[] line;
+
+        Batchable(String query, String line) {
+            this.query = query;
+            this.line = line.getBytes(UTF_8);
+        }
+
+    }
+
+    private static class Operation {
+
+        final HttpRequest request;
+        final CompletableFuture<HttpResponse> vessel;
+        final byte[] line;
+
+        Operation(HttpRequest request, CompletableFuture<HttpResponse> vessel, byte[] line) {
+            this.request = request;
+            this.vessel = vessel;
+            this.line = line;
+        }
+
+    }
+
+    private static class Batch {
+
+        final String query;
+        final List<Operation> operations = new ArrayList<>();
+        int bytes = 0;
+
+        Batch(String query) { this.query = query; }
+
+        void add(HttpRequest request, CompletableFuture<HttpResponse> vessel, byte[] line) {
+            operations.add(new Operation(request, vessel, line));
+            bytes += line.length + 1;
+        }
+
+    }
+
+    /** The response to a single operation in a batch, which is its line of the batch response. */
+    static class Line implements HttpResponse {
+
+        final int index;
+        final int status;
+        final byte[] content;
+
+        Line(int index, int status, byte[] content) {
+            this.index = index;
+            this.status = status;
+            this.content = content;
+        }
+
+        @Override public int code() { return status; }
+        @Override public byte[] body() { return content; }
+        @Override public String contentType() { return "application/json"; }
+
+    }
+
+}
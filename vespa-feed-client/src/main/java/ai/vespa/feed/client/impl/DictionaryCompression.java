@@ -0,0 +1,195 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.feed.client.impl;
+
+import ai.vespa.feed.client.HttpResponse;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses document operations with dictionaries trained by the server for each document type, which lets
+ * even small documents compress well. Until the server has trained a dictionary for a document type, no
+ * compression is done for that type, and the server is asked again for a dictionary at regular intervals.
+ *
+ * Operations are sent with the "deflate" content encoding, and the zlib header names the dictionary that was used.
+ * A server which does not know the dictionary, e.g., because it is another container than the one which trained it,
+ * responds with 424, and the operation is then sent once more, right away, with the dictionary itself included, which
+ * the server then learns. This resend is not a retry: it does not count against the retry budget of the operation.
+ *
+ * @author jonmv
+ */
+class DictionaryCompression {
+
+    private static final Logger log = Logger.getLogger(DictionaryCompression.class.getName());
+    private static final JsonFactory jsonParserFactory = new JsonFactory();
+    private static final Duration fetchInterval = Duration.ofSeconds(10);
+    private static final Duration fetchTimeout = Duration.ofSeconds(10);
+
+    static final String DEFLATE = "deflate";
+    static final String DEFLATE_WITH_DICTIONARY = "x-vespa-deflate-dictionary";
+    /** The status the server responds with when it does not know the dictionary an operation was compressed with. */
+    static final int UNKNOWN_DICTIONARY = 424;
+
+    private final BiConsumer<HttpRequest, CompletableFuture<HttpResponse>> dispatcher;
+    private final LongSupplier nanoClock;
+    private final Map<String, DocumentType> documentTypes = new ConcurrentHashMap<>();
+    private final Set<HttpRequest> rejected = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    DictionaryCompression(BiConsumer<HttpRequest, CompletableFuture<HttpResponse>> dispatcher, LongSupplier nanoClock) {
+        this.dispatcher = dispatcher;
+        this.nanoClock = nanoClock;
+    }
+
+    /** Returns the given request body compressed with the dictionary for its document type, or null if there is none yet. */
+    Encoded encode(HttpRequest request) {
+        String documentType = documentTypeOf(request.path());
+        if (documentType == null || request.body() == null) return null;
+
+        DocumentType type = documentTypes.computeIfAbsent(documentType, DocumentType::new);
+        Dictionary dictionary = type.dictionary;
+        if (dictionary == null) {
+            type.maybeFetch(request);
+            return null;
+        }
+        byte[] compressed = deflate(request.body(), dictionary.content);
+        if ( ! rejected.remove(request))
+            return new Encoded(DEFLATE, compressed);
+
+        byte[] withDictionary = ByteBuffer.allocate(4 + dictionary.content.length + compressed.length)
+                                          .putInt(dictionary.content.length)
+                                          .put(dictionary.content)
+                                          .put(compressed)
+                                          .array();
+        return new Encoded(DEFLATE_WITH_DICTIONARY, withDictionary);
+    }
+
+    /**
+     * Notes the response to a request encoded by this, and returns whether the request should be sent again right away,
+     * because the server did not know its dictionary; the next encoding of the request then includes the dictionary.
+     */
+    boolean handleResponse(HttpRequest request, Encoded encoded, int status) {
+        if (status != UNKNOWN_DICTIONARY || ! DEFLATE.equals(encoded.encoding)) return false;
+        rejected.add(request);
+        return true;
+    }
+
+    /** Returns the "namespace/type" part of a /document/v1 path, or null if the path is not a document path. */
+    static String documentTypeOf(String path) {
+        if ( ! path.startsWith("/document/v1/")) return null;
+        int namespaceEnd = path.indexOf('/', 13);
+        if (namespaceEnd < 0) return null;
+        int typeEnd = path.indexOf('/', namespaceEnd + 1);
+        if (typeEnd < 0) return null;
+        return path.substring(13, typeEnd);
+    }
+
+    static byte[] deflate(byte[] data, byte[] dictionary) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setDictionary(dictionary);
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buffer = new byte[Math.min(1 << 16, data.length + 64)];
+            while ( ! deflater.finished())
+                out.write(buffer, 0, deflater.deflate(buffer));
+
+            return out.toByteArray();
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    /** Parses the dictionary in a response from the server, or returns null if there is none. */
+    static byte[] parseDictionary(byte[] json) throws IOException {
+        try (JsonParser parser = jsonParserFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return null;
+            String name;
+            while ((name = parser.nextFieldName()) != null) {
+                if ("dictionary".equals(name)) return Base64.getDecoder().decode(parser.nextTextValue());
+                parser.nextToken();
+                parser.skipChildren();
+            }
+            return null;
+        }
+    }
+
+    static class Encoded {
+
+        final String encoding;
+        final byte[] body;
+
+        Encoded(String encoding, byte[] body) {
+            this.encoding = encoding;
+            this.body = body;
+        }
+
+    }
+
+    private static class Dictionary {
+
+        final byte[] content;
+
+        Dictionary(byte[] content) { this.content = content; }
+
+    }
+
+    private class DocumentType {
+
+        final String path;
+        final AtomicBoolean fetching = new AtomicBoolean();
+        volatile Dictionary dictionary;
+        volatile long nextFetchNanos;
+
+        DocumentType(String name) {
+            this.path = "/document/v1/" + name + "/compression-dictionary/";
+            this.nextFetchNanos = nanoClock.getAsLong();
+        }
+
+        /** Asks the server for a dictionary, using the headers of the given request, unless this did so recently. */
+        void maybeFetch(HttpRequest request) {
+            if (nanoClock.getAsLong() - nextFetchNanos < 0 || ! fetching.compareAndSet(false, true)) return;
+
+            nextFetchNanos = nanoClock.getAsLong() + fetchInterval.toNanos();
+            CompletableFuture<HttpResponse> vessel = new CompletableFuture<>();
+            vessel.whenComplete((response, thrown) -> {
+                try {
+                    if (thrown != null)
+                        log.log(Level.FINE, "Failed fetching compression dictionary from " + path, thrown);
+                    else if (response.code() == 200) {
+                        byte[] content = parseDictionary(response.body());
+                        if (content != null && content.length > 0) dictionary = new Dictionary(content);
+                    }
+                }
+                catch (IOException | IllegalArgumentException e) {
+                    log.log(Level.FINE, "Failed parsing compression dictionary from " + path, e);
+                }
+                finally {
+                    fetching.set(false);
+                }
+            });
+            dispatcher.accept(new HttpRequest("GET", path, "", request.headers(), null, fetchTimeout, nanoClock), vessel);
+        }
+
+    }
+
+}
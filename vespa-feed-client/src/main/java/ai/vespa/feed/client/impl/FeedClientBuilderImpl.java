@@ -56,6 +56,7 @@ public class FeedClientBuilderImpl implements FeedClientBuilder {
     boolean dryrun = false;
     boolean speedTest = false;
     Compression compression = auto;
+    boolean batching = false;
     URI proxy;
     Duration connectionTtl = Duration.ZERO;
     LongSupplier nanoClock = System::nanoTime;
@@ -252,6 +253,12 @@ public class FeedClientBuilderImpl implements FeedClientBuilder {
         return this;
     }
 
+    @Override
+    public FeedClientBuilderImpl setBatching(boolean enabled) {
+        this.batching = enabled;
+        return this;
+    }
+
     FeedClientBuilderImpl setNanoClock(LongSupplier nanoClock) {
         this.nanoClock = requireNonNull(nanoClock);
         return this;
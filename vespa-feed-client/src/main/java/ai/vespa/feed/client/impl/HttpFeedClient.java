@@ -12,11 +12,13 @@ import ai.vespa.feed.client.ResultException;
 import ai.vespa.feed.client.ResultParseException;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.StreamReadConstraints;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
@@ -55,11 +57,14 @@ class HttpFeedClient implements FeedClient {
     private final RequestStrategy requestStrategy;
     private final AtomicBoolean closed = new AtomicBoolean();
     private final boolean speedTest;
+    private final boolean batching;
     private final LongSupplier nanoClock;
 
     HttpFeedClient(FeedClientBuilderImpl builder) throws IOException {
         this(builder,
-             builder.dryrun ? () -> new DryrunCluster() : () -> new JettyCluster(builder));
+             builder.dryrun ? () -> new DryrunCluster()
+                            : builder.batching ? () -> new BatchingCluster(new JettyCluster(builder), builder.nanoClock)
+                                               : () -> new JettyCluster(builder));
     }
 
     HttpFeedClient(FeedClientBuilderImpl builder, ClusterFactory clusterFactory) throws IOException {
@@ -70,6 +75,7 @@ class HttpFeedClient implements FeedClient {
         this.requestHeaders = new HashMap<>(builder.requestHeaders);
         this.requestStrategy = requestStrategy;
         this.speedTest = builder.speedTest;
+        this.batching = builder.batching;
         this.nanoClock = builder.nanoClock;
         verifyConnection(builder, clusterFactory);
     }
@@ -123,7 +129,8 @@ class HttpFeedClient implements FeedClient {
                                               requestHeaders,
                                               operationJson == null ? null : operationJson.getBytes(UTF_8), // TODO: make it bytes all the way?
                                               params.timeout().orElse(maxTimeout),
-                                              nanoClock);
+                                              nanoClock,
+                                              batching ? toBatchable(method, documentId, operationJson, params, speedTest) : null);
 
         CompletableFuture<Result> promise = new CompletableFuture<>();
         requestStrategy.enqueue(documentId, request)
@@ -327,6 +334,60 @@ class HttpFeedClient implements FeedClient {
         return query.toString();
     }
 
+    /**
+     * Returns the line of the given operation in a JSONL batch, with its condition and create flag, which are given
+     * in the query of requests with a single operation; or null if the operation JSON is not an object.
+     */
+    static BatchingCluster.Batchable toBatchable(String method, DocumentId documentId, String operationJson,
+                                                 OperationParameters params, boolean speedTest) {
+        StringWriter line = new StringWriter(operationJson == null ? 64 : operationJson.length() + 64);
+        try (JsonGenerator generator = jsonParserFactory.createGenerator(line)) {
+            generator.writeStartObject();
+            switch (method) {
+                case "POST": generator.writeStringField("put", documentId.toString()); break;
+                case "PUT": generator.writeStringField("update", documentId.toString()); break;
+                case "DELETE": generator.writeStringField("remove", documentId.toString()); break;
+                default: throw new IllegalArgumentException("Unexpected HTTP method: " + method);
+            }
+            if (params.testAndSetCondition().isPresent())
+                generator.writeStringField("condition", params.testAndSetCondition().get());
+            if (params.createIfNonExistent())
+                generator.writeBooleanField("create", true);
+            if (operationJson != null) {
+                try (JsonParser parser = jsonParserFactory.createParser(operationJson)) {
+                    if (parser.nextToken() != JsonToken.START_OBJECT)
+                        return null;
+
+                    String name;
+                    while ((name = parser.nextFieldName()) != null) {
+                        JsonToken token = parser.nextToken();
+                        if ("fields".equals(name) && token == JsonToken.START_OBJECT) {
+                            int start = (int) parser.currentTokenLocation().getCharOffset();
+                            parser.skipChildren();
+                            int end = (int) parser.currentTokenLocation().getCharOffset() + 1;
+                            generator.writeFieldName("fields");
+                            generator.writeRawValue(operationJson, start, end - start);
+                        }
+                        else parser.skipChildren();
+                    }
+                }
+            }
+            generator.writeEndObject();
+        }
+        catch (IOException e) { // Let the server respond to the operation as it is, instead.
+            return null;
+        }
+        return new BatchingCluster.Batchable(getBatchQuery(params, speedTest), line.toString());
+    }
+
+    static String getBatchQuery(OperationParameters params, boolean speedTest) {
+        StringJoiner query = new StringJoiner("&", "?", "").setEmptyValue("");
+        params.route().ifPresent(route -> query.add("route=" + encode(route)));
+        params.tracelevel().ifPresent(tracelevel -> query.add("tracelevel=" + tracelevel));
+        if (speedTest) query.add("dryRun=true");
+        return query.toString();
+    }
+
     /** Factory for creating a new {@link Cluster} to dispatch operations to. Used for resetting the active cluster. */
     interface ClusterFactory {
 
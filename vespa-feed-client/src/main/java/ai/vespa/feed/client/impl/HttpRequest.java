@@ -19,8 +19,14 @@ class HttpRequest {
     private final long deadlineNanos;
     private final LongSupplier nanoClock;
     private final AtomicLong firstDispatchNanos = new AtomicLong(-1);
+    private final BatchingCluster.Batchable batchable;
 
     public HttpRequest(String method, String path, String query, Map<String, Supplier<String>> headers, byte[] body, Duration timeout, LongSupplier nanoClock) {
+        this(method, path, query, headers, body, timeout, nanoClock, null);
+    }
+
+    public HttpRequest(String method, String path, String query, Map<String, Supplier<String>> headers, byte[] body, Duration timeout, LongSupplier nanoClock,
+                       BatchingCluster.Batchable batchable) {
         this.method = method;
         this.path = path;
         this.query = query;
@@ -29,12 +35,17 @@ class HttpRequest {
         this.deadlineNanos = nanoClock.getAsLong() + timeout.toNanos();
         this.timeout = timeout;
         this.nanoClock = nanoClock;
+        this.batchable = batchable;
     }
 
     public String method() {
         return method;
     }
 
+    public String path() {
+        return path;
+    }
+
     public String pathAndQuery() {
         return path + (query.isEmpty() ? "?" : query + "&") + "timeout=" + Math.max(1, timeLeft().toMillis()) + "ms";
     }
@@ -59,6 +70,9 @@ class HttpRequest {
 
     Optional<Long> firstDispatchNanos() { return Optional.of(firstDispatchNanos.get()).filter(ns -> ns >= 0); }
 
+    /** Returns how this may be sent as part of a batch, if it may */
+    Optional<BatchingCluster.Batchable> batchable() { return Optional.ofNullable(batchable); }
+
     @Override
     public String toString() {
         return method + " " + path;
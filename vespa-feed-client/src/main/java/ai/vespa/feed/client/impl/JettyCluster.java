@@ -56,6 +56,7 @@ import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
 import static ai.vespa.feed.client.FeedClientBuilder.Compression.auto;
+import static ai.vespa.feed.client.FeedClientBuilder.Compression.dictionary;
 import static ai.vespa.feed.client.FeedClientBuilder.Compression.gzip;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.eclipse.jetty.http.MimeTypes.Type.APPLICATION_JSON;
@@ -74,11 +75,13 @@ class JettyCluster implements Cluster {
     private final HttpClient client;
     private final List<Endpoint> endpoints;
     private final Compression compression;
+    private final DictionaryCompression dictionaries;
 
     JettyCluster(FeedClientBuilderImpl b) throws IOException {
         this.client = createHttpClient(b);
         this.endpoints = b.endpoints.stream().map(Endpoint::new).collect(Collectors.toList());
         this.compression = b.compression;
+        this.dictionaries = compression == dictionary ? new DictionaryCompression(this::dispatch, b.nanoClock) : null;
     }
 
     @Override
@@ -98,8 +101,14 @@ class JettyCluster implements Cluster {
                         .headers(hs -> req.headers().forEach((k, v) -> hs.add(k, v.get())))
                         .idleTimeout(IDLE_TIMEOUT.toMillis(), MILLISECONDS)
                         .timeout(reqTimeoutMillis, MILLISECONDS);
-                if (req.body() != null) {
-                    boolean shouldCompress = compression == gzip || compression == auto && req.body().length > 512;
+                DictionaryCompression.Encoded encoded = dictionaries == null ? null : dictionaries.encode(req);
+                if (encoded != null) {
+                    jettyReq.headers(hs -> hs.add(HttpHeader.CONTENT_ENCODING, encoded.encoding));
+                    jettyReq.body(new BytesRequestContent(APPLICATION_JSON.asString(), encoded.body));
+                }
+                else if (req.body() != null) {
+                    // Until a dictionary is fetched, dictionary compression does what auto does.
+                    boolean shouldCompress = compression == gzip || (compression == auto || compression == dictionary) && req.body().length > 512;
                     byte[] bytes;
                     if (shouldCompress) {
                         ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 10);
@@ -124,6 +133,11 @@ class JettyCluster implements Cluster {
                                         result.isFailed()
                                                 ? result.getFailure().toString() : result.getResponse().getStatus()));
                         endpoint.inflight.decrementAndGet();
+                        if (   encoded != null && result.getResponse() != null
+                            && dictionaries.handleResponse(req, encoded, result.getResponse().getStatus())) {
+                            dispatch(req, vessel); // Send once more, with the dictionary the server did not know.
+                            return;
+                        }
                         if (result.isFailed()) vessel.completeExceptionally(result.getFailure());
                         else vessel.complete(new JettyResponse(result.getResponse(), getContent()));
                     }
@@ -0,0 +1,132 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.feed.client.impl;
+
+import ai.vespa.feed.client.DocumentId;
+import ai.vespa.feed.client.HttpResponse;
+import ai.vespa.feed.client.OperationParameters;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author jonmv
+ */
+class BatchingClusterTest {
+
+    @Test
+    void testBatchLines() {
+        DocumentId id = DocumentId.of("ns", "type", "0");
+        assertEquals("{\"put\":\"id:ns:type::0\",\"condition\":\"true\",\"create\":true,\"fields\":{ \"a\": [1, { \"b\": 2 }] }}",
+                     new String(HttpFeedClient.toBatchable("POST", id, "{ \"id\": \"ignored\", \"fields\": { \"a\": [1, { \"b\": 2 }] }, \"x\": { } }",
+                                                OperationParameters.empty().testAndSetCondition("true").createIfNonExistent(true),
+                                                false).line, UTF_8));
+        assertEquals("{\"update\":\"id:ns:type::0\",\"fields\":{}}",
+                     new String(HttpFeedClient.toBatchable("PUT", id, "{\"fields\":{}}", OperationParameters.empty(), false).line, UTF_8));
+        BatchingCluster.Batchable remove = HttpFeedClient.toBatchable("DELETE", id, null, OperationParameters.empty().route("default").tracelevel(3), true);
+        assertEquals("{\"remove\":\"id:ns:type::0\"}", new String(remove.line, UTF_8));
+        assertEquals("?route=default&tracelevel=3&dryRun=true", remove.query);
+        assertNull(HttpFeedClient.toBatchable("POST", id, "{ \"fields\": ", OperationParameters.empty(), false));
+        assertNull(HttpFeedClient.toBatchable("POST", id, "[]", OperationParameters.empty(), false));
+    }
+
+    @Test
+    void testBatching() throws ExecutionException, InterruptedException {
+        MockCluster delegate = new MockCluster();
+        BatchingCluster cluster = new BatchingCluster(delegate, System::nanoTime, Duration.ofMillis(100), Duration.ofMillis(100));
+
+        // Requests which can not be batched are dispatched as they are.
+        CompletableFuture<HttpResponse> handshake = new CompletableFuture<>();
+        HttpRequest unbatched = request(null);
+        cluster.dispatch(unbatched, handshake);
+        assertSame(unbatched, delegate.requests.take().request);
+
+        // Operations are sent together after a short while, and completed with their lines of the response.
+        List<CompletableFuture<HttpResponse>> vessels = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            vessels.add(new CompletableFuture<>());
+            cluster.dispatch(request(new BatchingCluster.Batchable("?route=default", "{\"remove\":\"id:ns:type::" + i + "\"}")), vessels.get(i));
+        }
+        Dispatched batch = delegate.requests.take();
+        assertEquals("POST", batch.request.method());
+        assertTrue(batch.request.pathAndQuery().startsWith("/document/v1/batch?route=default&timeout="), batch.request.pathAndQuery());
+        assertEquals("{\"remove\":\"id:ns:type::0\"}\n{\"remove\":\"id:ns:type::1\"}\n{\"remove\":\"id:ns:type::2\"}\n",
+                     new String(batch.request.body(), UTF_8));
+
+        batch.vessel.complete(HttpResponse.of(200, ("{\"index\":2,\"status\":200,\"id\":\"id:ns:type::2\"}\n" +
+                                                    "{\"index\":0,\"status\":412,\"id\":\"id:ns:type::0\",\"message\":\"no dice\"}\n")
+                                                           .getBytes(UTF_8)));
+        assertEquals(412, vessels.get(0).get().code());
+        assertEquals("{\"index\":0,\"status\":412,\"id\":\"id:ns:type::0\",\"message\":\"no dice\"}", new String(vessels.get(0).get().body(), UTF_8));
+        assertEquals(200, vessels.get(2).get().code());
+        // An operation without a line in the response fails with an IOException, and is retried.
+        assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, () -> vessels.get(1).get()).getCause());
+
+        // A batch which fails as a whole fails each of its operations in the same way.
+        CompletableFuture<HttpResponse> throttled = new CompletableFuture<>();
+        cluster.dispatch(request(new BatchingCluster.Batchable("", "{\"remove\":\"id:ns:type::0\"}")), throttled);
+        HttpResponse overload = HttpResponse.of(429, "{\"message\":\"overload\"}".getBytes(UTF_8));
+        delegate.requests.take().vessel.complete(overload);
+        assertSame(overload, throttled.get());
+
+        // A full batch is sent right away.
+        String line = "{\"remove\":\"id:ns:type::" + "x".repeat(BatchingCluster.maxBatchedOperationBytes - 64) + "\"}";
+        for (int i = 0; i * (line.length() + 1) < BatchingCluster.maxBatchBytes; i++)
+            cluster.dispatch(request(new BatchingCluster.Batchable("?tracelevel=9", line)), new CompletableFuture<>());
+        assertEquals(BatchingCluster.maxBatchBytes / (line.length() + 1) + 1,
+                     new String(delegate.requests.poll(0, TimeUnit.SECONDS).request.body(), UTF_8).split("\n").length);
+
+        // Operations are measured in UTF-8 bytes, so one with fewer characters than the limit may still be too large to batch.
+        String wide = "{\"remove\":\"id:ns:type::" + "æ".repeat(BatchingCluster.maxBatchedOperationBytes / 2) + "\"}";
+        assertTrue(wide.length() < BatchingCluster.maxBatchedOperationBytes);
+        HttpRequest large = request(new BatchingCluster.Batchable("", wide));
+        cluster.dispatch(large, new CompletableFuture<>());
+        assertSame(large, delegate.requests.poll(0, TimeUnit.SECONDS).request);
+
+        cluster.close();
+    }
+
+    private static HttpRequest request(BatchingCluster.Batchable batchable) {
+        return new HttpRequest("DELETE", "/document/v1/ns/type/docid/0", "", Map.of(), null, Duration.ofMinutes(1), System::nanoTime, batchable);
+    }
+
+    private static class Dispatched {
+
+        final HttpRequest request;
+        final CompletableFuture<HttpResponse> vessel;
+
+        Dispatched(HttpRequest request, CompletableFuture<HttpResponse> vessel) {
+            this.request = request;
+            this.vessel = vessel;
+        }
+
+    }
+
+    private static class MockCluster implements Cluster {
+
+        final BlockingQueue<Dispatched> requests = new LinkedBlockingQueue<>();
+
+        @Override
+        public void dispatch(HttpRequest request, CompletableFuture<HttpResponse> vessel) {
+            requests.add(new Dispatched(request, vessel));
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.feed.client.impl;
+
+import ai.vespa.feed.client.HttpResponse;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Inflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author jonmv
+ */
+class DictionaryCompressionTest {
+
+    @Test
+    void documentTypeIsParsedFromPath() {
+        assertEquals("ns/music", DictionaryCompression.documentTypeOf("/document/v1/ns/music/docid/one"));
+        assertEquals("ns/music", DictionaryCompression.documentTypeOf("/document/v1/ns/music/number/1/two"));
+        assertNull(DictionaryCompression.documentTypeOf("/document/v1/ns"));
+        assertNull(DictionaryCompression.documentTypeOf("/search/"));
+    }
+
+    @Test
+    void operationsAreCompressedOnceDictionaryIsFetched() throws Exception {
+        AtomicLong nowNanos = new AtomicLong(0);
+        List<HttpRequest> fetches = new ArrayList<>();
+        List<CompletableFuture<HttpResponse>> vessels = new ArrayList<>();
+        DictionaryCompression compression = new DictionaryCompression((request, vessel) -> { fetches.add(request); vessels.add(vessel); },
+                                                                       nowNanos::get);
+        byte[] document = "{\"fields\":{\"artist\":\"Tom Waits\"}}".getBytes(UTF_8);
+        byte[] dictionary = "{\"fields\":{\"artist\":\"".getBytes(UTF_8);
+        HttpRequest request = new HttpRequest("POST", "/document/v1/ns/music/docid/one", "", Map.of(), document, Duration.ofSeconds(10), nowNanos::get);
+
+        // No dictionary until the server has one; ask again only after a while.
+        assertNull(compression.encode(request));
+        assertEquals(1, fetches.size());
+        assertEquals("/document/v1/ns/music/compression-dictionary/", fetches.get(0).path());
+        vessels.get(0).complete(HttpResponse.of(404, "{}".getBytes(UTF_8)));
+        assertNull(compression.encode(request));
+        assertEquals(1, fetches.size());
+
+        nowNanos.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertNull(compression.encode(request));
+        assertEquals(2, fetches.size());
+        vessels.get(1).complete(HttpResponse.of(200, ("{\"pathId\":\"/document/v1/ns/music/compression-dictionary/\"," +
+                                                      "\"dictionaryId\":1,\"dictionary\":\"" +
+                                                      Base64.getEncoder().encodeToString(dictionary) + "\"}").getBytes(UTF_8)));
+
+        DictionaryCompression.Encoded encoded = compression.encode(request);
+        assertEquals("deflate", encoded.encoding);
+        assertTrue(encoded.body.length < document.length);
+        assertArrayEquals(document, inflate(encoded.body, dictionary));
+
+        // A server which does not know the dictionary gets it along with an immediate resend.
+        assertFalse(compression.handleResponse(request, encoded, 200));
+        assertTrue(compression.handleResponse(request, encoded, 424));
+        DictionaryCompression.Encoded retried = compression.encode(request);
+        assertEquals("x-vespa-deflate-dictionary", retried.encoding);
+        ByteBuffer body = ByteBuffer.wrap(retried.body);
+        assertEquals(dictionary.length, body.getInt());
+        assertArrayEquals(dictionary, Arrays.copyOfRange(retried.body, 4, 4 + dictionary.length));
+        assertArrayEquals(encoded.body, Arrays.copyOfRange(retried.body, 4 + dictionary.length, retried.body.length));
+        assertFalse(compression.handleResponse(request, retried, 424));
+        assertEquals("deflate", compression.encode(request).encoding);
+    }
+
+    static byte[] inflate(byte[] compressed, byte[] dictionary) throws Exception {
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+        byte[] buffer = new byte[1 << 10];
+        int length = inflater.inflate(buffer);
+        assertTrue(inflater.needsDictionary());
+        inflater.setDictionary(dictionary);
+        length += inflater.inflate(buffer, length, buffer.length - length);
+        assertTrue(inflater.finished());
+        inflater.end();
+        return Arrays.copyOf(buffer, length);
+    }
+
+}
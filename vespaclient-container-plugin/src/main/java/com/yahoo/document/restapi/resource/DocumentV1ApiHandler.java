@@ -7,6 +7,9 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.StreamReadConstraints;
 import com.yahoo.cloud.config.ClusterListConfig;
 import com.yahoo.component.annotation.Inject;
+import com.yahoo.compress.CompressionDictionaries;
+import com.yahoo.compress.CompressionDictionary;
+import com.yahoo.compress.DictionaryCompressor;
 import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.concurrent.SystemTimer;
 import com.yahoo.container.core.HandlerMetricContextUtil;
@@ -14,6 +17,7 @@ import com.yahoo.container.core.documentapi.VespaDocumentAccess;
 import com.yahoo.container.jdisc.ContentChannelOutputStream;
 import com.yahoo.document.Document;
 import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentOperation;
 import com.yahoo.document.DocumentPut;
 import com.yahoo.document.DocumentRemove;
 import com.yahoo.document.DocumentTypeManager;
@@ -78,31 +82,40 @@ import com.yahoo.vespa.http.server.MetricNames;
 import com.yahoo.yolean.Exceptions;
 import com.yahoo.yolean.Exceptions.RunnableThrowingIOException;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.Queue;
 import java.util.StringJoiner;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Phaser;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -120,6 +133,7 @@ import static com.yahoo.jdisc.http.HttpRequest.Method.GET;
 import static com.yahoo.jdisc.http.HttpRequest.Method.OPTIONS;
 import static com.yahoo.jdisc.http.HttpRequest.Method.POST;
 import static com.yahoo.jdisc.http.HttpRequest.Method.PUT;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.logging.Level.FINE;
@@ -139,6 +153,9 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
     private static final Duration handlerTimeout = Duration.ofMillis(100); // Extra time to allow for handler, JDisc and jetty to complete.
 
     private static final Logger log = Logger.getLogger(DocumentV1ApiHandler.class.getName());
+    private static final int maxDecompressedSize = 1 << 27; // Guards against decompression bombs.
+    private static final int maxBatchSize = 1 << 27; // Batches are read fully before they are parsed.
+    private static final int maxBufferedOperationSize = 1 << 27; // Compressed and sampled operations are read fully before they are parsed.
     private static final Parser<Integer> integerParser = Integer::parseInt;
     private static final Parser<Long> unsignedLongParser = Long::parseUnsignedLong;
     private static final Parser<Long> timeoutMillisParser = value -> ParameterParser.asMilliSeconds(value, defaultTimeout.toMillis());
@@ -189,6 +206,7 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
     private final DocumentOperationParser parser;
     private final long maxThrottled;
     private final long maxThrottledAgeNS;
+    private final long maxBufferedBatchBytes;
     private final DocumentAccess access;
     private final AsyncSession asyncSession;
     private final Map<String, StorageCluster> clusters;
@@ -196,11 +214,15 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
     private final Deque<BooleanSupplier> visitOperations = new ConcurrentLinkedDeque<>();
     private final AtomicLong enqueued = new AtomicLong();
     private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong bufferedBatchBytes = new AtomicLong();
     private final Map<VisitorControlHandler, VisitorSession> visits = new ConcurrentHashMap<>();
     private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("document-api-handler-"));
     private final ScheduledExecutorService visitDispatcher = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("document-api-handler-visit-"));
     private final Map<String, Map<Method, Handler>> handlers = defineApi();
     private final HandlerMetricContextUtil metricUtil;
+    private final ExecutorService dictionaryTrainer = Executors.newSingleThreadExecutor(new DaemonThreadFactory("document-api-handler-dictionary-"));
+    private final CompressionDictionaries dictionaries = new CompressionDictionaries(dictionaryTrainer);
+    private final DictionaryCompressor dictionaryCompressor = new DictionaryCompressor();
 
     @Inject
     public DocumentV1ApiHandler(Metric metric,
@@ -225,6 +247,7 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         this.maxThrottled = executorConfig.maxThrottled();
         log.info("maxThrottled=" + maxThrottled);
         this.maxThrottledAgeNS = (long) (executorConfig.maxThrottledAge() * 1_000_000_000.0);
+        this.maxBufferedBatchBytes = executorConfig.maxBufferedBatchBytes();
         this.access = access;
         this.asyncSession = access.createAsyncSession(new AsyncParameters());
         this.clusters = parseClusters(clusterListConfig, bucketSpacesConfig);
@@ -294,6 +317,7 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         // Shut down both dispatchers, so only we empty the queues of outstanding operations, and can be sure they're empty.
         dispatcher.shutdown();
         visitDispatcher.shutdown();
+        dictionaryTrainer.shutdownNow();
         while ( ! (operations.isEmpty() && visitOperations.isEmpty()) && clock.instant().isBefore(doom)) {
             dispatchEnqueued();
             dispatchVisitEnqueued();
@@ -339,6 +363,9 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
                             POST, this::postDocuments,
                             DELETE, this::deleteDocuments));
 
+        handlers.put("/document/v1/batch",
+                     Map.of(POST, this::postBatch));
+
         handlers.put("/document/v1/{namespace}/{documentType}/docid/",
                      Map.of(GET, this::getDocuments,
                             POST, this::postDocuments,
@@ -357,6 +384,9 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
                             PUT, this::putDocuments,
                             DELETE, this::deleteDocuments));
 
+        handlers.put("/document/v1/{namespace}/{documentType}/compression-dictionary/",
+                     Map.of(GET, this::getCompressionDictionary));
+
         handlers.put("/document/v1/{namespace}/{documentType}/docid/{*}",
                      Map.of(GET, this::getDocument,
                             POST, this::postDocument,
@@ -473,7 +503,7 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
 
         return new ForwardingContentChannel(in -> {
             enqueueAndDispatch(request, handler, () -> {
-                ParsedDocumentOperation parsed = parser.parsePut(in, path.id().toString());
+                ParsedDocumentOperation parsed = parser.parsePut(decode(request, path, in), path.id().toString());
                 DocumentPut put = (DocumentPut)parsed.operation();
                 getProperty(request, CONDITION).map(TestAndSetCondition::new).ifPresent(put::setCondition);
                 getProperty(request, CREATE, booleanParser).ifPresent(put::setCreateIfNonExistent);
@@ -498,7 +528,7 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
 
         return new ForwardingContentChannel(in -> {
             enqueueAndDispatch(request, handler, () -> {
-                ParsedDocumentOperation parsed = parser.parseUpdate(in, path.id().toString());
+                ParsedDocumentOperation parsed = parser.parseUpdate(decode(request, path, in), path.id().toString());
                 DocumentUpdate update = (DocumentUpdate)parsed.operation();
                 getProperty(request, CONDITION).map(TestAndSetCondition::new).ifPresent(update::setCondition);
                 getProperty(request, CREATE, booleanParser).ifPresent(update::setCreateIfNonExistent);
@@ -513,6 +543,81 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         });
     }
 
+    /** Returns the compression dictionary trained for the document type of the path, which clients may compress operations with. */
+    private ContentChannel getCompressionDictionary(HttpRequest request, DocumentPath path, ResponseHandler handler) {
+        String documentType = path.documentType().orElseThrow();
+        Optional<CompressionDictionary> dictionary = dictionaries.trained(documentType);
+        loggingException(() -> {
+            if (dictionary.isEmpty()) {
+                JsonResponse.create(request, "No compression dictionary is trained for document type '" + documentType + "' yet", handler)
+                            .respond(Response.Status.NOT_FOUND);
+                return;
+            }
+            try (JsonResponse response = JsonResponse.create(request, handler)) {
+                response.writeCompressionDictionary(dictionary.get());
+                response.commit(Response.Status.OK);
+            }
+        });
+        return ignoredContent;
+    }
+
+    /**
+     * Returns the document operation content of the given request, inflating it if it is compressed with a dictionary,
+     * and sampling it for training of a dictionary for its document type if there is none yet.
+     */
+    private InputStream decode(HttpRequest request, DocumentPath path, InputStream in) {
+        String encoding = request.headers().getFirst("Content-Encoding");
+        boolean deflated = "deflate".equalsIgnoreCase(encoding);
+        boolean withDictionary = Headers.DEFLATE_WITH_DICTIONARY.equalsIgnoreCase(encoding);
+        String documentType = path.documentType().orElseThrow();
+        boolean knownType = parser.hasDocumentType(documentType);
+        if ( ! deflated && ! withDictionary && ! (knownType && dictionaries.isSampling(documentType)))
+            return in;
+
+        byte[] data;
+        try {
+            data = in.readNBytes(maxBufferedOperationSize + 1);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (data.length > maxBufferedOperationSize)
+            throw new OperationTooLargeException("Operation content exceeds " + maxBufferedOperationSize + " bytes");
+        if (withDictionary) {
+            if (data.length < 4) throw new IllegalArgumentException("Missing compression dictionary in request content");
+            int length = (data[0] & 0xff) << 24 | (data[1] & 0xff) << 16 | (data[2] & 0xff) << 8 | (data[3] & 0xff);
+            if (length <= 0 || length > CompressionDictionary.maxSize || length > data.length - 4)
+                throw new IllegalArgumentException("Illegal compression dictionary length " + length);
+            if ( ! knownType)
+                throw new IllegalArgumentException("Document type " + documentType + " does not exist");
+
+            dictionaries.register(documentType, new CompressionDictionary(Arrays.copyOfRange(data, 4, 4 + length)));
+            data = Arrays.copyOfRange(data, 4 + length, data.length);
+        }
+        if (deflated || withDictionary) {
+            OptionalInt id = DictionaryCompressor.dictionaryId(data);
+            CompressionDictionary dictionary = null;
+            if (id.isPresent())
+                dictionary = dictionaries.get(id.getAsInt())
+                                         .orElseThrow(() -> new UnknownDictionaryException("Unknown compression dictionary " +
+                                                                                           Integer.toUnsignedString(id.getAsInt())));
+            data = dictionaryCompressor.decompress(data, dictionary, maxDecompressedSize);
+        }
+        if (knownType)
+            dictionaries.sample(documentType, data);
+        return new ByteArrayInputStream(data);
+    }
+
+    /** Thrown when a request is compressed with a dictionary this doesn't know, which the client should then send along. */
+    private static class UnknownDictionaryException extends RuntimeException {
+        private UnknownDictionaryException(String message) { super(message); }
+    }
+
+    /** Thrown when the content of a request which must be read fully is too large. */
+    private static class OperationTooLargeException extends RuntimeException {
+        private OperationTooLargeException(String message) { super(message); }
+    }
+
     private ContentChannel deleteDocument(HttpRequest request, DocumentPath path, ResponseHandler rawHandler) {
         ResponseHandler handler = new MeasuringResponseHandler(
                 request, rawHandler, com.yahoo.documentapi.metrics.DocumentOperationType.REMOVE, clock.instant());
@@ -535,6 +640,155 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         return ignoredContent;
     }
 
+    /**
+     * Feeds the JSONL document operations in the request content, and streams back a JSONL line with the result of
+     * each operation as it completes. Operations on the same document are dispatched in the order they are given.
+     * All operations are parsed before the response is committed, so a batch which is too large, or which fails
+     * for other reasons than invalid operations, gets an error status rather than a truncated response.
+     * The content of a batch counts towards a bound on batch content held across requests until all its operations
+     * have completed, and batches which would exceed this bound are rejected as overload.
+     */
+    private ContentChannel postBatch(HttpRequest request, DocumentPath path, ResponseHandler handler) {
+        disallow(request, CONDITION, CREATE);
+        boolean dryRun = getProperty(request, DRY_RUN, booleanParser).orElse(false);
+        return new ForwardingContentChannel(in -> {
+            Optional<byte[]> content = readBatch(in);
+            if (content.isEmpty()) {
+                tooLarge(request, "Batch content exceeds " + maxBatchSize + " bytes", handler);
+                return;
+            }
+            int size = content.get().length;
+            if ( ! reserveBatchBytes(size)) {
+                overload(request, "Rejecting batch of " + size + " bytes, as " + maxBufferedBatchBytes +
+                                  " bytes of batch content are already held by uncompleted operations", handler);
+                return;
+            }
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> { if (released.compareAndSet(false, true)) bufferedBatchBytes.addAndGet(-size); };
+            List<InputStream> lines = splitLines(content.get());
+            Map<Integer, IllegalArgumentException> invalid = new HashMap<>();
+            Map<DocumentId, BatchOperation> last = new HashMap<>();
+            List<BatchOperation> first = new ArrayList<>();
+            BatchResponse batch;
+            try {
+                for (int index = 0; index < lines.size(); index++) {
+                    ParsedDocumentOperation parsed;
+                    try {
+                        parsed = parser.parseOperation(lines.get(index));
+                    }
+                    catch (IllegalArgumentException e) {
+                        invalid.put(index, e);
+                        continue;
+                    }
+                    BatchOperation operation = new BatchOperation(index, parsed);
+                    BatchOperation previous = last.put(parsed.operation().getId(), operation);
+                    if (previous == null) first.add(operation);
+                    else previous.next = operation;
+                }
+                batch = BatchResponse.commit(handler, lines.size(), release);
+            }
+            catch (RuntimeException | Error e) {
+                release.run();
+                throw e;
+            }
+            invalid.forEach((index, e) -> badRequest(request, e, batch.handlerFor(index, () -> { })));
+            for (BatchOperation operation : first)
+                dispatchBatched(request, batch, operation, dryRun);
+        });
+    }
+
+    /** Dispatches the given operation of a batch, and the next operation on the same document when this completes. */
+    private void dispatchBatched(HttpRequest request, BatchResponse batch, BatchOperation operation, boolean dryRun) {
+        DocumentOperation document = operation.parsed.operation();
+        ResponseHandler handler = new MeasuringResponseHandler(
+                request,
+                batch.handlerFor(operation.index, () -> { if (operation.next != null) dispatchBatched(request, batch, operation.next, dryRun); }),
+                operationTypeOf(document),
+                clock.instant());
+        if (dryRun) {
+            handleFeedOperation(document.getId(), true, handler, new com.yahoo.documentapi.Response(-1));
+            return;
+        }
+
+        enqueueAndDispatch(request, handler, () -> {
+            DocumentOperationParameters parameters = parametersFromRequest(request, ROUTE)
+                    .withResponseHandler(response -> {
+                        outstanding.decrementAndGet();
+                        if (document instanceof DocumentPut put)
+                            updatePutMetrics(response.outcome(), latencyOf(request), put.getCreateIfNonExistent());
+                        else if (document instanceof DocumentUpdate update)
+                            updateUpdateMetrics(response.outcome(), latencyOf(request), update.getCreateIfNonExistent());
+                        else
+                            updateRemoveMetrics(response.outcome(), latencyOf(request));
+                        handleFeedOperation(document.getId(), operation.parsed.fullyApplied(), handler, response);
+                    });
+            if (document instanceof DocumentPut put)
+                return () -> dispatchOperation(() -> asyncSession.put(put, parameters));
+            if (document instanceof DocumentUpdate update)
+                return () -> dispatchOperation(() -> asyncSession.update(update, parameters));
+            return () -> dispatchOperation(() -> asyncSession.remove((DocumentRemove) document, parameters));
+        });
+    }
+
+    private static com.yahoo.documentapi.metrics.DocumentOperationType operationTypeOf(DocumentOperation operation) {
+        if (operation instanceof DocumentPut) return com.yahoo.documentapi.metrics.DocumentOperationType.PUT;
+        if (operation instanceof DocumentUpdate) return com.yahoo.documentapi.metrics.DocumentOperationType.UPDATE;
+        return com.yahoo.documentapi.metrics.DocumentOperationType.REMOVE;
+    }
+
+    /**
+     * Reserves the given number of bytes of batch content, and returns whether this was possible without exceeding
+     * the bound on buffered batch content. A batch is always admitted when no other batch content is buffered.
+     */
+    private boolean reserveBatchBytes(long bytes) {
+        long buffered = bufferedBatchBytes.addAndGet(bytes);
+        if (buffered <= maxBufferedBatchBytes || buffered == bytes)
+            return true;
+
+        bufferedBatchBytes.addAndGet(-bytes);
+        return false;
+    }
+
+    /** Returns the given content, or empty if it is larger than the max batch size. */
+    private static Optional<byte[]> readBatch(InputStream in) {
+        byte[] data;
+        try {
+            data = in.readNBytes(maxBatchSize + 1);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return data.length > maxBatchSize ? Optional.empty() : Optional.of(data);
+    }
+
+    /** Returns the non-blank lines of the given content. */
+    private static List<InputStream> splitLines(byte[] data) {
+        List<InputStream> lines = new ArrayList<>();
+        for (int start = 0, end; start < data.length; start = end + 1) {
+            end = start;
+            boolean blank = true;
+            for ( ; end < data.length && data[end] != '\n'; end++)
+                blank &= data[end] == ' ' || data[end] == '\t' || data[end] == '\r';
+            if ( ! blank)
+                lines.add(new ByteArrayInputStream(data, start, end - start));
+        }
+        return lines;
+    }
+
+    /** An operation in a batch, with the operation on the same document which follows it in the batch, if any. */
+    private static class BatchOperation {
+
+        private final int index;
+        private final ParsedDocumentOperation parsed;
+        private BatchOperation next;
+
+        BatchOperation(int index, ParsedDocumentOperation parsed) {
+            this.index = index;
+            this.parsed = parsed;
+        }
+
+    }
+
     private DocumentOperationParameters parametersFromRequest(HttpRequest request, String... names) {
         DocumentOperationParameters parameters = getProperty(request, TRACELEVEL, integerParser).map(parameters()::withTraceLevel)
                                                                                                 .orElse(parameters());
@@ -679,6 +933,13 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
             return response;
         }
 
+        /** Creates a new JsonResponse with id field written. */
+        static JsonResponse create(DocumentId id, ResponseHandler handler) throws IOException {
+            JsonResponse response = new JsonResponse(handler, null);
+            response.writeDocId(id);
+            return response;
+        }
+
         /** Creates a new JsonResponse with path field written. */
         static JsonResponse create(HttpRequest request, ResponseHandler handler) throws IOException {
             JsonResponse response = new JsonResponse(handler, request);
@@ -745,6 +1006,11 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
             json.writeStringField("message", message);
         }
 
+        synchronized void writeCompressionDictionary(CompressionDictionary dictionary) throws IOException {
+            json.writeNumberField("dictionaryId", Integer.toUnsignedLong(dictionary.id()));
+            json.writeStringField("dictionary", Base64.getEncoder().encodeToString(dictionary.content()));
+        }
+
         synchronized void writeDocumentCount(long count) throws IOException {
             json.writeNumberField("documentCount", count);
         }
@@ -962,6 +1228,21 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         });
     }
 
+    /** Responds with a status the feed client resends the operation on, with the dictionary, which is not mistaken for overload. */
+    private static void unknownDictionary(HttpRequest request, String message, ResponseHandler handler) {
+        loggingException(() -> {
+            log.log(FINE, () -> "Unknown dictionary handling request " + request.getMethod() + " " + request.getUri().getRawPath() + ": " + message);
+            JsonResponse.create(request, message, handler).respond(Response.Status.FAILED_DEPENDENCY);
+        });
+    }
+
+    private static void tooLarge(HttpRequest request, String message, ResponseHandler handler) {
+        loggingException(() -> {
+            log.log(FINE, () -> "Too large request " + request.getMethod() + " " + request.getUri().getRawPath() + ": " + message);
+            JsonResponse.create(request, message, handler).respond(Response.Status.REQUEST_TOO_LONG);
+        });
+    }
+
     private static void serverError(HttpRequest request, Throwable t, ResponseHandler handler) {
         loggingException(() -> {
             log.log(WARNING, "Uncaught exception handling request " + request.getMethod() + " " + request.getUri().getRawPath(), t);
@@ -976,6 +1257,77 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         });
     }
 
+    /** Writes the responses to a batch of document operations as JSONL, with a line per operation, as these complete. */
+    private static class BatchResponse {
+
+        private final ContentChannel channel;
+        private final int operations;
+        private final Runnable onClose;
+        private int written = 0;
+
+        private BatchResponse(ContentChannel channel, int operations, Runnable onClose) {
+            this.channel = channel;
+            this.operations = operations;
+            this.onClose = onClose;
+        }
+
+        /**
+         * Commits a response with status OK, which is closed when a response to each of the given number of operations
+         * is written, after which the given callback is run.
+         */
+        static BatchResponse commit(ResponseHandler handler, int operations, Runnable onClose) {
+            Response response = new Response(Response.Status.OK);
+            response.headers().add("Content-Type", List.of("application/jsonl; charset=UTF-8"));
+            BatchResponse batch = new BatchResponse(handler.handleResponse(response), operations, onClose);
+            if (operations == 0)
+                batch.close();
+            return batch;
+        }
+
+        private void close() {
+            try {
+                channel.close(logException);
+            }
+            finally {
+                onClose.run();
+            }
+        }
+
+        /**
+         * Returns a response handler for the operation with the given index, which writes the response it is given as
+         * a line with the index and status of the operation added to its JSON, and then runs the given callback.
+         */
+        ResponseHandler handlerFor(int index, Runnable then) {
+            return response -> new ContentChannel() {
+                private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+                @Override public void write(ByteBuffer buf, CompletionHandler handler) {
+                    while (buf.hasRemaining()) content.write(buf.get());
+                    if (handler != null) handler.completed();
+                }
+                @Override public void close(CompletionHandler handler) {
+                    writeLine(index, response.getStatus(), content.toByteArray());
+                    if (handler != null) handler.completed();
+                    then.run();
+                }
+            };
+        }
+
+        private synchronized void writeLine(int index, int status, byte[] json) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(json.length + 32);
+            line.writeBytes(("{\"index\":" + index + ",\"status\":" + status).getBytes(UTF_8));
+            if (json.length > 2 && json[0] == '{') { // Splice the fields of the operation response into the line.
+                line.write(',');
+                line.write(json, 1, json.length - 1);
+            }
+            else line.write('}');
+            line.write('\n');
+            channel.write(ByteBuffer.wrap(line.toByteArray()), logException);
+            if (++written == operations)
+                close();
+        }
+
+    }
+
     private static void loggingException(RunnableThrowingIOException runnable) {
         try {
             runnable.run();
@@ -1024,6 +1376,12 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
             catch (IllegalArgumentException e) {
                 badRequest(request, e, handler);
             }
+            catch (UnknownDictionaryException e) {
+                unknownDictionary(request, e.getMessage(), handler);
+            }
+            catch (OperationTooLargeException e) {
+                tooLarge(request, e.getMessage(), handler);
+            }
             catch (RuntimeException e) {
                 serverError(request, e, handler);
             }
@@ -1106,6 +1464,10 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
             this.manager = new DocumentTypeManager(config);
         }
 
+        boolean hasDocumentType(String name) {
+            return manager.hasDocumentType(name);
+        }
+
         ParsedDocumentOperation parsePut(InputStream inputStream, String docId) {
             return parse(inputStream, docId, DocumentOperationType.PUT);
         }
@@ -1114,6 +1476,15 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
             return parse(inputStream, docId, DocumentOperationType.UPDATE);
         }
 
+        ParsedDocumentOperation parseOperation(InputStream inputStream) {
+            try {
+                return new JsonReader(manager, inputStream, jsonFactory).readSingleOperation();
+            } catch (IllegalArgumentException e) {
+                incrementMetricParseError();
+                throw e;
+            }
+        }
+
         private ParsedDocumentOperation parse(InputStream inputStream, String docId, DocumentOperationType operation) {
             try {
                 return new JsonReader(manager, inputStream, jsonFactory).readSingleDocumentStreaming(operation, docId);
@@ -1129,12 +1500,22 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         void onSuccess(Document document, JsonResponse response) throws IOException;
     }
 
+    interface JsonResponseFactory {
+        JsonResponse create() throws IOException;
+    }
+
     private static void handle(DocumentPath path,
                                HttpRequest request,
                                ResponseHandler handler,
                                com.yahoo.documentapi.Response response,
                                SuccessCallback callback) {
-        try (JsonResponse jsonResponse = JsonResponse.create(path, handler, request)) {
+        handle(() -> JsonResponse.create(path, handler, request), response, callback);
+    }
+
+    private static void handle(JsonResponseFactory factory,
+                               com.yahoo.documentapi.Response response,
+                               SuccessCallback callback) {
+        try (JsonResponse jsonResponse = factory.create()) {
             jsonResponse.writeTrace(response.getTrace());
             if (response.isSuccess())
                 callback.onSuccess((response instanceof DocumentResponse) ? ((DocumentResponse) response).getDocument() : null, jsonResponse);
@@ -1169,6 +1550,13 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         handle(path, null, handler, response, (document, jsonResponse) -> jsonResponse.commit(Response.Status.OK, fullyApplied));
     }
 
+    private static void handleFeedOperation(DocumentId id,
+                                            boolean fullyApplied,
+                                            ResponseHandler handler,
+                                            com.yahoo.documentapi.Response response) {
+        handle(() -> JsonResponse.create(id, handler), response, (document, jsonResponse) -> jsonResponse.commit(Response.Status.OK, fullyApplied));
+    }
+
     private static double latencyOf(HttpRequest r) { return (System.nanoTime() - r.relativeCreatedAtNanoTime()) / 1e+9d; }
 
     private void updatePutMetrics(Outcome outcome, double latency, boolean create) {
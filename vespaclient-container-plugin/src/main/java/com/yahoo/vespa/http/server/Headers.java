@@ -37,4 +37,8 @@ public final class Headers {
     // because they were not declared in the target document type.
     public static final String IGNORED_FIELDS = "X-Vespa-Ignored-Fields";
 
+    // Content encoding of a document operation which is a 4 byte big-endian length, followed by a compression
+    // dictionary of that length, and then the operation compressed in the zlib ("deflate") format with that dictionary.
+    public static final String DEFLATE_WITH_DICTIONARY = "x-vespa-deflate-dictionary";
+
 }
@@ -2,6 +2,8 @@
 package com.yahoo.document.restapi.resource;
 
 import com.yahoo.cloud.config.ClusterListConfig;
+import com.yahoo.compress.CompressionDictionary;
+import com.yahoo.compress.DictionaryCompressor;
 import com.yahoo.container.jdisc.RequestHandlerTestDriver;
 import com.yahoo.document.BucketId;
 import com.yahoo.document.Document;
@@ -44,6 +46,9 @@ import com.yahoo.documentapi.VisitorResponse;
 import com.yahoo.documentapi.VisitorSession;
 import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
+import com.yahoo.jdisc.Request;
+import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.jdisc.http.HttpRequest;
 import com.yahoo.jdisc.test.MockMetric;
 import com.yahoo.messagebus.StaticThrottlePolicy;
 import com.yahoo.messagebus.Trace;
@@ -64,7 +69,11 @@ import org.junit.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -288,6 +297,91 @@ public class DocumentV1ApiTest {
         driver.close();
     }
 
+    @Test
+    public void testCompressedOperations() {
+        RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
+        String operation = "{\"fields\": {\"artist\": \"Tom Waits\"}}";
+        CompressionDictionary dictionary = new CompressionDictionary("{\"fields\": {\"artist\": \"".getBytes(UTF_8));
+        byte[] compressed = new DictionaryCompressor().compress(operation.getBytes(UTF_8), dictionary);
+        access.session.expect((put, parameters) -> {
+            assertEquals("Tom Waits", ((DocumentPut) put).getDocument().getFieldValue("artist").getWrappedValue());
+            parameters.responseHandler().get().handleResponse(new Response(0, null, Response.Outcome.SUCCESS));
+            return new Result();
+        });
+
+        // No dictionary is trained until enough operations are sampled
+        var response = driver.sendRequest("http://localhost/document/v1/space/music/compression-dictionary/");
+        assertSameJson("{" +
+                       "  \"pathId\": \"/document/v1/space/music/compression-dictionary/\"," +
+                       "  \"message\": \"No compression dictionary is trained for document type 'music' yet\"" +
+                       "}", response.readAll());
+        assertEquals(404, response.getStatus());
+
+        // Plain deflate is accepted
+        response = sendEncoded(driver, "deflate", new DictionaryCompressor().compress(operation.getBytes(UTF_8), null));
+        assertSameJson("{" +
+                       "  \"pathId\": \"/document/v1/space/music/number/1/two\"," +
+                       "  \"id\": \"id:space:music:n=1:two\"" +
+                       "}", response.readAll());
+        assertEquals(200, response.getStatus());
+
+        // An unknown dictionary is a 424, so the client resends the operation with the dictionary
+        response = sendEncoded(driver, "deflate", compressed);
+        assertSameJson("{" +
+                       "  \"pathId\": \"/document/v1/space/music/number/1/two\"," +
+                       "  \"message\": \"Unknown compression dictionary " + Integer.toUnsignedString(dictionary.id()) + "\"" +
+                       "}", response.readAll());
+        assertEquals(424, response.getStatus());
+
+        // The dictionary may be sent along with the operation, after which it is known
+        ByteBuffer withDictionary = ByteBuffer.allocate(4 + dictionary.content().length + compressed.length);
+        withDictionary.putInt(dictionary.content().length).put(dictionary.content()).put(compressed).flip();
+        response = sendEncoded(driver, "x-vespa-deflate-dictionary", withDictionary.array());
+        assertSameJson("{" +
+                       "  \"pathId\": \"/document/v1/space/music/number/1/two\"," +
+                       "  \"id\": \"id:space:music:n=1:two\"" +
+                       "}", response.readAll());
+        assertEquals(200, response.getStatus());
+        response = sendEncoded(driver, "deflate", compressed);
+        assertSameJson("{" +
+                       "  \"pathId\": \"/document/v1/space/music/number/1/two\"," +
+                       "  \"id\": \"id:space:music:n=1:two\"" +
+                       "}", response.readAll());
+        assertEquals(200, response.getStatus());
+
+        // Dictionaries are not registered for unknown document types
+        response = sendEncoded(driver, "/document/v1/space/nonexistent/number/1/two", "x-vespa-deflate-dictionary", withDictionary.array());
+        assertSameJson("{" +
+                       "  \"pathId\": \"/document/v1/space/nonexistent/number/1/two\"," +
+                       "  \"message\": \"Document type nonexistent does not exist\"" +
+                       "}", response.readAll());
+        assertEquals(400, response.getStatus());
+
+        // Corrupt data is a 400
+        response = sendEncoded(driver, "deflate", Arrays.copyOf(compressed, compressed.length - 4));
+        assertSameJson("{" +
+                       "  \"pathId\": \"/document/v1/space/music/number/1/two\"," +
+                       "  \"message\": \"Truncated zlib data\"" +
+                       "}", response.readAll());
+        assertEquals(400, response.getStatus());
+        driver.close();
+    }
+
+    private static RequestHandlerTestDriver.MockResponseHandler sendEncoded(RequestHandlerTestDriver driver, String encoding, byte[] body) {
+        return sendEncoded(driver, "/document/v1/space/music/number/1/two", encoding, body);
+    }
+
+    private static RequestHandlerTestDriver.MockResponseHandler sendEncoded(RequestHandlerTestDriver driver, String path, String encoding, byte[] body) {
+        RequestHandlerTestDriver.MockResponseHandler responseHandler = new RequestHandlerTestDriver.MockResponseHandler();
+        Request request = HttpRequest.newServerRequest(driver.jDiscDriver(), URI.create("http://localhost" + path), POST);
+        request.headers().put("Content-Encoding", encoding);
+        ContentChannel content = request.connect(responseHandler);
+        content.write(ByteBuffer.wrap(body), null);
+        content.close(null);
+        request.release();
+        return responseHandler;
+    }
+
     @Test
     public void testResponses() {
         RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
@@ -299,9 +393,11 @@ public class DocumentV1ApiTest {
                          "pathId": "/document/v1/not-found",
                          "message": "Nothing at '/document/v1/not-found'. Available paths are:
                        /document/v1/
+                       /document/v1/batch
                        /document/v1/{namespace}/{documentType}/docid/
                        /document/v1/{namespace}/{documentType}/group/{group}/
                        /document/v1/{namespace}/{documentType}/number/{number}/
+                       /document/v1/{namespace}/{documentType}/compression-dictionary/
                        /document/v1/{namespace}/{documentType}/docid/{*}
                        /document/v1/{namespace}/{documentType}/group/{group}/{*}
                        /document/v1/{namespace}/{documentType}/number/{number}/{*}"
@@ -1245,6 +1341,94 @@ public class DocumentV1ApiTest {
         driver.close();
     }
 
+    @Test
+    public void testBatch() {
+        RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
+        List<Object> operations = new ArrayList<>();
+        List<DocumentOperationParameters> parameters = new ArrayList<>();
+        access.session.expect((operation, params) -> {
+            operations.add(operation);
+            parameters.add(params);
+            return new Result();
+        });
+        var response = driver.sendRequest("http://localhost/document/v1/batch?route=default", POST,
+                                          """
+                                          {"put": "id:space:music::one", "condition": "test it", "fields": {"artist": "Tom Waits", "embedding": {"values": [1, 2, 3]}}}
+
+                                          {"update": "id:space:music::one", "create": true, "fields": {"artist": {"assign": "Asa-Chan & Jun-Ray"}}}
+                                          {"remove": "id:space:music:n=1:two"}
+                                          {"put": "id:space:music::three"}
+                                          """);
+
+        // The update is not dispatched until the put to the same document completes.
+        DocumentPut expectedPut = new DocumentPut(doc1);
+        expectedPut.setCondition(new TestAndSetCondition("test it"));
+        assertEquals(List.of(expectedPut, new DocumentRemove(doc2.getId())), operations);
+        assertEquals(parameters().withRoute("default"), parameters.get(0));
+        parameters.get(0).responseHandler().get().handleResponse(new Response(0, "no dice", Response.Outcome.CONDITION_FAILED));
+
+        assertEquals(3, operations.size());
+        DocumentUpdate update = (DocumentUpdate) operations.get(2);
+        assertEquals(doc1.getId(), update.getId());
+        assertTrue(update.getCreateIfNonExistent());
+        parameters.get(2).responseHandler().get().handleResponse(new UpdateResponse(0, true));
+        parameters.get(1).responseHandler().get().handleResponse(new DocumentIdResponse(0, doc2.getId()));
+
+        String[] lines = response.readAll().split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0], lines[0].startsWith("{\"index\":3,\"status\":400,\"pathId\":\"/document/v1/batch\",\"message\":"));
+        assertSameJson("{\"index\":0,\"status\":412,\"id\":\"id:space:music::one\",\"message\":\"no dice\"}", lines[1]);
+        assertSameJson("{\"index\":1,\"status\":200,\"id\":\"id:space:music::one\"}", lines[2]);
+        assertSameJson("{\"index\":2,\"status\":200,\"id\":\"id:space:music:n=1:two\"}", lines[3]);
+        assertEquals(200, response.getStatus());
+
+        // Dry-run batches are not dispatched, and an empty batch has an empty response.
+        access.session.expect((__, ___) -> { throw new AssertionError("Not supposed to happen"); });
+        response = driver.sendRequest("http://localhost/document/v1/batch?dryRun=true", POST, "{\"remove\": \"id:space:music::one\"}");
+        assertSameJson("{\"index\":0,\"status\":200,\"id\":\"id:space:music::one\"}", response.readAll());
+        response = driver.sendRequest("http://localhost/document/v1/batch", POST, "\n");
+        assertEquals("", response.readAll());
+        assertEquals(200, response.getStatus());
+        driver.close();
+    }
+
+    @Test
+    public void testBufferedBatchContentIsBounded() {
+        handler = new DocumentV1ApiHandler(clock, Duration.ofMillis(1), metric, metrics, access, docConfig,
+                                           new DocumentOperationExecutorConfig.Builder(executorConfig)
+                                                   .maxBufferedBatchBytes(50)
+                                                   .build(),
+                                           clusterConfig, bucketConfig);
+        RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
+        List<DocumentOperationParameters> parameters = new ArrayList<>();
+        access.session.expect((__, params) -> {
+            parameters.add(params);
+            return new Result();
+        });
+        String remove = "{\"remove\": \"id:space:music::one\"}";
+
+        // The content of the first batch is held until its operation completes, so the second batch is rejected.
+        var first = driver.sendRequest("http://localhost/document/v1/batch", POST, remove);
+        assertEquals(1, parameters.size());
+        var second = driver.sendRequest("http://localhost/document/v1/batch", POST, remove);
+        assertTrue(second.readAll().contains("bytes of batch content are already held by uncompleted operations"));
+        assertEquals(429, second.getStatus());
+        assertEquals(1, parameters.size());
+
+        parameters.get(0).responseHandler().get().handleResponse(new DocumentIdResponse(0, doc1.getId()));
+        assertSameJson("{\"index\":0,\"status\":200,\"id\":\"id:space:music::one\"}", first.readAll());
+
+        // The content of a completed batch is released, and a single batch is admitted even when larger than the bound.
+        var third = driver.sendRequest("http://localhost/document/v1/batch", POST, remove + "\n" + remove);
+        assertEquals(2, parameters.size());
+        parameters.get(1).responseHandler().get().handleResponse(new DocumentIdResponse(0, doc1.getId()));
+        assertEquals(3, parameters.size());
+        parameters.get(2).responseHandler().get().handleResponse(new DocumentIdResponse(0, doc1.getId()));
+        assertEquals(2, third.readAll().split("\n").length);
+        assertEquals(200, third.getStatus());
+        driver.close();
+    }
+
 
     static class MockDocumentAccess extends DocumentAccess {
 
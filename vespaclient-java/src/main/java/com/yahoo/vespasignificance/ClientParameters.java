@@ -26,6 +26,12 @@ public class ClientParameters {
     // Zstandard compression
     public final boolean zstCompression;
 
+    // Number of threads tokenizing documents
+    public final int threads;
+
+    // Bytes of heap to use for counting before spilling counts to disk
+    public final long memoryBudget;
+
     public ClientParameters(
             boolean help,
             String inputFile,
@@ -33,14 +39,34 @@ public class ClientParameters {
             String field,
             String language,
             boolean zstCompression) {
+        this(help, inputFile, outputFile, field, language, zstCompression, defaultThreads(), defaultMemoryBudget());
+    }
+
+    public ClientParameters(
+            boolean help,
+            String inputFile,
+            String outputFile,
+            String field,
+            String language,
+            boolean zstCompression,
+            int threads,
+            long memoryBudget) {
+        if (threads < 1) throw new IllegalArgumentException("Number of threads must be positive, but was " + threads);
+        if (memoryBudget < 1) throw new IllegalArgumentException("Memory budget must be positive, but was " + memoryBudget);
         this.help = help;
         this.inputFile = inputFile;
         this.outputFile = outputFile;
         this.field = field;
         this.language = language;
         this.zstCompression = zstCompression;
+        this.threads = threads;
+        this.memoryBudget = memoryBudget;
     }
 
+    static int defaultThreads() { return Runtime.getRuntime().availableProcessors(); }
+
+    static long defaultMemoryBudget() { return Runtime.getRuntime().maxMemory() / 2; }
+
     public static class Builder {
         private boolean help;
         private String inputFile;
@@ -48,6 +74,8 @@ public class ClientParameters {
         private String field;
         private String language;
         private boolean zstCompression;
+        private int threads = defaultThreads();
+        private long memoryBudget = defaultMemoryBudget();
 
         public Builder setHelp(boolean help) {
             this.help = help;
@@ -78,8 +106,18 @@ public class ClientParameters {
             return this;
         }
 
+        public Builder setThreads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder setMemoryBudget(long memoryBudget) {
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
         public ClientParameters build() {
-            return new ClientParameters(help, inputFile, outputFile, field, language, zstCompression);
+            return new ClientParameters(help, inputFile, outputFile, field, language, zstCompression, threads, memoryBudget);
         }
     }
 }
@@ -26,6 +26,8 @@ public class CommandLineOptions {
     public static final String FIELD_OPTION = "field";
     public static final String LANGUAGE_OPTION = "language";
     public static final String ZST_COMPRESSION = "zst-compression";
+    public static final String THREADS_OPTION = "threads";
+    public static final String MEMORY_BUDGET_OPTION = "memory-budget";
 
     private final Options options = createOptions();
 
@@ -73,6 +75,18 @@ public class CommandLineOptions {
                 .longOpt(ZST_COMPRESSION)
                 .build());
 
+        options.addOption(Option.builder("t")
+                .hasArg(true)
+                .desc("Number of threads tokenizing documents (default: number of processors)")
+                .longOpt(THREADS_OPTION)
+                .build());
+
+        options.addOption(Option.builder("m")
+                .hasArg(true)
+                .desc("Megabytes of memory to use for counting words before spilling counts to temporary files (default: half the max heap)")
+                .longOpt(MEMORY_BUDGET_OPTION)
+                .build());
+
         return options;
     }
 
@@ -97,6 +111,10 @@ public class CommandLineOptions {
             builder.setField(cl.getOptionValue(FIELD_OPTION));
             builder.setLanguage(cl.getOptionValue(LANGUAGE_OPTION));
             builder.setZstCompression(cl.hasOption(ZST_COMPRESSION) ? cl.getOptionValue(ZST_COMPRESSION) : "true");
+            if (cl.hasOption(THREADS_OPTION))
+                builder.setThreads(Integer.parseInt(cl.getOptionValue(THREADS_OPTION)));
+            if (cl.hasOption(MEMORY_BUDGET_OPTION))
+                builder.setMemoryBudget(Long.parseLong(cl.getOptionValue(MEMORY_BUDGET_OPTION)) << 20);
 
             return builder.build();
         } catch (ParseException e) {
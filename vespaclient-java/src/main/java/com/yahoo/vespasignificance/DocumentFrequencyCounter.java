@@ -0,0 +1,233 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespasignificance;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the number of documents each word occurs in, within a memory budget.
+ * Each counting thread adds to its own shard, which is written to disk as a sorted run when the shard's
+ * part of the budget is used up, and the runs are merged into the final, sorted counts at the end.
+ * At most a fixed number of runs are read at once, so when there are more runs than that, groups of them are
+ * first merged into larger runs, until there are few enough.
+ *
+ * @author MariusArhaug
+ */
+class DocumentFrequencyCounter implements Closeable {
+
+    /** A rough estimate of the heap used by each entry of a shard, in addition to the characters of the word */
+    private static final int entryOverhead = 100;
+
+    /** The default max number of runs to read at once, each with a buffer of {@link #runBufferSize} */
+    static final int defaultMaxFanIn = 64;
+
+    private static final int runBufferSize = 1 << 16;
+
+    private final Path directory;
+    private final long shardBudget;
+    private final int maxFanIn;
+    private final List<Path> runs = new ArrayList<>();
+    private final AtomicLong runsWritten = new AtomicLong();
+
+    /**
+     * Creates a counter.
+     *
+     * @param directory the directory to write runs to, which is deleted with its content when this is closed
+     * @param memoryBudget the number of bytes the shards of this may use in total
+     * @param shards the number of shards which will be used concurrently
+     */
+    DocumentFrequencyCounter(Path directory, long memoryBudget, int shards) {
+        this(directory, memoryBudget, shards, defaultMaxFanIn);
+    }
+
+    DocumentFrequencyCounter(Path directory, long memoryBudget, int shards, int maxFanIn) {
+        if (maxFanIn < 2) throw new IllegalArgumentException("Max fan-in must be at least 2, but was " + maxFanIn);
+        this.directory = directory;
+        this.shardBudget = Math.max(1, memoryBudget / shards);
+        this.maxFanIn = maxFanIn;
+    }
+
+    /** Returns a new shard of this, to be used by a single thread */
+    Shard newShard() { return new Shard(); }
+
+    /** Returns the number of sorted runs written to disk so far */
+    long runsWritten() { return runsWritten.get(); }
+
+    /**
+     * Merges the runs of all shards, which must all be flushed, and passes each word with its document count
+     * to the given consumer, in increasing order of the words.
+     */
+    void merge(Consumer consumer) throws IOException {
+        synchronized (runs) {
+            while (runs.size() > maxFanIn) {
+                List<Path> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += maxFanIn) {
+                    List<Path> group = runs.subList(i, Math.min(runs.size(), i + maxFanIn));
+                    merged.add(group.size() == 1 ? group.get(0) : mergeToRun(group));
+                }
+                runs.clear();
+                runs.addAll(merged);
+            }
+            merge(runs, consumer);
+        }
+    }
+
+    /** Merges the given runs into a new run, and deletes them */
+    private Path mergeToRun(List<Path> group) throws IOException {
+        Path run = directory.resolve("run-" + runsWritten.getAndIncrement());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), runBufferSize))) {
+            merge(group, (word, count) -> write(word, count, out));
+        }
+        for (Path merged : group)
+            Files.delete(merged);
+        return run;
+    }
+
+    private static void merge(List<Path> runs, Consumer consumer) throws IOException {
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            PriorityQueue<RunReader> heads = new PriorityQueue<>(Math.max(1, runs.size()), Comparator.comparing(r -> r.word));
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.next()) heads.add(reader);
+            }
+            while ( ! heads.isEmpty()) {
+                RunReader reader = heads.poll();
+                String word = reader.word;
+                long count = reader.count;
+                if (reader.next()) heads.add(reader);
+                while ( ! heads.isEmpty() && heads.peek().word.equals(word)) {
+                    reader = heads.poll();
+                    count += reader.count;
+                    if (reader.next()) heads.add(reader);
+                }
+                consumer.accept(word, count);
+            }
+        }
+        finally {
+            for (RunReader reader : readers)
+                reader.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (runs) {
+            for (Path run : runs)
+                Files.deleteIfExists(run);
+            runs.clear();
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private void writeRun(Map<String, long[]> counts) {
+        Path run = directory.resolve("run-" + runsWritten.getAndIncrement());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), runBufferSize))) {
+            for (Map.Entry<String, long[]> entry : counts.entrySet().stream().sorted(Map.Entry.comparingByKey()).toList())
+                write(entry.getKey(), entry.getValue()[0], out);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed writing document frequencies to " + run, e);
+        }
+        synchronized (runs) {
+            runs.add(run);
+        }
+    }
+
+    private static void write(String word, long count, DataOutputStream out) throws IOException {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.writeLong(count);
+    }
+
+    /** The counts of a single thread */
+    class Shard {
+
+        private Map<String, long[]> counts = new HashMap<>();
+        private long bytesUsed = 0;
+
+        private Shard() { }
+
+        /** Adds one to the count of each of the given words, which are the unique words of a document */
+        void add(Set<String> words) {
+            for (String word : words) {
+                long[] count = counts.get(word);
+                if (count == null) {
+                    counts.put(word, new long[] { 1 });
+                    bytesUsed += entryOverhead + 2L * word.length();
+                }
+                else {
+                    count[0]++;
+                }
+            }
+            if (bytesUsed > shardBudget)
+                flush();
+        }
+
+        /** Writes the counts of this to disk as a sorted run, and clears this */
+        void flush() {
+            if (counts.isEmpty()) return;
+            writeRun(counts);
+            counts = new HashMap<>();
+            bytesUsed = 0;
+        }
+
+    }
+
+    /** Receives the merged counts */
+    @FunctionalInterface
+    interface Consumer {
+
+        void accept(String word, long count) throws IOException;
+
+    }
+
+    private static class RunReader implements Closeable {
+
+        private final DataInputStream in;
+        String word;
+        long count;
+
+        RunReader(Path run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), runBufferSize));
+        }
+
+        /** Reads the next entry of this run, and returns whether there was one */
+        boolean next() throws IOException {
+            int length;
+            try {
+                length = in.readInt();
+            }
+            catch (EOFException e) {
+                return false;
+            }
+            word = new String(in.readNBytes(length), StandardCharsets.UTF_8);
+            count = in.readLong();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException { in.close(); }
+
+    }
+
+}
@@ -4,7 +4,8 @@ package com.yahoo.vespasignificance;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.document.DataType;
 import com.yahoo.document.Document;
 import com.yahoo.document.DocumentPut;
@@ -35,29 +36,39 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.FileOutputStream;
 import java.io.FileInputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.List;
 import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 /**
+ * Generates a significance model from the documents of a JSONL feed file. Documents are tokenized by a number of
+ * threads, and the document frequencies are counted within a memory budget, spilling to temporary files when needed.
+ *
  * @author MariusArhaug
  */
 public class SignificanceModelGenerator {
 
     private final ClientParameters clientParameters;
-    private final Tokenizer tokenizer;
-    private final TreeMap<String, Long> documentFrequency = new TreeMap<>();
 
     private final List<Language> languages;
 
@@ -73,6 +84,8 @@ public class SignificanceModelGenerator {
     private final static String SIGNIFICANCE_DESCRIPTION = "Significance model for input file";
     private final static String DOC_FREQ_DESCRIPTION = "Document frequency for language";
 
+    private final static int BATCH_SIZE = 1000;
+
     private final static String DUMMY_DOC_TYPE = "dummy";
     private final static String DUMMY_DOC_ID = "id:dummy:" + DUMMY_DOC_TYPE + "::dummy";
 
@@ -93,8 +106,6 @@ public class SignificanceModelGenerator {
 
         this.languageTag = this.languages.get(0);
 
-        OpenNlpLinguistics openNlpLinguistics = new OpenNlpLinguistics();
-        tokenizer = openNlpLinguistics.getTokenizer();
         objectMapper = new ObjectMapper();
 
         docType = new DocumentType(DUMMY_DOC_TYPE);
@@ -111,94 +122,179 @@ public class SignificanceModelGenerator {
 
         final InputStream rawDoc = Files.newInputStream(currentWorkingDir.resolve(clientParameters.inputFile));
 
-        BufferedReader reader = new BufferedReader(new InputStreamReader(rawDoc));
-
-        long i = 1;
-        while (reader.ready()) {
-            String line = reader.readLine();
-
-            // Avoid failing on empty lines
-            if (line.isBlank())
-                continue;
-
-            JsonReader jsonReader = new JsonReader(types, new ByteArrayInputStream(Utf8.toBytes(line)), parserFactory);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(rawDoc));
+             DocumentFrequencyCounter counter = new DocumentFrequencyCounter(Files.createTempDirectory("vespa-significance"),
+                                                                             clientParameters.memoryBudget,
+                                                                             clientParameters.threads)) {
+            long pageCount = count(reader, counter);
+            System.out.println("Total documents processed: " + pageCount + ", sorted runs written: " + counter.runsWritten());
+            writeModel(counter, pageCount);
+        }
+    }
 
-            // Using DUMMY_DOC_ID since we are only interested in content.
-            ParsedDocumentOperation operation = jsonReader.readSingleDocumentStreaming(DocumentOperationType.PUT, DUMMY_DOC_ID);
+    /** Tokenizes the documents read from the given reader with a number of threads, and returns the number of documents */
+    private long count(BufferedReader reader, DocumentFrequencyCounter counter) throws IOException {
+        BlockingQueue<List<String>> batches = new ArrayBlockingQueue<>(2 * clientParameters.threads);
+        AtomicLong documentCount = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(clientParameters.threads, new DaemonThreadFactory("significance-"));
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < clientParameters.threads; i++) {
+                workers.add(executor.submit(() -> {
+                    Tokenizer tokenizer = new OpenNlpLinguistics().getTokenizer();
+                    DocumentFrequencyCounter.Shard shard = counter.newShard();
+                    for (List<String> batch = batches.take(); ! batch.isEmpty(); batch = batches.take()) {
+                        for (String line : batch) {
+                            shard.add(uniqueWords(tokenizer, fieldText(line)));
+                            long count = documentCount.incrementAndGet();
+                            if (count % 50000 == 0) {
+                                System.out.println("Documents processed: " + count + ", sorted runs written: " + counter.runsWritten());
+                            }
+                        }
+                    }
+                    shard.flush();
+                    return null;
+                }));
+            }
 
-            DocumentPut put = (DocumentPut) operation.operation();
-            Document document = put.getDocument();
-            FieldValue fieldValue = document.getFieldValue(clientParameters.field);
-            this.handleTokenization(fieldValue.toString());
-            if (i % 50000 == 0) {
-                System.out.println("Documents processed: " + i + ", unique words: " + documentFrequency.size());
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                // Avoid failing on empty lines
+                if (line.isBlank())
+                    continue;
+
+                batch.add(line);
+                if (batch.size() == BATCH_SIZE) {
+                    put(batch, batches, workers);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
             }
-            i++;
+            if ( ! batch.isEmpty())
+                put(batch, batches, workers);
+            for (int i = 0; i < clientParameters.threads; i++)
+                put(List.of(), batches, workers); // Tells a worker there are no more documents
+
+            for (Future<?> worker : workers)
+                await(worker);
+            return documentCount.get();
         }
+        finally {
+            executor.shutdownNow();
+        }
+    }
 
-        long pageCount = i - 1;
-        System.out.println("Total documents processed: " + pageCount + ", unique words: " + documentFrequency.size());
-
-        SignificanceModelFile modelFile;
-        File outputFile = Paths.get(clientParameters.outputFile).toFile();
-        String languagesKey = String.join(",", this.languages.stream().map(Language::languageCode).toList());
-        if (outputFile.exists()) {
-
-            InputStream in = outputFile.toString().endsWith(".zst") ?
-                    new ZstdInputStream(new FileInputStream(outputFile)) :
-                    new FileInputStream(outputFile);
-
-            modelFile = objectMapper.readValue(in, SignificanceModelFile.class);
-
-            modelFile.addLanguage(languagesKey, new DocumentFrequencyFile(DOC_FREQ_DESCRIPTION, pageCount, getFinalDocumentFrequency()));
-
-        } else {
-            HashMap<String, DocumentFrequencyFile> languages = new HashMap<>() {{
-                put(languagesKey, new DocumentFrequencyFile(DOC_FREQ_DESCRIPTION, pageCount, getFinalDocumentFrequency()));
-            }};
-
-            modelFile = new SignificanceModelFile(VERSION, ID, SIGNIFICANCE_DESCRIPTION + clientParameters.inputFile, languages);
+    /** Adds the given batch to the queue of the workers, or throws the failure of a worker, if one fails before it is added */
+    private static void put(List<String> batch, BlockingQueue<List<String>> batches, List<Future<?>> workers) throws IOException {
+        try {
+            while ( ! batches.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                for (Future<?> worker : workers)
+                    if (worker.isDone())
+                        await(worker);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading documents");
         }
+    }
+
+    private static void await(Future<?> worker) throws IOException {
         try {
-            ObjectWriter writer = objectMapper.writerWithDefaultPrettyPrinter();
+            worker.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while tokenizing documents");
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) throw cause;
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException("Failed tokenizing documents", e.getCause());
+        }
+    }
 
-            OutputStream out = useZstCompression ?
-                    new ZstdOutputStream(new FileOutputStream(clientParameters.outputFile)) :
-                    new FileOutputStream(clientParameters.outputFile);
+    private String fieldText(String line) throws IOException {
+        JsonReader jsonReader = new JsonReader(types, new ByteArrayInputStream(Utf8.toBytes(line)), parserFactory);
 
-            writer.writeValue(out, modelFile);
-        } catch (IOException e) {
-            throw new IllegalStateException("Failed to write model to output file", e);
-        }
+        // Using DUMMY_DOC_ID since we are only interested in content.
+        ParsedDocumentOperation operation = jsonReader.readSingleDocumentStreaming(DocumentOperationType.PUT, DUMMY_DOC_ID);
+
+        DocumentPut put = (DocumentPut) operation.operation();
+        Document document = put.getDocument();
+        FieldValue fieldValue = document.getFieldValue(clientParameters.field);
+        return fieldValue.toString();
     }
 
-    private void handleTokenization(String field) {
+    private Set<String> uniqueWords(Tokenizer tokenizer, String field) {
         var parameters = new LinguisticsParameters(languageTag, StemMode.NONE, false, true);
         var tokens = tokenizer.tokenize(field, parameters);
 
-        Set<String> uniqueWords = StreamSupport.stream(tokens.spliterator(), false)
+        return StreamSupport.stream(tokens.spliterator(), false)
                 .filter(t -> t.getType() == TokenType.ALPHABETIC)
                 .filter(t -> t.getScript() == TokenScript.LATIN)
                 .map(Token::getTokenString)
                 .collect(Collectors.toSet());
+    }
 
-        for (String word : uniqueWords) {
-            if (documentFrequency.containsKey(word)) {
-                documentFrequency.merge(word, 1L, Long::sum);
-            } else {
-                documentFrequency.put(word, 1L);
+    /**
+     * Writes the model with the merged counts of the given counter, keeping any other languages of an existing model.
+     * The document frequencies are streamed to the output file as they are merged, so they are never all in memory.
+     */
+    private void writeModel(DocumentFrequencyCounter counter, long pageCount) throws IOException {
+        File outputFile = Paths.get(clientParameters.outputFile).toFile();
+        String languagesKey = String.join(",", this.languages.stream().map(Language::languageCode).toList());
+        SignificanceModelFile existing = null;
+        if (outputFile.exists()) {
+            try (InputStream in = outputFile.toString().endsWith(".zst") ?
+                    new ZstdInputStream(new FileInputStream(outputFile)) :
+                    new FileInputStream(outputFile)) {
+                existing = objectMapper.readValue(in, SignificanceModelFile.class);
             }
         }
-    }
 
-    public Map<String, Long> getFinalDocumentFrequency() {
-        return documentFrequency.entrySet().stream()
-                .filter(k -> k.getValue() > 1)
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        TreeMap::new
-                ));
+        // Write to a temporary file next to the output, and move it in place when complete,
+        // so the output file is never left partially written, and readers see either the old or the new model
+        Path outputPath = outputFile.toPath().toAbsolutePath();
+        Path temporary = Files.createTempFile(outputPath.getParent(), outputPath.getFileName().toString(), ".tmp");
+        try (OutputStream out = useZstCompression ?
+                new ZstdOutputStream(new FileOutputStream(temporary.toFile())) :
+                new FileOutputStream(temporary.toFile());
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            generator.writeStringField("version", existing != null ? existing.version() : VERSION);
+            generator.writeStringField("id", existing != null ? existing.id() : ID);
+            generator.writeStringField("description", existing != null ? existing.description() : SIGNIFICANCE_DESCRIPTION + clientParameters.inputFile);
+            generator.writeObjectFieldStart("languages");
+            if (existing != null && existing.languages() != null) {
+                for (Map.Entry<String, DocumentFrequencyFile> language : existing.languages().entrySet()) {
+                    if (language.getKey().equals(languagesKey)) continue;
+                    generator.writeFieldName(language.getKey());
+                    generator.writeObject(language.getValue());
+                }
+            }
+            generator.writeObjectFieldStart(languagesKey);
+            generator.writeStringField("description", DOC_FREQ_DESCRIPTION);
+            generator.writeNumberField("document-count", pageCount);
+            generator.writeObjectFieldStart("document-frequencies");
+            counter.merge((word, count) -> {
+                if (count > 1)
+                    generator.writeNumberField(word, count);
+            });
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw new IllegalStateException("Failed to write model to output file", e);
+        }
+        try {
+            Files.move(temporary, outputPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw new IllegalStateException("Failed to move model to output file", e);
+        }
     }
+
 }
@@ -0,0 +1,49 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespasignificance;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * @author MariusArhaug
+ */
+public class DocumentFrequencyCounterTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testMergeWithMoreRunsThanMaxFanIn() throws IOException {
+        Path directory = tempDir.resolve("runs");
+        Files.createDirectories(directory);
+        Map<String, Long> merged = new LinkedHashMap<>();
+        try (DocumentFrequencyCounter counter = new DocumentFrequencyCounter(directory, 1, 1, 3)) {
+            DocumentFrequencyCounter.Shard shard = counter.newShard();
+            for (int i = 0; i < 10; i++) // Each document is written as a run of its own
+                shard.add(i % 2 == 0 ? Set.of("a", "b" + i, "c") : Set.of("a", "c"));
+            shard.flush();
+            assertEquals(10, counter.runsWritten());
+
+            counter.merge((word, count) -> merged.put(word, count));
+            try (Stream<Path> runs = Files.list(directory)) {
+                assertEquals(2, runs.count()); // 10 runs are merged to 4, then to 2, which are left for the final merge
+            }
+        }
+        assertEquals(Map.of("a", 10L, "b0", 1L, "b2", 1L, "b4", 1L, "b6", 1L, "b8", 1L, "c", 10L), merged);
+        assertEquals(List.of("a", "b0", "b2", "b4", "b6", "b8", "c"), List.copyOf(merged.keySet()));
+        assertFalse(Files.exists(directory));
+    }
+
+}
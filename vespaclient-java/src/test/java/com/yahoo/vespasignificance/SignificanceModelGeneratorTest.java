@@ -200,4 +200,19 @@ public class SignificanceModelGeneratorTest {
         DocumentFrequencyFile documentFrequencyFile = languages.get("nb,un");
         assertNorwegianFrequencies1(documentFrequencyFile);
     }
+
+    @Test
+    void testGenerateWithThreadsAndSpilledCounts() throws IOException {
+        String outputPath = "output.json";
+        // A budget of a single byte writes the counts of every document to disk, to be merged at the end
+        ClientParameters params = createParameters("no_1.jsonl", outputPath, "text", "nb", "false")
+                .setThreads(3)
+                .setMemoryBudget(1)
+                .build();
+        createSignificanceModelGenerator(params).generate();
+
+        SignificanceModelFile modelFile = objectMapper.readValue(tempDir.resolve(outputPath).toFile(), SignificanceModelFile.class);
+        assertEquals(1, modelFile.languages().size());
+        assertNorwegianFrequencies1(modelFile.languages().get("nb"));
+    }
 }
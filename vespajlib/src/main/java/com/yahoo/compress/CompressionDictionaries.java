@@ -0,0 +1,172 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Compression dictionaries for payloads grouped by some key, such as a document type, trained from sampled payloads.
+ * Payloads for a key are sampled until enough are collected, after which a dictionary is trained from them,
+ * by the given executor, so that callers offering samples are not held up by the training.
+ * Dictionaries trained elsewhere may also be registered, and are kept, by id, up to a bounded number per key.
+ * Samplers and dictionaries are kept for a bounded number of keys, and callers should only pass keys they
+ * know to be valid, as payloads and dictionaries for further keys are ignored and rejected, respectively.
+ * This class is thread safe.
+ *
+ * @author bratseth
+ */
+public class CompressionDictionaries {
+
+    /** Only a prefix of this many bytes of each payload is sampled, as the rest compresses well on its own. */
+    public static final int maxSampleSize = 1 << 14;
+
+    private final int samplesPerDictionary;
+    private final int dictionarySize;
+    private final int maxDictionariesPerKey;
+    private final int maxKeys;
+    private final Executor trainer;
+    private final Map<String, Sampler> samplers = new ConcurrentHashMap<>();
+    private final Map<String, CompressionDictionary> trained = new ConcurrentHashMap<>();
+    private final Set<String> training = ConcurrentHashMap.newKeySet();
+    private final Set<String> untrainable = ConcurrentHashMap.newKeySet();
+    private final Map<String, Map<Integer, CompressionDictionary>> byKey = new ConcurrentHashMap<>();
+    private final Map<Integer, CompressionDictionary> byId = new ConcurrentHashMap<>();
+
+    public CompressionDictionaries(Executor trainer) {
+        this(256, CompressionDictionary.maxSize, 8, 64, trainer);
+    }
+
+    /** Creates dictionaries which are trained by the thread offering the last sample needed. */
+    public CompressionDictionaries(int samplesPerDictionary, int dictionarySize, int maxDictionariesPerKey, int maxKeys) {
+        this(samplesPerDictionary, dictionarySize, maxDictionariesPerKey, maxKeys, Runnable::run);
+    }
+
+    public CompressionDictionaries(int samplesPerDictionary, int dictionarySize, int maxDictionariesPerKey, int maxKeys,
+                                   Executor trainer) {
+        this.samplesPerDictionary = samplesPerDictionary;
+        this.dictionarySize = dictionarySize;
+        this.maxDictionariesPerKey = maxDictionariesPerKey;
+        this.maxKeys = maxKeys;
+        this.trainer = trainer;
+    }
+
+    /**
+     * Returns whether payloads for the given key are still wanted as samples, i.e., whether no dictionary is trained,
+     * in training, or failed training yet, and there is a sampler for the key, or room for one.
+     */
+    public boolean isSampling(String key) {
+        return    ! trained.containsKey(key)
+               && ! training.contains(key)
+               && ! untrainable.contains(key)
+               && (samplers.containsKey(key) || samplers.size() < maxKeys);
+    }
+
+    /**
+     * Offers the given payload as a sample for the given key, and trains a dictionary once enough samples are collected.
+     * Only a prefix of at most {@link #maxSampleSize} bytes of the payload is kept, and the payload is ignored if
+     * there are already samplers for the max number of keys.
+     */
+    public void sample(String key, byte[] payload) {
+        if ( ! isSampling(key)) return;
+
+        Sampler sampler = samplers.get(key);
+        if (sampler == null) {
+            synchronized (samplers) {
+                if (samplers.size() >= maxKeys && ! samplers.containsKey(key)) return;
+                sampler = samplers.computeIfAbsent(key, __ -> new Sampler());
+            }
+        }
+        List<byte[]> samples = sampler.add(payload.length > maxSampleSize ? Arrays.copyOf(payload, maxSampleSize) : payload);
+        if (samples == null) return;
+
+        training.add(key);
+        samplers.remove(key);
+        trainer.execute(() -> train(key, samples));
+    }
+
+    private void train(String key, List<byte[]> samples) {
+        try {
+            CompressionDictionary dictionary = CompressionDictionary.train(samples, dictionarySize);
+            if (dictionary == null) { // Samples had nothing in common, and more of the same are unlikely to do better.
+                untrainable.add(key);
+                return;
+            }
+
+            register(key, dictionary);
+            trained.put(key, dictionary);
+        }
+        catch (IllegalArgumentException e) { // Dictionaries are registered for too many other keys.
+            untrainable.add(key);
+        }
+        finally {
+            training.remove(key);
+        }
+    }
+
+    /** Returns the dictionary trained for the given key, if one is trained yet. */
+    public Optional<CompressionDictionary> trained(String key) {
+        return Optional.ofNullable(trained.get(key));
+    }
+
+    /** Returns the dictionary with the given id, if it is known. */
+    public Optional<CompressionDictionary> get(int id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    /**
+     * Registers the given dictionary for the given key, evicting the least recently registered one if there are too many.
+     *
+     * @throws IllegalArgumentException if dictionaries are already registered for the max number of other keys
+     */
+    public void register(String key, CompressionDictionary dictionary) {
+        Map<Integer, CompressionDictionary> dictionaries = byKey.get(key);
+        if (dictionaries == null) {
+            synchronized (byKey) {
+                if (byKey.size() >= maxKeys && ! byKey.containsKey(key))
+                    throw new IllegalArgumentException("Compression dictionaries are already registered for " + maxKeys +
+                                                       " keys, and not for '" + key + "'");
+                dictionaries = byKey.computeIfAbsent(key, __ -> new LinkedHashMap<>());
+            }
+        }
+        synchronized (dictionaries) {
+            if (dictionaries.containsKey(dictionary.id())) return;
+            dictionaries.put(dictionary.id(), dictionary);
+            byId.put(dictionary.id(), dictionary);
+            if (dictionaries.size() > maxDictionariesPerKey) {
+                // Keep the trained dictionary, which clients are told to use.
+                CompressionDictionary evicted = dictionaries.values().stream()
+                                                            .filter(candidate -> ! candidate.equals(trained.get(key)))
+                                                            .findFirst().orElseThrow();
+                dictionaries.remove(evicted.id());
+                byId.remove(evicted.id(), evicted);
+            }
+        }
+    }
+
+    /** Reservoir sampler which returns all its samples once it has seen enough. */
+    private class Sampler {
+
+        private final Random random = new Random();
+        private final List<byte[]> samples = new ArrayList<>();
+        private int seen = 0;
+
+        synchronized List<byte[]> add(byte[] payload) {
+            if (seen++ < samplesPerDictionary) samples.add(payload);
+            else {
+                int index = random.nextInt(seen);
+                if (index < samplesPerDictionary) samples.set(index, payload);
+            }
+            return seen == 2 * samplesPerDictionary ? List.copyOf(samples) : null;
+        }
+
+    }
+
+}
@@ -0,0 +1,163 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.zip.Adler32;
+
+/**
+ * A dictionary of byte sequences which are common in a set of similar payloads, e.g., documents of one type.
+ * Compressing each small payload with such a dictionary lets it refer to content in the dictionary,
+ * rather than only to content seen earlier in the same payload, which is what makes small payloads compress.
+ *
+ * The id of a dictionary is the Adler-32 checksum of its content, which is also the dictionary id
+ * written to the header of a zlib stream compressed with a preset dictionary; see {@link DictionaryCompressor}.
+ *
+ * @author bratseth
+ */
+public class CompressionDictionary {
+
+    /** The maximum useful size of a dictionary, which is the size of the deflate window. */
+    public static final int maxSize = 1 << 15;
+
+    private static final int kmerLength = 8;
+    private static final int segmentLength = 64;
+
+    private final byte[] content;
+    private final int id;
+
+    public CompressionDictionary(byte[] content) {
+        if (content.length == 0 || content.length > maxSize)
+            throw new IllegalArgumentException("Dictionary size must be in [1, " + maxSize + "], but was " + content.length);
+
+        this.content = content.clone();
+        this.id = idOf(content);
+    }
+
+    /** Returns the id of this dictionary, which is the Adler-32 checksum of its content. */
+    public int id() { return id; }
+
+    /** Returns a copy of the content of this dictionary. */
+    public byte[] content() { return content.clone(); }
+
+    int size() { return content.length; }
+
+    byte[] contentUnsafe() { return content; }
+
+    static int idOf(byte[] content) {
+        Adler32 adler = new Adler32();
+        adler.update(content);
+        return (int) adler.getValue();
+    }
+
+    /**
+     * Trains a dictionary of at most the given size from the given samples, or returns null if the samples
+     * have nothing in common. This is a greedy variant of the "cover" algorithm used to train zstd dictionaries:
+     * samples are cut into segments, and segments are scored by the number of other samples which contain each of
+     * the segment's k-mers which are not already covered by previously chosen segments. The best segments are placed
+     * last in the dictionary, as content closer to the payload is cheaper to refer to.
+     */
+    public static CompressionDictionary train(Collection<byte[]> samples, int size) {
+        size = Math.min(size, maxSize);
+        Map<Long, Integer> frequencies = new HashMap<>();
+        for (byte[] sample : samples)
+            for (long kmer : kmers(sample, 0, sample.length))
+                frequencies.merge(kmer, 1, Integer::sum);
+
+        PriorityQueue<Segment> candidates = new PriorityQueue<>();
+        for (byte[] sample : samples)
+            for (int start = 0; start < sample.length; start += segmentLength) {
+                Segment segment = new Segment(sample, start, Math.min(sample.length, start + segmentLength));
+                if (segment.rescore(frequencies) > 0) candidates.add(segment);
+            }
+
+        List<Segment> chosen = new ArrayList<>();
+        int total = 0;
+        while ( ! candidates.isEmpty() && total < size) {
+            Segment best = candidates.poll();
+            // Scores only decrease as k-mers are covered, so a rescored segment which still beats all stale scores is the best.
+            if (best.rescore(frequencies) <= 0) continue;
+            if ( ! candidates.isEmpty() && best.score < candidates.peek().score) {
+                candidates.add(best);
+                continue;
+            }
+            chosen.add(best);
+            total += best.end - best.start;
+            for (long kmer : kmers(best.sample, best.start, best.end))
+                frequencies.put(kmer, 0);
+        }
+        if (chosen.isEmpty()) return null;
+
+        byte[] content = new byte[Math.min(total, size)];
+        int end = content.length;
+        for (Segment segment : chosen) {
+            int length = Math.min(end, segment.end - segment.start);
+            System.arraycopy(segment.sample, segment.end - length, content, end - length, length);
+            end -= length;
+            if (end == 0) break;
+        }
+        return new CompressionDictionary(content);
+    }
+
+    /** Returns the distinct k-mers of the given range, each packed into a long. */
+    private static Set<Long> kmers(byte[] data, int start, int end) {
+        Set<Long> kmers = new HashSet<>();
+        long kmer = 0;
+        for (int i = start; i < end; i++) {
+            kmer = (kmer << 8) | (data[i] & 0xff);
+            if (i - start >= kmerLength - 1) kmers.add(kmer);
+        }
+        return kmers;
+    }
+
+    private static class Segment implements Comparable<Segment> {
+
+        final byte[] sample;
+        final int start;
+        final int end;
+        long score;
+
+        Segment(byte[] sample, int start, int end) {
+            this.sample = sample;
+            this.start = start;
+            this.end = end;
+        }
+
+        /** Scores this by the number of other samples containing its uncovered k-mers, and returns the score. */
+        long rescore(Map<Long, Integer> frequencies) {
+            score = 0;
+            for (long kmer : kmers(sample, start, end))
+                score += Math.max(0, frequencies.getOrDefault(kmer, 0) - 1);
+
+            return score;
+        }
+
+        @Override
+        public int compareTo(Segment other) { return Long.compare(other.score, score); }
+
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompressionDictionary that = (CompressionDictionary) o;
+        return id == that.id && Arrays.equals(content, that.content);
+    }
+
+    @Override
+    public int hashCode() { return id; }
+
+    @Override
+    public String toString() {
+        return "compression dictionary " + Integer.toUnsignedString(id) + " of " + content.length + " bytes";
+    }
+
+}
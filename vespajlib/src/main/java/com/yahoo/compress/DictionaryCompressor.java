@@ -0,0 +1,119 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.OptionalInt;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses and decompresses payloads in the zlib format (RFC 1950), i.e., HTTP "deflate" content encoding,
+ * using a preset {@link CompressionDictionary}. The id of the dictionary is written to the zlib header, so the
+ * receiver can look up the dictionary it needs with {@link #dictionaryId(byte[])} before decompressing.
+ * This class is thread safe.
+ *
+ * @author bratseth
+ */
+public class DictionaryCompressor {
+
+    private static final int maxArraySize = Integer.MAX_VALUE - 8;
+
+    private final int level;
+
+    /** Creates a compressor with the default deflate compression level. */
+    public DictionaryCompressor() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /** Creates a compressor with the given deflate compression level, from 0 to 9. */
+    public DictionaryCompressor(int level) {
+        this.level = level;
+    }
+
+    /** Compresses the given data, using the given dictionary, if not null. */
+    public byte[] compress(byte[] data, CompressionDictionary dictionary) {
+        Deflater deflater = new Deflater(level);
+        try {
+            if (dictionary != null)
+                deflater.setDictionary(dictionary.contentUnsafe());
+
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buffer = new byte[Math.min(1 << 16, data.length + 64)];
+            while ( ! deflater.finished())
+                out.write(buffer, 0, deflater.deflate(buffer));
+
+            return out.toByteArray();
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    /** Returns the id of the dictionary the given zlib stream was compressed with, if any. */
+    public static OptionalInt dictionaryId(byte[] compressed) {
+        if (compressed.length < 6 || (compressed[1] & 0x20) == 0)
+            return OptionalInt.empty();
+
+        return OptionalInt.of(  (compressed[2] & 0xff) << 24 | (compressed[3] & 0xff) << 16
+                              | (compressed[4] & 0xff) <<  8 | (compressed[5] & 0xff));
+    }
+
+    /**
+     * Decompresses the given zlib stream, using the given dictionary if the stream requires one.
+     *
+     * @throws IllegalArgumentException if the data is corrupt, or requires a dictionary other than the given one
+     */
+    public byte[] decompress(byte[] compressed, CompressionDictionary dictionary) {
+        return decompress(compressed, dictionary, maxArraySize - 1);
+    }
+
+    /**
+     * Decompresses the given zlib stream, using the given dictionary if the stream requires one, and failing if
+     * the decompressed data is larger than the given max size, so untrusted data can not exhaust memory.
+     *
+     * @throws IllegalArgumentException if the data is corrupt, requires a dictionary other than the given one,
+     *                                  or decompresses to more than the given max size
+     */
+    public byte[] decompress(byte[] compressed, CompressionDictionary dictionary, int maxSize) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            // Room for one byte more than the max size, to tell whether the data is larger
+            int maxBufferSize = (int) Math.min(maxArraySize, maxSize + 1L);
+            byte[] buffer = new byte[Math.min(maxBufferSize, Math.max(1 << 10, Math.min(1 << 16, 4 * compressed.length)))];
+            int length = 0;
+            while ( ! inflater.finished()) {
+                if (length == buffer.length)
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(maxBufferSize, 2L * buffer.length));
+
+                int inflated = inflater.inflate(buffer, length, buffer.length - length);
+                length += inflated;
+                if (length > maxSize)
+                    throw new IllegalArgumentException("Decompressed data is larger than the max size of " + maxSize + " bytes");
+
+                if (inflater.needsDictionary()) {
+                    if (dictionary == null || dictionary.id() != inflater.getAdler())
+                        throw new IllegalArgumentException("Data requires compression dictionary " +
+                                                           Integer.toUnsignedString(inflater.getAdler()) +
+                                                           ", but " + (dictionary == null ? "none" : dictionary) + " was given");
+                    inflater.setDictionary(dictionary.contentUnsafe());
+                }
+                else if (inflated == 0 && inflater.needsInput()) {
+                    throw new IllegalArgumentException("Truncated zlib data");
+                }
+            }
+            return Arrays.copyOf(buffer, length);
+        }
+        catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt zlib data: " + e.getMessage(), e);
+        }
+        finally {
+            inflater.end();
+        }
+    }
+
+}
@@ -41,6 +41,12 @@ public class ZstdCompressor {
         return decompressor.decompress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
     }
 
+    /** Decompresses all frames of data written by {@link ZstdSeekableOutputStream}, ignoring its trailing seek table. */
+    public int decompressSeekable(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength) {
+        inputLength = ZstdSeekTable.lengthWithoutSeekTable(input, inputOffset, inputLength);
+        return decompress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
+    }
+
     private static final io.airlift.compress.Compressor threadUnsafe = new io.airlift.compress.zstd.ZstdCompressor();
 
     public static int getMaxCompressedLength(int uncompressedLength) {
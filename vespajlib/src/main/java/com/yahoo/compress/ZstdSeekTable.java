@@ -0,0 +1,199 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Optional;
+
+import static com.yahoo.compress.ZstdSeekableOutputStream.keyIndexMagic;
+import static com.yahoo.compress.ZstdSeekableOutputStream.seekTableFooterMagic;
+import static com.yahoo.compress.ZstdSeekableOutputStream.seekTableFooterSize;
+import static com.yahoo.compress.ZstdSeekableOutputStream.seekTableMagic;
+import static com.yahoo.compress.ZstdSeekableOutputStream.skippableFrameHeaderSize;
+
+/**
+ * The seek table of a file in the zstd seekable format, as written by {@link ZstdSeekableOutputStream},
+ * which allows decompressing the file from any of its frames.
+ *
+ * @author bratseth
+ */
+public class ZstdSeekTable {
+
+    private final long[] offsets;
+    private final int[] compressedSizes;
+    private final int[] decompressedSizes;
+    private final long[] keys;
+
+    private ZstdSeekTable(long[] offsets, int[] compressedSizes, int[] decompressedSizes, long[] keys) {
+        this.offsets = offsets;
+        this.compressedSizes = compressedSizes;
+        this.decompressedSizes = decompressedSizes;
+        this.keys = keys;
+    }
+
+    /** Returns the number of frames in the file */
+    public int frameCount() { return offsets.length; }
+
+    /** Returns whether this has a key for each frame */
+    public boolean hasKeys() { return keys != null; }
+
+    /**
+     * Returns the key of the given frame, which is the greatest key of the lines in it and all frames before it,
+     * or {@link ZstdSeekableOutputStream#noKey} if there is none
+     */
+    public long key(int frame) { return keys == null ? ZstdSeekableOutputStream.noKey : keys[frame]; }
+
+    /**
+     * Returns the first frame which may contain lines with the given key or larger, such that all lines in the frames
+     * before it have smaller keys, whether the lines are ordered by their keys or not. This is 0 if this has no keys,
+     * and the frame count if no line has such a key.
+     */
+    public int firstFrameFrom(long key) {
+        if (keys == null) return 0;
+        int low = 0, high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /** Returns the uncompressed content of the given channel, starting at the given frame. Closing the stream closes the channel. */
+    public InputStream inputStream(FileChannel channel, int firstFrame) {
+        return new FramesInputStream(channel, firstFrame);
+    }
+
+    /**
+     * Reads the seek table at the end of the given file channel.
+     *
+     * @return the seek table of the file, or empty if it does not end with a valid seek table
+     */
+    public static Optional<ZstdSeekTable> read(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < skippableFrameHeaderSize + seekTableFooterSize) return Optional.empty();
+
+        ByteBuffer footer = readFully(channel, size - seekTableFooterSize, seekTableFooterSize);
+        int frameCount = footer.getInt();
+        byte descriptor = footer.get();
+        if (footer.getInt() != seekTableFooterMagic || frameCount < 0) return Optional.empty();
+
+        int entrySize = (descriptor & 0x80) != 0 ? 12 : 8; // With or without checksums
+        long tableSize = skippableFrameHeaderSize + (long) entrySize * frameCount + seekTableFooterSize;
+        if (tableSize > size) return Optional.empty();
+        long tableOffset = size - tableSize;
+        ByteBuffer table = readFully(channel, tableOffset, (int) tableSize - seekTableFooterSize);
+        if (table.getInt() != seekTableMagic || table.getInt() != tableSize - skippableFrameHeaderSize) return Optional.empty();
+
+        long[] offsets = new long[frameCount];
+        int[] compressedSizes = new int[frameCount];
+        int[] decompressedSizes = new int[frameCount];
+        long offset = 0;
+        for (int i = 0; i < frameCount; i++) {
+            offsets[i] = offset;
+            compressedSizes[i] = table.getInt();
+            decompressedSizes[i] = table.getInt();
+            if (entrySize == 12) table.getInt();
+            if (compressedSizes[i] < 0 || decompressedSizes[i] < 0) return Optional.empty();
+            offset += compressedSizes[i];
+        }
+
+        long[] keys = null;
+        long indexSize = skippableFrameHeaderSize + 8L * frameCount;
+        if (offset + indexSize == tableOffset) {
+            ByteBuffer index = readFully(channel, offset, (int) indexSize);
+            if (index.getInt() != keyIndexMagic || index.getInt() != 8 * frameCount) return Optional.empty();
+            keys = new long[frameCount];
+            for (int i = 0; i < frameCount; i++) // Keys are written as running maxima, but enforce this to keep the search correct
+                keys[i] = Math.max(i == 0 ? ZstdSeekableOutputStream.noKey : keys[i - 1], index.getLong());
+        }
+        else if (offset != tableOffset) {
+            return Optional.empty(); // Frames do not add up to the start of the table
+        }
+        return Optional.of(new ZstdSeekTable(offsets, compressedSizes, decompressedSizes, keys));
+    }
+
+    /**
+     * Returns the length of the given compressed data without any trailing seek table and key index,
+     * which are skippable frames that not all decompressors skip.
+     */
+    static int lengthWithoutSeekTable(byte[] input, int offset, int length) {
+        if (length < skippableFrameHeaderSize + seekTableFooterSize) return length;
+        ByteBuffer buffer = ByteBuffer.wrap(input).order(ByteOrder.LITTLE_ENDIAN);
+        int end = offset + length;
+        if (buffer.getInt(end - 4) != seekTableFooterMagic) return length;
+
+        long frameCount = buffer.getInt(end - seekTableFooterSize) & 0xffffffffL;
+        long entrySize = (buffer.get(end - 5) & 0x80) != 0 ? 12 : 8;
+        long tableStart = length - (skippableFrameHeaderSize + entrySize * frameCount + seekTableFooterSize);
+        if (tableStart < 0 || buffer.getInt(offset + Math.toIntExact(tableStart)) != seekTableMagic) return length;
+
+        long indexStart = tableStart - (skippableFrameHeaderSize + 8 * frameCount);
+        if (indexStart >= 0 && buffer.getInt(offset + Math.toIntExact(indexStart)) == keyIndexMagic) return Math.toIntExact(indexStart);
+        return Math.toIntExact(tableStart);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException("Unexpected end of file at " + (position + buffer.position()));
+        return buffer.flip();
+    }
+
+    /** Decompresses one frame at a time */
+    private class FramesInputStream extends InputStream {
+
+        private final ZstdCompressor decompressor = new ZstdCompressor();
+        private final FileChannel channel;
+        private int nextFrame;
+        private byte[] frame = new byte[0];
+        private int position = 0;
+
+        FramesInputStream(FileChannel channel, int firstFrame) {
+            this.channel = channel;
+            this.nextFrame = firstFrame;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if ( ! ensureAvailable()) return -1;
+            return frame[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if ( ! ensureAvailable()) return -1;
+            int length = Math.min(len, frame.length - position);
+            System.arraycopy(frame, position, b, off, length);
+            position += length;
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private boolean ensureAvailable() throws IOException {
+            while (position == frame.length) {
+                if (nextFrame >= offsets.length) return false;
+                ByteBuffer compressed = readFully(channel, offsets[nextFrame], compressedSizes[nextFrame]);
+                frame = new byte[decompressedSizes[nextFrame]];
+                decompressor.decompress(compressed.array(), 0, compressed.limit(), frame, 0, frame.length);
+                position = 0;
+                nextFrame++;
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,186 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compresses line oriented data, such as log files, to independent zstd frames of about the given size,
+ * followed by a seek table in the zstd seekable format, such that readers can start decompressing at any frame.
+ * Frames are ended at line boundaries, unless a single line is longer than the frame size.
+ *
+ * If a line key function is given, it is applied to each line, and the greatest key of the lines in each frame
+ * and all frames before it, e.g., the latest timestamp so far, is written as the key of that frame, in a skippable
+ * frame before the seek table. Frame keys therefore never decrease, even when the lines are not ordered by their keys,
+ * as when the logs of several nodes are interleaved, and readers can find the first frame which may contain lines
+ * with a given key or larger without decompressing the ones before. See {@link ZstdSeekTable}.
+ *
+ * The output can be decompressed by any zstd decompressor, which will ignore the skippable frames.
+ *
+ * @author bratseth
+ */
+public class ZstdSeekableOutputStream extends OutputStream {
+
+    /** Returned by a line key function when the line has no key */
+    public static final long noKey = Long.MIN_VALUE;
+
+    static final int skippableFrameHeaderSize = 8;
+    static final int seekTableMagic = 0x184D2A5E;
+    static final int seekTableFooterMagic = 0x8F92EAB1;
+    static final int seekTableFooterSize = 9;
+    static final int keyIndexMagic = 0x184D2A5D;
+
+    /** Max number of bytes of a line passed to the frame key function */
+    private static final int maxKeyLineLength = 4096;
+
+    private final ZstdCompressor compressor = new ZstdCompressor();
+    private final OutputStream out;
+    private final ToLongFunction<String> lineKey;
+    private final byte[] inputBuffer;
+    private final byte[] outputBuffer;
+    private int inputPosition = 0;
+    private boolean frameStartsLine = true;
+    private boolean isClosed = false;
+
+    private int frameCount = 0;
+    private int[] compressedSizes = new int[16];
+    private int[] decompressedSizes = new int[16];
+    private long[] keys = new long[16];
+    private long maxKey = noKey;
+
+    /** Creates a seekable stream without frame keys */
+    public ZstdSeekableOutputStream(OutputStream out, int frameSize) {
+        this(out, frameSize, null);
+    }
+
+    /**
+     * Creates a seekable stream.
+     *
+     * @param out the stream to write compressed frames to
+     * @param frameSize the max uncompressed size of each frame
+     * @param lineKey returns the key of the given line, or {@link #noKey}, or null to not write keys
+     */
+    public ZstdSeekableOutputStream(OutputStream out, int frameSize, ToLongFunction<String> lineKey) {
+        if (frameSize <= 0) throw new IllegalArgumentException("Frame size must be positive, but was " + frameSize);
+        this.out = out;
+        this.lineKey = lineKey;
+        this.inputBuffer = new byte[frameSize];
+        this.outputBuffer = new byte[ZstdCompressor.getMaxCompressedLength(frameSize)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        throwIfClosed();
+        inputBuffer[inputPosition++] = (byte) b;
+        writeFrameIfFull();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        throwIfClosed();
+        int end = off + len;
+        while (off < end) {
+            int copyLength = Math.min(end - off, inputBuffer.length - inputPosition);
+            System.arraycopy(b, off, inputBuffer, inputPosition, copyLength);
+            off += copyLength;
+            inputPosition += copyLength;
+            writeFrameIfFull();
+        }
+    }
+
+    /** Flushes the underlying stream. Buffered data is kept until the frame is full, to keep frames large. */
+    @Override
+    public void flush() throws IOException {
+        throwIfClosed();
+        out.flush();
+    }
+
+    /** Writes any buffered data as the last frame, followed by the seek table, and closes the underlying stream. */
+    @Override
+    public void close() throws IOException {
+        throwIfClosed();
+        if (inputPosition > 0)
+            writeFrame(inputPosition);
+        if (lineKey != null)
+            writeKeyIndex();
+        writeSeekTable();
+        out.close();
+        isClosed = true;
+    }
+
+    private void writeFrameIfFull() throws IOException {
+        if (inputPosition < inputBuffer.length) return;
+
+        int lastLineEnd = inputPosition - 1;
+        while (lastLineEnd >= 0 && inputBuffer[lastLineEnd] != '\n')
+            lastLineEnd--;
+        int frameLength = lastLineEnd >= 0 ? lastLineEnd + 1 : inputPosition;
+        writeFrame(frameLength);
+        System.arraycopy(inputBuffer, frameLength, inputBuffer, 0, inputPosition - frameLength);
+        inputPosition -= frameLength;
+        frameStartsLine = lastLineEnd >= 0;
+    }
+
+    private void writeFrame(int length) throws IOException {
+        if (frameCount == compressedSizes.length) {
+            compressedSizes = Arrays.copyOf(compressedSizes, frameCount * 2);
+            decompressedSizes = Arrays.copyOf(decompressedSizes, frameCount * 2);
+            keys = Arrays.copyOf(keys, frameCount * 2);
+        }
+        if (lineKey != null)
+            keys[frameCount] = keyOfFrame(length);
+        int compressedLength = compressor.compress(inputBuffer, 0, length, outputBuffer, 0, outputBuffer.length);
+        out.write(outputBuffer, 0, compressedLength);
+        compressedSizes[frameCount] = compressedLength;
+        decompressedSizes[frameCount] = length;
+        frameCount++;
+    }
+
+    /** Returns the greatest key of the lines starting in the given length of the input buffer, and all lines before */
+    private long keyOfFrame(int length) {
+        int lineStart = frameStartsLine ? 0 : lineEnd(0, length) + 1; // Skip the end of a line started in the previous frame
+        while (lineStart < length) {
+            int lineEnd = lineEnd(lineStart, length);
+            String line = new String(inputBuffer, lineStart, Math.min(lineEnd - lineStart, maxKeyLineLength), UTF_8);
+            maxKey = Math.max(maxKey, lineKey.applyAsLong(line));
+            lineStart = lineEnd + 1;
+        }
+        return maxKey;
+    }
+
+    private int lineEnd(int start, int length) {
+        int end = start;
+        while (end < length && inputBuffer[end] != '\n')
+            end++;
+        return end;
+    }
+
+    private void writeKeyIndex() throws IOException {
+        ByteBuffer index = ByteBuffer.allocate(skippableFrameHeaderSize + 8 * frameCount).order(ByteOrder.LITTLE_ENDIAN);
+        index.putInt(keyIndexMagic).putInt(8 * frameCount);
+        for (int i = 0; i < frameCount; i++)
+            index.putLong(keys[i]);
+        out.write(index.array());
+    }
+
+    private void writeSeekTable() throws IOException {
+        int contentSize = 8 * frameCount + seekTableFooterSize;
+        ByteBuffer table = ByteBuffer.allocate(skippableFrameHeaderSize + contentSize).order(ByteOrder.LITTLE_ENDIAN);
+        table.putInt(seekTableMagic).putInt(contentSize);
+        for (int i = 0; i < frameCount; i++)
+            table.putInt(compressedSizes[i]).putInt(decompressedSizes[i]);
+        table.putInt(frameCount).put((byte) 0).putInt(seekTableFooterMagic); // No checksums
+        out.write(table.array());
+    }
+
+    private void throwIfClosed() {
+        if (isClosed) throw new IllegalArgumentException("Output stream is already closed");
+    }
+
+}
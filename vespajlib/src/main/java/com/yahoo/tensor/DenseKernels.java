@@ -0,0 +1,265 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.api.annotations.Beta;
+import com.yahoo.tensor.functions.ScalarFunctions;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Loops over the cells of dense tensors, used by tensor functions for the most common dense operations.
+ *
+ * When both arguments hold their cells in primitive arrays of the same type, the loops run directly over those
+ * arrays, and without calls to the combinator for the most common combinators, such that the JIT compiler can unroll
+ * them, and vectorize the joins. Other tensors use the equivalent scalar loops, which are package-private, such that tests and
+ * benchmarks can compare with them.
+ *
+ * The kernels produce exactly the values of the tensor functions they replace: reductions add the values
+ * one by one in cell order into a double, and values which the replaced functions store in float cells are rounded to float.
+ *
+ * @author bratseth
+ */
+@Beta
+public final class DenseKernels {
+
+    private DenseKernels() {}
+
+    /**
+     * Returns the sum of a[aOffset + i] * b[bOffset + i] for i in [0, length),
+     * where the indexes are value indexes, in the standard value order, and the products are not rounded to float,
+     * which is what a reduce-join of a sum over products computes.
+     */
+    public static double dotProduct(IndexedTensor a, long aOffset, IndexedTensor b, long bOffset, int length) {
+        if (a instanceof IndexedDoubleTensor da && b instanceof IndexedDoubleTensor db)
+            return dotProduct(da.values(), (int)aOffset, db.values(), (int)bOffset, length);
+        if (a instanceof IndexedFloatTensor fa && b instanceof IndexedFloatTensor fb)
+            return dotProduct(fa.values(), (int)aOffset, fb.values(), (int)bOffset, length);
+        return scalarDotProduct(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * Returns the sum of a[i] * b[i] for i in [0, length), where each product is rounded to float unless
+     * one of the arguments has double cells, which is what reduce(join(a, b, f(x,y)(x * y)), sum) computes.
+     */
+    public static double sumOfProducts(IndexedTensor a, IndexedTensor b, int length) {
+        if (a instanceof IndexedDoubleTensor da && b instanceof IndexedDoubleTensor db)
+            return dotProduct(da.values(), 0, db.values(), 0, length);
+        if (a instanceof IndexedFloatTensor fa && b instanceof IndexedFloatTensor fb)
+            return sumOfProducts(fa.values(), fb.values(), length);
+        return scalarSumOfProducts(a, b, length);
+    }
+
+    /** Returns the sum of the first length cells of the given tensor, in the standard value order */
+    public static double sum(IndexedTensor a, int length) {
+        if (a instanceof IndexedDoubleTensor da)
+            return sum(da.values(), length);
+        if (a instanceof IndexedFloatTensor fa)
+            return sum(fa.values(), length);
+        return scalarSum(a, length);
+    }
+
+    /**
+     * Returns the sum of (a[i] - b[i])^2 for i in [0, length), where each difference and square is rounded to float
+     * unless one of the arguments has double cells, which is what reduce(map(join(a, b, f(x,y)(x - y)), f(x)(x * x)), sum)
+     * computes.
+     */
+    public static double squaredDistance(IndexedTensor a, IndexedTensor b, int length) {
+        if (a instanceof IndexedDoubleTensor da && b instanceof IndexedDoubleTensor db)
+            return squaredDistance(da.values(), db.values(), length);
+        if (a instanceof IndexedFloatTensor fa && b instanceof IndexedFloatTensor fb)
+            return squaredDistance(fa.values(), fb.values(), length);
+        return scalarSquaredDistance(a, b, length);
+    }
+
+    /**
+     * Returns a tensor of the given type and size, with the combination of cell i in a and b as cell i,
+     * for i in [0, length).
+     */
+    public static IndexedTensor join(IndexedTensor a, IndexedTensor b, int length, TensorType type, DoubleBinaryOperator combinator) {
+        if (type.valueType() == TensorType.Value.DOUBLE && a instanceof IndexedDoubleTensor da && b instanceof IndexedDoubleTensor db) {
+            double[] result = new double[length];
+            join(da.values(), db.values(), result, combinator);
+            return IndexedTensor.Builder.of(type, vectorSizes(type, length), result).build();
+        }
+        if (type.valueType() != TensorType.Value.DOUBLE && a instanceof IndexedFloatTensor fa && b instanceof IndexedFloatTensor fb) {
+            float[] result = new float[length];
+            join(fa.values(), fb.values(), result, combinator);
+            return IndexedTensor.Builder.of(type, vectorSizes(type, length), result).build();
+        }
+        return scalarJoin(a, b, length, type, combinator);
+    }
+
+    /**
+     * Copies cell offset + i of the given tensor to target[i] for i in [0, length),
+     * where the indexes are value indexes, in the standard value order.
+     */
+    public static void copyCells(IndexedTensor a, int offset, double[] target, int length) {
+        if (a instanceof IndexedDoubleTensor da) {
+            System.arraycopy(da.values(), offset, target, 0, length);
+            return;
+        }
+        if (a instanceof IndexedFloatTensor fa) {
+            float[] values = fa.values();
+            for (int i = 0; i < length; i++)
+                target[i] = values[offset + i];
+            return;
+        }
+        scalarCopyCells(a, offset, target, length);
+    }
+
+    /** The scalar loop equivalent to {@link #dotProduct(IndexedTensor, long, IndexedTensor, long, int)} */
+    static double scalarDotProduct(IndexedTensor a, long aOffset, IndexedTensor b, long bOffset, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a.get(aOffset + i) * b.get(bOffset + i);
+        return sum;
+    }
+
+    /** The scalar loop equivalent to {@link #sumOfProducts(IndexedTensor, IndexedTensor, int)} */
+    static double scalarSumOfProducts(IndexedTensor a, IndexedTensor b, int length) {
+        boolean toFloat = hasFloatResult(a, b);
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            double product = a.get(i) * b.get(i);
+            sum += toFloat ? (float)product : product;
+        }
+        return sum;
+    }
+
+    /** The scalar loop equivalent to {@link #sum(IndexedTensor, int)} */
+    static double scalarSum(IndexedTensor a, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a.get(i);
+        return sum;
+    }
+
+    /** The scalar loop equivalent to {@link #squaredDistance(IndexedTensor, IndexedTensor, int)} */
+    static double scalarSquaredDistance(IndexedTensor a, IndexedTensor b, int length) {
+        boolean toFloat = hasFloatResult(a, b);
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            double difference = a.get(i) - b.get(i);
+            if (toFloat) difference = (float)difference;
+            double square = difference * difference;
+            sum += toFloat ? (float)square : square;
+        }
+        return sum;
+    }
+
+    /** The scalar loop equivalent to {@link #join(IndexedTensor, IndexedTensor, int, TensorType, DoubleBinaryOperator)} */
+    static IndexedTensor scalarJoin(IndexedTensor a, IndexedTensor b, int length, TensorType type, DoubleBinaryOperator combinator) {
+        if (type.valueType() == TensorType.Value.DOUBLE) {
+            double[] result = new double[length];
+            for (int i = 0; i < length; i++)
+                result[i] = combinator.applyAsDouble(a.get(i), b.get(i));
+            return IndexedTensor.Builder.of(type, vectorSizes(type, length), result).build();
+        }
+        else {
+            float[] result = new float[length];
+            for (int i = 0; i < length; i++)
+                result[i] = (float)combinator.applyAsDouble(a.get(i), b.get(i));
+            return IndexedTensor.Builder.of(type, vectorSizes(type, length), result).build();
+        }
+    }
+
+    /** The scalar loop equivalent to {@link #copyCells(IndexedTensor, int, double[], int)} */
+    static void scalarCopyCells(IndexedTensor a, int offset, double[] target, int length) {
+        for (int i = 0; i < length; i++)
+            target[i] = a.get(offset + i);
+    }
+
+    /** Returns whether a join of the given tensors has float cells, see {@link TensorType#combinedValueType} */
+    private static boolean hasFloatResult(IndexedTensor a, IndexedTensor b) {
+        return a.type().valueType() != TensorType.Value.DOUBLE && b.type().valueType() != TensorType.Value.DOUBLE;
+    }
+
+    private static DimensionSizes vectorSizes(TensorType type, int length) {
+        return new DimensionSizes.Builder(type.dimensions().size()).set(0, length).build();
+    }
+
+    private static double dotProduct(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a[aOffset + i] * b[bOffset + i];
+        return sum;
+    }
+
+    private static double dotProduct(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += (double)a[aOffset + i] * b[bOffset + i];
+        return sum;
+    }
+
+    // The product of two floats is rounded to float, like the product a float join stores
+    private static double sumOfProducts(float[] a, float[] b, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a[i] * b[i];
+        return sum;
+    }
+
+    private static double sum(double[] a, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a[i];
+        return sum;
+    }
+
+    private static double sum(float[] a, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a[i];
+        return sum;
+    }
+
+    private static double squaredDistance(double[] a, double[] b, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            double difference = a[i] - b[i];
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    private static double squaredDistance(float[] a, float[] b, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            float difference = a[i] - b[i];
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    private static void join(double[] a, double[] b, double[] result, DoubleBinaryOperator combinator) {
+        if (combinator instanceof ScalarFunctions.Multiply)
+            for (int i = 0; i < result.length; i++)
+                result[i] = a[i] * b[i];
+        else if (combinator instanceof ScalarFunctions.Add)
+            for (int i = 0; i < result.length; i++)
+                result[i] = a[i] + b[i];
+        else if (combinator instanceof ScalarFunctions.Subtract)
+            for (int i = 0; i < result.length; i++)
+                result[i] = a[i] - b[i];
+        else
+            for (int i = 0; i < result.length; i++)
+                result[i] = combinator.applyAsDouble(a[i], b[i]);
+    }
+
+    private static void join(float[] a, float[] b, float[] result, DoubleBinaryOperator combinator) {
+        if (combinator instanceof ScalarFunctions.Multiply)
+            for (int i = 0; i < result.length; i++)
+                result[i] = a[i] * b[i];
+        else if (combinator instanceof ScalarFunctions.Add)
+            for (int i = 0; i < result.length; i++)
+                result[i] = a[i] + b[i];
+        else if (combinator instanceof ScalarFunctions.Subtract)
+            for (int i = 0; i < result.length; i++)
+                result[i] = a[i] - b[i];
+        else
+            for (int i = 0; i < result.length; i++)
+                result[i] = (float)combinator.applyAsDouble(a[i], b[i]);
+    }
+
+}
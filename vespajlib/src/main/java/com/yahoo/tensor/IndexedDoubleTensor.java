@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor;
 
+import java.nio.DoubleBuffer;
 import java.util.Arrays;
 
 /**
@@ -29,6 +30,12 @@ class IndexedDoubleTensor extends IndexedTensor {
     @Override
     public double get(long valueIndex) { return values[(int)valueIndex]; }
 
+    /** Returns the values of this in the standard value order. This array must not be modified. */
+    double[] values() { return values; }
+
+    @Override
+    public void copyTo(DoubleBuffer buffer) { buffer.put(values); }
+
     @Override
     public float getFloat(long valueIndex) { return (float)get(valueIndex); }
 
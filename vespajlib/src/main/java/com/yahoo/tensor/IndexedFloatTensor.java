@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor;
 
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 
 /**
@@ -30,6 +31,12 @@ class IndexedFloatTensor extends IndexedTensor {
     @Override
     public float getFloat(long valueIndex) { return values[(int)valueIndex]; }
 
+    /** Returns the values of this in the standard value order. This array must not be modified. */
+    float[] values() { return values; }
+
+    @Override
+    public void copyTo(FloatBuffer buffer) { buffer.put(values); }
+
     @Override
     public IndexedTensor withType(TensorType type) {
         throwOnIncompatibleType(type);
@@ -3,6 +3,8 @@ package com.yahoo.tensor;
 
 import com.google.common.collect.ImmutableMap;
 
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -158,6 +160,24 @@ public abstract class IndexedTensor implements Tensor {
      */
     public abstract float getFloat(long valueIndex);
 
+    /**
+     * Puts the values of this as floats in <i>standard value order</i> into the given buffer,
+     * starting at its current position.
+     */
+    public void copyTo(FloatBuffer buffer) {
+        for (int i = 0; i < size(); i++)
+            buffer.put(getFloat(i));
+    }
+
+    /**
+     * Puts the values of this as doubles in <i>standard value order</i> into the given buffer,
+     * starting at its current position.
+     */
+    public void copyTo(DoubleBuffer buffer) {
+        for (int i = 0; i < size(); i++)
+            buffer.put(get(i));
+    }
+
     static long toValueIndex(long[] indexes, DimensionSizes sizes) {
         if (indexes.length == 1) return indexes[0]; // for speed
         if (indexes.length == 0) return 0; // for speed
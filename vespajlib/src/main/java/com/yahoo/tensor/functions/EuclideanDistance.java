@@ -1,6 +1,8 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor.functions;
 
+import com.yahoo.tensor.DenseKernels;
+import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 import com.yahoo.tensor.evaluation.TypeContext;
@@ -61,10 +63,23 @@ public class EuclideanDistance<NAMETYPE extends Name> extends TensorFunction<NAM
         return toPrimitive().type(context);
     }
 
-    /** Evaluates this by first converting it to a primitive function */
+    /** Evaluates this directly for dense vectors, and otherwise by first converting it to a primitive function */
     @Override
     public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
-        return toPrimitive().evaluate(context);
+        Tensor a = arg1.evaluate(context);
+        Tensor b = arg2.evaluate(context);
+        String resolvedDimension = context.resolveBinding(dimension);
+        if (isVector(a, resolvedDimension) && isVector(b, resolvedDimension)) {
+            int size = (int)Math.min(a.size(), b.size());
+            return Tensor.from(Math.sqrt(DenseKernels.squaredDistance((IndexedTensor)a, (IndexedTensor)b, size)));
+        }
+        return new EuclideanDistance<NAMETYPE>(new ConstantTensor<>(a), new ConstantTensor<>(b), dimension).toPrimitive().evaluate(context);
+    }
+
+    private static boolean isVector(Tensor tensor, String dimension) {
+        return tensor instanceof IndexedTensor
+               && tensor.type().dimensions().size() == 1
+               && tensor.type().dimensions().get(0).name().equals(dimension);
     }
 
     @Override
@@ -0,0 +1,340 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.DenseKernels;
+import com.yahoo.tensor.DimensionSizes;
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.EvaluationContext;
+import com.yahoo.tensor.evaluation.Name;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A chain of cell-wise maps and joins, optionally followed by a reduce, which is evaluated a block of cells at a time,
+ * without creating the intermediate tensors, when all the arguments are dense tensors of the same type.
+ * Other arguments are evaluated as the equivalent chain of primitive functions.
+ *
+ * The chain is compiled into a plan the first time this is evaluated with a given list of argument types,
+ * and the plan is reused for later evaluations with the same argument types. A plan is a list of loops over
+ * a block of cells, one per argument, map and join, each of which runs over double arrays, such that the cells
+ * of the arguments are read directly from their arrays, and the most common maps and joins are done without
+ * calls to their functions. Plans are kept for the most recently used argument types.
+ *
+ * @author bratseth
+ */
+public class FusedCellwise<NAMETYPE extends Name> extends CompositeTensorFunction<NAMETYPE> {
+
+    private static final int maxPlans = 16;
+
+    /** The number of cells evaluated by each loop at a time, such that the blocks of all arguments stay in cache */
+    private static final int blockSize = 1024;
+
+    /** The fused chain, where all functions which are not part of the chain are arguments */
+    private final TensorFunction<NAMETYPE> function;
+    private final List<TensorFunction<NAMETYPE>> arguments;
+    private final java.util.Map<List<TensorType>, Optional<Plan>> plans = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(java.util.Map.Entry<List<TensorType>, Optional<Plan>> eldest) {
+            return size() > maxPlans;
+        }
+    };
+
+    private FusedCellwise(TensorFunction<NAMETYPE> function) {
+        this.function = function;
+        this.arguments = new ArrayList<>();
+        collectArguments(function, true, arguments);
+    }
+
+    /**
+     * Returns the given function as a fused function if it starts with a chain of at least two maps and joins,
+     * or with a reduce of a map, and empty otherwise.
+     * A reduce of a join only is left to {@link ReduceJoin}.
+     */
+    public static <NAMETYPE extends Name> Optional<FusedCellwise<NAMETYPE>> of(TensorFunction<NAMETYPE> function) {
+        int cellwiseFunctions = countCellwise(function, true);
+        boolean reduceOfMap = function instanceof Reduce<NAMETYPE> reduce && reduce.argument() instanceof Map;
+        if (cellwiseFunctions >= 2 || reduceOfMap)
+            return Optional.of(new FusedCellwise<>(function));
+        return Optional.empty();
+    }
+
+    @Override
+    public List<TensorFunction<NAMETYPE>> arguments() { return List.copyOf(arguments); }
+
+    @Override
+    public TensorFunction<NAMETYPE> withArguments(List<TensorFunction<NAMETYPE>> arguments) {
+        if (arguments.size() != this.arguments.size())
+            throw new IllegalArgumentException("FusedCellwise must have " + this.arguments.size() + " arguments, got " +
+                                               arguments.size());
+        return new FusedCellwise<>(withArguments(function, true, arguments.iterator()));
+    }
+
+    @Override
+    public PrimitiveTensorFunction<NAMETYPE> toPrimitive() {
+        return function.toPrimitive();
+    }
+
+    @Override
+    public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
+        List<Tensor> values = new ArrayList<>(arguments.size());
+        List<TensorType> types = new ArrayList<>(arguments.size());
+        for (TensorFunction<NAMETYPE> argument : arguments) {
+            Tensor value = argument.evaluate(context);
+            values.add(value);
+            types.add(value.type());
+        }
+        Optional<Plan> plan;
+        synchronized (plans) {
+            plan = plans.get(types);
+        }
+        if (plan == null) {
+            plan = plan(types);
+            synchronized (plans) {
+                plans.put(types, plan);
+            }
+        }
+        if (plan.isPresent() && values.stream().allMatch(value -> value instanceof IndexedTensor))
+            return plan.get().evaluate(values.toArray(new IndexedTensor[0]));
+
+        List<TensorFunction<NAMETYPE>> constants = new ArrayList<>(values.size());
+        for (Tensor value : values)
+            constants.add(new ConstantTensor<>(value));
+        TensorFunction<NAMETYPE> unfused = withArguments(function, true, constants.iterator());
+        if (unfused instanceof Reduce<NAMETYPE> reduce && reduce.argument() instanceof Join<NAMETYPE> join)
+            unfused = new ReduceJoin<>(reduce, join);
+        return unfused.evaluate(context);
+    }
+
+    @Override
+    public String toString(ToStringContext<NAMETYPE> context) {
+        return function.toString(context);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash("fusedCellwise", function); }
+
+    /** Returns the plan for evaluating this with arguments of the given types, or empty if it cannot be fused */
+    private Optional<Plan> plan(List<TensorType> types) {
+        TensorType type = types.get(0);
+        if (type.dimensions().isEmpty() || ! type.hasOnlyIndexedBoundDimensions()) return Optional.empty();
+        if (type.valueType() != TensorType.Value.DOUBLE && type.valueType() != TensorType.Value.FLOAT) return Optional.empty();
+        for (TensorType argumentType : types)
+            if ( ! argumentType.equals(type)) return Optional.empty();
+
+        DimensionSizes sizes = DimensionSizes.of(type);
+        List<Step> steps = new ArrayList<>();
+        int result = compile(function instanceof Reduce<NAMETYPE> reduce ? reduce.argument() : function,
+                             type.valueType() == TensorType.Value.FLOAT, steps);
+        Program program = new Program(steps, result, types.size());
+        if ( ! (function instanceof Reduce<NAMETYPE> reduce))
+            return Optional.of(new Plan(type, sizes, 1, (int)sizes.totalSize(), program, null));
+
+        // The reduced dimensions must be innermost, such that each reduced cell is reduced from a range of cells
+        List<String> dimensions = reduce.dimensions();
+        if ( ! type.dimensionNames().containsAll(dimensions)) return Optional.empty();
+        int keptDimensions = type.dimensions().size() - dimensions.size();
+        if (dimensions.isEmpty() || keptDimensions == 0)
+            return Optional.of(new Plan(TensorType.empty, DimensionSizes.of(TensorType.empty),
+                                        (int)sizes.totalSize(), 1, program, reduce.aggregator()));
+        for (int i = 0; i < type.dimensions().size(); i++) {
+            boolean reduced = dimensions.contains(type.dimensions().get(i).name());
+            if (reduced != (i >= keptDimensions)) return Optional.empty();
+        }
+        TensorType reducedType = Reduce.outputType(type, dimensions);
+        DimensionSizes reducedSizes = DimensionSizes.of(reducedType);
+        return Optional.of(new Plan(reducedType, reducedSizes, (int)(sizes.totalSize() / reducedSizes.totalSize()),
+                                    (int)reducedSizes.totalSize(), program, reduce.aggregator()));
+    }
+
+    /**
+     * Adds the loops computing the given chain to the given steps, and returns the register holding its values.
+     * Each argument is loaded into a register of its own, in argument order, and each map and join stores its values
+     * in the register of its (first) argument. Intermediate values are rounded to float when the arguments are float,
+     * as the cell values of the intermediate tensors would be.
+     */
+    private int compile(TensorFunction<NAMETYPE> function, boolean toFloat, List<Step> steps) {
+        if (function instanceof Map<NAMETYPE> map) {
+            int argument = compile(map.argument(), toFloat, steps);
+            steps.add(new MapStep(argument, map.mapper(), toFloat));
+            return argument;
+        }
+        else if (function instanceof Join<NAMETYPE> join) {
+            int a = compile(join.arguments().get(0), toFloat, steps);
+            int b = compile(join.arguments().get(1), toFloat, steps);
+            steps.add(new JoinStep(a, b, join.combinator(), toFloat));
+            return a;
+        }
+        else {
+            int argument = (int)steps.stream().filter(step -> step instanceof LoadStep).count();
+            steps.add(new LoadStep(argument));
+            return argument;
+        }
+    }
+
+    private static <NAMETYPE extends Name> boolean isCellwise(TensorFunction<NAMETYPE> function) {
+        return function instanceof Map || function instanceof Join;
+    }
+
+    private static <NAMETYPE extends Name> int countCellwise(TensorFunction<NAMETYPE> function, boolean root) {
+        if (root && function instanceof Reduce<NAMETYPE> reduce)
+            return isCellwise(reduce.argument()) ? countCellwise(reduce.argument(), false) : 0;
+        if ( ! isCellwise(function)) return 0;
+        int count = 1;
+        for (TensorFunction<NAMETYPE> argument : function.arguments())
+            count += countCellwise(argument, false);
+        return count;
+    }
+
+    private static <NAMETYPE extends Name> void collectArguments(TensorFunction<NAMETYPE> function, boolean root,
+                                                                 List<TensorFunction<NAMETYPE>> arguments) {
+        if ((root && function instanceof Reduce) || isCellwise(function))
+            function.arguments().forEach(argument -> collectArguments(argument, false, arguments));
+        else
+            arguments.add(function);
+    }
+
+    private static <NAMETYPE extends Name> TensorFunction<NAMETYPE> withArguments(TensorFunction<NAMETYPE> function,
+                                                                                 boolean root,
+                                                                                 Iterator<TensorFunction<NAMETYPE>> arguments) {
+        if ((root && function instanceof Reduce) || isCellwise(function)) {
+            List<TensorFunction<NAMETYPE>> newArguments = new ArrayList<>();
+            for (TensorFunction<NAMETYPE> argument : function.arguments())
+                newArguments.add(withArguments(argument, false, arguments));
+            return function.withArguments(newArguments);
+        }
+        return arguments.next();
+    }
+
+    /** A loop over a block of cells, reading and writing the registers of a program */
+    private interface Step {
+
+        void apply(IndexedTensor[] arguments, double[][] registers, int start, int length);
+
+    }
+
+    /** Loads a block of cells of an argument into the register with the same index */
+    private record LoadStep(int argument) implements Step {
+
+        @Override
+        public void apply(IndexedTensor[] arguments, double[][] registers, int start, int length) {
+            DenseKernels.copyCells(arguments[argument], start, registers[argument], length);
+        }
+
+    }
+
+    private record MapStep(int register, DoubleUnaryOperator mapper, boolean toFloat) implements Step {
+
+        @Override
+        public void apply(IndexedTensor[] arguments, double[][] registers, int start, int length) {
+            double[] values = registers[register];
+            if (mapper instanceof ScalarFunctions.Square)
+                for (int i = 0; i < length; i++)
+                    values[i] = toFloat ? (float)(values[i] * values[i]) : values[i] * values[i];
+            else if (toFloat)
+                for (int i = 0; i < length; i++)
+                    values[i] = (float)mapper.applyAsDouble(values[i]);
+            else
+                for (int i = 0; i < length; i++)
+                    values[i] = mapper.applyAsDouble(values[i]);
+        }
+
+    }
+
+    /** Joins the values of register a and b into register a */
+    private record JoinStep(int a, int b, DoubleBinaryOperator combinator, boolean toFloat) implements Step {
+
+        @Override
+        public void apply(IndexedTensor[] arguments, double[][] registers, int start, int length) {
+            double[] aValues = registers[a];
+            double[] bValues = registers[b];
+            if (combinator instanceof ScalarFunctions.Multiply)
+                for (int i = 0; i < length; i++)
+                    aValues[i] = toFloat ? (float)(aValues[i] * bValues[i]) : aValues[i] * bValues[i];
+            else if (combinator instanceof ScalarFunctions.Add)
+                for (int i = 0; i < length; i++)
+                    aValues[i] = toFloat ? (float)(aValues[i] + bValues[i]) : aValues[i] + bValues[i];
+            else if (combinator instanceof ScalarFunctions.Subtract)
+                for (int i = 0; i < length; i++)
+                    aValues[i] = toFloat ? (float)(aValues[i] - bValues[i]) : aValues[i] - bValues[i];
+            else if (toFloat)
+                for (int i = 0; i < length; i++)
+                    aValues[i] = (float)combinator.applyAsDouble(aValues[i], bValues[i]);
+            else
+                for (int i = 0; i < length; i++)
+                    aValues[i] = combinator.applyAsDouble(aValues[i], bValues[i]);
+        }
+
+    }
+
+    /** The loops computing a block of cells of the fused chain, which leave the values in the result register */
+    private record Program(List<Step> steps, int result, int registers) {
+
+        /** Computes the cells in [start, start + length) into the result register, and returns that register */
+        double[] apply(IndexedTensor[] arguments, double[][] registers, int start, int length) {
+            for (Step step : steps)
+                step.apply(arguments, registers, start, length);
+            return registers[result];
+        }
+
+    }
+
+    /**
+     * A plan for evaluating the chain for a list of argument types, where each output cell is
+     * the aggregate of a range of cells of the chain, or a single cell of the chain if there is no reduce.
+     */
+    private record Plan(TensorType type, DimensionSizes sizes, int rangeSize, int outputSize,
+                        Program program, Reduce.Aggregator aggregator) {
+
+        Tensor evaluate(IndexedTensor[] arguments) {
+            int cells = rangeSize * outputSize;
+            double[][] registers = new double[program.registers()][Math.min(blockSize, cells)];
+            double[] values = new double[outputSize];
+            Reduce.ValueAggregator valueAggregator = aggregator == null ? null : Reduce.ValueAggregator.ofType(aggregator);
+            boolean sum = aggregator == Reduce.Aggregator.sum;
+            double rangeSum = 0;
+            int output = 0;
+            int inRange = 0;
+            for (int start = 0; start < cells; start += blockSize) {
+                int length = Math.min(blockSize, cells - start);
+                double[] block = program.apply(arguments, registers, start, length);
+                if (valueAggregator == null) {
+                    System.arraycopy(block, 0, values, start, length);
+                    continue;
+                }
+                for (int i = 0; i < length; ) { // Aggregate the part of each range which is in this block, in cell order
+                    int end = Math.min(length, i + rangeSize - inRange);
+                    if (inRange == 0) {
+                        valueAggregator.reset();
+                        rangeSum = 0;
+                    }
+                    if (sum)
+                        for (int j = i; j < end; j++)
+                            rangeSum += block[j];
+                    else
+                        for (int j = i; j < end; j++)
+                            valueAggregator.aggregate(block[j]);
+                    inRange += end - i;
+                    i = end;
+                    if (inRange == rangeSize) {
+                        values[output++] = sum ? rangeSum : valueAggregator.aggregatedValue();
+                        inRange = 0;
+                    }
+                }
+            }
+            if (type.dimensions().isEmpty())
+                return Tensor.Builder.of(type).cell(values[0]).build();
+            return IndexedTensor.Builder.of(type, sizes, values).build();
+        }
+
+    }
+
+}
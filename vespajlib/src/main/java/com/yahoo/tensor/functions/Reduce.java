@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor.functions;
 
+import com.yahoo.tensor.DenseKernels;
 import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.DirectIndexedAddress;
 import com.yahoo.tensor.IndexedTensor;
@@ -232,8 +233,12 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
     }
 
     private static Tensor reduceIndexedVector(IndexedTensor argument, Aggregator aggregator) {
-        ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
         int dimensionSize = Convert.safe2Int(argument.dimensionSizes().size(0));
+        if (aggregator == Aggregator.sum)
+            return Tensor.Builder.of(TensorType.empty).cell(DenseKernels.sum(argument, dimensionSize)).build();
+        if (aggregator == Aggregator.avg)
+            return Tensor.Builder.of(TensorType.empty).cell(DenseKernels.sum(argument, dimensionSize) / dimensionSize).build();
+        ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
         for (int i = 0; i < dimensionSize ; i++)
             valueAggregator.aggregate(argument.get(i));
         return Tensor.Builder.of(TensorType.empty).cell(valueAggregator.aggregatedValue()).build();
@@ -0,0 +1,155 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author bratseth
+ */
+class DictionaryCompressorTest {
+
+    private static final String[] words = { "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel" };
+
+    static byte[] document(Random random) {
+        return ("{\"fields\":{\"title\":\"" + words[random.nextInt(words.length)] + " " + random.nextInt(1000) + "\"," +
+                "\"description\":\"" + words[random.nextInt(words.length)] + " and " + words[random.nextInt(words.length)] + "\"," +
+                "\"timestamp\":" + (1700000000 + random.nextInt(1000000)) + "," +
+                "\"categories\":[\"" + words[random.nextInt(words.length)] + "\"]}}").getBytes(UTF_8);
+    }
+
+    static List<byte[]> documents(int count, long seed) {
+        Random random = new Random(seed);
+        return IntStream.range(0, count).mapToObj(__ -> document(random)).collect(Collectors.toList());
+    }
+
+    @Test
+    void trained_dictionary_makes_small_documents_compress() {
+        CompressionDictionary dictionary = CompressionDictionary.train(documents(200, 1), CompressionDictionary.maxSize);
+        assertTrue(dictionary.content().length <= CompressionDictionary.maxSize);
+
+        DictionaryCompressor compressor = new DictionaryCompressor();
+        long plain = 0, withoutDictionary = 0, withDictionary = 0;
+        for (byte[] document : documents(100, 2)) {
+            byte[] compressed = compressor.compress(document, dictionary);
+            assertEquals(dictionary.id(), DictionaryCompressor.dictionaryId(compressed).getAsInt());
+            assertArrayEquals(document, compressor.decompress(compressed, dictionary));
+
+            plain += document.length;
+            withoutDictionary += compressor.compress(document, null).length;
+            withDictionary += compressed.length;
+        }
+        assertTrue(withoutDictionary < plain);
+        assertTrue(withDictionary * 2 < withoutDictionary,
+                   "Dictionary compressed size " + withDictionary + " should be much less than " + withoutDictionary);
+    }
+
+    @Test
+    void decompression_requires_the_right_dictionary() {
+        DictionaryCompressor compressor = new DictionaryCompressor();
+        byte[] document = "{\"fields\":{\"title\":\"alpha\"}}".getBytes(UTF_8);
+        CompressionDictionary dictionary = new CompressionDictionary("\"fields\":{\"title\":".getBytes(UTF_8));
+        CompressionDictionary other = new CompressionDictionary("something else".getBytes(UTF_8));
+
+        byte[] plain = compressor.compress(document, null);
+        assertFalse(DictionaryCompressor.dictionaryId(plain).isPresent());
+        assertArrayEquals(document, compressor.decompress(plain, null));
+
+        byte[] compressed = compressor.compress(document, dictionary);
+        assertEquals("Data requires compression dictionary " + Integer.toUnsignedString(dictionary.id()) +
+                     ", but none was given",
+                     assertThrows(IllegalArgumentException.class, () -> compressor.decompress(compressed, null)).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> compressor.decompress(compressed, other));
+        assertThrows(IllegalArgumentException.class, () -> compressor.decompress(new byte[] { 0x78, 0x01, 0x00 }, null));
+    }
+
+    @Test
+    void dictionaries_are_trained_from_samples_and_kept_per_key() {
+        CompressionDictionaries dictionaries = new CompressionDictionaries(50, 1 << 12, 2, 2);
+        for (byte[] document : documents(99, 3)) dictionaries.sample("music", document);
+        assertTrue(dictionaries.isSampling("music"));
+
+        dictionaries.sample("music", documents(1, 4).get(0));
+        assertFalse(dictionaries.isSampling("music"));
+        CompressionDictionary trained = dictionaries.trained("music").get();
+        assertTrue(trained.content().length <= 1 << 12);
+        assertEquals(trained, dictionaries.get(trained.id()).get());
+
+        CompressionDictionary first = new CompressionDictionary("first".getBytes(UTF_8));
+        CompressionDictionary second = new CompressionDictionary("second".getBytes(UTF_8));
+        dictionaries.register("music", first);
+        dictionaries.register("music", second);
+        assertEquals(trained, dictionaries.get(trained.id()).get());
+        assertFalse(dictionaries.get(first.id()).isPresent());
+        assertEquals(second, dictionaries.get(second.id()).get());
+        assertTrue(dictionaries.isSampling("books"));
+
+        // Dictionaries are kept for a bounded number of keys
+        dictionaries.register("books", first);
+        assertEquals("Compression dictionaries are already registered for 2 keys, and not for 'films'",
+                     assertThrows(IllegalArgumentException.class, () -> dictionaries.register("films", second)).getMessage());
+    }
+
+    @Test
+    void large_payloads_are_sampled_by_their_prefix() {
+        CompressionDictionaries dictionaries = new CompressionDictionaries(10, 1 << 12, 2, 1);
+        for (byte[] document : documents(20, 5)) {
+            byte[] large = Arrays.copyOf(document, 2 * CompressionDictionaries.maxSampleSize);
+            dictionaries.sample("music", large);
+            dictionaries.sample("books", large); // Ignored, as there is already a sampler for the max number of keys
+            if (dictionaries.isSampling("music"))
+                assertFalse(dictionaries.isSampling("books"));
+        }
+        assertFalse(dictionaries.isSampling("music"));
+        assertTrue(dictionaries.trained("books").isEmpty());
+    }
+
+    @Test
+    void dictionaries_are_trained_by_the_given_executor() {
+        List<Runnable> tasks = new ArrayList<>();
+        CompressionDictionaries dictionaries = new CompressionDictionaries(50, 1 << 12, 2, 2, tasks::add);
+        for (byte[] document : documents(100, 3)) dictionaries.sample("music", document);
+        assertEquals(1, tasks.size());
+        assertFalse(dictionaries.isSampling("music"));
+        assertTrue(dictionaries.trained("music").isEmpty());
+
+        tasks.get(0).run();
+        assertFalse(dictionaries.isSampling("music"));
+        assertTrue(dictionaries.trained("music").isPresent());
+    }
+
+    @Test
+    void sampling_stops_when_training_fails() {
+        CompressionDictionaries dictionaries = new CompressionDictionaries(10, 1 << 12, 2, 1);
+        for (int i = 0; i < 20; i++)
+            dictionaries.sample("music", new byte[0]);
+        assertTrue(dictionaries.trained("music").isEmpty());
+        assertFalse(dictionaries.isSampling("music"));
+        assertTrue(dictionaries.isSampling("books"));
+    }
+
+    @Test
+    void decompressed_size_is_bounded() {
+        DictionaryCompressor compressor = new DictionaryCompressor();
+        byte[] zeros = new byte[1 << 20];
+        byte[] compressed = compressor.compress(zeros, null);
+        assertArrayEquals(zeros, compressor.decompress(compressed, null, zeros.length));
+        assertEquals("Decompressed data is larger than the max size of " + (zeros.length - 1) + " bytes",
+                     assertThrows(IllegalArgumentException.class,
+                                  () -> compressor.decompress(compressed, null, zeros.length - 1)).getMessage());
+    }
+
+}
@@ -0,0 +1,131 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.ToLongFunction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author bratseth
+ */
+class ZstdSeekableOutputStreamTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void frames_can_be_read_from_any_key() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+            content.append(i).append("\tline number ").append(i).append('\n');
+        content.append("x".repeat(3000)).append('\n'); // Longer than a frame, and without a key
+        content.append("10001\tlast line");
+        Path file = write(content.toString(), 1024, ZstdSeekableOutputStreamTest::key);
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            ZstdSeekTable table = ZstdSeekTable.read(channel).get();
+            assertTrue(table.frameCount() > 100);
+            assertTrue(table.hasKeys());
+            assertTrue(table.key(0) > 0 && table.key(0) < table.key(1), "Keys are the greatest key of the lines of each frame");
+            assertEquals(table.key(table.frameCount() - 3), table.key(table.frameCount() - 2)); // The long line
+        }
+        assertEquals(content.toString(), readFrom(file, Long.MIN_VALUE));
+
+        String fromKey = readFrom(file, 5000);
+        int skipped = content.length() - fromKey.length();
+        assertTrue(skipped > content.indexOf("\n5000\t") - 1024, "Starts at most a frame before the key");
+        assertTrue(skipped <= content.indexOf("\n5000\t") + 1, "Starts at or before the key");
+        assertTrue(fromKey.startsWith(fromKey.substring(0, fromKey.indexOf('\t')) + "\tline number "), "Starts at a line");
+        assertTrue(content.toString().endsWith(fromKey));
+        assertEquals("", readFrom(file, 10002));
+    }
+
+    @Test
+    void lines_with_larger_keys_are_not_skipped_when_keys_are_interleaved() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            content.append(i).append("\tfrom the first node\n");
+            content.append(i / 2).append("\tfrom the second node, which is behind\n");
+        }
+        Path file = write(content.toString(), 1024, ZstdSeekableOutputStreamTest::key);
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            ZstdSeekTable table = ZstdSeekTable.read(channel).get();
+            for (int i = 1; i < table.frameCount(); i++)
+                assertTrue(table.key(i - 1) <= table.key(i), "Keys never decrease");
+        }
+        for (long key : new long[] { 0, 1000, 2000, 3000, 4999 }) {
+            String fromKey = readFrom(file, key);
+            String skipped = content.substring(0, content.length() - fromKey.length());
+            assertTrue(skipped.lines().allMatch(line -> key(line) < key), "Only lines with smaller keys are skipped");
+            assertTrue(skipped.length() > content.indexOf("\n" + key + "\t") - 1024, "Starts at most a frame before the key");
+        }
+    }
+
+    @Test
+    void frames_can_be_written_without_keys() throws IOException {
+        String content = "a line\n".repeat(1000);
+        Path file = write(content, 100, null);
+        try (FileChannel channel = FileChannel.open(file)) {
+            ZstdSeekTable table = ZstdSeekTable.read(channel).get();
+            assertEquals(72, table.frameCount()); // 14 lines per frame
+            assertFalse(table.hasKeys());
+            assertEquals(0, table.firstFrameFrom(1000));
+        }
+        assertEquals(content, readFrom(file, 0));
+
+        byte[] compressed = Files.readAllBytes(file);
+        byte[] decompressed = new byte[content.length()];
+        assertEquals(content.length(), new ZstdCompressor().decompressSeekable(compressed, 0, compressed.length, decompressed, 0, decompressed.length));
+        assertEquals(content, new String(decompressed, UTF_8));
+    }
+
+    @Test
+    void files_without_seek_table_are_not_seekable() throws IOException {
+        Path file = directory.resolve("plain.zst");
+        try (OutputStream out = new ZstdOutputStream(Files.newOutputStream(file))) {
+            out.write("some content\n".getBytes(UTF_8));
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            assertEquals(Optional.empty(), ZstdSeekTable.read(channel));
+        }
+    }
+
+    private Path write(String content, int frameSize, ToLongFunction<String> lineKey) throws IOException {
+        Path file = directory.resolve("file.zst");
+        try (OutputStream out = new ZstdSeekableOutputStream(Files.newOutputStream(file), frameSize, lineKey)) {
+            byte[] bytes = content.getBytes(UTF_8);
+            out.write(bytes, 0, 10);
+            out.write(bytes[10]);
+            out.write(bytes, 11, bytes.length - 11);
+        }
+        return file;
+    }
+
+    private static String readFrom(Path file, long key) throws IOException {
+        FileChannel channel = FileChannel.open(file);
+        ZstdSeekTable table = ZstdSeekTable.read(channel).get();
+        try (InputStream in = table.inputStream(channel, table.firstFrameFrom(key))) {
+            return new String(in.readAllBytes(), UTF_8);
+        }
+    }
+
+    private static long key(String line) {
+        int tab = line.indexOf('\t');
+        return tab < 0 ? ZstdSeekableOutputStream.noKey : Long.parseLong(line.substring(0, tab));
+    }
+
+}
@@ -0,0 +1,121 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.tensor.functions.ConstantTensor;
+import com.yahoo.tensor.functions.CosineSimilarity;
+import com.yahoo.tensor.functions.EuclideanDistance;
+import com.yahoo.tensor.functions.Reduce;
+import com.yahoo.tensor.functions.ScalarFunctions;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * @author bratseth
+ */
+public class DenseKernelsTestCase {
+
+    private final Random random = new Random(1);
+
+    @Test
+    public void testKernelsAreEquivalentToScalarLoops() {
+        for (String cellType : new String[] { "double", "float" }) {
+            for (int size : new int[] { 1, 2, 3, 4, 5, 7, 8, 17, 1000 }) {
+                TensorType type = TensorType.fromSpec("tensor<" + cellType + ">(x[" + size + "])");
+                IndexedTensor a = vector(type);
+                IndexedTensor b = vector(type);
+                assertKernels(a, b, size);
+            }
+        }
+    }
+
+    @Test
+    public void testKernelsAreEquivalentForMixedCellTypes() {
+        TensorType doubleType = TensorType.fromSpec("tensor(x[17])");
+        TensorType floatType = TensorType.fromSpec("tensor<float>(x[17])");
+        assertKernels(vector(doubleType), vector(floatType), 17);
+        assertKernels(vector(floatType), vector(doubleType), 17);
+    }
+
+    @Test
+    public void testSumsAreInCellOrder() {
+        IndexedTensor a = (IndexedTensor)Tensor.from("tensor(x[5]):[1e16, 1, 1, 1, -1e16]");
+        assertEquals(0.0, DenseKernels.sum(a, 5), 0);
+        IndexedTensor ones = (IndexedTensor)Tensor.from("tensor(x[5]):[1, 1, 1, 1, 1]");
+        assertEquals(0.0, DenseKernels.dotProduct(a, 0, ones, 0, 5), 0);
+        assertEquals(0.0, new Reduce<>(new ConstantTensor<>(a), Reduce.Aggregator.sum).evaluate().asDouble(), 0);
+    }
+
+    @Test
+    public void testFloatProductsAreRoundedToFloat() {
+        IndexedTensor a = (IndexedTensor)Tensor.from("tensor<float>(x[1]):[1.1]");
+        IndexedTensor b = (IndexedTensor)Tensor.from("tensor<float>(x[1]):[1.3]");
+        float product = 1.1f * 1.3f;
+        assertEquals(product, DenseKernels.sumOfProducts(a, b, 1), 0);
+        assertEquals((double)1.1f * 1.3f, DenseKernels.dotProduct(a, 0, b, 0, 1), 0);
+        assertNotEquals(DenseKernels.sumOfProducts(a, b, 1), DenseKernels.dotProduct(a, 0, b, 0, 1), 0);
+    }
+
+    @Test
+    public void testDistancesAreEqualToPrimitiveFunctions() {
+        for (String cellTypes : new String[] { "double,double", "float,float", "float,double" }) {
+            String[] types = cellTypes.split(",");
+            for (int size : new int[] { 1, 5, 17, 1000 }) {
+                Tensor a = vector(TensorType.fromSpec("tensor<" + types[0] + ">(x[" + size + "])"));
+                Tensor b = vector(TensorType.fromSpec("tensor<" + types[1] + ">(x[" + size + "])"));
+                var cosine = new CosineSimilarity<>(new ConstantTensor<>(a), new ConstantTensor<>(b), "x");
+                assertEquals(cellTypes, cosine.toPrimitive().evaluate().asDouble(), cosine.evaluate().asDouble(), 0);
+                var euclidean = new EuclideanDistance<>(new ConstantTensor<>(a), new ConstantTensor<>(b), "x");
+                assertEquals(cellTypes, euclidean.toPrimitive().evaluate().asDouble(), euclidean.evaluate().asDouble(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testDotProductWithOffsets() {
+        IndexedTensor a = (IndexedTensor)Tensor.from("tensor<float>(i[2],x[3]):[[1,2,3],[4,5,6]]");
+        IndexedTensor b = (IndexedTensor)Tensor.from("tensor<float>(i[2],x[3]):[[7,8,9],[1,1,1]]");
+        assertEquals(4 * 7 + 5 * 8 + 6 * 9, DenseKernels.dotProduct(a, 3, b, 0, 3), 0);
+        assertEquals(4 + 5 + 6, DenseKernels.dotProduct(a, 3, b, 3, 3), 0);
+        assertEquals(2 * 8 + 3 * 9, DenseKernels.dotProduct(a, 1, b, 1, 2), 0);
+    }
+
+    @Test
+    public void testJoinProducesTheGivenType() {
+        IndexedTensor a = (IndexedTensor)Tensor.from("tensor(x[3]):[1,2,3]");
+        IndexedTensor b = (IndexedTensor)Tensor.from("tensor(x[3]):[4,5,6]");
+        TensorType floatType = TensorType.fromSpec("tensor<float>(x[3])");
+        Tensor joined = DenseKernels.join(a, b, 3, floatType, ScalarFunctions.multiply());
+        assertEquals(Tensor.from("tensor<float>(x[3]):[4,10,18]"), joined);
+        assertEquals(floatType, joined.type());
+    }
+
+    private void assertKernels(IndexedTensor a, IndexedTensor b, int size) {
+        String message = a.type() + " of size " + size;
+        assertEquals(message, DenseKernels.scalarDotProduct(a, 0, b, 0, size), DenseKernels.dotProduct(a, 0, b, 0, size), 0);
+        assertEquals(message, DenseKernels.scalarSumOfProducts(a, b, size), DenseKernels.sumOfProducts(a, b, size), 0);
+        assertEquals(message, DenseKernels.scalarSum(a, size), DenseKernels.sum(a, size), 0);
+        assertEquals(message, DenseKernels.scalarSquaredDistance(a, b, size), DenseKernels.squaredDistance(a, b, size), 0);
+        double[] cells = new double[size];
+        double[] scalarCells = new double[size];
+        DenseKernels.copyCells(a, 0, cells, size);
+        DenseKernels.scalarCopyCells(a, 0, scalarCells, size);
+        assertArrayEquals(message, scalarCells, cells, 0);
+        for (var combinator : List.of(ScalarFunctions.multiply(), ScalarFunctions.subtract(), ScalarFunctions.max()))
+            assertEquals(message, DenseKernels.scalarJoin(a, b, size, a.type(), combinator),
+                         DenseKernels.join(a, b, size, a.type(), combinator));
+    }
+
+    private IndexedTensor vector(TensorType type) {
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(type);
+        for (int i = 0; i < type.dimensions().get(0).size().get(); i++)
+            builder.cellByDirectIndex(i, random.nextDouble() * 2 - 1);
+        return builder.build();
+    }
+
+}
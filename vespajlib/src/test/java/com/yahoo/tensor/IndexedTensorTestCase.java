@@ -3,11 +3,14 @@ package com.yahoo.tensor;
 
 import org.junit.Test;
 
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
@@ -66,6 +69,19 @@ public class IndexedTensorTestCase {
         }
     }
 
+    @Test
+    public void testCopyToBuffers() {
+        for (String spec : List.of("tensor(x[2],y[2]):[[1,2],[3,4.5]]", "tensor<float>(x[2],y[2]):[[1,2],[3,4.5]]")) {
+            IndexedTensor tensor = (IndexedTensor)Tensor.from(spec);
+            FloatBuffer floats = FloatBuffer.allocate(5).put(0.5f);
+            tensor.copyTo(floats);
+            assertArrayEquals(new float[] { 0.5f, 1, 2, 3, 4.5f }, floats.array(), 0);
+            DoubleBuffer doubles = DoubleBuffer.allocate(4);
+            tensor.copyTo(doubles);
+            assertArrayEquals(new double[] { 1, 2, 3, 4.5 }, doubles.array(), 0);
+        }
+    }
+
     @Test
     public void testBoundHandoverBuilding() {
         verifyFloat("tensor<float>(x[3])");
@@ -9,11 +9,13 @@ import com.yahoo.tensor.functions.Join;
 import com.yahoo.tensor.functions.Reduce;
 import com.yahoo.tensor.functions.TensorFunction;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
 /**
- * Microbenchmark of a "dot product" of two mapped rank 2 tensors
+ * Microbenchmark of a "dot product" of two mapped rank 2 tensors,
+ * and of the dense dot product kernel compared with the equivalent scalar loop.
  *
  * @author bratseth
  */
@@ -31,6 +33,32 @@ public class MatrixDotProductBenchmark {
         return (double)totalTime / (double)iterations;
     }
 
+    /** Returns the time in ms per dot product of a query vector with each of the given vectors, in the kernel or the scalar loop */
+    public double benchmarkKernel(int iterations, List<IndexedTensor> vectors, boolean scalar) {
+        IndexedTensor queryVector = vectors.get(0);
+        kernelDotProduct(queryVector, vectors, Math.max(iterations/10, 10), scalar); // warmup
+        System.gc();
+        long startTime = System.nanoTime();
+        kernelDotProduct(queryVector, vectors, iterations, scalar);
+        long totalTime = System.nanoTime() - startTime;
+        return totalTime / 1_000_000.0 / iterations;
+    }
+
+    private double kernelDotProduct(IndexedTensor queryVector, List<IndexedTensor> vectors, int iterations, boolean scalar) {
+        double largest = Double.MIN_VALUE;
+        int size = (int)queryVector.size();
+        for (int i = 0 ; i < iterations; i++) {
+            for (IndexedTensor vector : vectors) {
+                double dotProduct = scalar ? DenseKernels.scalarDotProduct(queryVector, 0, vector, 0, size)
+                                           : DenseKernels.dotProduct(queryVector, 0, vector, 0, size);
+                if (dotProduct > largest) {
+                    largest = dotProduct;
+                }
+            }
+        }
+        return largest;
+    }
+
     private double dotProduct(Tensor tensor, List<Tensor> tensors, int iterations) {
         double result = 0;
         for (int i = 0 ; i < iterations; i++)
@@ -71,6 +99,18 @@ public class MatrixDotProductBenchmark {
         return List.of(builder.build());
     }
 
+    private static List<IndexedTensor> vectors(int count, int size, TensorType.Value cellType) {
+        TensorType type = new TensorType.Builder(cellType).indexed("x", size).build();
+        List<IndexedTensor> vectors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(type);
+            for (int j = 0; j < size; j++)
+                builder.cellByDirectIndex(j, random.nextDouble());
+            vectors.add(builder.build());
+        }
+        return vectors;
+    }
+
     private static void addDimension(TensorType.Builder builder, String name, TensorType.Dimension.Type type, int size) {
         switch (type) {
             case mapped: builder.mapped(name); break;
@@ -83,6 +123,14 @@ public class MatrixDotProductBenchmark {
     public static void main(String[] args) {
         double time = new MatrixDotProductBenchmark().benchmark(10000, matrix(10, 55, TensorType.Dimension.Type.mapped), TensorType.Dimension.Type.mapped);
         System.out.printf("Matrixes, 10*55 size matrixes. Time per sum(join): %1$8.3f ms\n", time);
+
+        for (TensorType.Value cellType : List.of(TensorType.Value.DOUBLE, TensorType.Value.FLOAT)) {
+            List<IndexedTensor> vectors = vectors(100, 768, cellType);
+            time = new MatrixDotProductBenchmark().benchmarkKernel(10000, vectors, false);
+            System.out.printf("Dense %1$6s vectors, 100*768 size. Time per dot product kernel: %2$8.3f ms\n", cellType, time);
+            time = new MatrixDotProductBenchmark().benchmarkKernel(10000, vectors, true);
+            System.out.printf("Dense %1$6s vectors, 100*768 size. Time per scalar loop:        %2$8.3f ms\n", cellType, time);
+        }
     }
 
 }
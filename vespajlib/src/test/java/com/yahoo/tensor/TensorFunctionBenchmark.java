@@ -5,8 +5,11 @@ import com.yahoo.tensor.evaluation.MapEvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 import com.yahoo.tensor.evaluation.VariableTensor;
 import com.yahoo.tensor.functions.ConstantTensor;
+import com.yahoo.tensor.functions.FusedCellwise;
 import com.yahoo.tensor.functions.Join;
+import com.yahoo.tensor.functions.Map;
 import com.yahoo.tensor.functions.Reduce;
+import com.yahoo.tensor.functions.ScalarFunctions;
 import com.yahoo.tensor.functions.TensorFunction;
 
 import java.util.ArrayList;
@@ -38,6 +41,50 @@ public class TensorFunctionBenchmark {
         return (double) totalTime / (double) iterations;
     }
 
+    /**
+     * Returns the time per evaluation of the squared distance reduce(map(join(a, b, f(x,y)(x - y)), f(x)(x * x)), sum)
+     * between a query vector and the given vectors, evaluated as a fused chain, or as the primitive functions.
+     */
+    public double benchmarkCellwiseChain(int iterations, List<Tensor> vectors, boolean fused) {
+        TensorFunction<Name> squaredDistance = new Reduce<>(
+                new Map<>(new Join<>(new ConstantTensor<>(vectors.get(0)), new VariableTensor<>("argument"), ScalarFunctions.subtract()),
+                          ScalarFunctions.square()),
+                Reduce.Aggregator.sum);
+        TensorFunction<Name> function = fused ? FusedCellwise.of(squaredDistance).get() : squaredDistance.toPrimitive();
+        // Evaluate other chains first, as a container does, such that calls which are inlined only when
+        // a single chain is ever evaluated are not
+        for (TensorFunction<Name> other : otherCellwiseChains(vectors.get(0)))
+            evaluate(fused ? FusedCellwise.of(other).get() : other.toPrimitive(), vectors, Math.max(iterations / 10, 10));
+        evaluate(function, vectors, Math.max(iterations / 10, 10)); // warmup
+        System.gc();
+        long startTime = System.currentTimeMillis();
+        evaluate(function, vectors, iterations);
+        long totalTime = System.currentTimeMillis() - startTime;
+        return (double) totalTime / (double) iterations;
+    }
+
+    private static List<TensorFunction<Name>> otherCellwiseChains(Tensor tensor) {
+        TensorFunction<Name> a = new ConstantTensor<>(tensor);
+        TensorFunction<Name> b = new VariableTensor<>("argument");
+        return List.of(new Reduce<>(new Map<>(a, ScalarFunctions.square()), Reduce.Aggregator.max),
+                       new Reduce<>(new Map<>(new Join<>(a, b, ScalarFunctions.max()), ScalarFunctions.exp()), Reduce.Aggregator.sum),
+                       new Reduce<>(new Map<>(new Join<>(new Join<>(a, b, ScalarFunctions.add()), a, ScalarFunctions.multiply()),
+                                              ScalarFunctions.sqrt()),
+                                    Reduce.Aggregator.sum));
+    }
+
+    private double evaluate(TensorFunction<Name> function, List<Tensor> tensors, int iterations) {
+        MapEvaluationContext<Name> context = new MapEvaluationContext<>();
+        double result = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (Tensor tensor : tensors) {
+                context.put("argument", tensor);
+                result += function.evaluate(context).asDouble();
+            }
+        }
+        return result;
+    }
+
     private Tensor unitVector(String dimension) {
         return Tensor.Builder.of(new TensorType.Builder().indexed(dimension, 1).build())
                 .cell().label(dimension, 0).value(1).build();
@@ -54,7 +101,7 @@ public class TensorFunctionBenchmark {
         double largest = Double.MIN_VALUE;
         TensorFunction<Name> dotProductFunction = new Reduce<>(
                 new Join<>(new ConstantTensor<>(tensor),
-                        new VariableTensor<>("argument"), (a, b) -> a * b
+                        new VariableTensor<>("argument"), ScalarFunctions.multiply()
                 ),
                 Reduce.Aggregator.sum
         ).toPrimitive();
@@ -134,6 +181,14 @@ public class TensorFunctionBenchmark {
         // Important to use size larger than in Label.SMALL_INDEX_LABELS for more comprehensive benchmark
         int vectorSize = 2000;
 
+        // ---------------- Cell-wise chains of indexed bound vectors:
+        time = new TensorFunctionBenchmark().benchmarkCellwiseChain(
+                5000, vectors(100, vectorSize, TensorType.Dimension.Type.indexedBound, false), false);
+        System.out.printf("Indexed bound vectors, primitive chain,      time per chain: %1$8.3f ms\n", time);
+        time = new TensorFunctionBenchmark().benchmarkCellwiseChain(
+                5000, vectors(100, vectorSize, TensorType.Dimension.Type.indexedBound, false), true);
+        System.out.printf("Indexed bound vectors, fused chain,          time per chain: %1$8.3f ms\n", time);
+
         // ---------------- Indexed unbound:
         time = new TensorFunctionBenchmark().benchmark(
                 5000, vectorSize, vectors(100, vectorSize, TensorType.Dimension.Type.indexedUnbound, false),
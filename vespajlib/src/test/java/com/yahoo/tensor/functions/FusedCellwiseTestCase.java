@@ -0,0 +1,113 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.DimensionSizes;
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.Name;
+import com.yahoo.tensor.evaluation.VariableTensor;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class FusedCellwiseTestCase {
+
+    private final TensorFunction<Name> a = new VariableTensor<>("a");
+    private final TensorFunction<Name> b = new VariableTensor<>("b");
+
+    @Test
+    public void testFusion() {
+        assertFalse(FusedCellwise.of(new Join<>(a, b, ScalarFunctions.add())).isPresent());
+        assertFalse(FusedCellwise.of(new Map<>(a, ScalarFunctions.sqrt())).isPresent());
+        assertFalse("Left to ReduceJoin",
+                    FusedCellwise.of(new Reduce<>(new Join<>(a, b, ScalarFunctions.multiply()), Reduce.Aggregator.sum)).isPresent());
+        assertTrue(FusedCellwise.of(new Reduce<>(new Map<>(a, ScalarFunctions.square()), Reduce.Aggregator.sum)).isPresent());
+        assertTrue(FusedCellwise.of(new Map<>(new Join<>(a, b, ScalarFunctions.add()), ScalarFunctions.sqrt())).isPresent());
+
+        var fused = FusedCellwise.of(new Join<>(new Join<>(a, b, ScalarFunctions.add()), a, ScalarFunctions.multiply())).get();
+        assertEquals(3, fused.arguments().size());
+        assertEquals(fused.toPrimitive().toString(), fused.toString());
+        assertEquals(fused.toString(), fused.withArguments(fused.arguments()).toString());
+    }
+
+    @Test
+    public void testFusedEvaluationIsEquivalentToPrimitiveEvaluation() {
+        TensorFunction<Name> squaredDistance =
+                new Reduce<>(new Map<>(new Join<>(a, b, ScalarFunctions.subtract()), ScalarFunctions.square()),
+                             Reduce.Aggregator.sum, "x");
+        TensorFunction<Name> scaledSum =
+                new Map<>(new Join<>(new Join<>(a, b, ScalarFunctions.add()), a, ScalarFunctions.multiply()),
+                          ScalarFunctions.sqrt());
+        TensorFunction<Name> maxOfSquares =
+                new Reduce<>(new Map<>(a, ScalarFunctions.square()), Reduce.Aggregator.max);
+
+        for (TensorFunction<Name> function : List.of(squaredDistance, scaledSum, maxOfSquares)) {
+            assertEquivalent(function, "tensor(x[3]):[1,2,3]", "tensor(x[3]):[4,5,6]");
+            assertEquivalent(function, "tensor<float>(x[3]):[1.1,2.2,3.3]", "tensor<float>(x[3]):[4.4,5.5,6.6]");
+            assertEquivalent(function, "tensor(d0[2],x[3]):[[1,2,3],[4,5,6]]", "tensor(d0[2],x[3]):[[6,5,4],[3,2,1]]");
+            assertEquivalent(function, "tensor<float>(x[2],y[3]):[[1,2,3],[4,5,6]]", "tensor<float>(x[2],y[3]):[[6,5,4],[3,2,1]]");
+            assertEquivalent(function, "tensor(x{}):{a:1,b:2}", "tensor(x{}):{a:3,b:4}");
+            assertEquivalent(function, "tensor(x[3]):[1,2,3]", "tensor<float>(x[3]):[4,5,6]");
+        }
+    }
+
+    @Test
+    public void testEvaluationOverMoreCellsThanABlock() {
+        TensorFunction<Name> squaredDistance =
+                new Reduce<>(new Map<>(new Join<>(a, b, ScalarFunctions.subtract()), ScalarFunctions.square()),
+                             Reduce.Aggregator.sum, "x");
+        TensorFunction<Name> scaledSum =
+                new Map<>(new Join<>(new Join<>(a, b, ScalarFunctions.add()), a, ScalarFunctions.multiply()),
+                          ScalarFunctions.sqrt());
+        Random random = new Random(1);
+        for (String type : List.of("tensor(d0[3],x[1500])", "tensor<float>(d0[3],x[1500])")) {
+            for (TensorFunction<Name> function : List.of(squaredDistance, scaledSum))
+                assertEquivalent(function, random(TensorType.fromSpec(type), random), random(TensorType.fromSpec(type), random));
+        }
+    }
+
+    @Test
+    public void testPlansAreKeptForTheMostRecentlyUsedTypes() {
+        FusedCellwise<Name> fused = FusedCellwise.of(new Map<>(new Join<>(a, b, ScalarFunctions.add()), ScalarFunctions.sqrt())).get();
+        for (int i = 1; i <= 20; i++) {
+            MapEvaluationContext<Name> context = new MapEvaluationContext<>();
+            Tensor tensor = Tensor.from("tensor(x[" + i + "])", "[" + "1,".repeat(i - 1) + "1]");
+            context.put("a", tensor);
+            context.put("b", tensor);
+            assertEquals(fused.toPrimitive().evaluate(context), fused.evaluate(context));
+        }
+    }
+
+    private static Tensor random(TensorType type, Random random) {
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(type);
+        for (int i = 0; i < DimensionSizes.of(type).totalSize(); i++)
+            builder.cellByDirectIndex(i, random.nextDouble());
+        return builder.build();
+    }
+
+    private void assertEquivalent(TensorFunction<Name> function, String a, String b) {
+        assertEquivalent(function, Tensor.from(a), Tensor.from(b));
+    }
+
+    private void assertEquivalent(TensorFunction<Name> function, Tensor a, Tensor b) {
+        MapEvaluationContext<Name> context = new MapEvaluationContext<>();
+        context.put("a", a);
+        context.put("b", b);
+        Tensor expected = function.toPrimitive().evaluate(context);
+        FusedCellwise<Name> fused = FusedCellwise.of(function).get();
+        assertEquals(function + " of " + a + " and " + b, expected, fused.evaluate(context));
+        assertEquals("Evaluation with a cached plan", expected, fused.evaluate(context));
+        assertEquals(expected.type(), fused.evaluate(context).type());
+    }
+
+}